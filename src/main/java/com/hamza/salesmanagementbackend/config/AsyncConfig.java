@@ -10,7 +10,7 @@ import java.util.concurrent.Executor;
 
 /**
  * Configuration for async task execution
- * Used by the KeepAliveService for non-blocking scheduled tasks
+ * Used by the KeepAliveService for non-blocking scheduled tasks and by bulk product imports
  */
 @Configuration
 @Slf4j
@@ -31,4 +31,17 @@ public class AsyncConfig implements AsyncConfigurer {
         log.info("Async executor configured for keep-alive service");
         return executor;
     }
+
+    @Bean(name = "productImportExecutor")
+    public ThreadPoolTaskExecutor productImportExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(20);
+        executor.setThreadNamePrefix("ProductImport-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
 }
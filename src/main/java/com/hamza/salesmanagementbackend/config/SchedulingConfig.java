@@ -0,0 +1,34 @@
+package com.hamza.salesmanagementbackend.config;
+
+import org.springframework.boot.task.TaskSchedulerBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+/**
+ * Runs the @Scheduled jobs on their own pool, sized by spring.task.scheduling.pool.size, so the
+ * nightly and hourly batch jobs do not hold up the frequent outbox, reservation, reconcile and
+ * flush jobs. Without it the jobs would share the SockJS heartbeat scheduler, whose bean makes
+ * Spring Boot skip its own scheduler.
+ */
+@Configuration
+public class SchedulingConfig implements SchedulingConfigurer {
+
+    private final TaskSchedulerBuilder taskSchedulerBuilder;
+
+    public SchedulingConfig(TaskSchedulerBuilder taskSchedulerBuilder) {
+        this.taskSchedulerBuilder = taskSchedulerBuilder;
+    }
+
+    @Bean(name = "scheduledJobsTaskScheduler")
+    public ThreadPoolTaskScheduler scheduledJobsTaskScheduler() {
+        return taskSchedulerBuilder.build();
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.setTaskScheduler(scheduledJobsTaskScheduler());
+    }
+}
@@ -157,6 +157,41 @@ public class CategoryController {
         }
     }
 
+    @GetMapping("/{id}/subtree")
+    public ResponseEntity<List<CategoryDTO>> getCategorySubtree(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(categoryService.getCategorySubtree(id));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping("/{id}/path")
+    public ResponseEntity<List<CategoryDTO>> getCategoryPath(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(categoryService.getCategoryPath(id));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Moves a category with its subcategories; {"parentId": null} makes it top-level
+     */
+    @PutMapping("/{id}/parent")
+    public ResponseEntity<CategoryDTO> moveCategory(@PathVariable Long id,
+                                                    @RequestBody Map<String, Long> request) {
+        if (id <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            return ResponseEntity.ok(categoryService.moveCategory(id, request.get("parentId")));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     @GetMapping("/no-inventory")
     public ResponseEntity<List<CategoryDTO>> getCategoriesWithoutInventory() {
         List<CategoryDTO> categories = categoryService.getCategoriesWithoutInventory();
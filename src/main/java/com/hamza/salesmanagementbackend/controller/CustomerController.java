@@ -2,7 +2,10 @@ package com.hamza.salesmanagementbackend.controller;
 
 
 import com.hamza.salesmanagementbackend.dto.CustomerDTO;
+import com.hamza.salesmanagementbackend.dto.CustomerSalesSliceDTO;
+import com.hamza.salesmanagementbackend.dto.CustomerWithSalesDTO;
 import com.hamza.salesmanagementbackend.exception.ResourceNotFoundException;
+import com.hamza.salesmanagementbackend.service.CustomerRegionService;
 import com.hamza.salesmanagementbackend.service.CustomerService;
 import com.hamza.salesmanagementbackend.util.SortingUtils;
 import javax.validation.Valid;
@@ -26,6 +29,9 @@ public class CustomerController {
     @Autowired
     private CustomerService customerService;
 
+    @Autowired
+    private CustomerRegionService customerRegionService;
+
     @GetMapping
     public ResponseEntity<Page<CustomerDTO>> getAllCustomers(
             @RequestParam(defaultValue = "0") int page,
@@ -101,6 +107,32 @@ public class CustomerController {
         return ResponseEntity.noContent().build();
     }
 
+    /**
+     * Customer with purchase totals and the most recent sales
+     */
+    @GetMapping("/{id}/with-sales")
+    public ResponseEntity<CustomerWithSalesDTO> getCustomerWithSales(@PathVariable Long id) {
+        if (id <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(customerService.getCustomerWithSales(id));
+    }
+
+    /**
+     * Customer's sales newest first; pass the returned nextCursor to page further back
+     */
+    @GetMapping("/{id}/sales")
+    public ResponseEntity<CustomerSalesSliceDTO> getCustomerSales(
+            @PathVariable Long id,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        if (id <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        SortingUtils.PaginationParams paginationParams = SortingUtils.validatePaginationParams(0, size);
+        return ResponseEntity.ok(customerService.getCustomerSales(id, cursor, paginationParams.size));
+    }
+
     @PostMapping("/{id}/restore")
     public ResponseEntity<CustomerDTO> restoreCustomer(@PathVariable Long id) {
         if (id <= 0) {
@@ -127,6 +159,14 @@ public class CustomerController {
         return ResponseEntity.ok(deletedCustomers);
     }
 
+    /**
+     * Customer counts and totals for the admin home page
+     */
+    @GetMapping("/statistics")
+    public ResponseEntity<Map<String, Object>> getCustomerStatistics() {
+        return ResponseEntity.ok(customerService.getCustomerStatistics());
+    }
+
     @GetMapping("/search")
     public ResponseEntity<Page<CustomerDTO>> searchCustomers(
             @RequestParam String query,
@@ -172,4 +212,13 @@ public class CustomerController {
         response.put("customersFixed", fixed);
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * Resolves customer regions now; with all=true every customer is re-resolved, otherwise only
+     * customers without a region
+     */
+    @PostMapping("/regions/backfill")
+    public ResponseEntity<Map<String, Object>> backfillRegions(@RequestParam(defaultValue = "false") boolean all) {
+        return ResponseEntity.ok(customerRegionService.backfill(all));
+    }
 }
@@ -0,0 +1,100 @@
+package com.hamza.salesmanagementbackend.controller;
+
+import com.hamza.salesmanagementbackend.service.CostLayerService;
+import com.hamza.salesmanagementbackend.service.CouponCodeCache;
+import com.hamza.salesmanagementbackend.service.CounterContentionMonitor;
+import com.hamza.salesmanagementbackend.service.CustomerRegionService;
+import com.hamza.salesmanagementbackend.service.CustomerRfmService;
+import com.hamza.salesmanagementbackend.service.CustomerSearchIndex;
+import com.hamza.salesmanagementbackend.service.CustomerStatisticsService;
+import com.hamza.salesmanagementbackend.service.InventorySummaryService;
+import com.hamza.salesmanagementbackend.service.OutboxDispatcher;
+import com.hamza.salesmanagementbackend.service.ProductImportService;
+import com.hamza.salesmanagementbackend.service.ProductScanCache;
+import com.hamza.salesmanagementbackend.service.ProductSearchIndex;
+import com.hamza.salesmanagementbackend.service.PromotionEligibilityIndex;
+import com.hamza.salesmanagementbackend.service.PromotionLifecycleScheduler;
+import com.hamza.salesmanagementbackend.service.ReorderSuggestionService;
+import com.hamza.salesmanagementbackend.service.SalesPeriodAggregateService;
+import com.hamza.salesmanagementbackend.service.StockAlertService;
+import com.hamza.salesmanagementbackend.service.StockMovementService;
+import com.hamza.salesmanagementbackend.service.StockReservationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runtime metrics for counters, queues and in-memory caches
+ */
+@RestController
+@RequestMapping("/api/v1/metrics")
+@CrossOrigin(origins = "*")
+@RequiredArgsConstructor
+public class MetricsController {
+
+    private final CounterContentionMonitor contentionMonitor;
+    private final OutboxDispatcher outboxDispatcher;
+    private final StockReservationService stockReservationService;
+    private final PromotionEligibilityIndex promotionEligibilityIndex;
+    private final CouponCodeCache couponCodeCache;
+    private final PromotionLifecycleScheduler promotionLifecycleScheduler;
+    private final ProductSearchIndex productSearchIndex;
+    private final CustomerSearchIndex customerSearchIndex;
+    private final CustomerStatisticsService customerStatisticsService;
+    private final CustomerRfmService customerRfmService;
+    private final CustomerRegionService customerRegionService;
+    private final ProductScanCache productScanCache;
+    private final InventorySummaryService inventorySummaryService;
+    private final ProductImportService productImportService;
+    private final StockAlertService stockAlertService;
+    private final ReorderSuggestionService reorderSuggestionService;
+    private final SalesPeriodAggregateService salesPeriodAggregateService;
+    private final CostLayerService costLayerService;
+    private final StockMovementService stockMovementService;
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("counters", contentionMonitor.getStatistics());
+        metrics.put("outbox", outboxDispatcher.getStatistics());
+        metrics.put("stockReservations", stockReservationService.getStatistics());
+        metrics.put("promotionIndex", promotionEligibilityIndex.getStatistics());
+        metrics.put("couponCache", couponCodeCache.getStatistics());
+        metrics.put("promotionLifecycle", promotionLifecycleScheduler.getStatistics());
+        metrics.put("productSearch", productSearchIndex.getStatistics());
+        metrics.put("customerSearch", customerSearchIndex.getStatistics());
+        metrics.put("customerStatistics", customerStatisticsService.getStatistics());
+        metrics.put("customerRfm", customerRfmService.getStatistics());
+        metrics.put("customerRegions", customerRegionService.getStatistics());
+        metrics.put("productScanCache", productScanCache.getStatistics());
+        metrics.put("inventorySummary", inventorySummaryService.getStatistics());
+        metrics.put("productImport", productImportService.getStatistics());
+        metrics.put("stockAlerts", stockAlertService.getStatistics());
+        metrics.put("reorderSuggestions", reorderSuggestionService.getStatistics());
+        metrics.put("salesPeriods", salesPeriodAggregateService.getStatistics());
+        metrics.put("costLayers", costLayerService.getStatistics());
+        metrics.put("stockMovements", stockMovementService.getStatistics());
+        return ResponseEntity.ok(metrics);
+    }
+
+    /**
+     * Hottest counters by write traffic, with guard rejections and update latency
+     */
+    @GetMapping("/counters")
+    public ResponseEntity<List<Map<String, Object>>> getHotCounters(@RequestParam(defaultValue = "20") int limit) {
+        if (limit <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(contentionMonitor.getHotCounters(Math.min(limit, 500)));
+    }
+
+    @DeleteMapping("/counters")
+    public ResponseEntity<Void> resetCounters() {
+        contentionMonitor.reset();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -2,10 +2,16 @@ package com.hamza.salesmanagementbackend.controller;
 
 
 import com.hamza.salesmanagementbackend.dto.ProductDTO;
+import com.hamza.salesmanagementbackend.dto.ProductImportStatusDTO;
+import com.hamza.salesmanagementbackend.dto.ProductScanDTO;
 import com.hamza.salesmanagementbackend.dto.RecentProductsResponseDTO;
 import com.hamza.salesmanagementbackend.dto.InventorySummaryDTO;
+import com.hamza.salesmanagementbackend.dto.StockMovementDTO;
 import com.hamza.salesmanagementbackend.exception.ResourceNotFoundException;
+import com.hamza.salesmanagementbackend.service.ProductImportService;
+import com.hamza.salesmanagementbackend.service.ProductScanCache;
 import com.hamza.salesmanagementbackend.service.ProductService;
+import com.hamza.salesmanagementbackend.service.StockMovementService;
 import com.hamza.salesmanagementbackend.util.SortingUtils;
 import lombok.extern.slf4j.Slf4j;
 import javax.validation.Valid;
@@ -14,10 +20,17 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
 
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.Map;
 
 @RestController
@@ -29,13 +42,23 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ProductScanCache productScanCache;
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private StockMovementService stockMovementService;
+
     @GetMapping
     public ResponseEntity<Page<ProductDTO>> getAllProducts(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
             @RequestParam(defaultValue = "asc") String sortDir,
-            @RequestParam(required = false) String category) {
+            @RequestParam(required = false) String category,
+            @RequestParam(defaultValue = "false") boolean includeSubcategories) {
 
         // Validate pagination and sorting parameters
         SortingUtils.PaginationParams paginationParams = SortingUtils.validatePaginationParams(page, size);
@@ -47,9 +70,13 @@ public class ProductController {
             // Try to parse as category ID first, then fall back to category name
             try {
                 Long categoryId = Long.parseLong(category.trim());
-                products = productService.getProductsByCategoryId(categoryId, pageable);
+                products = includeSubcategories
+                        ? productService.getProductsInCategoryTree(categoryId, pageable)
+                        : productService.getProductsByCategoryId(categoryId, pageable);
             } catch (NumberFormatException e) {
-                products = productService.getProductsByCategoryName(category.trim(), pageable);
+                products = includeSubcategories
+                        ? productService.getProductsInCategoryTree(category.trim(), pageable)
+                        : productService.getProductsByCategoryName(category.trim(), pageable);
             }
         } else {
             products = productService.getAllProducts(pageable);
@@ -102,16 +129,74 @@ public class ProductController {
     @GetMapping("/search")
     public ResponseEntity<Page<ProductDTO>> searchProducts(
             @RequestParam String query,
+            @RequestParam(required = false) String category,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
 
         // Validate parameters
         SortingUtils.PaginationParams paginationParams = SortingUtils.validatePaginationParams(page, size);
         Pageable pageable = PageRequest.of(paginationParams.page, paginationParams.size);
-        Page<ProductDTO> products = productService.searchProducts(query, pageable);
+        Page<ProductDTO> products = productService.searchProducts(query, category, pageable);
         return ResponseEntity.ok(products);
     }
 
+    /**
+     * POS scan lookup by barcode or SKU; resolves from the in-memory scan cache
+     */
+    @GetMapping("/scan/{code}")
+    public ResponseEntity<ProductScanDTO> scanProduct(@PathVariable String code) {
+        return productScanCache.scan(code)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/search/facets")
+    public ResponseEntity<Map<String, Long>> getSearchFacets(@RequestParam String query) {
+        return ResponseEntity.ok(productService.getSearchFacets(query));
+    }
+
+    /**
+     * Bulk upsert keyed by SKU from a CSV (header row required) or JSON-lines upload, sent as the
+     * raw request body or as a multipart file. Returns 202 with a handle to poll.
+     */
+    @PostMapping("/import")
+    public ResponseEntity<ProductImportStatusDTO> importProducts(@RequestParam(required = false) String format,
+                                                                 HttpServletRequest request) {
+        try {
+            String hint = request.getContentType();
+            InputStream body;
+            if (request instanceof MultipartHttpServletRequest) {
+                MultipartFile file = ((MultipartHttpServletRequest) request).getFileMap().values().stream()
+                        .findFirst().orElse(null);
+                if (file == null) {
+                    return ResponseEntity.badRequest().build();
+                }
+                hint = file.getOriginalFilename();
+                body = file.getInputStream();
+            } else {
+                body = request.getInputStream();
+            }
+
+            ProductImportService.ImportFormat importFormat = ProductImportService.ImportFormat.resolve(format, hint);
+            if (importFormat == null) {
+                return ResponseEntity.badRequest().build();
+            }
+            try (InputStream upload = body) {
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(productImportService.startImport(upload, importFormat));
+            }
+        } catch (IOException e) {
+            log.error("Could not receive product import upload", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @GetMapping("/import/{importId}")
+    public ResponseEntity<ProductImportStatusDTO> getImportStatus(@PathVariable String importId) {
+        return productImportService.getStatus(importId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     @PutMapping("/{id}/stock")
     public ResponseEntity<ProductDTO> updateStock(@PathVariable Long id,
                                                  @RequestBody Map<String, Integer> request) {
@@ -169,6 +254,71 @@ public class ProductController {
         }
     }
 
+    @PutMapping("/{id}/stock/shards")
+    public ResponseEntity<ProductDTO> configureStockShards(@PathVariable Long id,
+                                                          @RequestBody Map<String, Integer> request) {
+        if (id <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Integer shardCount = request.get("shardCount");
+        if (shardCount == null || shardCount < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            ProductDTO updatedProduct = productService.configureStockShards(id, shardCount);
+            return ResponseEntity.ok(updatedProduct);
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @GetMapping("/{id}/stock-movements")
+    public ResponseEntity<Page<StockMovementDTO>> getStockMovements(@PathVariable Long id,
+                                                                    @RequestParam(defaultValue = "0") int page,
+                                                                    @RequestParam(defaultValue = "20") int size,
+                                                                    @RequestParam(defaultValue = "date") String sortBy,
+                                                                    @RequestParam(defaultValue = "desc") String sortDir) {
+        if (id <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        SortingUtils.PaginationParams paginationParams = SortingUtils.validatePaginationParams(page, size);
+        Sort sort = SortingUtils.createStockMovementSort(sortBy, sortDir);
+        try {
+            return ResponseEntity.ok(stockMovementService.getMovements(id,
+                    PageRequest.of(paginationParams.page, paginationParams.size, sort)));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * On-hand stock as of a date and time, from the latest snapshot before it plus the movements since
+     */
+    @GetMapping("/{id}/stock-as-of")
+    public ResponseEntity<Map<String, Object>> getStockAsOf(@PathVariable Long id,
+                                                            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        if (id <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            return ResponseEntity.ok(stockMovementService.getStockAsOf(id, at));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Takes stock snapshots and reconciles the movement ledger now instead of at the next scheduled run
+     */
+    @PostMapping("/stock-snapshots")
+    public ResponseEntity<Map<String, Object>> takeStockSnapshots() {
+        return ResponseEntity.ok(stockMovementService.run());
+    }
+
     @GetMapping("/recent")
     public ResponseEntity<RecentProductsResponseDTO> getRecentProducts(
             @RequestParam(defaultValue = "30") Integer days,
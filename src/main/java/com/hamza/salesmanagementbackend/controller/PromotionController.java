@@ -2,8 +2,12 @@ package com.hamza.salesmanagementbackend.controller;
 
 
 import com.hamza.salesmanagementbackend.dto.PromotionDTO;
+import com.hamza.salesmanagementbackend.dto.PromotionSimulationRequestDTO;
+import com.hamza.salesmanagementbackend.dto.PromotionSimulationResultDTO;
+import com.hamza.salesmanagementbackend.exception.BusinessLogicException;
 import com.hamza.salesmanagementbackend.exception.ResourceNotFoundException;
 import com.hamza.salesmanagementbackend.service.PromotionService;
+import com.hamza.salesmanagementbackend.service.PromotionSimulationService;
 import com.hamza.salesmanagementbackend.util.SortingUtils;
 import lombok.extern.slf4j.Slf4j;
 import javax.validation.Valid;
@@ -30,6 +34,9 @@ public class PromotionController {
     @Autowired
     private PromotionService promotionService;
 
+    @Autowired
+    private PromotionSimulationService promotionSimulationService;
+
     @GetMapping
     public ResponseEntity<Page<PromotionDTO>> getAllPromotions(
             @RequestParam(defaultValue = "0") int page,
@@ -96,6 +103,19 @@ public class PromotionController {
         return ResponseEntity.status(HttpStatus.CREATED).body(createdPromotion);
     }
 
+    /**
+     * Replays a draft promotion over completed sales in a window; nothing is persisted
+     */
+    @PostMapping("/simulate")
+    public ResponseEntity<PromotionSimulationResultDTO> simulatePromotion(
+            @Valid @RequestBody PromotionSimulationRequestDTO request) {
+        try {
+            return ResponseEntity.ok(promotionSimulationService.simulate(request));
+        } catch (BusinessLogicException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<PromotionDTO> updatePromotion(@PathVariable Long id,
                                                        @Valid @RequestBody PromotionDTO promotionDTO) {
@@ -18,6 +18,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -216,15 +218,32 @@ public class PurchaseOrderController {
 
     @PutMapping("/{id}/receive")
     public ResponseEntity<PurchaseOrderDTO> receivePurchaseOrderItems(@PathVariable Long id,
-                                                                     @RequestBody Map<String, Object> receiveRequest) {
+                                                                     @RequestBody(required = false) Map<String, Object> receiveRequest) {
         if (id <= 0) {
             return ResponseEntity.badRequest().build();
         }
 
+        // Body: {"items": [{"itemId": 1, "quantity": 5}, ...]}; no items receives everything pending
+        Map<Long, Integer> quantitiesByItemId = new HashMap<>();
+        Object items = receiveRequest != null ? receiveRequest.get("items") : null;
+        if (items instanceof List) {
+            for (Object entry : (List<?>) items) {
+                if (!(entry instanceof Map)) {
+                    return ResponseEntity.badRequest().build();
+                }
+                Map<?, ?> item = (Map<?, ?>) entry;
+                if (!(item.get("itemId") instanceof Number) || !(item.get("quantity") instanceof Number)) {
+                    return ResponseEntity.badRequest().build();
+                }
+                quantitiesByItemId.merge(((Number) item.get("itemId")).longValue(),
+                        ((Number) item.get("quantity")).intValue(), Integer::sum);
+            }
+        } else if (items != null) {
+            return ResponseEntity.badRequest().build();
+        }
+
         try {
-            // For now, return a placeholder response
-            // This would typically update received quantities for items
-            PurchaseOrderDTO order = purchaseOrderService.getPurchaseOrderById(id);
+            PurchaseOrderDTO order = purchaseOrderService.receivePurchaseOrderItems(id, quantitiesByItemId);
             return ResponseEntity.ok(order);
         } catch (ResourceNotFoundException e) {
             return ResponseEntity.notFound().build();
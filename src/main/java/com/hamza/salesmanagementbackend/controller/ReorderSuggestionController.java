@@ -0,0 +1,42 @@
+package com.hamza.salesmanagementbackend.controller;
+
+import com.hamza.salesmanagementbackend.dto.ReorderSuggestionDTO;
+import com.hamza.salesmanagementbackend.service.ReorderSuggestionService;
+import com.hamza.salesmanagementbackend.util.SortingUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Velocity-based reorder suggestions and the batch job that computes them
+ */
+@RestController
+@RequestMapping("/api/v1/reorder-suggestions")
+@CrossOrigin(origins = "*")
+@RequiredArgsConstructor
+public class ReorderSuggestionController {
+
+    private final ReorderSuggestionService reorderSuggestionService;
+
+    @GetMapping
+    public ResponseEntity<Page<ReorderSuggestionDTO>> getSuggestions(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean neededOnly) {
+        SortingUtils.PaginationParams paginationParams = SortingUtils.validatePaginationParams(page, size);
+        return ResponseEntity.ok(reorderSuggestionService.getSuggestions(neededOnly,
+                PageRequest.of(paginationParams.page, paginationParams.size)));
+    }
+
+    /**
+     * Runs the job now instead of waiting for the nightly schedule; returns the run summary
+     */
+    @PostMapping("/run")
+    public ResponseEntity<Map<String, Object>> runNow() {
+        return ResponseEntity.ok(reorderSuggestionService.run());
+    }
+}
@@ -2,6 +2,7 @@ package com.hamza.salesmanagementbackend.controller;
 
 
 import com.hamza.salesmanagementbackend.dto.report.*;
+import com.hamza.salesmanagementbackend.service.CustomerRfmService;
 import com.hamza.salesmanagementbackend.service.ReportService;
 import com.hamza.salesmanagementbackend.service.ReportExportService;
 import com.hamza.salesmanagementbackend.service.ReportCacheService;
@@ -46,6 +47,7 @@ public class ReportController {
     private final ReportService reportService;
     private final ReportExportService reportExportService;
     private final ReportCacheService reportCacheService;
+    private final CustomerRfmService customerRfmService;
 
     // ==================== UTILITY METHODS ====================
 
@@ -251,18 +253,22 @@ public class ReportController {
      *
      * @param includeInactive Whether to include inactive customers in analysis
      * @param months Number of months to analyze (1-60)
+     * @param detailsPage Page of each segment's customer details
+     * @param detailsSize Customers per segment in the customer details
      * @return Customer analytics with behavior insights and segmentation
      */
     @GetMapping("/customers/analytics")
     @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER') or hasRole('CUSTOMER_ANALYST')")
     public ResponseEntity<StandardReportResponse<Map<String, Object>>> getCustomerAnalytics(
             @RequestParam(defaultValue = "false") Boolean includeInactive,
-            @RequestParam(defaultValue = "12") @Min(1) @Max(60) int months) {
+            @RequestParam(defaultValue = "12") @Min(1) @Max(60) int months,
+            @RequestParam(defaultValue = "0") @Min(0) int detailsPage,
+            @RequestParam(defaultValue = "20") @Min(1) @Max(100) int detailsSize) {
 
         log.info("Generating customer analytics report for {} months, includeInactive: {}", months, includeInactive);
 
         long startTime = System.currentTimeMillis();
-        Map<String, Object> report = reportService.generateCustomerAnalyticsReport(includeInactive, months);
+        Map<String, Object> report = reportService.generateCustomerAnalyticsReport(includeInactive, months, detailsPage, detailsSize);
         long executionTime = System.currentTimeMillis() - startTime;
 
         ReportMetadata metadata = ReportMetadata.builder()
@@ -270,7 +276,8 @@ public class ReportController {
                 .reportName("Customer Analytics Report")
                 .generatedAt(LocalDateTime.now())
                 .executionTimeMs(executionTime)
-                .appliedFilters(createSafeFilterMap("includeInactive", includeInactive, "months", months))
+                .appliedFilters(createSafeFilterMap("includeInactive", includeInactive, "months", months,
+                        "detailsPage", detailsPage, "detailsSize", detailsSize))
                 .build();
 
         return ResponseEntity.ok(StandardReportResponse.success(report, metadata));
@@ -319,6 +326,18 @@ public class ReportController {
         return ResponseEntity.ok(StandardReportResponse.success(report, metadata));
     }
 
+    /**
+     * Rescores every customer's RFM segment, value tier and churn risk now instead of waiting for
+     * the nightly run
+     *
+     * @return Run summary
+     */
+    @PostMapping("/customers/rfm/recompute")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
+    public ResponseEntity<Map<String, Object>> recomputeCustomerRfm() {
+        return ResponseEntity.ok(customerRfmService.run());
+    }
+
     /**
      * Generate customer retention analysis with metrics and cohort analysis
      *
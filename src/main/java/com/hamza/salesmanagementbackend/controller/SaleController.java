@@ -3,6 +3,7 @@ package com.hamza.salesmanagementbackend.controller;
 
 import com.hamza.salesmanagementbackend.dto.PromotionDTO;
 import com.hamza.salesmanagementbackend.dto.SaleDTO;
+import com.hamza.salesmanagementbackend.dto.SaleSummaryDTO;
 import com.hamza.salesmanagementbackend.entity.SaleStatus;
 import com.hamza.salesmanagementbackend.exception.BusinessLogicException;
 import com.hamza.salesmanagementbackend.exception.ResourceNotFoundException;
@@ -31,20 +32,34 @@ public class SaleController {
     private SaleService saleService;
 
     @GetMapping
-    public ResponseEntity<Page<SaleDTO>> getAllSales(
+    public ResponseEntity<Page<?>> getAllSales(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
             @RequestParam(defaultValue = "desc") String sortDir,
             @RequestParam(required = false) SaleStatus status,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "full") String view) {
 
         // Validate pagination and sorting parameters
         SortingUtils.PaginationParams paginationParams = SortingUtils.validatePaginationParams(page, size);
         Sort sort = SortingUtils.createSaleSort(sortBy, sortDir);
         Pageable pageable = PageRequest.of(paginationParams.page, paginationParams.size, sort);
 
+        // "summary" view skips line items and applied promotions entirely
+        if (isSummaryView(view)) {
+            Page<SaleSummaryDTO> summaries;
+            if (status != null) {
+                summaries = saleService.getSaleSummariesByStatus(status, pageable);
+            } else if (startDate != null && endDate != null) {
+                summaries = saleService.getSaleSummariesByDateRange(startDate, endDate, pageable);
+            } else {
+                summaries = saleService.getAllSaleSummaries(pageable);
+            }
+            return ResponseEntity.ok(summaries);
+        }
+
         Page<SaleDTO> sales;
         if (status != null) {
             sales = saleService.getSalesByStatus(status, pageable);
@@ -72,10 +87,11 @@ public class SaleController {
     }
 
     @GetMapping("/customer/{customerId}")
-    public ResponseEntity<Page<SaleDTO>> getSalesByCustomer(
+    public ResponseEntity<Page<?>> getSalesByCustomer(
             @PathVariable Long customerId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "full") String view) {
 
         if (customerId <= 0) {
             return ResponseEntity.badRequest().build();
@@ -84,6 +100,9 @@ public class SaleController {
         // Validate pagination parameters
         SortingUtils.PaginationParams paginationParams = SortingUtils.validatePaginationParams(page, size);
         Pageable pageable = PageRequest.of(paginationParams.page, paginationParams.size, Sort.by("saleDate").descending());
+        if (isSummaryView(view)) {
+            return ResponseEntity.ok(saleService.getSaleSummariesByCustomer(customerId, pageable));
+        }
         Page<SaleDTO> sales = saleService.getSalesByCustomer(customerId, pageable);
         return ResponseEntity.ok(sales);
     }
@@ -192,4 +211,8 @@ public class SaleController {
             return ResponseEntity.notFound().build();
         }
     }
+
+    private boolean isSummaryView(String view) {
+        return "summary".equalsIgnoreCase(view);
+    }
 }
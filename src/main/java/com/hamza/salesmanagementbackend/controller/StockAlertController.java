@@ -0,0 +1,76 @@
+package com.hamza.salesmanagementbackend.controller;
+
+import com.hamza.salesmanagementbackend.dto.StockAlertDTO;
+import com.hamza.salesmanagementbackend.entity.StockAlert;
+import com.hamza.salesmanagementbackend.service.StockAlertService;
+import com.hamza.salesmanagementbackend.util.SortingUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Active stock alerts; new and resolved alerts are also pushed on the "stock-alerts" WebSocket channel
+ */
+@RestController
+@RequestMapping("/api/v1/stock-alerts")
+@CrossOrigin(origins = "*")
+@RequiredArgsConstructor
+public class StockAlertController {
+
+    private final StockAlertService stockAlertService;
+
+    /**
+     * Active alerts, newest first; type takes a comma-separated list of OUT_OF_STOCK, LOW_STOCK, REORDER
+     */
+    @GetMapping
+    public ResponseEntity<List<StockAlertDTO>> getActiveAlerts(@RequestParam(required = false) String type) {
+        Set<StockAlert.AlertType> types = EnumSet.noneOf(StockAlert.AlertType.class);
+        if (type != null && !type.trim().isEmpty()) {
+            try {
+                for (String value : type.split(",")) {
+                    types.add(StockAlert.AlertType.valueOf(value.trim().toUpperCase()));
+                }
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        return ResponseEntity.ok(stockAlertService.getActiveAlerts(types));
+    }
+
+    @GetMapping("/summary")
+    public ResponseEntity<Map<String, Object>> getAlertSummary() {
+        return ResponseEntity.ok(stockAlertService.getAlertSummary());
+    }
+
+    @GetMapping("/product/{productId}")
+    public ResponseEntity<Page<StockAlertDTO>> getProductAlertHistory(@PathVariable Long productId,
+                                                                      @RequestParam(defaultValue = "0") int page,
+                                                                      @RequestParam(defaultValue = "20") int size) {
+        if (productId <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        SortingUtils.PaginationParams paginationParams = SortingUtils.validatePaginationParams(page, size);
+        return ResponseEntity.ok(stockAlertService.getProductAlertHistory(productId,
+                PageRequest.of(paginationParams.page, paginationParams.size)));
+    }
+
+    @PutMapping("/{id}/acknowledge")
+    public ResponseEntity<StockAlertDTO> acknowledgeAlert(@PathVariable Long id,
+                                                          @RequestBody(required = false) Map<String, String> request) {
+        if (id <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        String acknowledgedBy = request != null ? request.get("acknowledgedBy") : null;
+        if (acknowledgedBy == null || acknowledgedBy.trim().isEmpty()) {
+            acknowledgedBy = "system";
+        }
+        return ResponseEntity.ok(stockAlertService.acknowledge(id, acknowledgedBy));
+    }
+}
@@ -41,6 +41,11 @@ public class CategoryDTO {
 
     private String inventoryName;
 
+    // Hierarchy; set parentId on create, use PUT /{id}/parent to move
+    private Long parentId;
+
+    private String parentName;
+
     // Additional fields for API responses
     private Integer productCount;
 
@@ -0,0 +1,23 @@
+package com.hamza.salesmanagementbackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One keyset page of a customer's sales, newest first. Pass nextCursor back to read further
+ * back; it is null once the oldest sale has been returned.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CustomerSalesSliceDTO {
+
+    private List<SaleSummaryDTO> sales;
+    private String nextCursor;
+    private Boolean hasMore;
+}
@@ -0,0 +1,28 @@
+package com.hamza.salesmanagementbackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Customer detail with purchase totals over the whole history and only the most recent sales
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CustomerWithSalesDTO {
+
+    private CustomerDTO customer;
+    private Long salesCount;
+    private Long completedSalesCount;
+    private BigDecimal totalSpent;
+    private BigDecimal averageOrderValue;
+    private LocalDateTime firstSaleDate;
+    private LocalDateTime lastSaleDate;
+    private CustomerSalesSliceDTO recentSales;
+}
@@ -0,0 +1,43 @@
+package com.hamza.salesmanagementbackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Progress of a bulk product import, polled by the client until it is COMPLETED or FAILED
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductImportStatusDTO {
+
+    private String importId;
+    private String format;
+    private String status;
+    private Long bytesReceived;
+    private Long rowsRead;
+    private Long inserted;
+    private Long updated;
+    private Long failed;
+    private Boolean errorsTruncated;
+    private List<RowError> errors;
+    private String message;
+    private LocalDateTime submittedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private Long row;
+        private String sku;
+        private String message;
+    }
+}
@@ -0,0 +1,27 @@
+package com.hamza.salesmanagementbackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Compact product record returned to the POS for a barcode or SKU scan
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductScanDTO {
+
+    private Long id;
+    private String sku;
+    private String barcode;
+    private String name;
+    private BigDecimal price;
+    private BigDecimal taxRate;
+    private Integer stockQuantity;
+    private Integer availableStock;
+}
@@ -0,0 +1,30 @@
+package com.hamza.salesmanagementbackend.dto;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Draft promotion and historical window for a what-if simulation
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PromotionSimulationRequestDTO {
+
+    @Valid
+    @NotNull(message = "Promotion is required")
+    private PromotionDTO promotion;
+
+    @NotNull(message = "Start date is required")
+    private LocalDateTime startDate;
+
+    @NotNull(message = "End date is required")
+    private LocalDateTime endDate;
+}
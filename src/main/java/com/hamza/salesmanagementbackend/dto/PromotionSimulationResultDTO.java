@@ -0,0 +1,43 @@
+package com.hamza.salesmanagementbackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Projected impact of a draft promotion replayed over completed sales
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PromotionSimulationResultDTO {
+
+    private String promotionName;
+    private LocalDateTime startDate;
+    private LocalDateTime endDate;
+
+    private Long totalOrders;
+    private Long affectedOrders;
+    private Double affectedOrderPercentage;
+
+    private BigDecimal revenue;
+    private BigDecimal projectedDiscountCost;
+    private BigDecimal projectedRevenue;
+    private BigDecimal averageDiscountPerAffectedOrder;
+
+    private BigDecimal grossProfit;
+    private BigDecimal projectedGrossProfit;
+    private BigDecimal marginPercentage;
+    private BigDecimal projectedMarginPercentage;
+    private BigDecimal marginChangePoints;
+
+    private Boolean usageLimitExceeded;
+
+    private Integer chunks;
+    private Long elapsedMillis;
+}
@@ -0,0 +1,34 @@
+package com.hamza.salesmanagementbackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Velocity-based reorder suggestion next to the product's configured values
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReorderSuggestionDTO {
+
+    private Long productId;
+    private String productName;
+    private String productSku;
+    private BigDecimal dailyVelocity;
+    private Integer unitsSold;
+    private Integer onHand;
+    private Integer onOrder;
+    private Integer currentReorderPoint;
+    private Integer currentReorderQuantity;
+    private Integer suggestedReorderPoint;
+    private Integer suggestedReorderQuantity;
+    private Long supplierId;
+    private Boolean needsReorder;
+    private LocalDateTime computedAt;
+}
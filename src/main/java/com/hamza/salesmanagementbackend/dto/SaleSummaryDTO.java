@@ -0,0 +1,41 @@
+package com.hamza.salesmanagementbackend.dto;
+
+import com.hamza.salesmanagementbackend.entity.Sale;
+import com.hamza.salesmanagementbackend.entity.SaleStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Lean sale representation for list views - no line items or applied promotions
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SaleSummaryDTO {
+
+    private Long id;
+    private String saleNumber;
+    private String referenceNumber;
+    private Long customerId;
+    private String customerName;
+    private LocalDateTime saleDate;
+    private SaleStatus status;
+    private BigDecimal subtotal;
+    private BigDecimal discountAmount;
+    private BigDecimal taxAmount;
+    private BigDecimal totalAmount;
+    private Sale.PaymentMethod paymentMethod;
+    private Sale.PaymentStatus paymentStatus;
+    private Sale.SaleType saleType;
+    private Sale.DeliveryStatus deliveryStatus;
+    private Long promotionId;
+    private String couponCode;
+    private BigDecimal promotionDiscountAmount;
+    private LocalDateTime createdAt;
+}
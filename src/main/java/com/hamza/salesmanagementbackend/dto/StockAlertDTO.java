@@ -0,0 +1,31 @@
+package com.hamza.salesmanagementbackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stock alert as listed to clients and pushed on the stock-alerts WebSocket channel
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockAlertDTO {
+
+    private Long id;
+    private Long productId;
+    private String productName;
+    private String productSku;
+    private String alertType;
+    private String status;
+    private Integer stockQuantity;
+    private Integer threshold;
+    private LocalDateTime triggeredAt;
+    private LocalDateTime acknowledgedAt;
+    private String acknowledgedBy;
+    private LocalDateTime resolvedAt;
+}
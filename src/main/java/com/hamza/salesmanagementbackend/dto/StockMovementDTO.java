@@ -0,0 +1,26 @@
+package com.hamza.salesmanagementbackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockMovementDTO {
+
+    private Long id;
+    private Long productId;
+    private String movementType;
+    private Integer quantity;
+    private BigDecimal unitCost;
+    private BigDecimal totalValue;
+    private LocalDateTime date;
+    private String reference;
+    private LocalDateTime createdAt;
+}
@@ -15,7 +15,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "categories")
+@Table(name = "categories", indexes = @Index(name = "idx_categories_parent", columnList = "parent_id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -67,6 +67,13 @@ public class Category {
     @EqualsAndHashCode.Exclude
     private Inventory inventory;
 
+    // Null for a top-level category; the category_closure table mirrors these links
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "parent_id")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Category parent;
+
     @OneToMany(mappedBy = "category", cascade = {CascadeType.PERSIST, CascadeType.MERGE}, fetch = FetchType.LAZY)
     @ToString.Exclude
     @EqualsAndHashCode.Exclude
@@ -0,0 +1,40 @@
+package com.hamza.salesmanagementbackend.entity;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One ancestor/descendant pair of the category tree, including each category paired with
+ * itself at depth 0. Subtree and rollup queries join through this table instead of walking
+ * parent links level by level.
+ */
+@Entity
+@Table(name = "category_closure",
+       uniqueConstraints = @UniqueConstraint(name = "uk_category_closure_pair", columnNames = {"ancestor_id", "descendant_id"}),
+       indexes = @Index(name = "idx_category_closure_descendant", columnList = "descendant_id, depth"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CategoryClosure {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull(message = "Ancestor ID is required")
+    @Column(name = "ancestor_id", nullable = false)
+    private Long ancestorId;
+
+    @NotNull(message = "Descendant ID is required")
+    @Column(name = "descendant_id", nullable = false)
+    private Long descendantId;
+
+    @NotNull(message = "Depth is required")
+    @Column(name = "depth", nullable = false)
+    private Integer depth;
+}
@@ -0,0 +1,71 @@
+package com.hamza.salesmanagementbackend.entity;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Append-only cost layer ledger entry. Receipts, returns and opening balances add a layer of
+ * units at a unit cost; consumptions take units out without naming a layer, so FIFO, LIFO and
+ * weighted-average valuations are all derived by replaying the entries in id order.
+ */
+@Entity
+@Table(name = "cost_layer_ledger",
+       indexes = @Index(name = "idx_cost_layer_product", columnList = "product_id, id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CostLayerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull(message = "Product ID is required")
+    @Column(name = "product_id", nullable = false, updatable = false)
+    private Long productId;
+
+    @NotNull(message = "Entry type is required")
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entry_type", nullable = false, length = 20, updatable = false)
+    private EntryType entryType;
+
+    @NotNull(message = "Quantity is required")
+    @Column(name = "quantity", nullable = false, updatable = false)
+    private Integer quantity;
+
+    /**
+     * Cost per unit of the layer added; null for consumptions
+     */
+    @Column(name = "unit_cost", precision = 12, scale = 4, updatable = false)
+    private BigDecimal unitCost;
+
+    @Column(name = "reference_type", length = 30, updatable = false)
+    private String referenceType;
+
+    @Column(name = "reference_id", updatable = false)
+    private Long referenceId;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    public enum EntryType {
+        OPENING,      // stock on hand when the ledger started, at the product cost price
+        RECEIPT,      // purchase order receipt
+        RETURN,       // returned sale item, at the cost it was sold with
+        CONSUMPTION;  // completed sale item
+
+        public boolean addsLayer() {
+            return this != CONSUMPTION;
+        }
+    }
+}
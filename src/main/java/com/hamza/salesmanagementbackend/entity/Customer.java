@@ -11,6 +11,7 @@ import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
@@ -20,7 +21,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "customers")
+@DynamicUpdate
+@Table(name = "customers", indexes = @Index(name = "idx_customer_region", columnList = "region_id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor // Add this missing annotation
@@ -76,6 +78,12 @@ public class Customer {
     @Column(name = "shipping_address", columnDefinition = "TEXT")
     private String shippingAddress;
 
+    /**
+     * Region resolved from the address or billing address whenever the customer is saved
+     */
+    @Column(name = "region_id")
+    private Long regionId;
+
     @Column(name = "preferred_payment_method")
     private String preferredPaymentMethod;
 
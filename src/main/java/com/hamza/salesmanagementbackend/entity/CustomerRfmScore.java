@@ -0,0 +1,272 @@
+package com.hamza.salesmanagementbackend.entity;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Recency, frequency and monetary value of a customer's completed sales, with the 1-5 scores,
+ * segment, value tier and churn risk derived from them. Scores use fixed bands rather than
+ * population quantiles so a single customer can be rescored on its own and still agree with a
+ * full recomputation. Recency-based fields are as of computedAt.
+ */
+@Entity
+@Table(name = "customer_rfm_scores",
+       uniqueConstraints = @UniqueConstraint(name = "uk_customer_rfm_customer", columnNames = "customer_id"),
+       indexes = {
+           @Index(name = "idx_customer_rfm_segment", columnList = "segment"),
+           @Index(name = "idx_customer_rfm_churn", columnList = "churn_risk"),
+           @Index(name = "idx_customer_rfm_monetary", columnList = "monetary")
+       })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CustomerRfmScore {
+
+    private static final int NEW_CUSTOMER_DAYS = 30;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull(message = "Customer ID is required")
+    @Column(name = "customer_id", nullable = false)
+    private Long customerId;
+
+    /**
+     * Completed sales
+     */
+    @Column(name = "frequency", nullable = false)
+    @Builder.Default
+    private Integer frequency = 0;
+
+    /**
+     * Total of completed sales
+     */
+    @Column(name = "monetary", precision = 14, scale = 2, nullable = false)
+    @Builder.Default
+    private BigDecimal monetary = BigDecimal.ZERO;
+
+    @Column(name = "avg_order_value", precision = 12, scale = 2)
+    private BigDecimal avgOrderValue;
+
+    /**
+     * Completed orders per 30 days between the first and last purchase
+     */
+    @Column(name = "purchase_frequency", precision = 10, scale = 2)
+    private BigDecimal purchaseFrequency;
+
+    @Column(name = "first_purchase_date")
+    private LocalDateTime firstPurchaseDate;
+
+    @Column(name = "last_purchase_date")
+    private LocalDateTime lastPurchaseDate;
+
+    @Column(name = "recency_days")
+    private Integer recencyDays;
+
+    @Column(name = "recency_score", nullable = false)
+    @Builder.Default
+    private Integer recencyScore = 0;
+
+    @Column(name = "frequency_score", nullable = false)
+    @Builder.Default
+    private Integer frequencyScore = 0;
+
+    @Column(name = "monetary_score", nullable = false)
+    @Builder.Default
+    private Integer monetaryScore = 0;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "segment", nullable = false, length = 30)
+    @Builder.Default
+    private Segment segment = Segment.NO_PURCHASES;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "value_tier", nullable = false, length = 20)
+    @Builder.Default
+    private ValueTier valueTier = ValueTier.LOW_VALUE;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "churn_risk", nullable = false, length = 20)
+    @Builder.Default
+    private ChurnRisk churnRisk = ChurnRisk.HIGH_RISK;
+
+    @Column(name = "computed_at", nullable = false)
+    private LocalDateTime computedAt;
+
+    public enum Segment {
+        CHAMPIONS,           // recent, frequent and high spending
+        LOYAL,               // buys regularly and not long ago
+        POTENTIAL_LOYALIST,  // recent but not yet frequent
+        NEW,                 // first purchase in the last 30 days
+        CANT_LOSE,           // used to buy a lot or spend a lot, now lapsing
+        AT_RISK,             // lapsing
+        LOST,                // no purchase for more than 180 days
+        NO_PURCHASES
+    }
+
+    public enum ValueTier {
+        HIGH_VALUE("High Value", 1000),
+        MEDIUM_VALUE("Medium Value", 300),
+        LOW_VALUE("Low Value", 0);
+
+        private final String label;
+        private final BigDecimal minimumRevenue;
+
+        ValueTier(String label, long minimumRevenue) {
+            this.label = label;
+            this.minimumRevenue = BigDecimal.valueOf(minimumRevenue);
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public BigDecimal getMinimumRevenue() {
+            return minimumRevenue;
+        }
+
+        public static ValueTier of(BigDecimal totalRevenue) {
+            for (ValueTier tier : values()) {
+                if (totalRevenue.compareTo(tier.minimumRevenue) >= 0) {
+                    return tier;
+                }
+            }
+            return LOW_VALUE;
+        }
+    }
+
+    public enum ChurnRisk {
+        LOW_RISK("Low Risk"),
+        MEDIUM_RISK("Medium Risk"),
+        HIGH_RISK("High Risk"),
+        CHURNED("Churned");
+
+        private final String label;
+
+        ChurnRisk(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * Never purchased counts as high risk; more than 90 days without a purchase as churned
+         */
+        public static ChurnRisk of(Integer recencyDays) {
+            if (recencyDays == null) {
+                return HIGH_RISK;
+            } else if (recencyDays > 90) {
+                return CHURNED;
+            } else if (recencyDays > 60) {
+                return HIGH_RISK;
+            } else if (recencyDays > 30) {
+                return MEDIUM_RISK;
+            }
+            return LOW_RISK;
+        }
+    }
+
+    /**
+     * Replaces the aggregates and derives scores, segment, tier and churn risk from them
+     */
+    public void recompute(long completedSales, BigDecimal total, LocalDateTime firstPurchase,
+                          LocalDateTime lastPurchase, LocalDateTime now) {
+        this.frequency = (int) completedSales;
+        this.monetary = total != null ? total.setScale(2, RoundingMode.HALF_UP) : BigDecimal.ZERO.setScale(2);
+        this.firstPurchaseDate = completedSales > 0 ? firstPurchase : null;
+        this.lastPurchaseDate = completedSales > 0 ? lastPurchase : null;
+        this.recencyDays = lastPurchaseDate != null ? (int) Math.max(0, ChronoUnit.DAYS.between(lastPurchaseDate, now)) : null;
+        this.computedAt = now;
+
+        if (completedSales > 0) {
+            this.avgOrderValue = monetary.divide(BigDecimal.valueOf(completedSales), 2, RoundingMode.HALF_UP);
+            long lifespanDays = firstPurchaseDate != null && lastPurchaseDate != null
+                    ? ChronoUnit.DAYS.between(firstPurchaseDate, lastPurchaseDate) + 1 : 1;
+            this.purchaseFrequency = BigDecimal.valueOf(completedSales * 30.0 / lifespanDays).setScale(2, RoundingMode.HALF_UP);
+        } else {
+            this.avgOrderValue = BigDecimal.ZERO.setScale(2);
+            this.purchaseFrequency = BigDecimal.ZERO.setScale(2);
+        }
+
+        this.recencyScore = recencyScore(recencyDays);
+        this.frequencyScore = frequencyScore(frequency);
+        this.monetaryScore = completedSales > 0 ? monetaryScore(monetary) : 0;
+        this.valueTier = ValueTier.of(monetary);
+        this.churnRisk = ChurnRisk.of(recencyDays);
+        this.segment = segmentFor(now);
+    }
+
+    private Segment segmentFor(LocalDateTime now) {
+        if (frequency == 0) {
+            return Segment.NO_PURCHASES;
+        }
+        if (firstPurchaseDate != null && firstPurchaseDate.isAfter(now.minusDays(NEW_CUSTOMER_DAYS)) && frequencyScore <= 2) {
+            return Segment.NEW;
+        }
+        if (recencyScore >= 4 && frequencyScore >= 4 && monetaryScore >= 4) {
+            return Segment.CHAMPIONS;
+        }
+        if (recencyScore >= 3 && frequencyScore >= 3) {
+            return Segment.LOYAL;
+        }
+        if (recencyScore >= 3) {
+            return Segment.POTENTIAL_LOYALIST;
+        }
+        if (frequencyScore >= 4 || monetaryScore >= 4) {
+            return Segment.CANT_LOSE;
+        }
+        return recencyScore == 2 ? Segment.AT_RISK : Segment.LOST;
+    }
+
+    private static int recencyScore(Integer days) {
+        if (days == null) {
+            return 0;
+        } else if (days <= 30) {
+            return 5;
+        } else if (days <= 60) {
+            return 4;
+        } else if (days <= 90) {
+            return 3;
+        } else if (days <= 180) {
+            return 2;
+        }
+        return 1;
+    }
+
+    private static int frequencyScore(int orders) {
+        if (orders >= 10) {
+            return 5;
+        } else if (orders >= 5) {
+            return 4;
+        } else if (orders >= 3) {
+            return 3;
+        }
+        return orders;
+    }
+
+    private static int monetaryScore(BigDecimal total) {
+        if (total.compareTo(BigDecimal.valueOf(5000)) >= 0) {
+            return 5;
+        } else if (total.compareTo(BigDecimal.valueOf(1000)) >= 0) {
+            return 4;
+        } else if (total.compareTo(BigDecimal.valueOf(300)) >= 0) {
+            return 3;
+        } else if (total.compareTo(BigDecimal.valueOf(100)) >= 0) {
+            return 2;
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,75 @@
+package com.hamza.salesmanagementbackend.entity;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Compact side-effect event written in the same transaction as a sale or return.
+ * The outbox dispatcher applies pending events to the denormalised counters in batches.
+ */
+@Entity
+@Table(name = "outbox_events",
+       indexes = {
+           @Index(name = "idx_outbox_pending", columnList = "processed_at, id"),
+           @Index(name = "idx_outbox_aggregate", columnList = "event_type, aggregate_id")
+       })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull(message = "Event type is required")
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, length = 30)
+    private EventType eventType;
+
+    @NotNull(message = "Aggregate ID is required")
+    @Column(name = "aggregate_id", nullable = false)
+    private Long aggregateId;
+
+    @Column(name = "quantity_delta")
+    @Builder.Default
+    private Integer quantityDelta = 0;
+
+    @Column(name = "amount_delta", precision = 12, scale = 2)
+    @Builder.Default
+    private BigDecimal amountDelta = BigDecimal.ZERO;
+
+    @Column(name = "occurred_at", nullable = false)
+    @Builder.Default
+    private LocalDateTime occurredAt = LocalDateTime.now();
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * Target counter of the event; aggregateId refers to the product, customer or promotion
+     */
+    public enum EventType {
+        PRODUCT_SALES,      // quantityDelta units, amountDelta revenue
+        CUSTOMER_PURCHASE,  // amountDelta added to total purchases
+        LOYALTY_POINTS,     // quantityDelta points
+        PROMOTION_USAGE     // quantityDelta uses
+    }
+
+    public boolean isProcessed() {
+        return processedAt != null;
+    }
+}
@@ -12,6 +12,7 @@ import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
@@ -22,6 +23,7 @@ import java.util.List;
 import java.math.RoundingMode;
 
 @Entity
+@DynamicUpdate
 @Table(name = "products")
 @Data
 @NoArgsConstructor
@@ -176,6 +178,11 @@ public class Product {
     @Column(name = "last_restocked_date")
     private LocalDateTime lastRestockedDate;
 
+    // When > 1, stock lives in product_stock_shards and stockQuantity is a periodically
+    // reconciled total (hot SKUs only)
+    @Column(name = "stock_shard_count")
+    private Integer stockShardCount;
+
     @Lob
     private String notes;
 
@@ -314,6 +321,10 @@ public class Product {
         }
     }
 
+    public boolean isStockSharded() {
+        return stockShardCount != null && stockShardCount > 1;
+    }
+
     public void recordSale(int quantity, BigDecimal salePrice) {
         this.stockQuantity -= quantity;
         this.totalSold += quantity;
@@ -0,0 +1,42 @@
+package com.hamza.salesmanagementbackend.entity;
+
+import javax.persistence.*;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One sub-counter of a sharded product's stock. Concurrent checkouts of a hot SKU
+ * decrement different shard rows instead of serialising on the products row.
+ */
+@Entity
+@Table(name = "product_stock_shards",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"product_id", "shard_index"}),
+       indexes = @Index(name = "idx_stock_shard_product", columnList = "product_id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductStockShard {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull(message = "Product ID is required")
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @NotNull(message = "Shard index is required")
+    @Column(name = "shard_index", nullable = false)
+    private Integer shardIndex;
+
+    @NotNull(message = "Quantity is required")
+    @Min(value = 0, message = "Shard quantity cannot be negative")
+    @Column(name = "quantity", nullable = false)
+    @Builder.Default
+    private Integer quantity = 0;
+}
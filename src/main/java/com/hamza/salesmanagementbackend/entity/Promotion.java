@@ -5,17 +5,26 @@ import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 import com.fasterxml.jackson.annotation.JsonInclude;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 @Entity
-@Table(name = "promotions")
+@DynamicUpdate
+@Table(name = "promotions", indexes = {
+    @Index(name = "idx_promotions_status", columnList = "status")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -63,7 +72,15 @@ public class Promotion {
     @Builder.Default
     private Boolean isActive = true;
 
-    @ElementCollection(fetch = FetchType.EAGER)
+    /**
+     * Lifecycle status maintained by the promotion lifecycle scheduler; usage limits stay computed
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 20)
+    private PromotionStatus status;
+
+    @ElementCollection(fetch = FetchType.LAZY)
+    @BatchSize(size = 50)
     @CollectionTable(
         name = "promotion_products",
         joinColumns = @JoinColumn(name = "promotion_id")
@@ -71,9 +88,12 @@ public class Promotion {
     @Column(name = "product_id")
     @OrderColumn(name = "product_order")
     @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private List<Long> applicableProducts;
 
-    @ElementCollection(fetch = FetchType.EAGER)
+    @ElementCollection(fetch = FetchType.LAZY)
+    @BatchSize(size = 50)
     @CollectionTable(
         name = "promotion_categories",
         joinColumns = @JoinColumn(name = "promotion_id")
@@ -81,6 +101,8 @@ public class Promotion {
     @Column(name = "category")
     @OrderColumn(name = "category_order")
     @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private List<String> applicableCategories;
 
     @Column(name = "usage_limit")
@@ -123,6 +145,10 @@ public class Promotion {
         ALL, VIP_ONLY, NEW_CUSTOMERS, RETURNING_CUSTOMERS, PREMIUM_ONLY
     }
 
+    public enum PromotionStatus {
+        SCHEDULED, ACTIVE, EXPIRED, INACTIVE
+    }
+
     // Custom constructors
     public Promotion(String name, PromotionType type, BigDecimal discountValue, 
                     LocalDateTime startDate, LocalDateTime endDate) {
@@ -139,6 +165,13 @@ public class Promotion {
         this.minimumOrderAmount = BigDecimal.ZERO;
     }
 
+    @PrePersist
+    protected void onCreate() {
+        if (this.status == null && this.startDate != null && this.endDate != null) {
+            refreshStatus(LocalDateTime.now());
+        }
+    }
+
     // Business logic methods
     public boolean isCurrentlyActive() {
         LocalDateTime now = LocalDateTime.now();
@@ -158,6 +191,96 @@ public class Promotion {
         this.usageCount = (this.usageCount != null ? this.usageCount : 0) + 1;
     }
 
+    /**
+     * Replaces the applicable products in place so only changed rows are written
+     */
+    public void updateApplicableProducts(List<Long> productIds) {
+        if (this.applicableProducts == null) {
+            this.applicableProducts = new ArrayList<>();
+        }
+        mergeInPlace(this.applicableProducts, productIds);
+    }
+
+    /**
+     * Replaces the applicable categories in place so only changed rows are written
+     */
+    public void updateApplicableCategories(List<String> categories) {
+        if (this.applicableCategories == null) {
+            this.applicableCategories = new ArrayList<>();
+        }
+        mergeInPlace(this.applicableCategories, categories);
+    }
+
+    /**
+     * Diffs an @OrderColumn list against the desired values: kept entries stay at their index,
+     * removed slots are refilled with additions (UPDATE) or the last entry (DELETE of the tail),
+     * remaining additions are appended (INSERT)
+     */
+    private static <T> void mergeInPlace(List<T> current, List<T> desired) {
+        Set<T> wanted = desired != null ? new LinkedHashSet<>(desired) : new LinkedHashSet<>();
+        wanted.remove(null);
+        List<T> additions = new ArrayList<>();
+        for (T value : wanted) {
+            if (!current.contains(value)) {
+                additions.add(value);
+            }
+        }
+
+        int i = 0;
+        while (i < current.size()) {
+            T value = current.get(i);
+            if (wanted.contains(value)) {
+                wanted.remove(value);
+                i++;
+            } else if (!additions.isEmpty()) {
+                current.set(i, additions.remove(0));
+            } else {
+                int last = current.size() - 1;
+                if (i < last) {
+                    current.set(i, current.get(last));
+                }
+                current.remove(last);
+            }
+        }
+        current.addAll(additions);
+    }
+
+    /**
+     * Lifecycle status implied by the active flag and the date window at the given time
+     */
+    public PromotionStatus resolveStatus(LocalDateTime now) {
+        if (!Boolean.TRUE.equals(this.isActive)) {
+            return PromotionStatus.INACTIVE;
+        }
+        if (now.isBefore(this.startDate)) {
+            return PromotionStatus.SCHEDULED;
+        }
+        if (now.isBefore(this.endDate)) {
+            return PromotionStatus.ACTIVE;
+        }
+        return PromotionStatus.EXPIRED;
+    }
+
+    /**
+     * Next instant at which the lifecycle status changes on its own, or null if it never will
+     */
+    public LocalDateTime nextTransitionAt(LocalDateTime now) {
+        if (!Boolean.TRUE.equals(this.isActive)) {
+            return null;
+        }
+        if (now.isBefore(this.startDate)) {
+            return this.startDate;
+        }
+        if (now.isBefore(this.endDate)) {
+            return this.endDate;
+        }
+        return null;
+    }
+
+    public void refreshStatus(LocalDateTime now) {
+        this.status = resolveStatus(now);
+    }
+
     public void activate() {
         this.isActive = true;
     }
@@ -246,6 +369,39 @@ public class Promotion {
         this.usageCount = Math.max(0, (this.usageCount != null ? this.usageCount : 0) - 1);
     }
 
+    /**
+     * Copy with plain, unmodifiable collections, safe to share outside a persistence context
+     */
+    public Promotion detachedCopy() {
+        return Promotion.builder()
+                .id(this.getId())
+                .name(this.getName())
+                .description(this.getDescription())
+                .type(this.getType())
+                .discountValue(this.getDiscountValue())
+                .minimumOrderAmount(this.getMinimumOrderAmount())
+                .maximumDiscountAmount(this.getMaximumDiscountAmount())
+                .startDate(this.getStartDate())
+                .endDate(this.getEndDate())
+                .isActive(this.getIsActive())
+                .status(this.getStatus())
+                .applicableProducts(this.applicableProducts != null
+                        ? Collections.unmodifiableList(new ArrayList<>(this.getApplicableProducts()))
+                        : Collections.emptyList())
+                .applicableCategories(this.applicableCategories != null
+                        ? Collections.unmodifiableList(new ArrayList<>(this.getApplicableCategories()))
+                        : Collections.emptyList())
+                .usageLimit(this.getUsageLimit())
+                .usageCount(this.getUsageCount())
+                .customerEligibility(this.getCustomerEligibility())
+                .couponCode(this.getCouponCode())
+                .autoApply(this.getAutoApply())
+                .stackable(this.getStackable())
+                .createdAt(this.getCreatedAt())
+                .updatedAt(this.getUpdatedAt())
+                .build();
+    }
+
     public boolean isNotYetStarted() {
         return LocalDateTime.now().isBefore(this.startDate);
     }
@@ -0,0 +1,44 @@
+package com.hamza.salesmanagementbackend.entity;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Sales region resolved from customer addresses. Customers reference it by id so regional
+ * reports group by an integer key instead of parsing addresses. Rows are created on first use.
+ */
+@Entity
+@Table(name = "regions",
+       uniqueConstraints = @UniqueConstraint(name = "uk_region_code", columnNames = "code"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Region {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Lower-cased name, used for lookups
+     */
+    @NotBlank(message = "Region code is required")
+    @Column(name = "code", nullable = false, length = 120)
+    private String code;
+
+    @NotBlank(message = "Region name is required")
+    @Column(name = "name", nullable = false, length = 120)
+    private String name;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+}
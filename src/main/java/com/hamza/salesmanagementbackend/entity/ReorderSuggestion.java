@@ -0,0 +1,72 @@
+package com.hamza.salesmanagementbackend.entity;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Reorder point and quantity suggested for a product from its recent sales velocity. Kept
+ * apart from the products row so the batch job never contends with stock updates; the
+ * configured reorderPoint and reorderQuantity are left for a person to adjust.
+ */
+@Entity
+@Table(name = "reorder_suggestions",
+       uniqueConstraints = @UniqueConstraint(name = "uk_reorder_suggestion_product", columnNames = "product_id"),
+       indexes = @Index(name = "idx_reorder_suggestion_needed", columnList = "needs_reorder, supplier_id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReorderSuggestion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull(message = "Product ID is required")
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    /**
+     * Units per day; the higher of the full lookback and the recent window rates
+     */
+    @Column(name = "daily_velocity", precision = 12, scale = 4)
+    private BigDecimal dailyVelocity;
+
+    @Column(name = "units_sold")
+    private Integer unitsSold;
+
+    @Column(name = "on_hand")
+    private Integer onHand;
+
+    @Column(name = "on_order")
+    private Integer onOrder;
+
+    @Column(name = "current_reorder_point")
+    private Integer currentReorderPoint;
+
+    @Column(name = "current_reorder_quantity")
+    private Integer currentReorderQuantity;
+
+    @Column(name = "suggested_reorder_point")
+    private Integer suggestedReorderPoint;
+
+    @Column(name = "suggested_reorder_quantity")
+    private Integer suggestedReorderQuantity;
+
+    @Column(name = "supplier_id")
+    private Long supplierId;
+
+    @Column(name = "needs_reorder", nullable = false)
+    @Builder.Default
+    private Boolean needsReorder = false;
+
+    @Column(name = "computed_at", nullable = false)
+    private LocalDateTime computedAt;
+}
@@ -9,6 +9,7 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -22,7 +23,11 @@ import java.util.UUID;
 import java.util.concurrent.atomic.AtomicLong;
 
 @Entity
-@Table(name = "sales")
+@Table(name = "sales",
+       indexes = {
+           @Index(name = "idx_sale_customer_date", columnList = "customer_id, sale_date, id"),
+           @Index(name = "idx_sale_status_date", columnList = "status, sale_date")
+       })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -58,6 +63,11 @@ public class Sale {
     @Builder.Default
     private SaleStatus status = SaleStatus.PENDING;
 
+    // false while the items are only reserved; null for sales created before reservations,
+    // which decremented stock at creation
+    @Column(name = "stock_committed")
+    private Boolean stockCommitted;
+
     // New comprehensive attributes for better sales management
     @Column(name = "sale_number", unique = true)
     private String saleNumber;
@@ -215,6 +225,7 @@ public class Sale {
     private LocalDateTime updatedAt;
 
     @OneToMany(mappedBy = "sale", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
+    @BatchSize(size = 50)
     @ToString.Exclude
     @EqualsAndHashCode.Exclude
     @Builder.Default
@@ -227,6 +238,7 @@ public class Sale {
     private List<Return> returns = new ArrayList<>();
 
     @OneToMany(mappedBy = "sale", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
+    @BatchSize(size = 50)
     @ToString.Exclude
     @EqualsAndHashCode.Exclude
     @Builder.Default
@@ -361,9 +373,7 @@ public class Sale {
 
     public void processLoyaltyPoints() {
         if (customer != null && totalAmount != null) {
-            // Calculate loyalty points earned (1 point per $10 spent)
-            int pointsEarned = totalAmount.divide(BigDecimal.valueOf(10), 0, RoundingMode.DOWN).intValue();
-            this.loyaltyPointsEarned = pointsEarned;
+            int pointsEarned = calculateLoyaltyPointsEarned();
 
             // Add points to customer
             if (pointsEarned > 0) {
@@ -372,6 +382,21 @@ public class Sale {
         }
     }
 
+    /**
+     * Sets loyaltyPointsEarned (1 point per $10 spent) without touching the customer row
+     */
+    public int calculateLoyaltyPointsEarned() {
+        int pointsEarned = totalAmount != null
+                ? totalAmount.divide(BigDecimal.valueOf(10), 0, RoundingMode.DOWN).intValue()
+                : 0;
+        this.loyaltyPointsEarned = pointsEarned;
+        return pointsEarned;
+    }
+
+    public boolean isStockReservedOnly() {
+        return Boolean.FALSE.equals(stockCommitted);
+    }
+
     public void markAsPaid() {
         this.paymentStatus = PaymentStatus.PAID;
         this.paymentDate = LocalDateTime.now();
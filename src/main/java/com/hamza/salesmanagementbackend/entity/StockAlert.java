@@ -0,0 +1,83 @@
+package com.hamza.salesmanagementbackend.entity;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stock threshold crossing for a product. A product has at most one active (open or
+ * acknowledged) alert, carrying its most severe level; moving to another level resolves it
+ * and opens a new one, and climbing back above the reorder point resolves it.
+ */
+@Entity
+@Table(name = "stock_alerts",
+       indexes = {
+           @Index(name = "idx_stock_alert_product", columnList = "product_id, status"),
+           @Index(name = "idx_stock_alert_active", columnList = "status, alert_type")
+       })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockAlert {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull(message = "Product ID is required")
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @NotNull(message = "Alert type is required")
+    @Enumerated(EnumType.STRING)
+    @Column(name = "alert_type", nullable = false, length = 20)
+    private AlertType alertType;
+
+    @NotNull(message = "Alert status is required")
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    @Builder.Default
+    private AlertStatus status = AlertStatus.OPEN;
+
+    @Column(name = "stock_quantity", nullable = false)
+    private Integer stockQuantity;
+
+    @Column(name = "threshold")
+    private Integer threshold;
+
+    @Column(name = "triggered_at", nullable = false)
+    @Builder.Default
+    private LocalDateTime triggeredAt = LocalDateTime.now();
+
+    @Column(name = "acknowledged_at")
+    private LocalDateTime acknowledgedAt;
+
+    @Column(name = "acknowledged_by", length = 100)
+    private String acknowledgedBy;
+
+    @Column(name = "resolved_at")
+    private LocalDateTime resolvedAt;
+
+    /**
+     * Levels from most to least severe; each is checked inclusively against its threshold
+     */
+    public enum AlertType {
+        OUT_OF_STOCK,   // stock <= 0
+        LOW_STOCK,      // stock <= minStockLevel
+        REORDER         // stock <= reorderPoint
+    }
+
+    public enum AlertStatus {
+        OPEN, ACKNOWLEDGED, RESOLVED
+    }
+
+    public boolean isActive() {
+        return status != AlertStatus.RESOLVED;
+    }
+}
@@ -0,0 +1,75 @@
+package com.hamza.salesmanagementbackend.entity;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Append-only record of one change to a product's on-hand stock. The quantity is signed: sales
+ * and reductions are negative, restocks, receipts, cancellations and returns positive. Stock as
+ * of a date is the latest stock snapshot before it plus the movements since.
+ */
+@Entity
+@Table(name = "stock_movements",
+       indexes = @Index(name = "idx_stock_movement_product_date", columnList = "product_id, movement_date"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockMovement {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull(message = "Product ID is required")
+    @Column(name = "product_id", nullable = false, updatable = false)
+    private Long productId;
+
+    @NotNull(message = "Movement type is required")
+    @Enumerated(EnumType.STRING)
+    @Column(name = "movement_type", nullable = false, length = 20, updatable = false)
+    private MovementType movementType;
+
+    @NotNull(message = "Quantity is required")
+    @Column(name = "quantity", nullable = false, updatable = false)
+    private Integer quantity;
+
+    @Column(name = "unit_cost", precision = 10, scale = 2, updatable = false)
+    private BigDecimal unitCost;
+
+    @Column(name = "total_value", precision = 12, scale = 2, updatable = false)
+    private BigDecimal totalValue;
+
+    @NotNull(message = "Movement date is required")
+    @Column(name = "movement_date", nullable = false, updatable = false)
+    private LocalDateTime date;
+
+    /**
+     * What caused the movement, e.g. "SALE:42", "PURCHASE_ORDER:7" or "MANUAL"
+     */
+    @Column(name = "reference", length = 60, updatable = false)
+    private String reference;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    public enum MovementType {
+        OPENING,           // stock on hand when the ledger started or the product was created
+        SALE,              // completed sale
+        SALE_CANCEL,       // cancelled sale that had already taken stock
+        RETURN,            // returned sale item or refunded return put back on the shelf
+        RESTOCK,           // manual restock
+        PURCHASE_RECEIPT,  // received purchase order item
+        ADJUSTMENT,        // manual stock set, reduction or product edit
+        RECONCILIATION     // difference found between the ledger and products.stock_quantity
+    }
+}
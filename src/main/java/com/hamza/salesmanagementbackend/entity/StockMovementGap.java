@@ -0,0 +1,32 @@
+package com.hamza.salesmanagementbackend.entity;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A stock movement id below a snapshot run's horizon that was not visible to the run: either its
+ * transaction was still open or it rolled back. Snapshots never include gap ids; one that commits
+ * later is added to the snapshots covering it and the gap is removed.
+ */
+@Entity
+@Table(name = "stock_movement_gaps")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockMovementGap {
+
+    @Id
+    @Column(name = "movement_id")
+    private Long movementId;
+
+    @NotNull(message = "Recorded time is required")
+    @Column(name = "recorded_at", nullable = false, updatable = false)
+    private LocalDateTime recordedAt;
+}
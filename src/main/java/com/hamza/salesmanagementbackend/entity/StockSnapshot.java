@@ -0,0 +1,47 @@
+package com.hamza.salesmanagementbackend.entity;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A product's on-hand quantity after every stock movement with an id up to lastMovementId,
+ * except ids that were still uncommitted gaps when it was taken; those are added once they
+ * commit. Every included movement is dated before takenAt. Only products that moved since their
+ * previous snapshot get a new one.
+ */
+@Entity
+@Table(name = "stock_snapshots",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"product_id", "taken_at"}),
+       indexes = @Index(name = "idx_stock_snapshot_taken", columnList = "taken_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull(message = "Product ID is required")
+    @Column(name = "product_id", nullable = false, updatable = false)
+    private Long productId;
+
+    @NotNull(message = "Snapshot time is required")
+    @Column(name = "taken_at", nullable = false, updatable = false)
+    private LocalDateTime takenAt;
+
+    @NotNull(message = "Last movement ID is required")
+    @Column(name = "last_movement_id", nullable = false, updatable = false)
+    private Long lastMovementId;
+
+    @NotNull(message = "Quantity is required")
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity;
+}
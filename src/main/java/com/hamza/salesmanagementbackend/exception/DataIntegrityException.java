@@ -79,6 +79,8 @@ public class DataIntegrityException extends RuntimeException {
                 switch (dependentResource.toLowerCase()) {
                     case "products":
                         return "Please move all products to another category or delete them before removing this category.";
+                    case "subcategories":
+                        return "Please move or delete all subcategories before removing this category.";
                     default:
                         return "Please remove or reassign all dependent records before deletion.";
                 }
@@ -140,6 +142,12 @@ public class DataIntegrityException extends RuntimeException {
         return new DataIntegrityException("Category", categoryId, "Products", message, "CATEGORY_HAS_PRODUCTS");
     }
 
+    public static DataIntegrityException categoryHasSubcategories(Long categoryId, int subcategoryCount) {
+        String message = String.format("Cannot delete category because it has %d subcategor%s",
+                                     subcategoryCount, subcategoryCount == 1 ? "y" : "ies");
+        return new DataIntegrityException("Category", categoryId, "Subcategories", message, "CATEGORY_HAS_SUBCATEGORIES");
+    }
+
     public static DataIntegrityException supplierHasPurchaseOrders(Long supplierId, int orderCount) {
         String message = String.format("Cannot delete supplier because they have %d active purchase order%s",
                                      orderCount, orderCount == 1 ? "" : "s");
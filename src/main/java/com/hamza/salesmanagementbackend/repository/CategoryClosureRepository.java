@@ -0,0 +1,46 @@
+package com.hamza.salesmanagementbackend.repository;
+
+import com.hamza.salesmanagementbackend.entity.CategoryClosure;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CategoryClosureRepository extends JpaRepository<CategoryClosure, Long> {
+
+    @Query("SELECT cc.descendantId FROM CategoryClosure cc WHERE cc.ancestorId = :ancestorId")
+    List<Long> findDescendantIds(@Param("ancestorId") Long ancestorId);
+
+    @Query("SELECT DISTINCT cc.descendantId FROM CategoryClosure cc WHERE cc.ancestorId IN :ancestorIds")
+    List<Long> findDescendantIdsOfAny(@Param("ancestorIds") Collection<Long> ancestorIds);
+
+    @Query("SELECT cc.ancestorId, cc.descendantId, cc.depth FROM CategoryClosure cc")
+    List<Object[]> findAllPairs();
+
+    /**
+     * Pairs every ancestor of the parent (the parent included) with every member of the
+     * node's subtree; used both for a new leaf and for a moved subtree
+     */
+    @Modifying
+    @Query("INSERT INTO CategoryClosure (ancestorId, descendantId, depth) " +
+           "SELECT a.ancestorId, d.descendantId, a.depth + d.depth + 1 FROM CategoryClosure a, CategoryClosure d " +
+           "WHERE a.descendantId = :parentId AND d.ancestorId = :nodeId")
+    int linkSubtree(@Param("nodeId") Long nodeId, @Param("parentId") Long parentId);
+
+    /**
+     * Detaches a subtree from its former ancestors; links inside the subtree are kept. The ids
+     * are passed in because MySQL rejects a subquery on the table being deleted from.
+     */
+    @Modifying
+    @Query("DELETE FROM CategoryClosure cc WHERE cc.descendantId IN :subtreeIds AND cc.ancestorId NOT IN :subtreeIds")
+    int unlinkSubtree(@Param("subtreeIds") Collection<Long> subtreeIds);
+
+    @Modifying
+    @Query("DELETE FROM CategoryClosure cc WHERE cc.descendantId = :categoryId OR cc.ancestorId = :categoryId")
+    int deleteByCategoryId(@Param("categoryId") Long categoryId);
+}
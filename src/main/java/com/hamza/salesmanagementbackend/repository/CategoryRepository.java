@@ -41,6 +41,31 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
     @Query("SELECT c FROM Category c WHERE c.id NOT IN (SELECT DISTINCT p.category.id FROM Product p WHERE p.category IS NOT NULL)")
     List<Category> findEmptyCategories();
 
+    @Query("SELECT c.id, c.name FROM Category c")
+    List<Object[]> findIdsAndNames();
+
+    long countByParentId(Long parentId);
+
+    /**
+     * Id and parent id of every category; the source of truth the closure table is rebuilt from
+     */
+    @Query("SELECT c.id, p.id FROM Category c LEFT JOIN c.parent p")
+    List<Object[]> findParentLinks();
+
+    /**
+     * The category and everything below it, nearest levels first
+     */
+    @Query("SELECT c FROM Category c, CategoryClosure cc WHERE cc.ancestorId = :categoryId AND c.id = cc.descendantId " +
+           "ORDER BY cc.depth ASC, c.displayOrder ASC, c.name ASC")
+    List<Category> findSubtree(@Param("categoryId") Long categoryId);
+
+    /**
+     * Breadcrumb from the root down to the category itself
+     */
+    @Query("SELECT c FROM Category c, CategoryClosure cc WHERE cc.descendantId = :categoryId AND c.id = cc.ancestorId " +
+           "ORDER BY cc.depth DESC")
+    List<Category> findPath(@Param("categoryId") Long categoryId);
+
     List<Category> findByInventoryId(Long inventoryId);
 
     List<Category> findByInventoryIsNull();
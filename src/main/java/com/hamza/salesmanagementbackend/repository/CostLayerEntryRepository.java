@@ -0,0 +1,28 @@
+package com.hamza.salesmanagementbackend.repository;
+
+import com.hamza.salesmanagementbackend.entity.CostLayerEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CostLayerEntryRepository extends JpaRepository<CostLayerEntry, Long> {
+
+    /**
+     * Id, product id, entry type, quantity and unit cost of the next entries after an id
+     */
+    @Query("SELECT e.id, e.productId, e.entryType, e.quantity, e.unitCost FROM CostLayerEntry e " +
+           "WHERE e.id > :afterId ORDER BY e.id")
+    List<Object[]> findEntriesAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Id, stock quantity and cost price of products with stock on hand but no ledger entries yet
+     */
+    @Query("SELECT p.id, p.stockQuantity, p.costPrice FROM Product p WHERE p.stockQuantity > 0 " +
+           "AND NOT EXISTS (SELECT e.id FROM CostLayerEntry e WHERE e.productId = p.id)")
+    List<Object[]> findProductsWithoutLayers();
+}
@@ -9,7 +9,9 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,9 +28,6 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
     List<Customer> findByCreatedAtBetween(@Param("startDate") LocalDateTime startDate,
                                           @Param("endDate") LocalDateTime endDate);
 
-    @Query("SELECT c FROM Customer c LEFT JOIN FETCH c.sales WHERE c.id = :id")
-    Optional<Customer> findByIdWithSales(@Param("id") Long id);
-
     @Query("SELECT COUNT(c) FROM Customer c WHERE c.createdAt >= :date")
     Long countNewCustomersSince(@Param("date") LocalDateTime date);
 
@@ -72,6 +71,13 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
            "LOWER(c.phone) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
     Page<Customer> searchActiveCustomers(@Param("searchTerm") String searchTerm, Pageable pageable);
 
+    /**
+     * Searchable fields of active customers for the in-memory search index, in id order
+     */
+    @Query("SELECT c.id, c.name, c.email, c.phone FROM Customer c " +
+           "WHERE c.isDeleted = false OR c.isDeleted IS NULL ORDER BY c.id")
+    List<Object[]> findSearchDocuments();
+
     @Query("SELECT c FROM Customer c WHERE (c.isDeleted = false OR c.isDeleted IS NULL) AND c.name LIKE %:name%")
     List<Customer> findActiveByNameContainingIgnoreCase(@Param("name") String name);
 
@@ -84,4 +90,66 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
     @Modifying
     @Query("UPDATE Customer c SET c.isDeleted = false WHERE c.isDeleted IS NULL")
     int fixNullIsDeletedValues();
+
+    @Query("SELECT MIN(c.id), MAX(c.id), COUNT(c) FROM Customer c")
+    List<Object[]> findIdBounds();
+
+    @Query("SELECT c.id FROM Customer c WHERE c.id BETWEEN :fromId AND :toId")
+    List<Long> findIdsBetween(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    @Query("SELECT c.id FROM Customer c WHERE c.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // Region backfill queries
+
+    /**
+     * Id, address, billing address and region id of the next customers after an id, optionally
+     * only those without a region
+     */
+    @Query("SELECT c.id, c.address, c.billingAddress, c.regionId FROM Customer c " +
+           "WHERE c.id > :afterId AND (:all = true OR c.regionId IS NULL) ORDER BY c.id")
+    List<Object[]> findRegionBackfillBatch(@Param("afterId") Long afterId, @Param("all") boolean all, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Customer c SET c.regionId = :regionId WHERE c.id IN :ids")
+    int updateRegion(@Param("regionId") Long regionId, @Param("ids") Collection<Long> ids);
+
+    // Customer statistics queries
+
+    /**
+     * Count, loyalty points, credit limit, balance and verified emails per type and status in one pass
+     */
+    @Query("SELECT c.customerType, c.customerStatus, COUNT(c), " +
+           "COALESCE(SUM(c.loyaltyPoints), 0), " +
+           "COALESCE(SUM(c.creditLimit), 0), " +
+           "COALESCE(SUM(c.currentBalance), 0), " +
+           "SUM(CASE WHEN c.isEmailVerified = true THEN 1 ELSE 0 END) " +
+           "FROM Customer c GROUP BY c.customerType, c.customerStatus")
+    List<Object[]> summarizeCustomers();
+
+    /**
+     * Compact statistics state (id, type, status, loyalty points, credit limit, balance, email
+     * verified) of every customer
+     */
+    @Query("SELECT c.id, c.customerType, c.customerStatus, c.loyaltyPoints, c.creditLimit, c.currentBalance, " +
+           "c.isEmailVerified FROM Customer c")
+    List<Object[]> findStatisticsStates();
+
+    @Query("SELECT c.id, c.customerType, c.customerStatus, c.loyaltyPoints, c.creditLimit, c.currentBalance, " +
+           "c.isEmailVerified FROM Customer c WHERE c.id IN :ids")
+    List<Object[]> findStatisticsStatesByIds(@Param("ids") Collection<Long> ids);
+
+    // Denormalised purchase counters, applied in batches by the outbox dispatcher
+
+    @Modifying
+    @Query("UPDATE Customer c SET c.totalPurchases = COALESCE(c.totalPurchases, 0) + :amount WHERE c.id = :id")
+    int applyPurchaseDelta(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    @Modifying
+    @Query("UPDATE Customer c SET c.lastPurchaseDate = :purchasedAt WHERE c.id = :id AND (c.lastPurchaseDate IS NULL OR c.lastPurchaseDate < :purchasedAt)")
+    int advanceLastPurchaseDate(@Param("id") Long id, @Param("purchasedAt") LocalDateTime purchasedAt);
+
+    @Modifying
+    @Query("UPDATE Customer c SET c.loyaltyPoints = COALESCE(c.loyaltyPoints, 0) + :points WHERE c.id = :id")
+    int addLoyaltyPoints(@Param("id") Long id, @Param("points") Integer points);
 }
@@ -0,0 +1,81 @@
+package com.hamza.salesmanagementbackend.repository;
+
+import com.hamza.salesmanagementbackend.entity.CustomerRfmScore;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Report queries join the customers table to leave soft-deleted customers out
+ */
+@Repository
+public interface CustomerRfmScoreRepository extends JpaRepository<CustomerRfmScore, Long> {
+
+    List<CustomerRfmScore> findByCustomerIdIn(Collection<Long> customerIds);
+
+    List<CustomerRfmScore> findByCustomerIdBetween(Long fromId, Long toId);
+
+    /**
+     * Segment, value tier, customers, revenue and average order value per segment and value tier
+     * of customers with purchases
+     */
+    @Query("SELECT r.segment, r.valueTier, COUNT(r), COALESCE(SUM(r.monetary), 0), COALESCE(AVG(r.avgOrderValue), 0) " +
+           "FROM CustomerRfmScore r, Customer c WHERE c.id = r.customerId " +
+           "AND (c.isDeleted = false OR c.isDeleted IS NULL) AND r.frequency > 0 GROUP BY r.segment, r.valueTier")
+    List<Object[]> summarizeBySegmentAndValueTier();
+
+    /**
+     * Tier, customers, revenue, average order value and average monthly purchase frequency per
+     * value tier of customers with purchases
+     */
+    @Query("SELECT r.valueTier, COUNT(r), COALESCE(SUM(r.monetary), 0), COALESCE(AVG(r.avgOrderValue), 0), " +
+           "COALESCE(AVG(r.purchaseFrequency), 0) " +
+           "FROM CustomerRfmScore r, Customer c WHERE c.id = r.customerId " +
+           "AND (c.isDeleted = false OR c.isDeleted IS NULL) AND r.frequency > 0 GROUP BY r.valueTier")
+    List<Object[]> summarizeByValueTier();
+
+    /**
+     * Risk level, customers, revenue, average days since the last purchase, customers with a last
+     * purchase and customers who never purchased per churn risk of every active customer
+     */
+    @Query("SELECT r.churnRisk, COUNT(r), COALESCE(SUM(r.monetary), 0), AVG(r.recencyDays), COUNT(r.recencyDays), " +
+           "SUM(CASE WHEN r.frequency = 0 THEN 1 ELSE 0 END) " +
+           "FROM CustomerRfmScore r, Customer c WHERE c.id = r.customerId " +
+           "AND (c.isDeleted = false OR c.isDeleted IS NULL) GROUP BY r.churnRisk")
+    List<Object[]> summarizeByChurnRisk();
+
+    /**
+     * Scores with customer name and email, highest spend first, optionally narrowed to a segment
+     * or churn risk
+     */
+    @Query("SELECT r, c.name, c.email, c.createdAt FROM CustomerRfmScore r, Customer c WHERE c.id = r.customerId " +
+           "AND (c.isDeleted = false OR c.isDeleted IS NULL) AND r.frequency >= :minFrequency " +
+           "AND (:segment IS NULL OR r.segment = :segment) AND (:churnRisk IS NULL OR r.churnRisk = :churnRisk) " +
+           "ORDER BY r.monetary DESC, r.customerId")
+    List<Object[]> findTopWithCustomers(@Param("minFrequency") int minFrequency,
+                                        @Param("segment") CustomerRfmScore.Segment segment,
+                                        @Param("churnRisk") CustomerRfmScore.ChurnRisk churnRisk,
+                                        Pageable pageable);
+
+    /**
+     * Scores with customer name and email of customers with purchases in any of the segments and
+     * value tiers, highest spend first
+     */
+    @Query("SELECT r, c.name, c.email, c.createdAt FROM CustomerRfmScore r, Customer c WHERE c.id = r.customerId " +
+           "AND (c.isDeleted = false OR c.isDeleted IS NULL) AND r.frequency > 0 " +
+           "AND r.segment IN :segments AND r.valueTier IN :valueTiers " +
+           "ORDER BY r.monetary DESC, r.customerId")
+    List<Object[]> findWithCustomersIn(@Param("segments") Collection<CustomerRfmScore.Segment> segments,
+                                       @Param("valueTiers") Collection<CustomerRfmScore.ValueTier> valueTiers,
+                                       Pageable pageable);
+
+    @Query("SELECT r.monetary FROM CustomerRfmScore r, Customer c WHERE c.id = r.customerId " +
+           "AND (c.isDeleted = false OR c.isDeleted IS NULL) AND r.frequency > 0 ORDER BY r.monetary DESC")
+    List<BigDecimal> findMonetaryDescending(Pageable pageable);
+}
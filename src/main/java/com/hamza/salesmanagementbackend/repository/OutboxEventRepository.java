@@ -0,0 +1,42 @@
+package com.hamza.salesmanagementbackend.repository;
+
+import com.hamza.salesmanagementbackend.entity.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository interface for OutboxEvent entity
+ */
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Claims the oldest pending events; rows locked by another dispatcher are skipped
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM OutboxEvent e WHERE e.processedAt IS NULL ORDER BY e.id")
+    List<OutboxEvent> findPendingForUpdate(Pageable pageable);
+
+    @Query("SELECT COUNT(e) FROM OutboxEvent e WHERE e.processedAt IS NULL")
+    long countPending();
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.processedAt = :processedAt WHERE e.id IN :ids")
+    int markProcessed(@Param("ids") List<Long> ids, @Param("processedAt") LocalDateTime processedAt);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.processedAt IS NOT NULL AND e.processedAt < :before")
+    int deleteProcessedBefore(@Param("before") LocalDateTime before);
+}
@@ -4,12 +4,14 @@ import com.hamza.salesmanagementbackend.entity.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,6 +20,28 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
     Optional<Product> findBySku(String sku);
 
+    Optional<Product> findByBarcode(String barcode);
+
+    /**
+     * Compact scan records (id, sku, barcode, name, price, tax rate, stock, shard count)
+     */
+    @Query("SELECT p.id, p.sku, p.barcode, p.name, p.price, p.taxRate, p.stockQuantity, p.stockShardCount " +
+           "FROM Product p WHERE p.sku = :code OR p.barcode = :code")
+    List<Object[]> findScanRecords(@Param("code") String code);
+
+    /**
+     * Compact scan records of the best-selling products, for warming the scan cache
+     */
+    @Query("SELECT p.id, p.sku, p.barcode, p.name, p.price, p.taxRate, p.stockQuantity, p.stockShardCount " +
+           "FROM Product p ORDER BY p.totalSold DESC, p.id")
+    List<Object[]> findTopScanRecords(Pageable pageable);
+
+    /**
+     * Stock quantity and stock shard count of one product
+     */
+    @Query("SELECT p.stockQuantity, p.stockShardCount FROM Product p WHERE p.id = :id")
+    List<Object[]> findStockById(@Param("id") Long id);
+
     List<Product> findByCategoryId(Long categoryId);
 
     Page<Product> findByCategoryId(Long categoryId, Pageable pageable);
@@ -28,9 +52,14 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Query("SELECT p FROM Product p WHERE p.category.name = :categoryName")
     Page<Product> findByCategoryName(@Param("categoryName") String categoryName, Pageable pageable);
 
-    List<Product> findByNameContainingIgnoreCase(String name);
+    /**
+     * Products in a category or any of its subcategories, via the closure table
+     */
+    @Query(value = "SELECT p FROM Product p, CategoryClosure cc WHERE cc.ancestorId = :categoryId AND p.category.id = cc.descendantId",
+           countQuery = "SELECT COUNT(p) FROM Product p, CategoryClosure cc WHERE cc.ancestorId = :categoryId AND p.category.id = cc.descendantId")
+    Page<Product> findByCategorySubtree(@Param("categoryId") Long categoryId, Pageable pageable);
 
-    List<Product> findByStockQuantityLessThan(Integer threshold);
+    List<Product> findByNameContainingIgnoreCase(String name);
 
     @Query("SELECT p FROM Product p WHERE p.price BETWEEN :minPrice AND :maxPrice")
     List<Product> findByPriceRange(@Param("minPrice") BigDecimal minPrice,
@@ -39,9 +68,6 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Query("SELECT DISTINCT c.name FROM Product p JOIN p.category c WHERE c IS NOT NULL")
     List<String> findDistinctCategoryNames();
 
-    @Query("SELECT p FROM Product p WHERE p.stockQuantity = 0")
-    List<Product> findOutOfStockProducts();
-
     @Query("SELECT p FROM Product p LEFT JOIN p.category c WHERE " +
            "LOWER(p.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
            "LOWER(p.description) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
@@ -49,6 +75,12 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
            "LOWER(p.sku) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
     Page<Product> searchProducts(@Param("searchTerm") String searchTerm, Pageable pageable);
 
+    /**
+     * Id, name, SKU, category name and description of every product, for the search index
+     */
+    @Query("SELECT p.id, p.name, p.sku, c.name, p.description FROM Product p LEFT JOIN p.category c")
+    List<Object[]> findSearchDocuments();
+
     @Query("SELECT COUNT(p) FROM Product p WHERE p.stockQuantity < :threshold")
     Long countLowStockProducts(@Param("threshold") Integer threshold);
 
@@ -91,74 +123,118 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     // Inventory Summary Metrics Queries
 
     /**
-     * Count products that have stock > 0
+     * Every inventory summary metric per category in one pass: category id, total, in stock,
+     * out of stock, low stock, needing reorder, stock value, price sum and below-threshold count.
+     * Uncategorised products are grouped under a null category id.
      */
-    @Query("SELECT COUNT(p) FROM Product p WHERE p.stockQuantity > 0")
-    Long countProductsInStock();
+    @Query("SELECT c.id, COUNT(p), " +
+           "SUM(CASE WHEN p.stockQuantity > 0 THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN p.stockQuantity = 0 THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN p.reorderPoint IS NOT NULL AND p.stockQuantity <= p.reorderPoint THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN p.reorderPoint IS NOT NULL AND p.stockQuantity <= p.reorderPoint AND p.stockQuantity > 0 THEN 1 ELSE 0 END), " +
+           "COALESCE(SUM(p.price * p.stockQuantity), 0), " +
+           "COALESCE(SUM(p.price), 0), " +
+           "SUM(CASE WHEN p.stockQuantity < :lowStockThreshold THEN 1 ELSE 0 END) " +
+           "FROM Product p LEFT JOIN p.category c GROUP BY c.id")
+    List<Object[]> summarizeInventoryByCategory(@Param("lowStockThreshold") Integer lowStockThreshold);
 
     /**
-     * Count products that are out of stock (stockQuantity = 0)
+     * Compact stock state (id, category id, stock, price, reorder point) of every product
      */
-    @Query("SELECT COUNT(p) FROM Product p WHERE p.stockQuantity = 0")
-    Long countOutOfStockProducts();
+    @Query("SELECT p.id, c.id, p.stockQuantity, p.price, p.reorderPoint FROM Product p LEFT JOIN p.category c")
+    List<Object[]> findStockStates();
 
-    /**
-     * Count products with low stock (stockQuantity <= reorderPoint)
-     */
-    @Query("SELECT COUNT(p) FROM Product p WHERE p.reorderPoint IS NOT NULL AND p.stockQuantity <= p.reorderPoint")
-    Long countLowStockProducts();
+    @Query("SELECT p.id, c.id, p.stockQuantity, p.price, p.reorderPoint FROM Product p LEFT JOIN p.category c WHERE p.id IN :ids")
+    List<Object[]> findStockStatesByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT MIN(p.id), MAX(p.id), COUNT(p) FROM Product p")
+    List<Object[]> findIdBounds();
 
     /**
-     * Count products that need reordering (at or below reorder point and reorder point is set)
+     * Id, stock, shard count, minimum and maximum level, reorder point and quantity, cost price
+     * and supplier name of the products in an id range, read by the reorder suggestion job
      */
-    @Query("SELECT COUNT(p) FROM Product p WHERE p.reorderPoint IS NOT NULL AND p.stockQuantity <= p.reorderPoint AND p.stockQuantity > 0")
-    Long countProductsNeedingReorder();
+    @Query("SELECT p.id, p.stockQuantity, p.stockShardCount, p.minStockLevel, p.maxStockLevel, " +
+           "p.reorderPoint, p.reorderQuantity, p.costPrice, p.supplierName FROM Product p " +
+           "WHERE p.id BETWEEN :fromId AND :toId")
+    List<Object[]> findReorderInputs(@Param("fromId") Long fromId, @Param("toId") Long toId);
 
     /**
-     * Calculate total stock value (sum of price * stockQuantity for products with stock > 0)
+     * Id, name, SKU, stock, minimum level, reorder point and shard count, read when evaluating stock alerts
      */
-    @Query("SELECT COALESCE(SUM(p.price * p.stockQuantity), 0) FROM Product p WHERE p.stockQuantity > 0 AND p.price IS NOT NULL")
-    BigDecimal calculateTotalStockValue();
+    @Query("SELECT p.id, p.name, p.sku, p.stockQuantity, p.minStockLevel, p.reorderPoint, p.stockShardCount " +
+           "FROM Product p WHERE p.id IN :ids")
+    List<Object[]> findStockLevelsByIds(@Param("ids") Collection<Long> ids);
 
     /**
-     * Count total products in the system
+     * Products that may sit at or below a stock alert threshold; sharded products are always
+     * included because their row stock is not the on-hand total
      */
-    @Query("SELECT COUNT(p) FROM Product p")
-    Long countTotalProducts();
+    @Query("SELECT p.id FROM Product p WHERE p.stockQuantity <= p.reorderPoint OR p.stockQuantity <= p.minStockLevel " +
+           "OR p.stockQuantity <= 0 OR p.stockShardCount > 1")
+    List<Long> findStockAlertCandidateIds();
 
     /**
-     * Get inventory summary with category filter
+     * Id, SKU, barcode and shard count of every product, preloaded once per bulk import
      */
-    @Query("SELECT COUNT(p) FROM Product p WHERE p.stockQuantity > 0 AND p.category.id = :categoryId")
-    Long countProductsInStockByCategory(@Param("categoryId") Long categoryId);
+    @Query("SELECT p.id, p.sku, p.barcode, p.stockShardCount FROM Product p")
+    List<Object[]> findImportKeys();
 
-    @Query("SELECT COUNT(p) FROM Product p WHERE p.stockQuantity = 0 AND p.category.id = :categoryId")
-    Long countOutOfStockProductsByCategory(@Param("categoryId") Long categoryId);
+    @Query("SELECT p.id, p.sku FROM Product p WHERE p.sku IN :skus")
+    List<Object[]> findIdsBySkus(@Param("skus") Collection<String> skus);
 
-    @Query("SELECT COUNT(p) FROM Product p WHERE p.reorderPoint IS NOT NULL AND p.stockQuantity <= p.reorderPoint AND p.category.id = :categoryId")
-    Long countLowStockProductsByCategory(@Param("categoryId") Long categoryId);
+    // Denormalised sales counters, applied in batches by the outbox dispatcher
 
-    @Query("SELECT COALESCE(SUM(p.price * p.stockQuantity), 0) FROM Product p WHERE p.stockQuantity > 0 AND p.price IS NOT NULL AND p.category.id = :categoryId")
-    BigDecimal calculateTotalStockValueByCategory(@Param("categoryId") Long categoryId);
+    @Modifying
+    @Query("UPDATE Product p SET p.totalSold = COALESCE(p.totalSold, 0) + :quantity, " +
+           "p.totalRevenue = COALESCE(p.totalRevenue, 0) + :revenue WHERE p.id = :id")
+    int applySalesDelta(@Param("id") Long id, @Param("quantity") Integer quantity, @Param("revenue") BigDecimal revenue);
 
-    @Query("SELECT COUNT(p) FROM Product p WHERE p.category.id = :categoryId")
-    Long countTotalProductsByCategory(@Param("categoryId") Long categoryId);
+    @Modifying
+    @Query("UPDATE Product p SET p.lastSoldDate = :soldAt WHERE p.id = :id AND (p.lastSoldDate IS NULL OR p.lastSoldDate < :soldAt)")
+    int advanceLastSoldDate(@Param("id") Long id, @Param("soldAt") LocalDateTime soldAt);
 
-    /**
-     * Get inventory summary with category name filter
-     */
-    @Query("SELECT COUNT(p) FROM Product p WHERE p.stockQuantity > 0 AND p.category.name = :categoryName")
-    Long countProductsInStockByCategoryName(@Param("categoryName") String categoryName);
+    // Atomic stock updates; the guard keeps stock from going negative under concurrent sales
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity - :quantity WHERE p.id = :id AND p.stockQuantity >= :quantity")
+    int decrementStockIfAvailable(@Param("id") Long id, @Param("quantity") Integer quantity);
 
-    @Query("SELECT COUNT(p) FROM Product p WHERE p.stockQuantity = 0 AND p.category.name = :categoryName")
-    Long countOutOfStockProductsByCategoryName(@Param("categoryName") String categoryName);
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity + :quantity WHERE p.id = :id")
+    int incrementStock(@Param("id") Long id, @Param("quantity") Integer quantity);
 
-    @Query("SELECT COUNT(p) FROM Product p WHERE p.reorderPoint IS NOT NULL AND p.stockQuantity <= p.reorderPoint AND p.category.name = :categoryName")
-    Long countLowStockProductsByCategoryName(@Param("categoryName") String categoryName);
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity + :quantity, p.lastRestockedDate = :restockedAt " +
+           "WHERE p.id = :id")
+    int restock(@Param("id") Long id, @Param("quantity") Integer quantity,
+                @Param("restockedAt") LocalDateTime restockedAt);
 
-    @Query("SELECT COALESCE(SUM(p.price * p.stockQuantity), 0) FROM Product p WHERE p.stockQuantity > 0 AND p.price IS NOT NULL AND p.category.name = :categoryName")
-    BigDecimal calculateTotalStockValueByCategoryName(@Param("categoryName") String categoryName);
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Product p SET p.stockQuantity = :quantity WHERE p.id = :id")
+    int setStock(@Param("id") Long id, @Param("quantity") Integer quantity);
 
-    @Query("SELECT COUNT(p) FROM Product p WHERE p.category.name = :categoryName")
-    Long countTotalProductsByCategoryName(@Param("categoryName") String categoryName);
+    @Query("SELECT p.stockQuantity FROM Product p WHERE p.id = :id")
+    Optional<Integer> findStockQuantityById(@Param("id") Long id);
+
+    @Query("SELECT p.stockShardCount FROM Product p WHERE p.id = :id")
+    Optional<Integer> findStockShardCountById(@Param("id") Long id);
+
+    /**
+     * Sharded products whose products.stock_quantity differs from their shard total
+     */
+    @Query("SELECT p.id FROM Product p WHERE p.stockShardCount > 1 AND p.stockQuantity <> " +
+           "(SELECT COALESCE(SUM(s.quantity), 0) FROM ProductStockShard s WHERE s.productId = p.id)")
+    List<Long> findDriftedShardedProductIds();
+
+    /**
+     * Copies the shard totals of the given sharded products back onto products.stock_quantity,
+     * writing only rows that still differ
+     */
+    @Modifying
+    @Query("UPDATE Product p SET p.stockQuantity = " +
+           "(SELECT COALESCE(SUM(s.quantity), 0) FROM ProductStockShard s WHERE s.productId = p.id) " +
+           "WHERE p.id IN :ids AND p.stockShardCount > 1 AND p.stockQuantity <> " +
+           "(SELECT COALESCE(SUM(s2.quantity), 0) FROM ProductStockShard s2 WHERE s2.productId = p.id)")
+    int reconcileShardedStock(@Param("ids") Collection<Long> ids);
 }
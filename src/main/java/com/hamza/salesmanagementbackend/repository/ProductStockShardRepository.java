@@ -0,0 +1,47 @@
+package com.hamza.salesmanagementbackend.repository;
+
+import com.hamza.salesmanagementbackend.entity.ProductStockShard;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.util.List;
+
+/**
+ * Repository interface for ProductStockShard entity
+ */
+@Repository
+public interface ProductStockShardRepository extends JpaRepository<ProductStockShard, Long> {
+
+    List<ProductStockShard> findByProductIdOrderByShardIndex(Long productId);
+
+    /**
+     * Locks all shards of a product in index order (multi-shard takes and redistribution)
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM ProductStockShard s WHERE s.productId = :productId ORDER BY s.shardIndex")
+    List<ProductStockShard> findByProductIdForUpdate(@Param("productId") Long productId);
+
+    @Query("SELECT COALESCE(SUM(s.quantity), 0) FROM ProductStockShard s WHERE s.productId = :productId")
+    Long sumQuantityByProductId(@Param("productId") Long productId);
+
+    @Modifying
+    @Query("UPDATE ProductStockShard s SET s.quantity = s.quantity - :quantity " +
+           "WHERE s.productId = :productId AND s.shardIndex = :shardIndex AND s.quantity >= :quantity")
+    int decrementIfAvailable(@Param("productId") Long productId, @Param("shardIndex") Integer shardIndex,
+                             @Param("quantity") Integer quantity);
+
+    @Modifying
+    @Query("UPDATE ProductStockShard s SET s.quantity = s.quantity + :quantity " +
+           "WHERE s.productId = :productId AND s.shardIndex = :shardIndex")
+    int increment(@Param("productId") Long productId, @Param("shardIndex") Integer shardIndex,
+                  @Param("quantity") Integer quantity);
+
+    @Modifying
+    @Query("DELETE FROM ProductStockShard s WHERE s.productId = :productId")
+    int deleteByProductId(@Param("productId") Long productId);
+}
@@ -4,6 +4,7 @@ import com.hamza.salesmanagementbackend.entity.Promotion;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -25,23 +26,65 @@ public interface PromotionRepository extends JpaRepository<Promotion, Long> {
 
     List<Promotion> findByCustomerEligibility(Promotion.CustomerEligibility customerEligibility);
 
-    @Query("SELECT p FROM Promotion p WHERE p.isActive = true AND :currentDate BETWEEN p.startDate AND p.endDate")
-    List<Promotion> findActivePromotions(@Param("currentDate") LocalDateTime currentDate);
+    @Query("SELECT p FROM Promotion p WHERE p.status = 'ACTIVE'")
+    List<Promotion> findActivePromotions();
 
-    @Query("SELECT p FROM Promotion p WHERE p.isActive = true AND :currentDate BETWEEN p.startDate AND p.endDate AND (p.usageLimit IS NULL OR p.usageCount < p.usageLimit)")
-    List<Promotion> findAvailablePromotions(@Param("currentDate") LocalDateTime currentDate);
+    @Query("SELECT p FROM Promotion p WHERE p.status = 'ACTIVE' " +
+           "AND (p.usageLimit IS NULL OR p.usageCount < p.usageLimit)")
+    List<Promotion> findAvailablePromotions();
 
-    @Query("SELECT p FROM Promotion p WHERE p.endDate < :currentDate")
-    List<Promotion> findExpiredPromotions(@Param("currentDate") LocalDateTime currentDate);
+    @Query("SELECT p FROM Promotion p WHERE p.status = 'ACTIVE' " +
+           "AND (p.usageLimit IS NULL OR p.usageCount < p.usageLimit)")
+    Page<Promotion> findAvailablePromotions(Pageable pageable);
 
-    @Query("SELECT p FROM Promotion p WHERE p.startDate > :currentDate")
-    List<Promotion> findScheduledPromotions(@Param("currentDate") LocalDateTime currentDate);
+    @Query("SELECT p FROM Promotion p WHERE p.status IN ('SCHEDULED', 'ACTIVE') " +
+           "AND (p.usageLimit IS NULL OR p.usageCount < p.usageLimit)")
+    List<Promotion> findIndexablePromotions();
+
+    Page<Promotion> findByStatus(Promotion.PromotionStatus status, Pageable pageable);
 
     @Query("SELECT p FROM Promotion p WHERE p.usageLimit IS NOT NULL AND p.usageCount >= p.usageLimit")
     List<Promotion> findUsageLimitReachedPromotions();
 
-    @Query("SELECT p FROM Promotion p WHERE p.autoApply = true AND p.isActive = true AND :currentDate BETWEEN p.startDate AND p.endDate")
-    List<Promotion> findAutoApplyPromotions(@Param("currentDate") LocalDateTime currentDate);
+    @Query("SELECT p FROM Promotion p WHERE p.usageLimit IS NOT NULL AND p.usageCount >= p.usageLimit")
+    Page<Promotion> findUsageLimitReachedPromotions(Pageable pageable);
+
+    @Query("SELECT p FROM Promotion p WHERE p.autoApply = true AND p.status = 'ACTIVE'")
+    List<Promotion> findAutoApplyPromotions();
+
+    /**
+     * Id, start and end of every promotion still waiting on a lifecycle transition
+     */
+    @Query("SELECT p.id, p.startDate, p.endDate FROM Promotion p WHERE p.isActive = true AND p.endDate > :currentDate")
+    List<Object[]> findPendingTransitions(@Param("currentDate") LocalDateTime currentDate);
+
+    @Modifying
+    @Query("UPDATE Promotion p SET p.status = :status WHERE p.id = :id AND (p.status IS NULL OR p.status <> :status)")
+    int updateStatus(@Param("id") Long id, @Param("status") Promotion.PromotionStatus status);
+
+    @Modifying
+    @Query("UPDATE Promotion p SET p.status = 'INACTIVE' " +
+           "WHERE (p.isActive = false OR p.isActive IS NULL) " +
+           "AND (p.status IS NULL OR p.status <> 'INACTIVE')")
+    int reconcileInactiveStatuses();
+
+    @Modifying
+    @Query("UPDATE Promotion p SET p.status = 'SCHEDULED' " +
+           "WHERE p.isActive = true AND p.startDate > :currentDate " +
+           "AND (p.status IS NULL OR p.status <> 'SCHEDULED')")
+    int reconcileScheduledStatuses(@Param("currentDate") LocalDateTime currentDate);
+
+    @Modifying
+    @Query("UPDATE Promotion p SET p.status = 'ACTIVE' " +
+           "WHERE p.isActive = true AND p.startDate <= :currentDate AND p.endDate > :currentDate " +
+           "AND (p.status IS NULL OR p.status <> 'ACTIVE')")
+    int reconcileActiveStatuses(@Param("currentDate") LocalDateTime currentDate);
+
+    @Modifying
+    @Query("UPDATE Promotion p SET p.status = 'EXPIRED' " +
+           "WHERE p.isActive = true AND p.endDate <= :currentDate " +
+           "AND (p.status IS NULL OR p.status <> 'EXPIRED')")
+    int reconcileExpiredStatuses(@Param("currentDate") LocalDateTime currentDate);
 
     @Query("SELECT p FROM Promotion p WHERE " +
            "LOWER(p.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
@@ -52,8 +95,8 @@ public interface PromotionRepository extends JpaRepository<Promotion, Long> {
     @Query("SELECT COUNT(p) FROM Promotion p WHERE p.isActive = true")
     Long countActivePromotions();
 
-    @Query("SELECT COUNT(p) FROM Promotion p WHERE p.endDate < :currentDate")
-    Long countExpiredPromotions(@Param("currentDate") LocalDateTime currentDate);
+    @Query("SELECT COUNT(p) FROM Promotion p WHERE p.status = 'EXPIRED'")
+    Long countExpiredPromotions();
 
     @Query("SELECT p.type, COUNT(p) FROM Promotion p WHERE p.isActive = true GROUP BY p.type")
     List<Object[]> getPromotionTypeStatistics();
@@ -69,4 +112,20 @@ public interface PromotionRepository extends JpaRepository<Promotion, Long> {
     List<Promotion> findPromotionsForCategory(@Param("category") String category);
 
     boolean existsByCouponCode(String couponCode);
+
+    @Query("SELECT p.couponCode FROM Promotion p WHERE p.couponCode IS NOT NULL")
+    List<String> findAllCouponCodes();
+
+    @Modifying
+    @Query("UPDATE Promotion p SET p.usageCount = COALESCE(p.usageCount, 0) + :delta " +
+           "WHERE p.id = :id AND COALESCE(p.usageCount, 0) + :delta >= 0")
+    int applyUsageDelta(@Param("id") Long id, @Param("delta") Integer delta);
+
+    /**
+     * Atomically counts one use; matches no row once the usage limit is reached
+     */
+    @Modifying
+    @Query("UPDATE Promotion p SET p.usageCount = COALESCE(p.usageCount, 0) + 1 " +
+           "WHERE p.id = :id AND (p.usageLimit IS NULL OR COALESCE(p.usageCount, 0) < p.usageLimit)")
+    int incrementUsageIfBelowLimit(@Param("id") Long id);
 }
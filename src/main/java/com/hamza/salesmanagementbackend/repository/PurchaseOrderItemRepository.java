@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -36,4 +37,23 @@ public interface PurchaseOrderItemRepository extends JpaRepository<PurchaseOrder
 
     @Query("SELECT SUM(poi.quantity - poi.receivedQuantity) FROM PurchaseOrderItem poi WHERE poi.product.id = :productId")
     Integer getTotalPendingQuantityForProduct(@Param("productId") Long productId);
+
+    /**
+     * Units still to arrive per product on orders that are not delivered or cancelled
+     */
+    @Query("SELECT poi.product.id, SUM(poi.quantity - COALESCE(poi.receivedQuantity, 0)) " +
+           "FROM PurchaseOrderItem poi JOIN poi.purchaseOrder po " +
+           "WHERE poi.product.id IN :productIds AND po.status IN ('PENDING', 'APPROVED', 'SENT') " +
+           "GROUP BY poi.product.id")
+    List<Object[]> sumOpenQuantitiesByProduct(@Param("productIds") Collection<Long> productIds);
+
+    /**
+     * Product id, supplier id and unit cost of each product's latest line on a non-cancelled order
+     * from an active supplier; one row per product at most
+     */
+    @Query("SELECT poi.product.id, po.supplier.id, poi.unitCost FROM PurchaseOrderItem poi JOIN poi.purchaseOrder po " +
+           "WHERE poi.product.id IN :productIds AND poi.id = (SELECT MAX(latest.id) FROM PurchaseOrderItem latest " +
+           "JOIN latest.purchaseOrder latestOrder WHERE latest.product.id = poi.product.id " +
+           "AND latestOrder.status <> 'CANCELLED' AND latestOrder.supplier.status = 'ACTIVE')")
+    List<Object[]> findLatestSupplyByProduct(@Param("productIds") Collection<Long> productIds);
 }
@@ -4,10 +4,12 @@ import com.hamza.salesmanagementbackend.entity.PurchaseOrder;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -33,6 +35,13 @@ public interface PurchaseOrderRepository extends JpaRepository<PurchaseOrder, Lo
     @Query("SELECT po FROM PurchaseOrder po LEFT JOIN FETCH po.items poi LEFT JOIN FETCH poi.product WHERE po.id = :id")
     Optional<PurchaseOrder> findByIdWithItems(@Param("id") Long id);
 
+    /**
+     * Locks the order row so concurrent receipts against it run one after the other
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT po FROM PurchaseOrder po WHERE po.id = :id")
+    Optional<PurchaseOrder> findByIdForUpdate(@Param("id") Long id);
+
     @Query("SELECT po FROM PurchaseOrder po WHERE po.supplier.id = :supplierId AND po.status = :status")
     List<PurchaseOrder> findBySupplierIdAndStatus(@Param("supplierId") Long supplierId,
                                                  @Param("status") PurchaseOrder.PurchaseOrderStatus status);
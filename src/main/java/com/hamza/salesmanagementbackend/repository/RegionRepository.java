@@ -0,0 +1,13 @@
+package com.hamza.salesmanagementbackend.repository;
+
+import com.hamza.salesmanagementbackend.entity.Region;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface RegionRepository extends JpaRepository<Region, Long> {
+
+    Optional<Region> findByCode(String code);
+}
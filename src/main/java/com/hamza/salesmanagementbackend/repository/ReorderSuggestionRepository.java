@@ -0,0 +1,31 @@
+package com.hamza.salesmanagementbackend.repository;
+
+import com.hamza.salesmanagementbackend.entity.ReorderSuggestion;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ReorderSuggestionRepository extends JpaRepository<ReorderSuggestion, Long> {
+
+    List<ReorderSuggestion> findByProductIdIn(Collection<Long> productIds);
+
+    Optional<ReorderSuggestion> findByProductId(Long productId);
+
+    /**
+     * Suggestions with the product name and SKU, optionally only those needing a reorder
+     */
+    @Query(value = "SELECT rs, p.name, p.sku FROM ReorderSuggestion rs, Product p " +
+                   "WHERE p.id = rs.productId AND (:neededOnly = false OR rs.needsReorder = true) " +
+                   "ORDER BY rs.needsReorder DESC, rs.dailyVelocity DESC",
+           countQuery = "SELECT COUNT(rs) FROM ReorderSuggestion rs " +
+                        "WHERE (:neededOnly = false OR rs.needsReorder = true)")
+    Page<Object[]> findWithProducts(@Param("neededOnly") boolean neededOnly, Pageable pageable);
+}
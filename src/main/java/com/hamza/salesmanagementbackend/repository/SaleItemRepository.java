@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -24,4 +25,45 @@ public interface SaleItemRepository extends JpaRepository<SaleItem, Long> {
            "FROM SaleItem si JOIN si.sale s WHERE s.status = 'COMPLETED' " +
            "GROUP BY si.product.id, si.product.name ORDER BY totalQuantity DESC")
     List<Object[]> findTopSellingProducts();
+
+    /**
+     * Flat rows for promotion simulation: sale id, customer id, customer type, customer total purchases,
+     * product id, category name, unit price, quantity, cost price, sale subtotal, sale total.
+     * Limited to completed sales in a date window and a sale id range, ordered by sale.
+     */
+    @Query("SELECT s.id, c.id, c.customerType, c.totalPurchases, p.id, cat.name, " +
+           "si.unitPrice, si.quantity, si.costPrice, s.subtotal, s.totalAmount " +
+           "FROM SaleItem si JOIN si.sale s JOIN si.product p LEFT JOIN p.category cat LEFT JOIN s.customer c " +
+           "WHERE s.status = 'COMPLETED' AND s.saleDate BETWEEN :startDate AND :endDate " +
+           "AND s.id BETWEEN :fromId AND :toId ORDER BY s.id")
+    List<Object[]> findSimulationRows(@Param("startDate") LocalDateTime startDate,
+                                      @Param("endDate") LocalDateTime endDate,
+                                      @Param("fromId") Long fromId,
+                                      @Param("toId") Long toId);
+
+    /**
+     * Completed-sale totals rolled up to every ancestor category in one join through the closure
+     * table: category id, quantity, revenue, cost (revenue where the cost is unknown, so those
+     * lines add no profit), distinct products, distinct sales and distinct customers.
+     */
+    @Query("SELECT cc.ancestorId, SUM(si.quantity), SUM(si.totalPrice), " +
+           "SUM(COALESCE(si.costPrice * si.quantity, si.totalPrice)), " +
+           "COUNT(DISTINCT p.id), COUNT(DISTINCT s.id), COUNT(DISTINCT c.id) " +
+           "FROM SaleItem si JOIN si.sale s JOIN si.product p LEFT JOIN s.customer c, CategoryClosure cc " +
+           "WHERE cc.descendantId = p.category.id AND s.status = 'COMPLETED' " +
+           "AND s.saleDate BETWEEN :startDate AND :endDate GROUP BY cc.ancestorId")
+    List<Object[]> findCategoryRollup(@Param("startDate") LocalDateTime startDate,
+                                      @Param("endDate") LocalDateTime endDate);
+
+    /**
+     * Completed-sale units per product since a date, and the part of them sold since a later
+     * recent date: product id, units, recent units
+     */
+    @Query("SELECT si.product.id, SUM(si.quantity), " +
+           "SUM(CASE WHEN s.saleDate >= :recentSince THEN si.quantity ELSE 0 END) " +
+           "FROM SaleItem si JOIN si.sale s WHERE si.product.id IN :productIds " +
+           "AND s.status = 'COMPLETED' AND s.saleDate >= :since GROUP BY si.product.id")
+    List<Object[]> sumUnitsSoldByProduct(@Param("productIds") Collection<Long> productIds,
+                                         @Param("since") LocalDateTime since,
+                                         @Param("recentSince") LocalDateTime recentSince);
 }
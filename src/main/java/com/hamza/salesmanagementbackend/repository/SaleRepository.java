@@ -4,6 +4,7 @@ import com.hamza.salesmanagementbackend.entity.Sale;
 import com.hamza.salesmanagementbackend.entity.SaleStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -11,6 +12,7 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,17 +21,29 @@ public interface SaleRepository extends JpaRepository<Sale, Long> {
 
     List<Sale> findByCustomerId(Long customerId);
 
+    // Paged list queries fetch the customer in the same select; items and applied
+    // promotions are batch-loaded (see Sale) so a page costs a constant number of statements
+    @Override
+    @EntityGraph(attributePaths = {"customer"})
+    Page<Sale> findAll(Pageable pageable);
+
     List<Sale> findByStatus(SaleStatus status);
 
+    @EntityGraph(attributePaths = {"customer"})
     Page<Sale> findByStatus(SaleStatus status, Pageable pageable);
 
     List<Sale> findBySaleDateBetween(LocalDateTime startDate, LocalDateTime endDate);
 
+    @EntityGraph(attributePaths = {"customer"})
     Page<Sale> findBySaleDateBetween(LocalDateTime startDate, LocalDateTime endDate, Pageable pageable);
 
     @Query("SELECT s FROM Sale s LEFT JOIN FETCH s.items si LEFT JOIN FETCH si.product WHERE s.id = :id")
     Optional<Sale> findByIdWithItems(@Param("id") Long id);
 
+    @Query("SELECT DISTINCT s FROM Sale s LEFT JOIN FETCH s.items si LEFT JOIN FETCH si.product " +
+           "WHERE s.status = 'PENDING' AND s.stockCommitted = false AND s.createdAt >= :since")
+    List<Sale> findPendingReservedSalesSince(@Param("since") LocalDateTime since);
+
     @Query("SELECT s FROM Sale s WHERE s.customer.id = :customerId AND s.status = :status")
     List<Sale> findByCustomerIdAndStatus(@Param("customerId") Long customerId,
                                        @Param("status") SaleStatus status);
@@ -44,9 +58,65 @@ public interface SaleRepository extends JpaRepository<Sale, Long> {
     @Query("SELECT s FROM Sale s WHERE s.totalAmount >= :minAmount ORDER BY s.totalAmount DESC")
     List<Sale> findHighValueSales(@Param("minAmount") BigDecimal minAmount);
 
-    @Query("SELECT s FROM Sale s WHERE s.customer.id = :customerId ORDER BY s.saleDate DESC")
+    @EntityGraph(attributePaths = {"customer"})
+    @Query(value = "SELECT s FROM Sale s WHERE s.customer.id = :customerId ORDER BY s.saleDate DESC",
+           countQuery = "SELECT COUNT(s) FROM Sale s WHERE s.customer.id = :customerId")
     Page<Sale> findByCustomerIdOrderBySaleDateDesc(@Param("customerId") Long customerId, Pageable pageable);
 
+    // Customer purchase history, read newest first by (saleDate, id) keyset
+
+    @Query("SELECT s FROM Sale s WHERE s.customer.id = :customerId AND s.saleDate IS NOT NULL " +
+           "ORDER BY s.saleDate DESC, s.id DESC")
+    List<Sale> findLatestByCustomerId(@Param("customerId") Long customerId, Pageable pageable);
+
+    @Query("SELECT s FROM Sale s WHERE s.customer.id = :customerId " +
+           "AND (s.saleDate < :saleDate OR (s.saleDate = :saleDate AND s.id < :saleId)) " +
+           "ORDER BY s.saleDate DESC, s.id DESC")
+    List<Sale> findByCustomerIdBefore(@Param("customerId") Long customerId,
+                                      @Param("saleDate") LocalDateTime saleDate,
+                                      @Param("saleId") Long saleId,
+                                      Pageable pageable);
+
+    /**
+     * Sale count, completed count, completed total, first and last sale date of one customer
+     */
+    @Query("SELECT COUNT(s), " +
+           "SUM(CASE WHEN s.status = 'COMPLETED' THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN s.status = 'COMPLETED' THEN s.totalAmount ELSE 0 END), " +
+           "MIN(s.saleDate), MAX(s.saleDate) " +
+           "FROM Sale s WHERE s.customer.id = :customerId")
+    List<Object[]> summarizeSalesByCustomerId(@Param("customerId") Long customerId);
+
+    // Per-customer completed sale aggregates for RFM scoring: customer id, count, total, first and last date
+
+    @Query("SELECT s.customer.id, COUNT(s), SUM(s.totalAmount), MIN(s.saleDate), MAX(s.saleDate) FROM Sale s " +
+           "WHERE s.status = 'COMPLETED' AND s.customer.id BETWEEN :fromId AND :toId GROUP BY s.customer.id")
+    List<Object[]> summarizeCompletedSalesByCustomerRange(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    @Query("SELECT s.customer.id, COUNT(s), SUM(s.totalAmount), MIN(s.saleDate), MAX(s.saleDate) FROM Sale s " +
+           "WHERE s.status = 'COMPLETED' AND s.customer.id IN :customerIds GROUP BY s.customer.id")
+    List<Object[]> summarizeCompletedSalesByCustomerIds(@Param("customerIds") Collection<Long> customerIds);
+
+    /**
+     * Completed sales, revenue and item cost with startDate <= saleDate < endDate
+     */
+    @Query("SELECT COUNT(s), COALESCE(SUM(s.totalAmount), 0), " +
+           "(SELECT COALESCE(SUM(si.costPrice * si.quantity), 0) FROM SaleItem si WHERE si.sale.status = 'COMPLETED' " +
+           "AND si.sale.saleDate >= :startDate AND si.sale.saleDate < :endDate) " +
+           "FROM Sale s WHERE s.status = 'COMPLETED' AND s.saleDate >= :startDate AND s.saleDate < :endDate")
+    List<Object[]> summarizeCompletedSalesInPeriod(@Param("startDate") LocalDateTime startDate,
+                                                   @Param("endDate") LocalDateTime endDate);
+
+    /**
+     * Region name, completed sales and revenue per customer region in a period; customers without a
+     * region yet group under a null name
+     */
+    @Query("SELECT r.name, COUNT(s), COALESCE(SUM(s.totalAmount), 0) FROM Sale s JOIN s.customer c " +
+           "LEFT JOIN Region r ON r.id = c.regionId " +
+           "WHERE s.status = 'COMPLETED' AND s.saleDate BETWEEN :startDate AND :endDate GROUP BY c.regionId, r.name")
+    List<Object[]> summarizeCompletedSalesByRegion(@Param("startDate") LocalDateTime startDate,
+                                                   @Param("endDate") LocalDateTime endDate);
+
     @Query("SELECT AVG(s.totalAmount) FROM Sale s WHERE s.status = 'COMPLETED' AND s.saleDate BETWEEN :startDate AND :endDate")
     BigDecimal calculateAverageSaleAmount(@Param("startDate") LocalDateTime startDate,
                                         @Param("endDate") LocalDateTime endDate);
@@ -157,4 +227,12 @@ public interface SaleRepository extends JpaRepository<Sale, Long> {
            "AND s.status = 'COMPLETED'")
     Object[] getFinancialSummaryForPeriod(@Param("startDate") LocalDateTime startDate,
                                         @Param("endDate") LocalDateTime endDate);
+
+    /**
+     * Min id, max id and count of completed sales in a window, used to split simulation work
+     */
+    @Query("SELECT MIN(s.id), MAX(s.id), COUNT(s) FROM Sale s WHERE s.status = 'COMPLETED' " +
+           "AND s.saleDate BETWEEN :startDate AND :endDate")
+    List<Object[]> findCompletedSaleIdBounds(@Param("startDate") LocalDateTime startDate,
+                                             @Param("endDate") LocalDateTime endDate);
 }
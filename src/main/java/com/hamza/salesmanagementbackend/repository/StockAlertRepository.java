@@ -0,0 +1,47 @@
+package com.hamza.salesmanagementbackend.repository;
+
+import com.hamza.salesmanagementbackend.entity.Product;
+import com.hamza.salesmanagementbackend.entity.StockAlert;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StockAlertRepository extends JpaRepository<StockAlert, Long> {
+
+    @Query("SELECT a FROM StockAlert a WHERE a.productId IN :productIds AND a.status <> 'RESOLVED'")
+    List<StockAlert> findActiveByProductIds(@Param("productIds") Collection<Long> productIds);
+
+    @Query("SELECT a.productId FROM StockAlert a WHERE a.status <> 'RESOLVED'")
+    List<Long> findActiveProductIds();
+
+    /**
+     * Active alerts of the given levels with the product name and SKU, newest first
+     */
+    @Query("SELECT a, p.name, p.sku FROM StockAlert a, Product p " +
+           "WHERE p.id = a.productId AND a.status <> 'RESOLVED' AND a.alertType IN :types " +
+           "ORDER BY a.triggeredAt DESC")
+    List<Object[]> findActiveWithProducts(@Param("types") Collection<StockAlert.AlertType> types);
+
+    /**
+     * Products holding an active alert of one of the given levels
+     */
+    @Query("SELECT p FROM StockAlert a, Product p " +
+           "WHERE p.id = a.productId AND a.status <> 'RESOLVED' AND a.alertType IN :types")
+    List<Product> findProductsWithActiveAlert(@Param("types") Collection<StockAlert.AlertType> types);
+
+    @Query("SELECT COUNT(a) FROM StockAlert a WHERE a.status <> 'RESOLVED' AND a.alertType IN :types")
+    long countActive(@Param("types") Collection<StockAlert.AlertType> types);
+
+    @Query("SELECT a.alertType, a.status, COUNT(a) FROM StockAlert a WHERE a.status <> 'RESOLVED' " +
+           "GROUP BY a.alertType, a.status")
+    List<Object[]> countActiveByTypeAndStatus();
+
+    Page<StockAlert> findByProductIdOrderByTriggeredAtDesc(Long productId, Pageable pageable);
+}
@@ -0,0 +1,18 @@
+package com.hamza.salesmanagementbackend.repository;
+
+import com.hamza.salesmanagementbackend.entity.StockMovementGap;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface StockMovementGapRepository extends JpaRepository<StockMovementGap, Long> {
+
+    @Modifying
+    @Query("DELETE FROM StockMovementGap g WHERE g.recordedAt < :before")
+    int deleteRecordedBefore(@Param("before") LocalDateTime before);
+}
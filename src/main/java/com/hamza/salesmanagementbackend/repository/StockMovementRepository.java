@@ -0,0 +1,76 @@
+package com.hamza.salesmanagementbackend.repository;
+
+import com.hamza.salesmanagementbackend.entity.StockMovement;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StockMovementRepository extends JpaRepository<StockMovement, Long> {
+
+    Page<StockMovement> findByProductId(Long productId, Pageable pageable);
+
+    /**
+     * Net quantity and count of a product's movements dated up to upTo that a snapshot covering
+     * ids up to afterMovementId does not include
+     */
+    @Query("SELECT COALESCE(SUM(m.quantity), 0), COUNT(m) FROM StockMovement m " +
+           "WHERE m.productId = :productId AND m.date <= :upTo " +
+           "AND (m.id > :afterMovementId OR m.id IN (SELECT g.movementId FROM StockMovementGap g))")
+    List<Object[]> sumNotSnapshotted(@Param("productId") Long productId,
+                                     @Param("afterMovementId") Long afterMovementId,
+                                     @Param("upTo") LocalDateTime upTo);
+
+    @Query("SELECT MAX(m.id) FROM StockMovement m")
+    Long findMaxId();
+
+    @Query("SELECT COUNT(m) FROM StockMovement m WHERE m.id > :afterId AND m.id <= :upToId")
+    long countByIdBetween(@Param("afterId") Long afterId, @Param("upToId") Long upToId);
+
+    @Query("SELECT m.id FROM StockMovement m WHERE m.id > :afterId AND m.id <= :upToId ORDER BY m.id")
+    List<Long> findIdsBetween(@Param("afterId") Long afterId, @Param("upToId") Long upToId, Pageable pageable);
+
+    /**
+     * Movements recorded as gaps by earlier snapshot runs that have committed since
+     */
+    @Query("SELECT m FROM StockMovement m WHERE m.id IN (SELECT g.movementId FROM StockMovementGap g) ORDER BY m.id")
+    List<StockMovement> findCommittedGaps();
+
+    /**
+     * Product id and net quantity of the movements after each product's latest snapshot, up to
+     * the horizon and excluding gaps, for the next products after an id that have any
+     */
+    @Query("SELECT m.productId, SUM(m.quantity) FROM StockMovement m " +
+           "WHERE m.productId > :afterProductId AND m.id <= :horizon " +
+           "AND m.id > COALESCE((SELECT MAX(s.lastMovementId) FROM StockSnapshot s WHERE s.productId = m.productId), 0) " +
+           "AND m.id NOT IN (SELECT g.movementId FROM StockMovementGap g) " +
+           "GROUP BY m.productId ORDER BY m.productId")
+    List<Object[]> summarizeUnsnapshotted(@Param("afterProductId") Long afterProductId,
+                                          @Param("horizon") Long horizon,
+                                          Pageable pageable);
+
+    /**
+     * Product id, net quantity and count of all movements each product's latest snapshot does
+     * not include
+     */
+    @Query("SELECT m.productId, SUM(m.quantity), COUNT(m) FROM StockMovement m WHERE m.productId IN :productIds " +
+           "AND (m.id > COALESCE((SELECT MAX(s.lastMovementId) FROM StockSnapshot s WHERE s.productId = m.productId), 0) " +
+           "OR m.id IN (SELECT g.movementId FROM StockMovementGap g)) " +
+           "GROUP BY m.productId")
+    List<Object[]> summarizeSinceLatestSnapshot(@Param("productIds") Collection<Long> productIds);
+
+    /**
+     * Id and stock quantity of the next unsharded products after an id; sharded products only
+     * carry a periodically reconciled stock_quantity
+     */
+    @Query("SELECT p.id, p.stockQuantity FROM Product p WHERE p.id > :afterId " +
+           "AND (p.stockShardCount IS NULL OR p.stockShardCount <= 1) ORDER BY p.id")
+    List<Object[]> findUnshardedProductStock(@Param("afterId") Long afterId, Pageable pageable);
+}
@@ -0,0 +1,39 @@
+package com.hamza.salesmanagementbackend.repository;
+
+import com.hamza.salesmanagementbackend.entity.StockSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StockSnapshotRepository extends JpaRepository<StockSnapshot, Long> {
+
+    Optional<StockSnapshot> findFirstByProductIdAndTakenAtLessThanEqualOrderByTakenAtDesc(Long productId,
+                                                                                          LocalDateTime takenAt);
+
+    @Query("SELECT s FROM StockSnapshot s WHERE s.productId IN :productIds AND s.takenAt = " +
+           "(SELECT MAX(s2.takenAt) FROM StockSnapshot s2 WHERE s2.productId = s.productId)")
+    List<StockSnapshot> findLatestByProductIds(@Param("productIds") Collection<Long> productIds);
+
+    /**
+     * Horizon of the latest snapshot run that took any snapshot
+     */
+    @Query("SELECT MAX(s.lastMovementId) FROM StockSnapshot s")
+    Long findMaxLastMovementId();
+
+    /**
+     * Adds a movement that committed after the product's snapshots covering its id were taken
+     */
+    @Modifying
+    @Query("UPDATE StockSnapshot s SET s.quantity = s.quantity + :quantity " +
+           "WHERE s.productId = :productId AND s.lastMovementId >= :movementId")
+    int addLateMovement(@Param("productId") Long productId, @Param("movementId") Long movementId,
+                        @Param("quantity") Integer quantity);
+}
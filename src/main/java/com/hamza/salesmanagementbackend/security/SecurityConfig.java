@@ -59,6 +59,7 @@ public class SecurityConfig {
                 ).permitAll()
                 .requestMatchers(new AntPathRequestMatcher("/api/v1/updates/**")).authenticated()
                 .requestMatchers(new AntPathRequestMatcher("/api/v1/admin/updates/**")).hasRole("ADMIN")
+                .requestMatchers(new AntPathRequestMatcher("/api/v1/promotions/simulate")).hasAnyRole("ADMIN", "MANAGER")
                 .anyRequest().authenticated()
             )
             .sessionManagement(session -> session
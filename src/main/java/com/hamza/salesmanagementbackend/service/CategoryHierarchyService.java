@@ -0,0 +1,150 @@
+package com.hamza.salesmanagementbackend.service;
+
+import com.hamza.salesmanagementbackend.entity.Category;
+import com.hamza.salesmanagementbackend.entity.CategoryClosure;
+import com.hamza.salesmanagementbackend.exception.BusinessLogicException;
+import com.hamza.salesmanagementbackend.repository.CategoryClosureRepository;
+import com.hamza.salesmanagementbackend.repository.CategoryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maintains the category_closure table alongside the parent links. Creating a category links
+ * it under every ancestor of its parent, and moving one re-links its whole subtree with two
+ * set-based statements. Subtree product lookups and category rollups then need one join on
+ * the closure table at any depth. Categories saved outside CategoryService are picked up by
+ * the rebuild at startup.
+ */
+@Service
+@Transactional
+@Slf4j
+public class CategoryHierarchyService {
+
+    private final CategoryRepository categoryRepository;
+    private final CategoryClosureRepository closureRepository;
+
+    public CategoryHierarchyService(CategoryRepository categoryRepository, CategoryClosureRepository closureRepository) {
+        this.categoryRepository = categoryRepository;
+        this.closureRepository = closureRepository;
+    }
+
+    /**
+     * Links a newly saved category to itself and to every ancestor of its parent
+     */
+    public void categoryCreated(Category category) {
+        Long id = category.getId();
+        closureRepository.save(selfLink(id));
+        if (category.getParent() != null) {
+            closureRepository.linkSubtree(id, category.getParent().getId());
+        }
+    }
+
+    /**
+     * Moves a category with its whole subtree under a new parent, or to the top level when null
+     */
+    public void moveCategory(Category category, Category newParent) {
+        Long id = category.getId();
+        List<Long> subtreeIds = closureRepository.findDescendantIds(id);
+        if (subtreeIds.isEmpty()) {
+            closureRepository.save(selfLink(id));
+            subtreeIds = List.of(id);
+        }
+        if (newParent != null && subtreeIds.contains(newParent.getId())) {
+            throw new BusinessLogicException("A category cannot be moved under itself or one of its subcategories");
+        }
+
+        closureRepository.unlinkSubtree(subtreeIds);
+        if (newParent != null) {
+            closureRepository.linkSubtree(id, newParent.getId());
+        }
+        category.setParent(newParent);
+    }
+
+    /**
+     * Drops a leaf category's links; callers reject categories that still have subcategories
+     */
+    public void categoryDeleted(Long categoryId) {
+        closureRepository.deleteByCategoryId(categoryId);
+    }
+
+    /**
+     * Ids of the category and all of its descendants
+     */
+    @Transactional(readOnly = true)
+    public List<Long> getSubtreeIds(Long categoryId) {
+        return closureRepository.findDescendantIds(categoryId);
+    }
+
+    /**
+     * Expands category ids to their subtrees, so a filter on a parent covers its children
+     */
+    @Transactional(readOnly = true)
+    public Set<Long> expandToSubtrees(Collection<Long> categoryIds) {
+        return new HashSet<>(closureRepository.findDescendantIdsOfAny(categoryIds));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.warn("Could not verify the category closure table at startup: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Recomputes the closure from the parent links and replaces the table if it differs;
+     * returns the number of rows written, 0 when it was already consistent
+     */
+    public int rebuild() {
+        Map<Long, Long> parents = new HashMap<>();
+        for (Object[] row : categoryRepository.findParentLinks()) {
+            parents.put((Long) row[0], (Long) row[1]);
+        }
+
+        List<CategoryClosure> expected = new ArrayList<>();
+        Set<String> expectedKeys = new HashSet<>();
+        for (Long id : parents.keySet()) {
+            Set<Long> seen = new HashSet<>();
+            int depth = 0;
+            Long ancestor = id;
+            while (ancestor != null && seen.add(ancestor)) {
+                expected.add(CategoryClosure.builder().ancestorId(ancestor).descendantId(id).depth(depth).build());
+                expectedKeys.add(ancestor + ":" + id + ":" + depth);
+                depth++;
+                ancestor = parents.get(ancestor);
+            }
+            if (ancestor != null) {
+                log.warn("Category {} sits in a parent cycle; its closure stops at category {}", id, ancestor);
+            }
+        }
+
+        Set<String> existingKeys = new HashSet<>();
+        for (Object[] row : closureRepository.findAllPairs()) {
+            existingKeys.add(row[0] + ":" + row[1] + ":" + row[2]);
+        }
+        if (existingKeys.equals(expectedKeys)) {
+            return 0;
+        }
+
+        closureRepository.deleteAllInBatch();
+        closureRepository.saveAll(expected);
+        log.info("Rebuilt category closure table: {} rows for {} categories", expected.size(), parents.size());
+        return expected.size();
+    }
+
+    private static CategoryClosure selfLink(Long categoryId) {
+        return CategoryClosure.builder().ancestorId(categoryId).descendantId(categoryId).depth(0).build();
+    }
+}
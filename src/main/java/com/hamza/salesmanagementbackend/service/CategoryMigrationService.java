@@ -21,10 +21,13 @@ public class CategoryMigrationService {
 
     private final CategoryRepository categoryRepository;
     private final ProductRepository productRepository;
+    private final CategoryHierarchyService categoryHierarchyService;
 
-    public CategoryMigrationService(CategoryRepository categoryRepository, ProductRepository productRepository) {
+    public CategoryMigrationService(CategoryRepository categoryRepository, ProductRepository productRepository,
+                                    CategoryHierarchyService categoryHierarchyService) {
         this.categoryRepository = categoryRepository;
         this.productRepository = productRepository;
+        this.categoryHierarchyService = categoryHierarchyService;
     }
 
     /**
@@ -67,6 +70,7 @@ public class CategoryMigrationService {
                                 .displayOrder(0)
                                 .build();
                         category = categoryRepository.save(category);
+                        categoryHierarchyService.categoryCreated(category);
                         createdCategoriesCount++;
                         logger.debug("Created new category: {}", trimmedName);
                     }
@@ -115,7 +119,7 @@ public class CategoryMigrationService {
                         .status(Category.CategoryStatus.ACTIVE)
                         .displayOrder(displayOrder++)
                         .build();
-                categoryRepository.save(category);
+                categoryHierarchyService.categoryCreated(categoryRepository.save(category));
                 logger.debug("Created default category: {}", categoryName);
             }
 
@@ -169,7 +173,9 @@ public class CategoryMigrationService {
                             .status(Category.CategoryStatus.ACTIVE)
                             .displayOrder(999)
                             .build();
-                    return categoryRepository.save(newCategory);
+                    Category saved = categoryRepository.save(newCategory);
+                    categoryHierarchyService.categoryCreated(saved);
+                    return saved;
                 });
 
         // Find products without categories
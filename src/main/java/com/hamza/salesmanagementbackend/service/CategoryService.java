@@ -15,6 +15,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,20 +24,26 @@ public class CategoryService {
 
     private final CategoryRepository categoryRepository;
     private final InventoryRepository inventoryRepository;
+    private final ProductSearchIndex productSearchIndex;
+    private final CategoryHierarchyService categoryHierarchyService;
 
-    public CategoryService(CategoryRepository categoryRepository, InventoryRepository inventoryRepository) {
+    public CategoryService(CategoryRepository categoryRepository, InventoryRepository inventoryRepository,
+                           ProductSearchIndex productSearchIndex, CategoryHierarchyService categoryHierarchyService) {
         this.categoryRepository = categoryRepository;
         this.inventoryRepository = inventoryRepository;
+        this.productSearchIndex = productSearchIndex;
+        this.categoryHierarchyService = categoryHierarchyService;
     }
 
     /**
-     * Creates a new category after validating name uniqueness
+     * Creates a new category after validating name uniqueness, optionally under a parent
      */
     public CategoryDTO createCategory(CategoryDTO categoryDTO) {
         validateCategoryNameUniqueness(categoryDTO.getName(), null);
         validateCategoryData(categoryDTO);
         Category category = mapToEntity(categoryDTO);
         Category savedCategory = categoryRepository.save(category);
+        categoryHierarchyService.categoryCreated(savedCategory);
         return mapToDTO(savedCategory);
     }
 
@@ -81,7 +88,8 @@ public class CategoryService {
     }
 
     /**
-     * Updates category information with validation
+     * Updates category information with validation; a parentId moves the category, an absent
+     * one keeps the current parent
      */
     public CategoryDTO updateCategory(Long id, CategoryDTO categoryDTO) {
         Category existingCategory = categoryRepository.findById(id)
@@ -89,8 +97,17 @@ public class CategoryService {
 
         validateCategoryNameUniqueness(categoryDTO.getName(), id);
         validateCategoryData(categoryDTO);
+        String previousName = existingCategory.getName();
         updateCategoryFields(existingCategory, categoryDTO);
+        if (categoryDTO.getParentId() != null && (existingCategory.getParent() == null
+                || !categoryDTO.getParentId().equals(existingCategory.getParent().getId()))) {
+            categoryHierarchyService.moveCategory(existingCategory, findParent(categoryDTO.getParentId()));
+        }
         Category savedCategory = categoryRepository.save(existingCategory);
+        if (!Objects.equals(previousName, savedCategory.getName())) {
+            // Product documents carry the category name
+            productSearchIndex.rebuildAfterCommit();
+        }
         return mapToDTO(savedCategory);
     }
 
@@ -109,9 +126,53 @@ public class CategoryService {
             throw DataIntegrityException.categoryHasProducts(id, productCount.intValue());
         }
 
+        long subcategoryCount = categoryRepository.countByParentId(id);
+        if (subcategoryCount > 0) {
+            throw DataIntegrityException.categoryHasSubcategories(id, (int) subcategoryCount);
+        }
+
+        categoryHierarchyService.categoryDeleted(id);
         categoryRepository.deleteById(id);
     }
 
+    /**
+     * Moves a category and its subcategories under a new parent, or to the top level when null
+     */
+    public CategoryDTO moveCategory(Long id, Long parentId) {
+        Category category = categoryRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Category not found with id: " + id));
+        categoryHierarchyService.moveCategory(category, parentId != null ? findParent(parentId) : null);
+        return mapToDTO(categoryRepository.save(category));
+    }
+
+    /**
+     * Gets a category and all of its subcategories, nearest levels first
+     */
+    @Transactional(readOnly = true)
+    public List<CategoryDTO> getCategorySubtree(Long id) {
+        if (!categoryRepository.existsById(id)) {
+            throw new ResourceNotFoundException("Category not found with id: " + id);
+        }
+        return categoryRepository.findSubtree(id)
+                .stream()
+                .map(this::mapToDTO)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Gets the path from the top-level category down to the given one
+     */
+    @Transactional(readOnly = true)
+    public List<CategoryDTO> getCategoryPath(Long id) {
+        if (!categoryRepository.existsById(id)) {
+            throw new ResourceNotFoundException("Category not found with id: " + id);
+        }
+        return categoryRepository.findPath(id)
+                .stream()
+                .map(this::mapToDTO)
+                .collect(Collectors.toList());
+    }
+
     /**
      * Searches categories with pagination
      */
@@ -196,6 +257,11 @@ public class CategoryService {
         }
     }
 
+    private Category findParent(Long parentId) {
+        return categoryRepository.findById(parentId)
+                .orElseThrow(() -> new ResourceNotFoundException("Parent category not found with id: " + parentId));
+    }
+
     private void validateCategoryData(CategoryDTO categoryDTO) {
         if (categoryDTO.getName() == null || categoryDTO.getName().trim().isEmpty()) {
             throw new BusinessLogicException("Category name is required");
@@ -242,6 +308,8 @@ public class CategoryService {
                 .updatedAt(category.getUpdatedAt())
                 .inventoryId(category.getInventory() != null ? category.getInventory().getId() : null)
                 .inventoryName(category.getInventory() != null ? category.getInventory().getName() : null)
+                .parentId(category.getParent() != null ? category.getParent().getId() : null)
+                .parentName(category.getParent() != null ? category.getParent().getName() : null)
                 .productCount(category.getProductCount())
                 .build();
         return dto;
@@ -264,6 +332,10 @@ public class CategoryService {
             builder.inventory(inventory);
         }
 
+        if (categoryDTO.getParentId() != null) {
+            builder.parent(findParent(categoryDTO.getParentId()));
+        }
+
         return builder.build();
     }
 }
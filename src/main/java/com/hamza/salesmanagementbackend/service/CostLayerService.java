@@ -0,0 +1,500 @@
+package com.hamza.salesmanagementbackend.service;
+
+import com.hamza.salesmanagementbackend.entity.CostLayerEntry;
+import com.hamza.salesmanagementbackend.exception.BusinessLogicException;
+import com.hamza.salesmanagementbackend.repository.CostLayerEntryRepository;
+import com.hamza.salesmanagementbackend.util.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Inventory cost layers. Purchase order receipts, sale returns and opening balances append a
+ * layer to the cost_layer_ledger; completed sales append a consumption. The active layers of
+ * every product are kept in memory as two compact ring-buffer deques, one consumed from the
+ * front (FIFO) and one from the back (LIFO), next to a running weighted-average quantity and
+ * value, so all three valuations of the whole catalogue are read without touching the ledger.
+ * The books are built by streaming the ledger once in id order at startup and on a periodic
+ * resync; entries written afterwards are applied once their transaction commits.
+ */
+@Service
+@Slf4j
+public class CostLayerService {
+
+    private static final int COST_SCALE = 4;
+
+    public enum ValuationMethod {
+        FIFO, LIFO, WEIGHTED_AVERAGE;
+
+        /**
+         * Accepts FIFO, LIFO and AVERAGE, WEIGHTED_AVERAGE, WAVG or WAC; defaults to FIFO
+         */
+        public static ValuationMethod parse(String method) {
+            if (method == null || method.trim().isEmpty()) {
+                return FIFO;
+            }
+            String normalized = method.trim().toUpperCase(Locale.ROOT).replace('-', '_');
+            switch (normalized) {
+                case "FIFO":
+                    return FIFO;
+                case "LIFO":
+                    return LIFO;
+                case "AVERAGE":
+                case "WEIGHTED_AVERAGE":
+                case "WAVG":
+                case "WAC":
+                    return WEIGHTED_AVERAGE;
+                default:
+                    throw new BusinessLogicException("Unsupported valuation method: " + method);
+            }
+        }
+    }
+
+    private final CostLayerEntryRepository costLayerEntryRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.inventory.cost-layer-stream-batch-size:5000}")
+    private int streamBatchSize;
+
+    // Guarded by "this"
+    private Map<Long, ProductLayers> books = new HashMap<>();
+    private List<LedgerEntry> committedDuringRebuild;
+    private LocalDateTime lastRebuilt;
+
+    private volatile boolean ready;
+    // The rebuild in progress, if any, so readers can wait for it instead of starting another
+    private final AtomicReference<CompletableFuture<Map<String, Object>>> inFlight = new AtomicReference<>();
+    private final AtomicLong entriesRecorded = new AtomicLong();
+    private final AtomicLong entriesApplied = new AtomicLong();
+    private final AtomicLong unitsShort = new AtomicLong();
+    private final AtomicLong rebuilds = new AtomicLong();
+    private volatile Map<String, Object> lastRebuild;
+
+    public CostLayerService(CostLayerEntryRepository costLayerEntryRepository, PlatformTransactionManager transactionManager) {
+        this.costLayerEntryRepository = costLayerEntryRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Opening layer for stock a product starts with, at its cost price
+     */
+    public void recordOpening(Long productId, int quantity, BigDecimal unitCost) {
+        record(productId, CostLayerEntry.EntryType.OPENING, quantity, unitCost, "PRODUCT", productId);
+    }
+
+    public void recordReceipt(Long productId, int quantity, BigDecimal unitCost, String referenceType, Long referenceId) {
+        record(productId, CostLayerEntry.EntryType.RECEIPT, quantity, unitCost, referenceType, referenceId);
+    }
+
+    public void recordReturn(Long productId, int quantity, BigDecimal unitCost, String referenceType, Long referenceId) {
+        record(productId, CostLayerEntry.EntryType.RETURN, quantity, unitCost, referenceType, referenceId);
+    }
+
+    public void recordConsumption(Long productId, int quantity, String referenceType, Long referenceId) {
+        record(productId, CostLayerEntry.EntryType.CONSUMPTION, quantity, null, referenceType, referenceId);
+    }
+
+    /**
+     * Appends an entry in the current transaction and applies it to the books once it commits
+     */
+    private void record(Long productId, CostLayerEntry.EntryType type, int quantity, BigDecimal unitCost,
+                        String referenceType, Long referenceId) {
+        if (productId == null || quantity <= 0) {
+            return;
+        }
+        CostLayerEntry saved = costLayerEntryRepository.save(CostLayerEntry.builder()
+                .productId(productId)
+                .entryType(type)
+                .quantity(quantity)
+                .unitCost(type.addsLayer() ? (unitCost != null ? unitCost : BigDecimal.ZERO) : null)
+                .referenceType(referenceType)
+                .referenceId(referenceId)
+                .build());
+        entriesRecorded.incrementAndGet();
+
+        LedgerEntry entry = new LedgerEntry(saved.getId(), productId, type, quantity, toScaledCost(saved.getUnitCost()));
+        TransactionUtils.afterCommit(() -> applyCommitted(entry));
+    }
+
+    /**
+     * Quantity on hand and FIFO, LIFO and weighted-average value of each product; products
+     * without layers are left out
+     */
+    public Map<Long, ProductValuation> getValuations(Collection<Long> productIds) {
+        awaitReady();
+        Map<Long, ProductValuation> valuations = new HashMap<>();
+        synchronized (this) {
+            for (Long productId : productIds) {
+                ProductLayers layers = books.get(productId);
+                if (layers != null) {
+                    valuations.put(productId, layers.toValuation());
+                }
+            }
+        }
+        return valuations;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.warn("Could not build inventory cost layers at startup: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Full rebuild from the ledger; a safety net for entries applied out of commit order
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.cost-layer-resync-interval:21600000}",
+               initialDelayString = "${app.inventory.cost-layer-resync-interval:21600000}")
+    public void resync() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.warn("Cost layer resync failed, keeping the current layers: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Records opening layers for stocked products that have none, then streams the whole ledger
+     * in pages of streamBatchSize into fresh books and swaps them in. Entries that commit while
+     * streaming are collected and applied on top unless the stream already saw them.
+     */
+    public Map<String, Object> rebuild() {
+        CompletableFuture<Map<String, Object>> run = new CompletableFuture<>();
+        if (!inFlight.compareAndSet(null, run)) {
+            throw new BusinessLogicException("A cost layer rebuild is already in progress");
+        }
+        return runRebuild(run);
+    }
+
+    /**
+     * Until the books are first built, waits for the rebuild in progress, e.g. the one started at
+     * startup, or builds them in the caller's thread when none is running
+     */
+    private void awaitReady() {
+        while (!ready) {
+            CompletableFuture<Map<String, Object>> run = new CompletableFuture<>();
+            CompletableFuture<Map<String, Object>> running = inFlight.compareAndExchange(null, run);
+            if (running == null) {
+                runRebuild(run);
+            } else {
+                running.join();
+            }
+        }
+    }
+
+    private Map<String, Object> runRebuild(CompletableFuture<Map<String, Object>> run) {
+        try {
+            long started = System.currentTimeMillis();
+            int openings = recordOpeningBalances();
+
+            synchronized (this) {
+                committedDuringRebuild = new ArrayList<>();
+            }
+            Map<Long, ProductLayers> fresh = new HashMap<>();
+            BitSet streamed = new BitSet();
+            long entries = 0;
+            long afterId = 0;
+            while (true) {
+                long from = afterId;
+                List<Object[]> rows = transactionTemplate.execute(status ->
+                        costLayerEntryRepository.findEntriesAfter(from, PageRequest.of(0, Math.max(1, streamBatchSize))));
+                if (rows.isEmpty()) {
+                    break;
+                }
+                for (Object[] row : rows) {
+                    LedgerEntry entry = new LedgerEntry((Long) row[0], (Long) row[1], (CostLayerEntry.EntryType) row[2],
+                            (Integer) row[3], toScaledCost((BigDecimal) row[4]));
+                    apply(fresh, entry);
+                    streamed.set(Math.toIntExact(entry.id));
+                }
+                entries += rows.size();
+                afterId = (Long) rows.get(rows.size() - 1)[0];
+            }
+
+            synchronized (this) {
+                for (LedgerEntry entry : committedDuringRebuild) {
+                    if (!streamed.get(Math.toIntExact(entry.id))) {
+                        apply(fresh, entry);
+                    }
+                }
+                committedDuringRebuild = null;
+                books = fresh;
+                lastRebuilt = LocalDateTime.now();
+                ready = true;
+            }
+
+            Map<String, Object> summary = new HashMap<>();
+            summary.put("entriesStreamed", entries);
+            summary.put("openingLayersRecorded", openings);
+            summary.put("products", fresh.size());
+            summary.put("durationMs", System.currentTimeMillis() - started);
+            lastRebuild = summary;
+            rebuilds.incrementAndGet();
+            log.info("Built inventory cost layers for {} products from {} ledger entries", fresh.size(), entries);
+            run.complete(summary);
+            return summary;
+        } catch (RuntimeException e) {
+            run.completeExceptionally(e);
+            throw e;
+        } finally {
+            synchronized (this) {
+                committedDuringRebuild = null;
+            }
+            inFlight.set(null);
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        synchronized (this) {
+            int layers = 0;
+            for (ProductLayers productLayers : books.values()) {
+                layers += productLayers.fifo.size + productLayers.lifo.size;
+            }
+            stats.put("products", books.size());
+            stats.put("activeLayers", layers);
+            stats.put("lastRebuilt", lastRebuilt);
+        }
+        stats.put("ready", ready);
+        stats.put("entriesRecorded", entriesRecorded.get());
+        stats.put("entriesApplied", entriesApplied.get());
+        stats.put("unitsConsumedWithoutLayers", unitsShort.get());
+        stats.put("rebuilds", rebuilds.get());
+        stats.put("lastRebuild", lastRebuild);
+        return stats;
+    }
+
+    private int recordOpeningBalances() {
+        Integer recorded = transactionTemplate.execute(status -> {
+            List<CostLayerEntry> openings = new ArrayList<>();
+            for (Object[] row : costLayerEntryRepository.findProductsWithoutLayers()) {
+                openings.add(CostLayerEntry.builder()
+                        .productId((Long) row[0])
+                        .entryType(CostLayerEntry.EntryType.OPENING)
+                        .quantity((Integer) row[1])
+                        .unitCost(row[2] != null ? (BigDecimal) row[2] : BigDecimal.ZERO)
+                        .referenceType("PRODUCT")
+                        .referenceId((Long) row[0])
+                        .build());
+            }
+            costLayerEntryRepository.saveAll(openings);
+            return openings.size();
+        });
+        return recorded != null ? recorded : 0;
+    }
+
+    private synchronized void applyCommitted(LedgerEntry entry) {
+        if (committedDuringRebuild != null) {
+            committedDuringRebuild.add(entry);
+        }
+        apply(books, entry);
+    }
+
+    private void apply(Map<Long, ProductLayers> target, LedgerEntry entry) {
+        ProductLayers layers = target.computeIfAbsent(entry.productId, id -> new ProductLayers());
+        if (entry.type.addsLayer()) {
+            layers.add(entry.quantity, entry.unitCost);
+        } else {
+            long shortfall = layers.consume(entry.quantity);
+            if (shortfall > 0) {
+                unitsShort.addAndGet(shortfall);
+            }
+        }
+        entriesApplied.incrementAndGet();
+    }
+
+    private static long toScaledCost(BigDecimal unitCost) {
+        if (unitCost == null) {
+            return 0L;
+        }
+        return unitCost.setScale(COST_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Valuation of one product's active layers
+     */
+    public static class ProductValuation {
+        private final long quantity;
+        private final BigDecimal fifoValue;
+        private final BigDecimal lifoValue;
+        private final BigDecimal weightedAverageValue;
+
+        ProductValuation(long quantity, BigDecimal fifoValue, BigDecimal lifoValue, BigDecimal weightedAverageValue) {
+            this.quantity = quantity;
+            this.fifoValue = fifoValue;
+            this.lifoValue = lifoValue;
+            this.weightedAverageValue = weightedAverageValue;
+        }
+
+        public long getQuantity() {
+            return quantity;
+        }
+
+        public BigDecimal getValue(ValuationMethod method) {
+            switch (method) {
+                case LIFO:
+                    return lifoValue;
+                case WEIGHTED_AVERAGE:
+                    return weightedAverageValue;
+                default:
+                    return fifoValue;
+            }
+        }
+    }
+
+    private static class LedgerEntry {
+        private final long id;
+        private final Long productId;
+        private final CostLayerEntry.EntryType type;
+        private final int quantity;
+        private final long unitCost;
+
+        LedgerEntry(long id, Long productId, CostLayerEntry.EntryType type, int quantity, long unitCost) {
+            this.id = id;
+            this.productId = productId;
+            this.type = type;
+            this.quantity = quantity;
+            this.unitCost = unitCost;
+        }
+    }
+
+    /**
+     * Active layers of one product. FIFO and LIFO see the same additions and consumptions but
+     * consume from opposite ends, so each keeps its own deque.
+     */
+    private static class ProductLayers {
+        private final LayerDeque fifo = new LayerDeque();
+        private final LayerDeque lifo = new LayerDeque();
+        private long averageQuantity;
+        private BigDecimal averageValue = BigDecimal.ZERO.setScale(COST_SCALE);
+
+        void add(long quantity, long unitCost) {
+            fifo.addLast(quantity, unitCost);
+            lifo.addLast(quantity, unitCost);
+            averageQuantity += quantity;
+            averageValue = averageValue.add(BigDecimal.valueOf(quantity * unitCost, COST_SCALE));
+        }
+
+        /**
+         * Returns the units that could not be consumed because no layer was left
+         */
+        long consume(long quantity) {
+            fifo.consumeFirst(quantity);
+            lifo.consumeLast(quantity);
+            long taken = Math.min(quantity, averageQuantity);
+            if (taken > 0) {
+                averageValue = taken == averageQuantity ? BigDecimal.ZERO.setScale(COST_SCALE)
+                        : averageValue.subtract(averageValue.multiply(BigDecimal.valueOf(taken))
+                                .divide(BigDecimal.valueOf(averageQuantity), COST_SCALE, RoundingMode.HALF_UP));
+                averageQuantity -= taken;
+            }
+            return quantity - taken;
+        }
+
+        ProductValuation toValuation() {
+            return new ProductValuation(averageQuantity,
+                    BigDecimal.valueOf(fifo.value, COST_SCALE).setScale(2, RoundingMode.HALF_UP),
+                    BigDecimal.valueOf(lifo.value, COST_SCALE).setScale(2, RoundingMode.HALF_UP),
+                    averageValue.setScale(2, RoundingMode.HALF_UP));
+        }
+    }
+
+    /**
+     * Ring buffer of (quantity, unit cost) layers, oldest first, with running totals. Unit costs
+     * are scaled longs; a layer with the same cost as the newest one is merged into it.
+     */
+    private static class LayerDeque {
+        private long[] quantities = new long[2];
+        private long[] unitCosts = new long[2];
+        private int head;
+        private int size;
+        private long value;
+
+        void addLast(long quantity, long unitCost) {
+            value += quantity * unitCost;
+            if (size > 0) {
+                int last = index(size - 1);
+                if (unitCosts[last] == unitCost) {
+                    quantities[last] += quantity;
+                    return;
+                }
+            }
+            if (size == quantities.length) {
+                grow();
+            }
+            int tail = index(size);
+            quantities[tail] = quantity;
+            unitCosts[tail] = unitCost;
+            size++;
+        }
+
+        void consumeFirst(long quantity) {
+            while (quantity > 0 && size > 0) {
+                long taken = take(head, quantity);
+                quantity -= taken;
+                if (quantities[head] == 0) {
+                    head = index(1);
+                    size--;
+                }
+            }
+        }
+
+        void consumeLast(long quantity) {
+            while (quantity > 0 && size > 0) {
+                int last = index(size - 1);
+                quantity -= take(last, quantity);
+                if (quantities[last] == 0) {
+                    size--;
+                }
+            }
+        }
+
+        private long take(int slot, long quantity) {
+            long taken = Math.min(quantity, quantities[slot]);
+            quantities[slot] -= taken;
+            value -= taken * unitCosts[slot];
+            return taken;
+        }
+
+        private int index(int offset) {
+            return (head + offset) % quantities.length;
+        }
+
+        private void grow() {
+            long[] newQuantities = new long[quantities.length * 2];
+            long[] newCosts = new long[quantities.length * 2];
+            for (int i = 0; i < size; i++) {
+                newQuantities[i] = quantities[index(i)];
+                newCosts[i] = unitCosts[index(i)];
+            }
+            quantities = newQuantities;
+            unitCosts = newCosts;
+            head = 0;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.hamza.salesmanagementbackend.service;
+
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory contention metrics for hot counters (promotion usage, loyalty points).
+ * Each counter is keyed as "type:id"; the time spent in the guarded UPDATE approximates row-lock waits.
+ */
+@Service
+public class CounterContentionMonitor {
+
+    public static final String PROMOTION_USAGE = "promotion";
+    public static final String LOYALTY_POINTS = "loyalty";
+
+    private static final int MAX_TRACKED_COUNTERS = 10_000;
+
+    private final Map<String, CounterStats> counters = new ConcurrentHashMap<>();
+    private final AtomicLong untracked = new AtomicLong();
+
+    /**
+     * Records an atomic UPDATE on a counter row and how long it took
+     */
+    public void recordUpdate(String type, Long id, boolean applied, long elapsedNanos) {
+        CounterStats stats = stats(type, id);
+        if (stats == null) {
+            return;
+        }
+        stats.attempts.increment();
+        if (!applied) {
+            stats.rejected.increment();
+        }
+        stats.totalNanos.add(elapsedNanos);
+        stats.maxNanos.accumulate(elapsedNanos);
+        stats.lastUpdatedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Records an increment that was deferred to a batched write instead of touching the row
+     */
+    public void recordBatched(String type, Long id) {
+        CounterStats stats = stats(type, id);
+        if (stats == null) {
+            return;
+        }
+        stats.batched.increment();
+        stats.lastUpdatedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Counters ordered by write traffic (direct updates + batched increments)
+     */
+    public List<Map<String, Object>> getHotCounters(int limit) {
+        List<Map.Entry<String, CounterStats>> entries = new ArrayList<>(counters.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<String, CounterStats> e) -> e.getValue().traffic()).reversed());
+
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map.Entry<String, CounterStats> entry : entries.subList(0, Math.min(limit, entries.size()))) {
+            CounterStats stats = entry.getValue();
+            long attempts = stats.attempts.sum();
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("counter", entry.getKey());
+            row.put("attempts", attempts);
+            row.put("rejected", stats.rejected.sum());
+            row.put("batched", stats.batched.sum());
+            row.put("avgUpdateMicros", attempts > 0 ? stats.totalNanos.sum() / attempts / 1000 : 0);
+            row.put("maxUpdateMicros", stats.maxNanos.get() / 1000);
+            row.put("lastUpdatedAt", stats.lastUpdatedAt);
+            result.add(row);
+        }
+        return result;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Long> attemptsByType = new HashMap<>();
+        Map<String, Long> rejectedByType = new HashMap<>();
+        Map<String, Long> batchedByType = new HashMap<>();
+        for (Map.Entry<String, CounterStats> entry : counters.entrySet()) {
+            String type = entry.getKey().substring(0, entry.getKey().indexOf(':'));
+            attemptsByType.merge(type, entry.getValue().attempts.sum(), Long::sum);
+            rejectedByType.merge(type, entry.getValue().rejected.sum(), Long::sum);
+            batchedByType.merge(type, entry.getValue().batched.sum(), Long::sum);
+        }
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("trackedCounters", counters.size());
+        stats.put("untrackedUpdates", untracked.get());
+        stats.put("attemptsByType", attemptsByType);
+        stats.put("rejectedByType", rejectedByType);
+        stats.put("batchedByType", batchedByType);
+        return stats;
+    }
+
+    public void reset() {
+        counters.clear();
+        untracked.set(0);
+    }
+
+    private CounterStats stats(String type, Long id) {
+        String key = type + ":" + id;
+        CounterStats stats = counters.get(key);
+        if (stats == null) {
+            if (counters.size() >= MAX_TRACKED_COUNTERS) {
+                untracked.incrementAndGet();
+                return null;
+            }
+            stats = counters.computeIfAbsent(key, k -> new CounterStats());
+        }
+        return stats;
+    }
+
+    private static class CounterStats {
+        private final LongAdder attempts = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder batched = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private volatile LocalDateTime lastUpdatedAt;
+
+        long traffic() {
+            return attempts.sum() + batched.sum();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.hamza.salesmanagementbackend.service;
+
+import com.hamza.salesmanagementbackend.entity.Promotion;
+import com.hamza.salesmanagementbackend.repository.PromotionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coupon code lookups served from memory. Every existing coupon code is held in a set, so a code
+ * that is not in it (a typo or a bot's random guess) is rejected without a query. Codes in the
+ * set resolve to a detached promotion copy cached for a TTL in a bounded LRU. The set is
+ * reloaded after every promotion change commits and periodically, which picks up codes created
+ * on other instances.
+ */
+@Service
+@Slf4j
+public class CouponCodeCache {
+
+    // Reloads that keep racing with promotion changes give up and wait for the next refresh
+    private static final int MAX_RELOAD_ATTEMPTS = 3;
+
+    private final PromotionRepository promotionRepository;
+
+    @Value("${app.promotions.coupon-cache-ttl-seconds:60}")
+    private long ttlSeconds;
+
+    @Value("${app.promotions.coupon-cache-max-size:10000}")
+    private int maxSize;
+
+    // Keyed by the normalised code; guarded by "this" and access-ordered for LRU eviction
+    private final Map<String, CachedPromotion> knownCodes = new LinkedHashMap<>(64, 0.75f, true);
+
+    // Upper-cased like the database's case-insensitive comparison; null until first loaded
+    private volatile Set<String> validCodes;
+
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong reloads = new AtomicLong();
+
+    public CouponCodeCache(PromotionRepository promotionRepository) {
+        this.promotionRepository = promotionRepository;
+    }
+
+    /**
+     * Resolves a coupon code, going to the database only for an existing code that is not cached
+     */
+    public Optional<Promotion> findByCouponCode(String couponCode) {
+        if (couponCode == null) {
+            return Optional.empty();
+        }
+        long now = System.currentTimeMillis();
+        String code = normalize(couponCode);
+
+        synchronized (this) {
+            CachedPromotion cached = knownCodes.get(code);
+            if (cached != null) {
+                if (cached.expiresAt > now) {
+                    hits.incrementAndGet();
+                    return Optional.of(cached.promotion);
+                }
+                knownCodes.remove(code);
+            }
+        }
+        Set<String> codes = validCodes;
+        if (codes != null && !codes.contains(code)) {
+            rejected.incrementAndGet();
+            return Optional.empty();
+        }
+
+        misses.incrementAndGet();
+        long loadGeneration = generation.get();
+        Optional<Promotion> loaded = promotionRepository.findByCouponCode(couponCode).map(Promotion::detachedCopy);
+
+        // Skip caching if a promotion changed while loading; the result may already be stale
+        if (loaded.isPresent() && generation.get() == loadGeneration) {
+            put(code, new CachedPromotion(loaded.get(), now + ttlSeconds * 1000));
+        }
+        return loaded;
+    }
+
+    /**
+     * Drops a single code, e.g. after its usage limit was hit
+     */
+    public synchronized void evict(String couponCode) {
+        if (couponCode != null) {
+            knownCodes.remove(normalize(couponCode));
+        }
+    }
+
+    /**
+     * Clears the resolved codes and reloads the valid ones; call once a promotion change committed
+     */
+    public void invalidateAndReload() {
+        invalidate();
+        reloadCodes();
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        invalidations.incrementAndGet();
+        synchronized (this) {
+            knownCodes.clear();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reloadCodes();
+    }
+
+    @Scheduled(fixedDelayString = "${app.promotions.coupon-code-refresh-interval:60000}",
+               initialDelayString = "${app.promotions.coupon-code-refresh-interval:60000}")
+    public void refresh() {
+        reloadCodes();
+    }
+
+    /**
+     * Reloads the set of valid codes; a load that overlaps a promotion change is retried, so a
+     * code created by that change cannot be left out
+     */
+    public void reloadCodes() {
+        try {
+            for (int attempt = 0; attempt < MAX_RELOAD_ATTEMPTS; attempt++) {
+                long loadGeneration = generation.get();
+                List<String> codes = promotionRepository.findAllCouponCodes();
+                if (generation.get() == loadGeneration) {
+                    Set<String> normalized = new HashSet<>(codes.size() * 2);
+                    for (String code : codes) {
+                        normalized.add(normalize(code));
+                    }
+                    validCodes = normalized;
+                    reloads.incrementAndGet();
+                    return;
+                }
+            }
+            // Until the next refresh, unknown codes go to the database again
+            validCodes = null;
+        } catch (Exception e) {
+            validCodes = null;
+            log.warn("Could not load coupon codes: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        long lookups = hits.get() + rejected.get() + misses.get();
+        Set<String> codes = validCodes;
+        Map<String, Object> stats = new HashMap<>();
+        synchronized (this) {
+            stats.put("knownCodes", knownCodes.size());
+        }
+        stats.put("validCodes", codes != null ? codes.size() : null);
+        stats.put("hits", hits.get());
+        stats.put("rejected", rejected.get());
+        stats.put("misses", misses.get());
+        stats.put("hitRate", lookups > 0 ? (double) (hits.get() + rejected.get()) / lookups : 0.0);
+        stats.put("evictions", evictions.get());
+        stats.put("invalidations", invalidations.get());
+        stats.put("reloads", reloads.get());
+        stats.put("ttlSeconds", ttlSeconds);
+        stats.put("maxSize", maxSize);
+        return stats;
+    }
+
+    private synchronized void put(String code, CachedPromotion promotion) {
+        knownCodes.put(code, promotion);
+        Iterator<String> eldest = knownCodes.keySet().iterator();
+        while (knownCodes.size() > maxSize && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private static String normalize(String couponCode) {
+        return couponCode.toUpperCase(Locale.ROOT);
+    }
+
+    private static class CachedPromotion {
+        private final Promotion promotion;
+        private final long expiresAt;
+
+        CachedPromotion(Promotion promotion, long expiresAt) {
+            this.promotion = promotion;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
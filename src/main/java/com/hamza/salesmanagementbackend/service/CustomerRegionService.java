@@ -0,0 +1,225 @@
+package com.hamza.salesmanagementbackend.service;
+
+import com.hamza.salesmanagementbackend.entity.Customer;
+import com.hamza.salesmanagementbackend.entity.Region;
+import com.hamza.salesmanagementbackend.exception.BusinessLogicException;
+import com.hamza.salesmanagementbackend.repository.CustomerRepository;
+import com.hamza.salesmanagementbackend.repository.RegionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resolves a customer's region from its free-text address once, when the customer is saved, and
+ * stores it as customers.region_id. Addresses are matched on whole words, so a code such as "ca"
+ * matches "Los Angeles, CA" but not "Casablanca". Customers saved before the column existed, or
+ * written outside CustomerService, are filled in by a batched backfill at startup.
+ */
+@Service
+@Slf4j
+public class CustomerRegionService {
+
+    static final String UNKNOWN = "Unknown";
+    static final String UNKNOWN_REGION = "Unknown Region";
+    private static final int MAX_NAME_LENGTH = 120;
+
+    // Checked in order; direction words win over state codes, as before
+    private static final String[][] REGION_WORDS = {
+            {"North Region", "north", "northern", "northeast", "northwest"},
+            {"South Region", "south", "southern", "southeast", "southwest"},
+            {"East Region", "east", "eastern"},
+            {"West Region", "west", "western"},
+            {"Central Region", "central", "center", "centre"},
+            {"West Region", "ca", "california"},
+            {"East Region", "ny", "new york"},
+            {"South Region", "tx", "texas"},
+            {"Central Region", "il", "illinois"}
+    };
+
+    private final CustomerRepository customerRepository;
+    private final RegionRepository regionRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.customers.region-backfill-batch-size:500}")
+    private int batchSize;
+
+    private final Map<String, Long> regionIds = new ConcurrentHashMap<>();
+    private final AtomicBoolean backfillRunning = new AtomicBoolean();
+    private final AtomicLong resolved = new AtomicLong();
+    private final AtomicLong regionsCreated = new AtomicLong();
+    private volatile Map<String, Object> lastBackfill;
+
+    public CustomerRegionService(CustomerRepository customerRepository,
+                                 RegionRepository regionRepository,
+                                 PlatformTransactionManager transactionManager) {
+        this.customerRepository = customerRepository;
+        this.regionRepository = regionRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Sets the customer's region from its current address; call before saving
+     */
+    public void assignRegion(Customer customer) {
+        customer.setRegionId(regionIdFor(resolveRegionName(customer.getAddress(), customer.getBillingAddress())));
+        resolved.incrementAndGet();
+    }
+
+    /**
+     * Region name for an address, falling back to the billing address when the address is blank
+     */
+    static String resolveRegionName(String address, String billingAddress) {
+        if (address == null || address.trim().isEmpty()) {
+            address = billingAddress;
+        }
+        if (address == null || address.trim().isEmpty()) {
+            return UNKNOWN;
+        }
+
+        // Words separated by single spaces, padded so every word can be matched as " word "
+        String words = " " + address.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").trim() + " ";
+        for (String[] region : REGION_WORDS) {
+            for (int i = 1; i < region.length; i++) {
+                if (words.contains(" " + region[i] + " ")) {
+                    return region[0];
+                }
+            }
+        }
+
+        // Otherwise the last comma-separated part of the address
+        String[] parts = address.split(",");
+        if (parts.length > 1 && !parts[parts.length - 1].trim().isEmpty()) {
+            String name = parts[parts.length - 1].trim() + " Region";
+            return name.length() > MAX_NAME_LENGTH ? name.substring(0, MAX_NAME_LENGTH) : name;
+        }
+        return UNKNOWN_REGION;
+    }
+
+    /**
+     * Id of the region with this name, created in its own transaction on first use
+     */
+    Long regionIdFor(String name) {
+        String code = name.toLowerCase(Locale.ROOT);
+        Long cached = regionIds.get(code);
+        if (cached != null) {
+            return cached;
+        }
+        Long id = transactionTemplate.execute(status -> regionRepository.findByCode(code)
+                .map(Region::getId)
+                .orElse(null));
+        if (id == null) {
+            try {
+                id = transactionTemplate.execute(status ->
+                        regionRepository.save(Region.builder().code(code).name(name).build()).getId());
+                regionsCreated.incrementAndGet();
+            } catch (DataIntegrityViolationException e) {
+                // Created concurrently by another transaction
+                id = transactionTemplate.execute(status -> regionRepository.findByCode(code)
+                        .map(Region::getId)
+                        .orElseThrow(() -> e));
+            }
+        }
+        regionIds.put(code, id);
+        return id;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            backfill(false);
+        } catch (Exception e) {
+            log.warn("Customer region backfill failed at startup: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Resolves regions in id order, batchSize customers per transaction. Without all, only
+     * customers that have no region yet are visited; with all, every customer is re-resolved,
+     * which is how a change to the resolution rules is applied. Returns the run summary.
+     */
+    public Map<String, Object> backfill(boolean all) {
+        if (!backfillRunning.compareAndSet(false, true)) {
+            throw new BusinessLogicException("A customer region backfill is already in progress");
+        }
+        try {
+            LocalDateTime startedAt = LocalDateTime.now();
+            long started = System.currentTimeMillis();
+            long scanned = 0;
+            long updated = 0;
+            int batches = 0;
+            long afterId = 0;
+            while (true) {
+                long from = afterId;
+                List<Object[]> rows = transactionTemplate.execute(status ->
+                        customerRepository.findRegionBackfillBatch(from, all, PageRequest.of(0, Math.max(1, batchSize))));
+                if (rows.isEmpty()) {
+                    break;
+                }
+
+                Map<Long, List<Long>> customersByRegion = new HashMap<>();
+                for (Object[] row : rows) {
+                    Long regionId = regionIdFor(resolveRegionName((String) row[1], (String) row[2]));
+                    if (!Objects.equals(regionId, row[3])) {
+                        customersByRegion.computeIfAbsent(regionId, key -> new ArrayList<>()).add((Long) row[0]);
+                    }
+                }
+                if (!customersByRegion.isEmpty()) {
+                    updated += transactionTemplate.execute(status -> {
+                        int count = 0;
+                        for (Map.Entry<Long, List<Long>> entry : customersByRegion.entrySet()) {
+                            count += customerRepository.updateRegion(entry.getKey(), entry.getValue());
+                        }
+                        return count;
+                    });
+                }
+                scanned += rows.size();
+                batches++;
+                afterId = (Long) rows.get(rows.size() - 1)[0];
+            }
+
+            Map<String, Object> summary = new HashMap<>();
+            summary.put("startedAt", startedAt);
+            summary.put("durationMs", System.currentTimeMillis() - started);
+            summary.put("all", all);
+            summary.put("customersScanned", scanned);
+            summary.put("customersUpdated", updated);
+            summary.put("batches", batches);
+            lastBackfill = summary;
+            if (scanned > 0) {
+                log.info("Customer region backfill scanned {} customers and updated {}", scanned, updated);
+            }
+            return summary;
+        } finally {
+            backfillRunning.set(false);
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("cachedRegions", regionIds.size());
+        stats.put("regionsCreated", regionsCreated.get());
+        stats.put("customersResolved", resolved.get());
+        stats.put("backfillRunning", backfillRunning.get());
+        stats.put("lastBackfill", lastBackfill);
+        return stats;
+    }
+}
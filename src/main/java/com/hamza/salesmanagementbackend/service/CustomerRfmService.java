@@ -0,0 +1,277 @@
+package com.hamza.salesmanagementbackend.service;
+
+import com.hamza.salesmanagementbackend.entity.CustomerRfmScore;
+import com.hamza.salesmanagementbackend.exception.BusinessLogicException;
+import com.hamza.salesmanagementbackend.repository.CustomerRepository;
+import com.hamza.salesmanagementbackend.repository.CustomerRfmScoreRepository;
+import com.hamza.salesmanagementbackend.repository.SaleRepository;
+import com.hamza.salesmanagementbackend.util.DirtySetFlusher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the customer_rfm_scores table current so customer segmentation, lifetime value and churn
+ * reports are GROUP BYs over one row per customer instead of passes over raw sales.
+ * A nightly job rescores every customer: customers are split into id ranges of about chunkSize
+ * that a fork-join pool processes in parallel, each reading its customers' completed sale
+ * aggregates with one query and writing its rows in its own transaction. Between runs, customers
+ * whose completed sales change are marked dirty after commit and rescored in small batches; the
+ * nightly run also moves recency-based fields along for customers who stopped buying.
+ */
+@Service
+@Slf4j
+public class CustomerRfmService {
+
+    private final CustomerRepository customerRepository;
+    private final SaleRepository saleRepository;
+    private final CustomerRfmScoreRepository customerRfmScoreRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final IdRangeChunker chunker;
+
+    @Value("${app.customers.rfm-chunk-size:1000}")
+    private int chunkSize;
+
+    private final DirtySetFlusher dirty = new DirtySetFlusher();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong chunksProcessed = new AtomicLong();
+    private final AtomicLong customersScored = new AtomicLong();
+    private final AtomicLong incrementalUpdates = new AtomicLong();
+    private volatile Map<String, Object> lastRun;
+
+    public CustomerRfmService(CustomerRepository customerRepository,
+                              SaleRepository saleRepository,
+                              CustomerRfmScoreRepository customerRfmScoreRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.customers.rfm-parallelism:4}") int parallelism) {
+        this.customerRepository = customerRepository;
+        this.saleRepository = saleRepository;
+        this.customerRfmScoreRepository = customerRfmScoreRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.chunker = new IdRangeChunker(parallelism);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        chunker.shutdown();
+    }
+
+    /**
+     * Marks a customer for rescoring once the current transaction commits
+     */
+    public void customerChangedAfterCommit(Long customerId) {
+        dirty.markAfterCommit(customerId);
+    }
+
+    /**
+     * Scores every customer on first start, before any nightly run has filled the table
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            if (customerRfmScoreRepository.count() == 0) {
+                run();
+            }
+        } catch (Exception e) {
+            log.warn("Could not compute customer RFM scores at startup: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${app.customers.rfm-job-cron:0 30 2 * * *}")
+    public void runScheduled() {
+        try {
+            run();
+        } catch (Exception e) {
+            log.warn("Customer RFM run failed: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.customers.rfm-flush-interval:2000}")
+    public void flushScheduled() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.warn("Customer RFM rescoring failed, customers stay queued: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Rescores every customer; returns the run summary
+     */
+    public Map<String, Object> run() {
+        if (!running.compareAndSet(false, true)) {
+            throw new BusinessLogicException("A customer RFM run is already in progress");
+        }
+        try {
+            return execute();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("running", running.get());
+        stats.put("runs", runs.get());
+        stats.put("chunksProcessed", chunksProcessed.get());
+        stats.put("customersScored", customersScored.get());
+        stats.put("incrementalUpdates", incrementalUpdates.get());
+        stats.put("dirtyCustomers", dirty.size());
+        stats.put("lastRun", lastRun);
+        return stats;
+    }
+
+    /**
+     * Rescores the customers marked dirty; skipped while a full run is writing the same rows
+     */
+    synchronized void flush() {
+        if (running.get()) {
+            return;
+        }
+        dirty.flush(ids -> {
+            transactionTemplate.execute(status -> {
+                Set<Long> existing = new HashSet<>(customerRepository.findExistingIds(ids));
+                List<Object[]> aggregates = existing.isEmpty() ? new ArrayList<>()
+                        : saleRepository.summarizeCompletedSalesByCustomerIds(existing);
+                score(existing, aggregates, customerRfmScoreRepository.findByCustomerIdIn(ids));
+                return null;
+            });
+            incrementalUpdates.addAndGet(ids.size());
+        });
+    }
+
+    private Map<String, Object> execute() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long started = System.currentTimeMillis();
+
+        List<Object[]> bounds = transactionTemplate.execute(status -> customerRepository.findIdBounds());
+        RunTotals totals = chunker.invoke(bounds, chunkSize, new RunTotals(), this::scoreRange, RunTotals::merge);
+
+        long elapsed = System.currentTimeMillis() - started;
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("startedAt", startedAt);
+        summary.put("finishedAt", LocalDateTime.now());
+        summary.put("durationMs", elapsed);
+        summary.put("customers", totals.customers);
+        summary.put("withPurchases", totals.withPurchases);
+        summary.put("removed", totals.removed);
+        summary.put("chunks", totals.chunks);
+        summary.put("customersPerSecond", elapsed > 0 ? totals.customers * 1000 / elapsed : totals.customers);
+        summary.put("avgChunkMs", totals.chunks > 0 ? totals.chunkMillis / totals.chunks : 0);
+        summary.put("maxChunkMs", totals.maxChunkMillis);
+        lastRun = summary;
+        runs.incrementAndGet();
+
+        log.info("Customer RFM scores computed for {} customers in {} chunks ({} ms)",
+                totals.customers, totals.chunks, elapsed);
+        return summary;
+    }
+
+    /**
+     * Scores one id range in its own transaction
+     */
+    private RunTotals scoreRange(long fromId, long toId) {
+        long chunkStarted = System.currentTimeMillis();
+        RunTotals totals = transactionTemplate.execute(status -> {
+            List<Long> ids = customerRepository.findIdsBetween(fromId, toId);
+            List<CustomerRfmScore> rows = customerRfmScoreRepository.findByCustomerIdBetween(fromId, toId);
+            if (ids.isEmpty() && rows.isEmpty()) {
+                return new RunTotals();
+            }
+            return score(new HashSet<>(ids), saleRepository.summarizeCompletedSalesByCustomerRange(fromId, toId), rows);
+        });
+
+        long chunkMillis = System.currentTimeMillis() - chunkStarted;
+        totals.chunks = 1;
+        totals.chunkMillis = chunkMillis;
+        totals.maxChunkMillis = chunkMillis;
+        chunksProcessed.incrementAndGet();
+        customersScored.addAndGet(totals.customers);
+        return totals;
+    }
+
+    /**
+     * Upserts a row for every existing customer from its aggregates and deletes rows of customers
+     * that no longer exist; runs inside the caller's transaction
+     */
+    private RunTotals score(Set<Long> customerIds, List<Object[]> aggregates, Collection<CustomerRfmScore> rows) {
+        RunTotals totals = new RunTotals();
+        Map<Long, Object[]> byCustomer = new HashMap<>();
+        for (Object[] aggregate : aggregates) {
+            byCustomer.put((Long) aggregate[0], aggregate);
+        }
+        Map<Long, CustomerRfmScore> existing = new HashMap<>();
+        List<CustomerRfmScore> orphans = new ArrayList<>();
+        for (CustomerRfmScore row : rows) {
+            if (customerIds.contains(row.getCustomerId())) {
+                existing.put(row.getCustomerId(), row);
+            } else {
+                orphans.add(row);
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<CustomerRfmScore> toSave = new ArrayList<>(customerIds.size());
+        for (Long customerId : customerIds) {
+            Object[] aggregate = byCustomer.get(customerId);
+            CustomerRfmScore row = existing.getOrDefault(customerId,
+                    CustomerRfmScore.builder().customerId(customerId).build());
+            if (aggregate != null) {
+                row.recompute(((Number) aggregate[1]).longValue(), (BigDecimal) aggregate[2],
+                        (LocalDateTime) aggregate[3], (LocalDateTime) aggregate[4], now);
+                totals.withPurchases++;
+            } else {
+                row.recompute(0, BigDecimal.ZERO, null, null, now);
+            }
+            toSave.add(row);
+        }
+        customerRfmScoreRepository.saveAll(toSave);
+        if (!orphans.isEmpty()) {
+            customerRfmScoreRepository.deleteAll(orphans);
+        }
+        totals.customers = toSave.size();
+        totals.removed = orphans.size();
+        return totals;
+    }
+
+
+    private static class RunTotals {
+        private long customers;
+        private long withPurchases;
+        private long removed;
+        private int chunks;
+        private long chunkMillis;
+        private long maxChunkMillis;
+
+        RunTotals merge(RunTotals other) {
+            customers += other.customers;
+            withPurchases += other.withPurchases;
+            removed += other.removed;
+            chunks += other.chunks;
+            chunkMillis += other.chunkMillis;
+            maxChunkMillis = Math.max(maxChunkMillis, other.maxChunkMillis);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,394 @@
+package com.hamza.salesmanagementbackend.service;
+
+import com.hamza.salesmanagementbackend.entity.Customer;
+import com.hamza.salesmanagementbackend.repository.CustomerRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * In-memory trigram index over the name, email and phone of active customers, so the search box
+ * no longer scans the table with LIKE '%term%' on every keystroke. Tokens are indexed by
+ * trigrams for infix matches and by their one and two character prefixes for short queries;
+ * phone numbers are indexed as digits only. A query matches when each of its tokens occurs in
+ * some field, and results are ranked by how well they match.
+ * Posting lists are sorted int arrays rather than sets of boxed ids to keep a few hundred
+ * thousand customers affordable. Soft-deleted customers are left out of the index; it is kept
+ * current from customer changes after they commit and fully rebuilt periodically.
+ */
+@Service
+public class CustomerSearchIndex extends InMemorySearchIndex<Integer, CustomerSearchIndex.Document, CustomerSearchIndex.CustomerIndex> {
+
+    private static final int SHORT_PREFIX_LENGTH = GRAM_SIZE - 1;
+
+    private final CustomerRepository customerRepository;
+    public CustomerSearchIndex(CustomerRepository customerRepository, PlatformTransactionManager transactionManager) {
+        super("customer", transactionManager);
+        this.customerRepository = customerRepository;
+    }
+
+    /**
+     * Ranked customer ids for one page of a query, with the total match count
+     */
+    public SearchResult search(String query, int offset, int limit) {
+        long started = System.nanoTime();
+        List<String> terms = queryTerms(query);
+        String wholeQuery = query != null ? query.trim().toLowerCase(Locale.ROOT) : "";
+
+        List<Scored> matches = new ArrayList<>();
+        read(index -> {
+            for (int id : candidates(index, terms)) {
+                Document doc = index.documents.get(id);
+                int score = doc != null ? score(doc, terms) : 0;
+                if (score > 0 && wholeQuery.equals(doc.email)) {
+                    score += 100;
+                }
+                if (score > 0) {
+                    matches.add(new Scored(doc, score));
+                }
+            }
+            return null;
+        });
+
+        matches.sort(Comparator.comparingInt((Scored s) -> -s.score)
+                .thenComparing(s -> s.document.name, String.CASE_INSENSITIVE_ORDER)
+                .thenComparingInt(s -> s.document.id));
+        List<Long> ids = new ArrayList<>();
+        for (int i = offset; i < matches.size() && ids.size() < limit; i++) {
+            ids.add((long) matches.get(i).document.id);
+        }
+
+        return new SearchResult(ids, matches.size(), recordSearch(started));
+    }
+
+    /**
+     * (Re)indexes a customer once the current transaction commits, or drops it if soft-deleted
+     */
+    public void indexAfterCommit(Customer customer) {
+        int id = Math.toIntExact(customer.getId());
+        Document doc = customer.isDeleted() ? null
+                : new Document(id, customer.getName(), customer.getEmail(), customer.getPhone());
+        applyAfterCommit(id, doc);
+    }
+
+    public void removeAfterCommit(Long customerId) {
+        applyAfterCommit(Math.toIntExact(customerId), null);
+    }
+
+    @Scheduled(fixedDelayString = "${app.customers.search-index-refresh-interval:900000}",
+               initialDelayString = "${app.customers.search-index-refresh-interval:900000}")
+    public void refresh() {
+        refreshIndex();
+    }
+
+    @Override
+    protected CustomerIndex newIndex() {
+        return new CustomerIndex();
+    }
+
+    @Override
+    protected void loadDocuments(Consumer<Document> sink) {
+        // Ordered by id, so every posting list is built by appending
+        for (Object[] row : customerRepository.findSearchDocuments()) {
+            sink.accept(new Document(Math.toIntExact((Long) row[0]), (String) row[1], (String) row[2], (String) row[3]));
+        }
+    }
+
+    @Override
+    protected void addIndexStatistics(CustomerIndex index, Map<String, Object> stats) {
+        stats.put("customers", index.documents.size());
+        stats.put("postingLists", index.postings.size());
+    }
+
+    /**
+     * Ids that may match every term, smallest posting lists first; verified later by scoring
+     */
+    private static int[] candidates(CustomerIndex index, List<String> terms) {
+        if (terms.isEmpty()) {
+            return Postings.EMPTY;
+        }
+        List<Postings> lists = new ArrayList<>();
+        for (String term : terms) {
+            Set<String> keys = term.length() < GRAM_SIZE ? Set.of(prefixKey(term)) : new HashSet<>(grams(term));
+            for (String key : keys) {
+                Postings postings = index.postings.get(key);
+                if (postings == null) {
+                    return Postings.EMPTY;
+                }
+                lists.add(postings);
+            }
+        }
+        lists.sort(Comparator.comparingInt(p -> p.size));
+
+        int[] result = Arrays.copyOf(lists.get(0).ids, lists.get(0).size);
+        int size = result.length;
+        for (int i = 1; i < lists.size() && size > 0; i++) {
+            size = lists.get(i).retainIn(result, size);
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Sum of the best field match per term; zero if any term matches no field
+     */
+    private static int score(Document doc, List<String> terms) {
+        int total = 0;
+        for (String term : terms) {
+            int best = 0;
+            if (doc.phone != null && isDigits(term)) {
+                if (doc.phone.equals(term)) {
+                    best = Math.max(best, 60);
+                } else if (doc.phone.startsWith(term) || doc.phone.endsWith(term)) {
+                    best = Math.max(best, 20);
+                } else if (term.length() >= GRAM_SIZE && doc.phone.contains(term)) {
+                    best = Math.max(best, 10);
+                }
+            }
+            best = Math.max(best, tokenScore(doc.nameTokens, term, 12, 8, 4));
+            best = Math.max(best, tokenScore(doc.emailTokens, term, 6, 5, 2));
+            if (best == 0) {
+                return 0;
+            }
+            total += best;
+        }
+        return total;
+    }
+
+    private static int tokenScore(String[] tokens, String term, int exact, int prefix, int infix) {
+        int best = 0;
+        for (String token : tokens) {
+            if (token.equals(term)) {
+                return exact;
+            }
+            if (token.startsWith(term)) {
+                best = Math.max(best, prefix);
+            } else if (term.length() >= GRAM_SIZE && token.contains(term)) {
+                best = Math.max(best, infix);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Query tokens; a query made only of digits and phone punctuation becomes one digit string
+     */
+    static List<String> queryTerms(String query) {
+        if (query == null) {
+            return new ArrayList<>();
+        }
+        String trimmed = query.trim();
+        if (trimmed.matches("[\\d\\s()+.\\-]*\\d[\\d\\s()+.\\-]*")) {
+            List<String> terms = new ArrayList<>();
+            terms.add(digits(trimmed));
+            return terms;
+        }
+        return new ArrayList<>(new LinkedHashSet<>(tokenize(trimmed)));
+    }
+
+    private static String digits(String text) {
+        StringBuilder digits = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+
+    private static boolean isDigits(String term) {
+        for (int i = 0; i < term.length(); i++) {
+            if (term.charAt(i) < '0' || term.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return !term.isEmpty();
+    }
+
+    // Short prefixes share the map with trigrams; the marker keeps "ab" apart from a gram
+    private static String prefixKey(String prefix) {
+        return "^" + prefix;
+    }
+
+    /**
+     * Trigram and short prefix posting lists plus the stored documents
+     */
+    static class CustomerIndex implements InMemorySearchIndex.Index<Integer, Document> {
+        private final Map<Integer, Document> documents = new HashMap<>();
+        private final Map<String, Postings> postings = new HashMap<>();
+
+        @Override
+        public void replace(Integer id, Document doc) {
+            Document previous = documents.remove(id);
+            if (previous != null) {
+                for (String key : previous.keys()) {
+                    Postings ids = postings.get(key);
+                    if (ids != null && ids.remove(id) && ids.size == 0) {
+                        postings.remove(key);
+                    }
+                }
+            }
+            if (doc != null) {
+                add(doc);
+            }
+        }
+
+        @Override
+        public void add(Document doc) {
+            documents.put(doc.id, doc);
+            for (String key : doc.keys()) {
+                postings.computeIfAbsent(key, k -> new Postings()).add(doc.id);
+            }
+        }
+
+        @Override
+        public int size() {
+            return documents.size();
+        }
+    }
+
+    /**
+     * Sorted, duplicate-free customer ids for one key
+     */
+    private static class Postings {
+        private static final int[] EMPTY = new int[0];
+
+        private int[] ids = new int[2];
+        private int size;
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] >= id) {
+                int at = Arrays.binarySearch(ids, 0, size, id);
+                if (at >= 0) {
+                    return;
+                }
+                insertAt(-at - 1, id);
+            } else {
+                insertAt(size, id);
+            }
+        }
+
+        boolean remove(int id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            size--;
+            return true;
+        }
+
+        /**
+         * Keeps in the sorted candidates only the ids also in this list; returns the new count
+         */
+        int retainIn(int[] candidates, int count) {
+            int kept = 0;
+            int j = 0;
+            for (int i = 0; i < count && j < size; i++) {
+                int id = candidates[i];
+                while (j < size && ids[j] < id) {
+                    j++;
+                }
+                if (j < size && ids[j] == id) {
+                    candidates[kept++] = id;
+                }
+            }
+            return kept;
+        }
+
+        private void insertAt(int at, int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+    }
+
+    /**
+     * Normalised searchable fields of one customer; index keys are derived on demand instead of
+     * being stored per document
+     */
+    static class Document {
+        private final int id;
+        private final String name;
+        private final String email;
+        private final String phone;
+        private final String[] nameTokens;
+        private final String[] emailTokens;
+
+        Document(int id, String name, String email, String phone) {
+            this.id = id;
+            this.name = name != null ? name : "";
+            this.email = email != null ? email.trim().toLowerCase(Locale.ROOT) : null;
+            String phoneDigits = phone != null ? digits(phone) : "";
+            this.phone = phoneDigits.isEmpty() ? null : phoneDigits;
+            this.nameTokens = tokenize(name).toArray(new String[0]);
+            this.emailTokens = tokenize(email).toArray(new String[0]);
+        }
+
+        Set<String> keys() {
+            Set<String> keys = new HashSet<>();
+            List<String[]> fields = new ArrayList<>(List.of(nameTokens, emailTokens));
+            if (phone != null) {
+                fields.add(new String[]{phone});
+            }
+            for (String[] tokens : fields) {
+                for (String token : tokens) {
+                    for (int i = 1; i <= Math.min(token.length(), SHORT_PREFIX_LENGTH); i++) {
+                        keys.add(prefixKey(token.substring(0, i)));
+                    }
+                    keys.addAll(grams(token));
+                }
+            }
+            return keys;
+        }
+    }
+
+    private static class Scored {
+        private final Document document;
+        private final int score;
+
+        Scored(Document document, int score) {
+            this.document = document;
+            this.score = score;
+        }
+    }
+
+    public static class SearchResult {
+        private final List<Long> customerIds;
+        private final int totalMatches;
+        private final long tookMicros;
+
+        SearchResult(List<Long> customerIds, int totalMatches, long tookMicros) {
+            this.customerIds = customerIds;
+            this.totalMatches = totalMatches;
+            this.tookMicros = tookMicros;
+        }
+
+        public List<Long> getCustomerIds() {
+            return customerIds;
+        }
+
+        public int getTotalMatches() {
+            return totalMatches;
+        }
+
+        public long getTookMicros() {
+            return tookMicros;
+        }
+    }
+}
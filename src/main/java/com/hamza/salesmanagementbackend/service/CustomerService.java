@@ -1,22 +1,28 @@
 package com.hamza.salesmanagementbackend.service;
 
 import com.hamza.salesmanagementbackend.dto.CustomerDTO;
+import com.hamza.salesmanagementbackend.dto.CustomerSalesSliceDTO;
+import com.hamza.salesmanagementbackend.dto.CustomerWithSalesDTO;
 import com.hamza.salesmanagementbackend.entity.Customer;
 import com.hamza.salesmanagementbackend.exception.BusinessLogicException;
 import com.hamza.salesmanagementbackend.exception.ResourceNotFoundException;
 import com.hamza.salesmanagementbackend.repository.CustomerRepository;
+import com.hamza.salesmanagementbackend.repository.SaleRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -26,8 +32,16 @@ import java.util.stream.Collectors;
 @Slf4j
 public class CustomerService {
 
-    private final CustomerRepository customerRepository;
+    private static final int RECENT_SALES_LIMIT = 10;
 
+    private final CustomerRepository customerRepository;
+    private final SaleRepository saleRepository;
+    private final SaleService saleService;
+    private final CounterContentionMonitor contentionMonitor;
+    private final CustomerSearchIndex customerSearchIndex;
+    private final CustomerStatisticsService customerStatisticsService;
+    private final CustomerRfmService customerRfmService;
+    private final CustomerRegionService customerRegionService;
 
     /**
      * Creates a new customer after validating email uniqueness
@@ -36,7 +50,10 @@ public class CustomerService {
         log.info("Creating new customer with email: {}", customerDTO.getEmail());
         validateEmailUniqueness(customerDTO.getEmail(), null);
         Customer customer = mapToEntity(customerDTO);
+        customerRegionService.assignRegion(customer);
         Customer savedCustomer = customerRepository.save(customer);
+        customerSearchIndex.indexAfterCommit(savedCustomer);
+        customerStatisticsService.customerChangedAfterCommit(savedCustomer.getId());
         log.info("Successfully created customer with ID: {}", savedCustomer.getId());
         return mapToDTO(savedCustomer);
     }
@@ -116,7 +133,10 @@ public class CustomerService {
 
         validateEmailUniqueness(customerDTO.getEmail(), id);
         updateCustomerFields(existingCustomer, customerDTO);
+        customerRegionService.assignRegion(existingCustomer);
         Customer savedCustomer = customerRepository.save(existingCustomer);
+        customerSearchIndex.indexAfterCommit(savedCustomer);
+        customerStatisticsService.customerChangedAfterCommit(id);
         return mapToDTO(savedCustomer);
     }
 
@@ -156,6 +176,8 @@ public class CustomerService {
 
         customer.softDelete(deletedBy, reason);
         customerRepository.save(customer);
+        customerSearchIndex.removeAfterCommit(id);
+        customerStatisticsService.customerChangedAfterCommit(id);
 
         log.info("Soft deleted customer {} by {} with reason: {}", id, deletedBy, reason);
     }
@@ -179,6 +201,9 @@ public class CustomerService {
         }
 
         customerRepository.deleteById(id);
+        customerSearchIndex.removeAfterCommit(id);
+        customerStatisticsService.customerChangedAfterCommit(id);
+        customerRfmService.customerChangedAfterCommit(id);
         log.info("Hard deleted customer {} with {} sales and {} returns", id, salesCount, returnCount);
     }
 
@@ -196,6 +221,8 @@ public class CustomerService {
 
         customer.restore();
         Customer savedCustomer = customerRepository.save(customer);
+        customerSearchIndex.indexAfterCommit(savedCustomer);
+        customerStatisticsService.customerChangedAfterCommit(id);
         log.info("Restored customer {}", id);
         return mapToDTO(savedCustomer);
     }
@@ -212,12 +239,27 @@ public class CustomerService {
     }
 
     /**
-     * Advanced search with pagination (active customers only)
+     * Ranked search over active customers' name, email and phone; only the page's customers are
+     * loaded. Falls back to the LIKE query until the search index is built.
      */
     @Transactional(readOnly = true)
     public Page<CustomerDTO> searchCustomers(String searchTerm, Pageable pageable) {
-        return customerRepository.searchActiveCustomers(searchTerm, pageable)
-                .map(this::mapToDTO);
+        if (!customerSearchIndex.isReady() || searchTerm == null || searchTerm.trim().isEmpty()) {
+            return customerRepository.searchActiveCustomers(searchTerm != null ? searchTerm : "", pageable)
+                    .map(this::mapToDTO);
+        }
+
+        CustomerSearchIndex.SearchResult result = customerSearchIndex.search(
+                searchTerm, (int) pageable.getOffset(), pageable.getPageSize());
+        Map<Long, Customer> byId = customerRepository.findAllById(result.getCustomerIds())
+                .stream()
+                .collect(Collectors.toMap(Customer::getId, c -> c));
+        List<CustomerDTO> content = result.getCustomerIds().stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .map(this::mapToDTO)
+                .collect(Collectors.toList());
+        return new PageImpl<>(content, pageable, result.getTotalMatches());
     }
 
     /**
@@ -259,13 +301,40 @@ public class CustomerService {
     }
 
     /**
-     * Gets customer with sales information
+     * Customer detail with whole-history purchase totals from one aggregate query and only the
+     * most recent sales; older sales are paged with getCustomerSales
      */
     @Transactional(readOnly = true)
-    public CustomerDTO getCustomerWithSales(Long id) {
-        return customerRepository.findByIdWithSales(id)
-                .map(this::mapToDTO)
+    public CustomerWithSalesDTO getCustomerWithSales(Long id) {
+        Customer customer = customerRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Customer not found with id: " + id));
+
+        Object[] totals = saleRepository.summarizeSalesByCustomerId(id).get(0);
+        long completed = totals[1] != null ? ((Number) totals[1]).longValue() : 0L;
+        BigDecimal totalSpent = totals[2] != null ? (BigDecimal) totals[2] : BigDecimal.ZERO;
+        return CustomerWithSalesDTO.builder()
+                .customer(mapToDTO(customer))
+                .salesCount(((Number) totals[0]).longValue())
+                .completedSalesCount(completed)
+                .totalSpent(totalSpent)
+                .averageOrderValue(completed > 0
+                        ? totalSpent.divide(BigDecimal.valueOf(completed), 2, RoundingMode.HALF_UP)
+                        : BigDecimal.ZERO)
+                .firstSaleDate((LocalDateTime) totals[3])
+                .lastSaleDate((LocalDateTime) totals[4])
+                .recentSales(saleService.getCustomerSalesSlice(id, null, RECENT_SALES_LIMIT))
+                .build();
+    }
+
+    /**
+     * Older sales of a customer, one keyset page at a time from a cursor returned earlier
+     */
+    @Transactional(readOnly = true)
+    public CustomerSalesSliceDTO getCustomerSales(Long id, String cursor, int size) {
+        if (!customerRepository.existsById(id)) {
+            throw new ResourceNotFoundException("Customer not found with id: " + id);
+        }
+        return saleService.getCustomerSalesSlice(id, cursor, size);
     }
 
     // Private helper methods
@@ -346,6 +415,7 @@ public class CustomerService {
 
         customer.setCustomerStatus(status);
         Customer savedCustomer = customerRepository.save(customer);
+        customerStatisticsService.customerChangedAfterCommit(id);
         return mapToDTO(savedCustomer);
     }
 
@@ -358,6 +428,7 @@ public class CustomerService {
 
         customer.setCustomerType(type);
         Customer savedCustomer = customerRepository.save(customer);
+        customerStatisticsService.customerChangedAfterCommit(id);
         return mapToDTO(savedCustomer);
     }
 
@@ -374,6 +445,7 @@ public class CustomerService {
 
         customer.setCreditLimit(creditLimit);
         Customer savedCustomer = customerRepository.save(customer);
+        customerStatisticsService.customerChangedAfterCommit(id);
         return mapToDTO(savedCustomer);
     }
 
@@ -385,12 +457,18 @@ public class CustomerService {
             throw new BusinessLogicException("Points must be greater than zero");
         }
 
+        // Atomic increment so concurrent awards are never lost to a read-modify-write race
+        long start = System.nanoTime();
+        boolean updated = customerRepository.addLoyaltyPoints(id, points) == 1;
+        contentionMonitor.recordUpdate(CounterContentionMonitor.LOYALTY_POINTS, id, updated, System.nanoTime() - start);
+        if (!updated) {
+            throw new ResourceNotFoundException("Customer not found with id: " + id);
+        }
+        customerStatisticsService.customerChangedAfterCommit(id);
+
         Customer customer = customerRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Customer not found with id: " + id));
-
-        customer.addLoyaltyPoints(points);
-        Customer savedCustomer = customerRepository.save(customer);
-        return mapToDTO(savedCustomer);
+        return mapToDTO(customer);
     }
 
     /**
@@ -447,53 +525,10 @@ public class CustomerService {
     }
 
     /**
-     * Gets customer statistics using streams
+     * Customer statistics for the admin home page, served from in-memory totals
      */
     @Transactional(readOnly = true)
     public Map<String, Object> getCustomerStatistics() {
-        List<Customer> allCustomers = customerRepository.findAll();
-
-        return allCustomers.stream()
-                .collect(Collectors.collectingAndThen(
-                        Collectors.toList(),
-                        customers -> {
-                            Map<Customer.CustomerType, Long> customersByType = customers.stream()
-                                    .collect(Collectors.groupingBy(Customer::getCustomerType, Collectors.counting()));
-
-                            Map<Customer.CustomerStatus, Long> customersByStatus = customers.stream()
-                                    .collect(Collectors.groupingBy(Customer::getCustomerStatus, Collectors.counting()));
-
-                            BigDecimal totalLoyaltyPoints = customers.stream()
-                                    .map(Customer::getLoyaltyPoints)
-                                    .map(points -> BigDecimal.valueOf(points != null ? points : 0))
-                                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-                            BigDecimal totalCreditLimit = customers.stream()
-                                    .map(Customer::getCreditLimit)
-                                    .filter(limit -> limit != null)
-                                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-                            BigDecimal totalOutstandingBalance = customers.stream()
-                                    .map(Customer::getCurrentBalance)
-                                    .filter(balance -> balance != null)
-                                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-                            long verifiedEmails = customers.stream()
-                                    .mapToLong(c -> Boolean.TRUE.equals(c.getIsEmailVerified()) ? 1 : 0)
-                                    .sum();
-
-                            return Map.of(
-                                    "totalCustomers", customers.size(),
-                                    "customersByType", customersByType,
-                                    "customersByStatus", customersByStatus,
-                                    "totalLoyaltyPoints", totalLoyaltyPoints,
-                                    "totalCreditLimit", totalCreditLimit,
-                                    "totalOutstandingBalance", totalOutstandingBalance,
-                                    "verifiedEmailsCount", verifiedEmails,
-                                    "verificationRate", customers.isEmpty() ? 0 :
-                                            BigDecimal.valueOf(verifiedEmails * 100.0 / customers.size())
-                            );
-                        }
-                ));
+        return customerStatisticsService.getCustomerStatistics();
     }
 }
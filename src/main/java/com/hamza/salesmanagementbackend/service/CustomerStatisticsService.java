@@ -0,0 +1,197 @@
+package com.hamza.salesmanagementbackend.service;
+
+import com.hamza.salesmanagementbackend.entity.Customer;
+import com.hamza.salesmanagementbackend.repository.CustomerRepository;
+import com.hamza.salesmanagementbackend.util.NumberUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Customer statistics kept in memory so the admin home page never loads every customer. Each
+ * customer contributes its type, status, loyalty points, credit limit, balance and email
+ * verification to running totals; customer writes mark it dirty after commit.
+ */
+@Service
+public class CustomerStatisticsService extends InMemoryTotals<CustomerStatisticsService.CustomerState> {
+
+    private final CustomerRepository customerRepository;
+
+    // Guarded by "this"
+    private Totals overall = new Totals();
+
+    public CustomerStatisticsService(CustomerRepository customerRepository, PlatformTransactionManager transactionManager) {
+        super("customer statistics", "customers", transactionManager);
+        this.customerRepository = customerRepository;
+    }
+
+    /**
+     * Marks a customer for re-reading once the current transaction commits
+     */
+    public void customerChangedAfterCommit(Long customerId) {
+        markAfterCommit(customerId);
+    }
+
+    public void customersChangedAfterCommit(Collection<Long> customerIds) {
+        markAllAfterCommit(customerIds);
+    }
+
+    /**
+     * Counts by type and status, loyalty, credit and balance totals and the email verification rate
+     * over all customers, soft-deleted ones included
+     */
+    public Map<String, Object> getCustomerStatistics() {
+        Totals totals = isReady() ? readTotals(() -> overall.copy()) : aggregate();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalCustomers", totals.total);
+        stats.put("customersByType", totals.byType);
+        stats.put("customersByStatus", totals.byStatus);
+        stats.put("totalLoyaltyPoints", BigDecimal.valueOf(totals.loyaltyPoints));
+        stats.put("totalCreditLimit", totals.creditLimit);
+        stats.put("totalOutstandingBalance", totals.balance);
+        stats.put("verifiedEmailsCount", totals.verifiedEmails);
+        stats.put("verificationRate", totals.total == 0 ? 0 :
+                BigDecimal.valueOf(totals.verifiedEmails * 100.0 / totals.total));
+        return stats;
+    }
+
+    @Scheduled(fixedDelayString = "${app.customers.statistics-resync-interval:3600000}",
+               initialDelayString = "${app.customers.statistics-resync-interval:3600000}")
+    public void resync() {
+        resyncTotals();
+    }
+
+    @Scheduled(fixedDelayString = "${app.customers.statistics-flush-interval:5000}")
+    public void flushScheduled() {
+        flushPending();
+    }
+
+    @Override
+    protected List<Object[]> findStates() {
+        return customerRepository.findStatisticsStates();
+    }
+
+    @Override
+    protected List<Object[]> findStates(List<Long> ids) {
+        return customerRepository.findStatisticsStatesByIds(ids);
+    }
+
+    @Override
+    protected CustomerState toState(Object[] row) {
+        return new CustomerState((Long) row[0], (Customer.CustomerType) row[1], (Customer.CustomerStatus) row[2],
+                row[3] != null ? (Integer) row[3] : 0, (BigDecimal) row[4], (BigDecimal) row[5],
+                Boolean.TRUE.equals(row[6]));
+    }
+
+    @Override
+    protected Long idOf(CustomerState state) {
+        return state.customerId;
+    }
+
+    @Override
+    protected void resetTotals() {
+        overall = new Totals();
+    }
+
+    @Override
+    protected void addToTotals(CustomerState state, int sign) {
+        overall.add(state, sign);
+    }
+
+    /**
+     * One conditional-aggregation query grouped by type and status, used before the in-memory
+     * totals are loaded
+     */
+    private Totals aggregate() {
+        List<Object[]> rows = query(customerRepository::summarizeCustomers);
+        Totals totals = new Totals();
+        for (Object[] row : rows) {
+            long count = NumberUtils.toLong(row[2]);
+            totals.total += count;
+            totals.addCount((Customer.CustomerType) row[0], (Customer.CustomerStatus) row[1], count);
+            totals.loyaltyPoints += NumberUtils.toLong(row[3]);
+            totals.creditLimit = totals.creditLimit.add(NumberUtils.toBigDecimal(row[4]));
+            totals.balance = totals.balance.add(NumberUtils.toBigDecimal(row[5]));
+            totals.verifiedEmails += NumberUtils.toLong(row[6]);
+        }
+        return totals;
+    }
+
+    static class CustomerState {
+        private final Long customerId;
+        private final Customer.CustomerType type;
+        private final Customer.CustomerStatus status;
+        private final int loyaltyPoints;
+        private final BigDecimal creditLimit;
+        private final BigDecimal balance;
+        private final boolean emailVerified;
+
+        CustomerState(Long customerId, Customer.CustomerType type, Customer.CustomerStatus status, int loyaltyPoints,
+                      BigDecimal creditLimit, BigDecimal balance, boolean emailVerified) {
+            this.customerId = customerId;
+            this.type = type;
+            this.status = status;
+            this.loyaltyPoints = loyaltyPoints;
+            this.creditLimit = creditLimit;
+            this.balance = balance;
+            this.emailVerified = emailVerified;
+        }
+    }
+
+    /**
+     * Counts per type and status plus loyalty, credit and balance sums; same definitions as the
+     * aggregate query
+     */
+    private static class Totals {
+        private long total;
+        private final Map<Customer.CustomerType, Long> byType = new EnumMap<>(Customer.CustomerType.class);
+        private final Map<Customer.CustomerStatus, Long> byStatus = new EnumMap<>(Customer.CustomerStatus.class);
+        private long loyaltyPoints;
+        private long verifiedEmails;
+        private BigDecimal creditLimit = BigDecimal.ZERO;
+        private BigDecimal balance = BigDecimal.ZERO;
+
+        void add(CustomerState state, int sign) {
+            total += sign;
+            addCount(state.type, state.status, sign);
+            loyaltyPoints += (long) sign * state.loyaltyPoints;
+            verifiedEmails += state.emailVerified ? sign : 0;
+            if (state.creditLimit != null) {
+                creditLimit = creditLimit.add(sign > 0 ? state.creditLimit : state.creditLimit.negate());
+            }
+            if (state.balance != null) {
+                balance = balance.add(sign > 0 ? state.balance : state.balance.negate());
+            }
+        }
+
+        // Empty buckets are dropped so the maps read like the old groupingBy result
+        void addCount(Customer.CustomerType type, Customer.CustomerStatus status, long count) {
+            if (type != null && byType.merge(type, count, Long::sum) == 0) {
+                byType.remove(type);
+            }
+            if (status != null && byStatus.merge(status, count, Long::sum) == 0) {
+                byStatus.remove(status);
+            }
+        }
+
+        Totals copy() {
+            Totals copy = new Totals();
+            copy.total = total;
+            copy.byType.putAll(byType);
+            copy.byStatus.putAll(byStatus);
+            copy.loyaltyPoints = loyaltyPoints;
+            copy.verifiedEmails = verifiedEmails;
+            copy.creditLimit = creditLimit;
+            copy.balance = balance;
+            return copy;
+        }
+    }
+}
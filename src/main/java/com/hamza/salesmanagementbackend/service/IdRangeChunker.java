@@ -0,0 +1,81 @@
+package com.hamza.salesmanagementbackend.service;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+/**
+ * Processes an id range on a dedicated fork-join pool in chunks of about chunkSize rows. The range
+ * is split in halves until a half's id span holds roughly chunkSize rows, which assumes ids are
+ * spread evenly enough over the range; each leaf range is handed to a worker and the results are
+ * merged pairwise on the way back up.
+ */
+public class IdRangeChunker {
+
+    /**
+     * Processes the rows with ids in [fromId, toId]
+     */
+    @FunctionalInterface
+    public interface RangeWorker<T> {
+        T process(long fromId, long toId);
+    }
+
+    private final ForkJoinPool pool;
+
+    public IdRangeChunker(int parallelism) {
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+    }
+
+    /**
+     * Runs the worker over the range described by an id bounds query row of minimum id, maximum id
+     * and row count; returns empty when there are no rows
+     */
+    public <T> T invoke(List<Object[]> bounds, int chunkSize, T empty, RangeWorker<T> worker, BinaryOperator<T> merger) {
+        Object[] row = bounds.isEmpty() ? null : bounds.get(0);
+        if (row == null || row[0] == null) {
+            return empty;
+        }
+        long minId = ((Number) row[0]).longValue();
+        long maxId = ((Number) row[1]).longValue();
+        long count = ((Number) row[2]).longValue();
+
+        // Id span that holds roughly chunkSize rows
+        long span = maxId - minId + 1;
+        long chunkSpan = Math.max(1, span * Math.max(1, chunkSize) / Math.max(1, count));
+        return pool.invoke(new ChunkTask<>(minId, maxId, chunkSpan, worker, merger));
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private static class ChunkTask<T> extends RecursiveTask<T> {
+        private final long fromId;
+        private final long toId;
+        private final long chunkSpan;
+        private final RangeWorker<T> worker;
+        private final BinaryOperator<T> merger;
+
+        ChunkTask(long fromId, long toId, long chunkSpan, RangeWorker<T> worker, BinaryOperator<T> merger) {
+            this.fromId = fromId;
+            this.toId = toId;
+            this.chunkSpan = chunkSpan;
+            this.worker = worker;
+            this.merger = merger;
+        }
+
+        @Override
+        protected T compute() {
+            if (toId - fromId + 1 <= chunkSpan) {
+                return worker.process(fromId, toId);
+            }
+            long middle = fromId + (toId - fromId) / 2;
+            ChunkTask<T> left = new ChunkTask<>(fromId, middle, chunkSpan, worker, merger);
+            ChunkTask<T> right = new ChunkTask<>(middle + 1, toId, chunkSpan, worker, merger);
+            left.fork();
+            T rightResult = right.compute();
+            return merger.apply(left.join(), rightResult);
+        }
+    }
+}
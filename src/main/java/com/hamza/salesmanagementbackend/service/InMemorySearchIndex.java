@@ -0,0 +1,241 @@
+package com.hamza.salesmanagementbackend.service;
+
+import com.hamza.salesmanagementbackend.util.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Shared plumbing of the in-memory search indexes: a read-write locked index that is built at
+ * startup, kept current from entity changes after they commit and fully rebuilt periodically.
+ * A rebuild reads the table into a fresh index while searches keep using the current one;
+ * changes committed meanwhile are replayed on top before it is swapped in. Subclasses supply the
+ * index structure, the documents and the scoring.
+ *
+ * @param <K> document id
+ * @param <D> normalised searchable fields of one entity
+ * @param <I> posting lists plus the stored documents
+ */
+@Slf4j
+public abstract class InMemorySearchIndex<K, D, I extends InMemorySearchIndex.Index<K, D>> {
+
+    protected static final int GRAM_SIZE = 3;
+
+    /**
+     * Index structure; only touched under the enclosing lock
+     */
+    protected interface Index<K, D> {
+        void add(D doc);
+
+        /**
+         * Replaces the document with the id, or removes it when doc is null
+         */
+        void replace(K id, D doc);
+
+        int size();
+    }
+
+    private final String entityName;
+    private final TransactionTemplate transactionTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private I index;
+    private volatile boolean ready;
+    private volatile LocalDateTime builtAt;
+
+    // Changes committed while a rebuild is reading the table, replayed on top of the new index
+    private Map<K, D> changesDuringRebuild;
+
+    private final AtomicLong searches = new AtomicLong();
+    private final AtomicLong searchNanos = new AtomicLong();
+    private final AtomicLong incrementalUpdates = new AtomicLong();
+    private final AtomicLong lastBuildMillis = new AtomicLong();
+
+    protected InMemorySearchIndex(String entityName, PlatformTransactionManager transactionManager) {
+        this.entityName = entityName;
+        this.index = newIndex();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    protected abstract I newIndex();
+
+    /**
+     * Streams every indexed entity's document; runs in a read-only transaction
+     */
+    protected abstract void loadDocuments(Consumer<D> sink);
+
+    /**
+     * Index-specific sizes for the statistics
+     */
+    protected abstract void addIndexStatistics(I index, Map<String, Object> stats);
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Full rebuild once the current transaction commits, e.g. after a bulk change
+     */
+    public void rebuildAfterCommit() {
+        TransactionUtils.afterCommit(this::rebuild);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.warn("Could not build {} search index at startup: {}", entityName, e.getMessage());
+        }
+    }
+
+    /**
+     * Periodic rebuild; subclasses schedule it with their own interval
+     */
+    protected void refreshIndex() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.warn("Refreshing the {} search index failed, keeping the previous version: {}", entityName, e.getMessage());
+        }
+    }
+
+    public synchronized void rebuild() {
+        long started = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        I rebuilt = newIndex();
+        try {
+            transactionTemplate.execute(status -> {
+                loadDocuments(rebuilt::add);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changesDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild.forEach(rebuilt::replace);
+            changesDuringRebuild = null;
+            index = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        ready = true;
+        builtAt = LocalDateTime.now();
+        lastBuildMillis.set(System.currentTimeMillis() - started);
+        log.debug("Rebuilt {} search index with {} documents in {} ms", entityName, rebuilt.size(), lastBuildMillis.get());
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            addIndexStatistics(index, stats);
+        } finally {
+            lock.readLock().unlock();
+        }
+        long count = searches.get();
+        stats.put("ready", ready);
+        stats.put("builtAt", builtAt);
+        stats.put("lastBuildMillis", lastBuildMillis.get());
+        stats.put("searches", count);
+        stats.put("averageSearchMicros", count > 0 ? searchNanos.get() / count / 1000.0 : 0.0);
+        stats.put("incrementalUpdates", incrementalUpdates.get());
+        return stats;
+    }
+
+    /**
+     * Runs a lookup against the current index under the read lock
+     */
+    protected <T> T read(Function<I, T> lookup) {
+        lock.readLock().lock();
+        try {
+            return lookup.apply(index);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Records a search that started at the given System.nanoTime(); returns its duration in
+     * microseconds
+     */
+    protected long recordSearch(long startedNanos) {
+        long elapsed = System.nanoTime() - startedNanos;
+        searches.incrementAndGet();
+        searchNanos.addAndGet(elapsed);
+        return elapsed / 1000;
+    }
+
+    /**
+     * Replaces, or with a null document removes, an entry once the current transaction commits
+     */
+    protected void applyAfterCommit(K id, D doc) {
+        TransactionUtils.afterCommit(() -> apply(id, doc));
+    }
+
+    private void apply(K id, D doc) {
+        lock.writeLock().lock();
+        try {
+            index.replace(id, doc);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.put(id, doc);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        incrementalUpdates.incrementAndGet();
+    }
+
+    protected static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    protected static List<String> grams(String token) {
+        List<String> grams = new ArrayList<>();
+        for (int i = 0; i + GRAM_SIZE <= token.length(); i++) {
+            grams.add(token.substring(i, i + GRAM_SIZE));
+        }
+        return grams;
+    }
+}
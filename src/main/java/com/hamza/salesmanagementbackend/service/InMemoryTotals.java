@@ -0,0 +1,233 @@
+package com.hamza.salesmanagementbackend.service;
+
+import com.hamza.salesmanagementbackend.util.DirtySetFlusher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Shared plumbing of the in-memory running totals: every entity's compact state is loaded with
+ * one query at startup and contributes to totals kept by the subclass. Writes mark the entity
+ * dirty after commit; dirty entities are re-read by id in batches and their old contribution
+ * swapped for the new one. A periodic full reload is the safety net for rows written outside the
+ * tracked code paths. Until the first load completes, subclasses answer from an aggregate query.
+ *
+ * @param <S> state one entity contributes to the totals
+ */
+@Slf4j
+public abstract class InMemoryTotals<S> {
+
+    private final String name;
+    private final String entities;
+    private final TransactionTemplate transactionTemplate;
+
+    // Guarded by "this"
+    private final Map<Long, S> states = new HashMap<>();
+    private LocalDateTime lastUpdated;
+
+    private final DirtySetFlusher dirty = new DirtySetFlusher();
+    private volatile boolean ready;
+
+    private final AtomicLong reloadedEntities = new AtomicLong();
+    private final AtomicLong fullLoads = new AtomicLong();
+
+    /**
+     * @param name     what the totals are called in log messages, e.g. "inventory summary"
+     * @param entities plural entity name used for the statistics keys, e.g. "products"
+     */
+    protected InMemoryTotals(String name, String entities, PlatformTransactionManager transactionManager) {
+        this.name = name;
+        this.entities = entities;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * State rows of every entity
+     */
+    protected abstract List<Object[]> findStates();
+
+    /**
+     * State rows of the entities with these ids; deleted ones are simply missing
+     */
+    protected abstract List<Object[]> findStates(List<Long> ids);
+
+    protected abstract S toState(Object[] row);
+
+    protected abstract Long idOf(S state);
+
+    /**
+     * Drops the totals before a full reload; only called while holding the lock
+     */
+    protected abstract void resetTotals();
+
+    /**
+     * Adds (sign 1) or removes (sign -1) one entity's contribution; only called while holding the lock
+     */
+    protected abstract void addToTotals(S state, int sign);
+
+    /**
+     * Sizes specific to the totals for the statistics; only called while holding the lock
+     */
+    protected void addTotalsStatistics(Map<String, Object> stats) {
+    }
+
+    protected boolean isReady() {
+        return ready;
+    }
+
+    protected void markAfterCommit(Long id) {
+        dirty.markAfterCommit(id);
+    }
+
+    protected void markAllAfterCommit(Collection<Long> ids) {
+        dirty.markAllAfterCommit(ids);
+    }
+
+    protected void markAll(Collection<Long> ids) {
+        dirty.markAll(ids);
+    }
+
+    /**
+     * Applies the pending changes, then reads the totals under the lock
+     */
+    protected <T> T readTotals(Supplier<T> read) {
+        flush();
+        synchronized (this) {
+            return read.get();
+        }
+    }
+
+    /**
+     * Runs a query in a read-only transaction of its own
+     */
+    protected <T> T query(Supplier<T> query) {
+        return transactionTemplate.execute(status -> query.get());
+    }
+
+    /**
+     * When the totals were last loaded or updated; only called while holding the lock
+     */
+    protected LocalDateTime lastUpdated() {
+        return lastUpdated;
+    }
+
+    public Map<String, Object> getStatistics() {
+        String capitalized = capitalize(entities);
+        Map<String, Object> stats = new HashMap<>();
+        synchronized (this) {
+            stats.put(entities, states.size());
+            addTotalsStatistics(stats);
+            stats.put("lastUpdated", lastUpdated);
+        }
+        stats.put("ready", ready);
+        stats.put("dirty" + capitalized, dirty.size());
+        stats.put("reloaded" + capitalized, reloadedEntities.get());
+        stats.put("fullLoads", fullLoads.get());
+        return stats;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.warn("Could not load {} at startup: {}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * Periodic full reload; subclasses schedule it with their own interval
+     */
+    protected void resyncTotals() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.warn("{} resync failed, keeping the current totals: {}", capitalize(name), e.getMessage());
+        }
+    }
+
+    /**
+     * Periodic flush of the pending changes; subclasses schedule it with their own interval
+     */
+    protected void flushPending() {
+        if (ready) {
+            try {
+                flush();
+            } catch (Exception e) {
+                log.warn("{} flush failed: {}", capitalize(name), e.getMessage());
+            }
+        }
+    }
+
+    public synchronized void reload() {
+        dirty.clear();
+        List<Object[]> rows = query(this::findStates);
+        states.clear();
+        resetTotals();
+        for (Object[] row : rows) {
+            apply(toState(row), 1);
+        }
+        lastUpdated = LocalDateTime.now();
+        ready = true;
+        fullLoads.incrementAndGet();
+        log.debug("Loaded {} for {} {}", name, rows.size(), entities);
+    }
+
+    private synchronized void flush() {
+        dirty.flush(this::reloadStates);
+    }
+
+    /**
+     * Re-reads entities by id and swaps their contribution
+     */
+    private void reloadStates(List<Long> ids) {
+        List<Object[]> rows = query(() -> findStates(ids));
+
+        Set<Long> missing = new HashSet<>(ids);
+        for (Object[] row : rows) {
+            S state = toState(row);
+            missing.remove(idOf(state));
+            S previous = states.get(idOf(state));
+            if (previous != null) {
+                apply(previous, -1);
+            }
+            apply(state, 1);
+        }
+        for (Long deletedId : missing) {
+            S previous = states.get(deletedId);
+            if (previous != null) {
+                apply(previous, -1);
+            }
+        }
+        reloadedEntities.addAndGet(ids.size());
+        lastUpdated = LocalDateTime.now();
+    }
+
+    private void apply(S state, int sign) {
+        if (sign > 0) {
+            states.put(idOf(state), state);
+        } else {
+            states.remove(idOf(state));
+        }
+        addToTotals(state, sign);
+    }
+
+    private static String capitalize(String text) {
+        return Character.toUpperCase(text.charAt(0)) + text.substring(1);
+    }
+}
@@ -0,0 +1,245 @@
+package com.hamza.salesmanagementbackend.service;
+
+import com.hamza.salesmanagementbackend.dto.InventorySummaryDTO;
+import com.hamza.salesmanagementbackend.repository.ProductRepository;
+import com.hamza.salesmanagementbackend.util.NumberUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Inventory summary kept in memory so the dashboard never aggregates over products. Each product
+ * contributes its compact stock state to overall and per-category totals; stock, price and
+ * catalogue changes mark it dirty after commit.
+ */
+@Service
+public class InventorySummaryService extends InMemoryTotals<InventorySummaryService.StockState> {
+
+    /**
+     * Threshold behind the legacy lowStockCount statistic (stock strictly below it)
+     */
+    public static final int LOW_STOCK_THRESHOLD = 10;
+
+    private final ProductRepository productRepository;
+
+    // Guarded by "this"
+    private final Map<Long, Totals> totalsByCategory = new HashMap<>();
+    private Totals overall = new Totals();
+
+    public InventorySummaryService(ProductRepository productRepository, PlatformTransactionManager transactionManager) {
+        super("inventory summary", "products", transactionManager);
+        this.productRepository = productRepository;
+    }
+
+    /**
+     * Marks a product for re-reading once the current transaction commits
+     */
+    public void productChangedAfterCommit(Long productId) {
+        markAfterCommit(productId);
+    }
+
+    public void productsChanged(Collection<Long> productIds) {
+        markAll(productIds);
+    }
+
+    public InventorySummaryDTO getSummary() {
+        if (!isReady()) {
+            return toDTO(aggregate(null, false));
+        }
+        return toDTO(readTotals(() -> overall.copy(lastUpdated())));
+    }
+
+    /**
+     * Summary for one category; null selects uncategorised products
+     */
+    public InventorySummaryDTO getSummaryByCategory(Long categoryId) {
+        if (!isReady()) {
+            return toDTO(aggregate(categoryId, true));
+        }
+        return toDTO(readTotals(() -> {
+            Totals totals = totalsByCategory.get(categoryId);
+            return totals != null ? totals.copy(lastUpdated()) : new Totals().copy(lastUpdated());
+        }));
+    }
+
+    /**
+     * Legacy inventory statistics (count, value, below-threshold and out-of-stock counts, average price)
+     */
+    public Map<String, Object> getInventoryStatistics() {
+        Totals totals = isReady() ? readTotals(() -> overall.copy(lastUpdated())) : aggregate(null, false);
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalProducts", totals.total);
+        stats.put("totalValue", totals.stockValue);
+        stats.put("lowStockCount", totals.belowThreshold);
+        stats.put("outOfStockCount", totals.outOfStock);
+        stats.put("averagePrice", totals.total > 0
+                ? totals.priceSum.divide(BigDecimal.valueOf(totals.total), 2, RoundingMode.HALF_UP)
+                : BigDecimal.ZERO);
+        return stats;
+    }
+
+    @Scheduled(fixedDelayString = "${app.inventory.summary-resync-interval:3600000}",
+               initialDelayString = "${app.inventory.summary-resync-interval:3600000}")
+    public void resync() {
+        resyncTotals();
+    }
+
+    @Scheduled(fixedDelayString = "${app.inventory.summary-flush-interval:2000}")
+    public void flushScheduled() {
+        flushPending();
+    }
+
+    @Override
+    protected List<Object[]> findStates() {
+        return productRepository.findStockStates();
+    }
+
+    @Override
+    protected List<Object[]> findStates(List<Long> ids) {
+        return productRepository.findStockStatesByIds(ids);
+    }
+
+    @Override
+    protected StockState toState(Object[] row) {
+        return new StockState((Long) row[0], (Long) row[1],
+                row[2] != null ? (Integer) row[2] : 0, (BigDecimal) row[3], (Integer) row[4]);
+    }
+
+    @Override
+    protected Long idOf(StockState state) {
+        return state.productId;
+    }
+
+    @Override
+    protected void resetTotals() {
+        totalsByCategory.clear();
+        overall = new Totals();
+    }
+
+    @Override
+    protected void addToTotals(StockState state, int sign) {
+        overall.add(state, sign);
+        Totals category = totalsByCategory.computeIfAbsent(state.categoryId, id -> new Totals());
+        category.add(state, sign);
+        if (category.total == 0) {
+            totalsByCategory.remove(state.categoryId);
+        }
+    }
+
+    @Override
+    protected void addTotalsStatistics(Map<String, Object> stats) {
+        stats.put("categories", totalsByCategory.size());
+    }
+
+    /**
+     * One conditional-aggregation query, used before the in-memory totals are loaded
+     */
+    private Totals aggregate(Long categoryId, boolean filterCategory) {
+        List<Object[]> rows = query(() -> productRepository.summarizeInventoryByCategory(LOW_STOCK_THRESHOLD));
+        Totals totals = new Totals();
+        for (Object[] row : rows) {
+            Long rowCategoryId = (Long) row[0];
+            if (filterCategory && !Objects.equals(rowCategoryId, categoryId)) {
+                continue;
+            }
+            totals.total += NumberUtils.toLong(row[1]);
+            totals.inStock += NumberUtils.toLong(row[2]);
+            totals.outOfStock += NumberUtils.toLong(row[3]);
+            totals.lowStock += NumberUtils.toLong(row[4]);
+            totals.needingReorder += NumberUtils.toLong(row[5]);
+            totals.stockValue = totals.stockValue.add(NumberUtils.toBigDecimal(row[6]));
+            totals.priceSum = totals.priceSum.add(NumberUtils.toBigDecimal(row[7]));
+            totals.belowThreshold += NumberUtils.toLong(row[8]);
+        }
+        totals.lastUpdated = LocalDateTime.now();
+        return totals;
+    }
+
+    private static InventorySummaryDTO toDTO(Totals totals) {
+        InventorySummaryDTO summary = InventorySummaryDTO.builder()
+                .totalProductsInStock(totals.inStock)
+                .outOfStockProducts(totals.outOfStock)
+                .lowStockAlerts(totals.lowStock)
+                .totalStockValue(totals.stockValue)
+                .totalProducts(totals.total)
+                .productsNeedingReorder(totals.needingReorder)
+                .build();
+        summary.calculateDerivedMetrics();
+        if (totals.lastUpdated != null) {
+            summary.setLastUpdated(totals.lastUpdated);
+        }
+        return summary;
+    }
+
+    static class StockState {
+        private final Long productId;
+        private final Long categoryId;
+        private final int stock;
+        private final BigDecimal price;
+        private final Integer reorderPoint;
+
+        StockState(Long productId, Long categoryId, int stock, BigDecimal price, Integer reorderPoint) {
+            this.productId = productId;
+            this.categoryId = categoryId;
+            this.stock = stock;
+            this.price = price;
+            this.reorderPoint = reorderPoint;
+        }
+    }
+
+    /**
+     * Per-product stock flags and value; same definitions as the aggregate query
+     */
+    private static class Totals {
+        private long total;
+        private long inStock;
+        private long outOfStock;
+        private long lowStock;
+        private long needingReorder;
+        private long belowThreshold;
+        private BigDecimal stockValue = BigDecimal.ZERO;
+        private BigDecimal priceSum = BigDecimal.ZERO;
+        private LocalDateTime lastUpdated;
+
+        void add(StockState state, int sign) {
+            boolean low = state.reorderPoint != null && state.stock <= state.reorderPoint;
+            total += sign;
+            inStock += state.stock > 0 ? sign : 0;
+            outOfStock += state.stock == 0 ? sign : 0;
+            lowStock += low ? sign : 0;
+            needingReorder += low && state.stock > 0 ? sign : 0;
+            belowThreshold += state.stock < LOW_STOCK_THRESHOLD ? sign : 0;
+            if (state.price != null) {
+                priceSum = priceSum.add(sign > 0 ? state.price : state.price.negate());
+                if (state.stock > 0) {
+                    BigDecimal value = state.price.multiply(BigDecimal.valueOf(state.stock));
+                    stockValue = stockValue.add(sign > 0 ? value : value.negate());
+                }
+            }
+        }
+
+        Totals copy(LocalDateTime updated) {
+            Totals copy = new Totals();
+            copy.total = total;
+            copy.inStock = inStock;
+            copy.outOfStock = outOfStock;
+            copy.lowStock = lowStock;
+            copy.needingReorder = needingReorder;
+            copy.belowThreshold = belowThreshold;
+            copy.stockValue = stockValue;
+            copy.priceSum = priceSum;
+            copy.lastUpdated = updated;
+            return copy;
+        }
+    }
+}
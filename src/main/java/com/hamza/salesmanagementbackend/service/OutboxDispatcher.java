@@ -0,0 +1,212 @@
+package com.hamza.salesmanagementbackend.service;
+
+import com.hamza.salesmanagementbackend.entity.OutboxEvent;
+import com.hamza.salesmanagementbackend.repository.CustomerRepository;
+import com.hamza.salesmanagementbackend.repository.OutboxEventRepository;
+import com.hamza.salesmanagementbackend.repository.ProductRepository;
+import com.hamza.salesmanagementbackend.repository.PromotionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Background dispatcher for the sales outbox. Pending events are claimed in batches,
+ * coalesced per product / customer / promotion and applied as one UPDATE per row.
+ */
+@Service
+@Slf4j
+public class OutboxDispatcher {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ProductRepository productRepository;
+    private final CustomerRepository customerRepository;
+    private final PromotionRepository promotionRepository;
+    private final CustomerStatisticsService customerStatisticsService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.outbox.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    @Value("${app.outbox.retention-days:7}")
+    private int retentionDays;
+
+    private final AtomicLong eventsDispatched = new AtomicLong();
+    private final AtomicLong rowUpdates = new AtomicLong();
+    private final AtomicLong failedRuns = new AtomicLong();
+    private volatile LocalDateTime lastRunAt;
+
+    public OutboxDispatcher(OutboxEventRepository outboxEventRepository,
+                            ProductRepository productRepository,
+                            CustomerRepository customerRepository,
+                            PromotionRepository promotionRepository,
+                            CustomerStatisticsService customerStatisticsService,
+                            PlatformTransactionManager transactionManager) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.productRepository = productRepository;
+        this.customerRepository = customerRepository;
+        this.promotionRepository = promotionRepository;
+        this.customerStatisticsService = customerStatisticsService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Drains pending events, one transaction per batch
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.dispatch-interval:2000}")
+    public void dispatchPendingEvents() {
+        lastRunAt = LocalDateTime.now();
+        try {
+            for (int i = 0; i < maxBatchesPerRun; i++) {
+                Integer dispatched = transactionTemplate.execute(status -> dispatchBatch());
+                if (dispatched == null || dispatched < batchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            failedRuns.incrementAndGet();
+            log.error("Outbox dispatch failed, pending events will be retried: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Removes processed events older than the retention period
+     */
+    @Scheduled(cron = "${app.outbox.cleanup-cron:0 30 3 * * *}")
+    public void purgeProcessedEvents() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        Integer deleted = transactionTemplate.execute(status -> outboxEventRepository.deleteProcessedBefore(cutoff));
+        log.info("Purged {} processed outbox events older than {}", deleted, cutoff);
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("pendingEvents", outboxEventRepository.countPending());
+        stats.put("eventsDispatched", eventsDispatched.get());
+        stats.put("rowUpdates", rowUpdates.get());
+        stats.put("failedRuns", failedRuns.get());
+        stats.put("lastRunAt", lastRunAt);
+        return stats;
+    }
+
+    private int dispatchBatch() {
+        List<OutboxEvent> events = outboxEventRepository.findPendingForUpdate(PageRequest.of(0, batchSize));
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        // Coalesce per target row; TreeMaps keep a stable update order across dispatchers
+        Map<Long, ProductDelta> productDeltas = new TreeMap<>();
+        Map<Long, CustomerDelta> customerDeltas = new TreeMap<>();
+        Map<Long, Integer> promotionDeltas = new TreeMap<>();
+
+        for (OutboxEvent event : events) {
+            Long id = event.getAggregateId();
+            int quantity = event.getQuantityDelta() != null ? event.getQuantityDelta() : 0;
+            BigDecimal amount = event.getAmountDelta() != null ? event.getAmountDelta() : BigDecimal.ZERO;
+
+            switch (event.getEventType()) {
+                case PRODUCT_SALES:
+                    productDeltas.computeIfAbsent(id, key -> new ProductDelta())
+                            .add(quantity, amount, event.getOccurredAt());
+                    break;
+                case CUSTOMER_PURCHASE:
+                    customerDeltas.computeIfAbsent(id, key -> new CustomerDelta())
+                            .addPurchase(amount, event.getOccurredAt());
+                    break;
+                case LOYALTY_POINTS:
+                    customerDeltas.computeIfAbsent(id, key -> new CustomerDelta()).points += quantity;
+                    break;
+                case PROMOTION_USAGE:
+                    promotionDeltas.merge(id, quantity, Integer::sum);
+                    break;
+                default:
+                    log.warn("Skipping outbox event {} with unknown type {}", event.getId(), event.getEventType());
+            }
+        }
+
+        int updates = 0;
+        List<Long> pointsChanged = new ArrayList<>();
+        for (Map.Entry<Long, ProductDelta> entry : productDeltas.entrySet()) {
+            ProductDelta delta = entry.getValue();
+            if (delta.quantity != 0 || delta.revenue.signum() != 0) {
+                updates += productRepository.applySalesDelta(entry.getKey(), delta.quantity, delta.revenue);
+            }
+            if (delta.lastSoldAt != null) {
+                updates += productRepository.advanceLastSoldDate(entry.getKey(), delta.lastSoldAt);
+            }
+        }
+        for (Map.Entry<Long, CustomerDelta> entry : customerDeltas.entrySet()) {
+            CustomerDelta delta = entry.getValue();
+            if (delta.amount.signum() != 0) {
+                updates += customerRepository.applyPurchaseDelta(entry.getKey(), delta.amount);
+            }
+            if (delta.lastPurchaseAt != null) {
+                updates += customerRepository.advanceLastPurchaseDate(entry.getKey(), delta.lastPurchaseAt);
+            }
+            if (delta.points != 0) {
+                updates += customerRepository.addLoyaltyPoints(entry.getKey(), delta.points);
+                pointsChanged.add(entry.getKey());
+            }
+        }
+        if (!pointsChanged.isEmpty()) {
+            customerStatisticsService.customersChangedAfterCommit(pointsChanged);
+        }
+        for (Map.Entry<Long, Integer> entry : promotionDeltas.entrySet()) {
+            if (entry.getValue() != 0) {
+                updates += promotionRepository.applyUsageDelta(entry.getKey(), entry.getValue());
+            }
+        }
+
+        List<Long> ids = events.stream().map(OutboxEvent::getId).collect(Collectors.toList());
+        outboxEventRepository.markProcessed(ids, LocalDateTime.now());
+
+        eventsDispatched.addAndGet(events.size());
+        rowUpdates.addAndGet(updates);
+        log.debug("Dispatched {} outbox events with {} row updates", events.size(), updates);
+        return events.size();
+    }
+
+    private static class ProductDelta {
+        private int quantity;
+        private BigDecimal revenue = BigDecimal.ZERO;
+        private LocalDateTime lastSoldAt;
+
+        void add(int quantity, BigDecimal revenue, LocalDateTime occurredAt) {
+            this.quantity += quantity;
+            this.revenue = this.revenue.add(revenue);
+            if (quantity > 0 && occurredAt != null && (lastSoldAt == null || occurredAt.isAfter(lastSoldAt))) {
+                lastSoldAt = occurredAt;
+            }
+        }
+    }
+
+    private static class CustomerDelta {
+        private BigDecimal amount = BigDecimal.ZERO;
+        private int points;
+        private LocalDateTime lastPurchaseAt;
+
+        void addPurchase(BigDecimal amount, LocalDateTime occurredAt) {
+            this.amount = this.amount.add(amount);
+            if (amount.signum() > 0 && occurredAt != null && (lastPurchaseAt == null || occurredAt.isAfter(lastPurchaseAt))) {
+                lastPurchaseAt = occurredAt;
+            }
+        }
+    }
+}
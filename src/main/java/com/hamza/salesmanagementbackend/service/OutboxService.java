@@ -0,0 +1,125 @@
+package com.hamza.salesmanagementbackend.service;
+
+import com.hamza.salesmanagementbackend.entity.OutboxEvent;
+import com.hamza.salesmanagementbackend.entity.Return;
+import com.hamza.salesmanagementbackend.entity.ReturnItem;
+import com.hamza.salesmanagementbackend.entity.Sale;
+import com.hamza.salesmanagementbackend.entity.SaleItem;
+import com.hamza.salesmanagementbackend.repository.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Appends post-sale side effects to the outbox inside the caller's transaction.
+ * Counters are applied later by {@link OutboxDispatcher}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional(propagation = Propagation.MANDATORY)
+public class OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    /**
+     * Records product sales, customer purchase totals and loyalty points for a completed sale
+     */
+    public void recordSaleCompleted(Sale sale) {
+        LocalDateTime occurredAt = sale.getSaleDate() != null ? sale.getSaleDate() : LocalDateTime.now();
+        List<OutboxEvent> events = new ArrayList<>();
+
+        if (sale.getItems() != null) {
+            for (SaleItem item : sale.getItems()) {
+                events.add(event(OutboxEvent.EventType.PRODUCT_SALES, item.getProduct().getId(),
+                        item.getQuantity(), item.getSubtotal(), occurredAt));
+            }
+        }
+
+        if (sale.getCustomer() != null) {
+            Long customerId = sale.getCustomer().getId();
+            events.add(event(OutboxEvent.EventType.CUSTOMER_PURCHASE, customerId,
+                    0, sale.getTotalAmount(), occurredAt));
+
+            Integer points = sale.getLoyaltyPointsEarned();
+            if (points != null && points > 0) {
+                events.add(event(OutboxEvent.EventType.LOYALTY_POINTS, customerId, points, BigDecimal.ZERO, occurredAt));
+            }
+        }
+
+        outboxEventRepository.saveAll(events);
+        log.debug("Recorded {} outbox events for sale {}", events.size(), sale.getId());
+    }
+
+    /**
+     * Reverses product sales and customer purchase totals for a returned sale item
+     */
+    public void recordSaleItemReturned(SaleItem item, int returnQuantity) {
+        BigDecimal refund = BigDecimal.ZERO;
+        if (item.getSubtotal() != null && item.getQuantity() != null && item.getQuantity() > 0) {
+            refund = item.getSubtotal()
+                    .multiply(BigDecimal.valueOf(returnQuantity))
+                    .divide(BigDecimal.valueOf(item.getQuantity()), 2, RoundingMode.HALF_UP);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> events = new ArrayList<>();
+        events.add(event(OutboxEvent.EventType.PRODUCT_SALES, item.getProduct().getId(),
+                -returnQuantity, refund.negate(), now));
+        if (item.getSale() != null && item.getSale().getCustomer() != null) {
+            events.add(event(OutboxEvent.EventType.CUSTOMER_PURCHASE, item.getSale().getCustomer().getId(),
+                    0, refund.negate(), now));
+        }
+        outboxEventRepository.saveAll(events);
+    }
+
+    /**
+     * Reverses product sales and customer purchase totals for a refunded return
+     */
+    public void recordReturnRefunded(Return returnEntity) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> events = new ArrayList<>();
+
+        if (returnEntity.getItems() != null) {
+            for (ReturnItem item : returnEntity.getItems()) {
+                BigDecimal refund = item.getRefundAmount() != null ? item.getRefundAmount() : BigDecimal.ZERO;
+                events.add(event(OutboxEvent.EventType.PRODUCT_SALES, item.getProduct().getId(),
+                        -item.getReturnQuantity(), refund.negate(), now));
+            }
+        }
+
+        if (returnEntity.getCustomer() != null && returnEntity.getTotalRefundAmount() != null) {
+            events.add(event(OutboxEvent.EventType.CUSTOMER_PURCHASE, returnEntity.getCustomer().getId(),
+                    0, returnEntity.getTotalRefundAmount().negate(), now));
+        }
+
+        outboxEventRepository.saveAll(events);
+    }
+
+    /**
+     * Records a change in a promotion's usage count (+1 applied, -1 removed)
+     */
+    public void recordPromotionUsage(Long promotionId, int delta) {
+        outboxEventRepository.save(event(OutboxEvent.EventType.PROMOTION_USAGE, promotionId,
+                delta, BigDecimal.ZERO, LocalDateTime.now()));
+    }
+
+    private OutboxEvent event(OutboxEvent.EventType type, Long aggregateId, Integer quantity,
+                              BigDecimal amount, LocalDateTime occurredAt) {
+        return OutboxEvent.builder()
+                .eventType(type)
+                .aggregateId(aggregateId)
+                .quantityDelta(quantity != null ? quantity : 0)
+                .amountDelta(amount != null ? amount : BigDecimal.ZERO)
+                .occurredAt(occurredAt)
+                .build();
+    }
+}
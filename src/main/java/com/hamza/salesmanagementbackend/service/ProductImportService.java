@@ -0,0 +1,761 @@
+package com.hamza.salesmanagementbackend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hamza.salesmanagementbackend.dto.ProductImportStatusDTO;
+import com.hamza.salesmanagementbackend.entity.Product;
+import com.hamza.salesmanagementbackend.exception.BusinessLogicException;
+import com.hamza.salesmanagementbackend.repository.CategoryRepository;
+import com.hamza.salesmanagementbackend.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulk product import keyed by SKU. The upload is streamed to a temporary file and parsed row
+ * by row in the background; SKUs, barcodes and categories are validated against sets preloaded
+ * once per import, and rows are inserted or updated with JDBC batches, one transaction per
+ * chunk. A chunk that fails in the database is retried row by row so only the offending rows
+ * are reported. Progress is kept in memory and polled by import id.
+ */
+@Service
+@Slf4j
+public class ProductImportService {
+
+    public enum ImportFormat {
+        CSV, JSONL;
+
+        /**
+         * Resolves an explicit format name, falling back to the content type or file name
+         */
+        public static ImportFormat resolve(String format, String contentTypeOrFileName) {
+            String hint = format != null && !format.trim().isEmpty() ? format : contentTypeOrFileName;
+            if (hint == null) {
+                return null;
+            }
+            hint = hint.toLowerCase(Locale.ROOT);
+            if (hint.contains("csv")) {
+                return CSV;
+            }
+            if (hint.contains("jsonl") || hint.contains("ndjson") || hint.contains("json-lines")) {
+                return JSONL;
+            }
+            return null;
+        }
+    }
+
+    private static final String INSERT_SQL = "INSERT INTO products (name, description, price, stock_quantity, " +
+            "category_id, sku, cost_price, brand, model_number, barcode, product_status, min_stock_level, " +
+            "max_stock_level, reorder_point, reorder_quantity, supplier_name, supplier_code, is_serialized, " +
+            "is_digital, is_taxable, tax_rate, unit_of_measure, discount_percentage, total_sold, total_revenue, " +
+            "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int[] INSERT_TYPES = {Types.VARCHAR, Types.VARCHAR, Types.DECIMAL, Types.INTEGER,
+            Types.BIGINT, Types.VARCHAR, Types.DECIMAL, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+            Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.VARCHAR, Types.VARCHAR,
+            Types.BOOLEAN, Types.BOOLEAN, Types.BOOLEAN, Types.DECIMAL, Types.VARCHAR, Types.DECIMAL,
+            Types.INTEGER, Types.DECIMAL, Types.TIMESTAMP, Types.TIMESTAMP};
+
+    // Columns missing from the row keep their current value
+    private static final String UPDATE_SQL = "UPDATE products SET name = COALESCE(?, name), " +
+            "description = COALESCE(?, description), price = COALESCE(?, price), " +
+            "stock_quantity = COALESCE(?, stock_quantity), category_id = COALESCE(?, category_id), " +
+            "cost_price = COALESCE(?, cost_price), brand = COALESCE(?, brand), " +
+            "model_number = COALESCE(?, model_number), barcode = COALESCE(?, barcode), " +
+            "product_status = COALESCE(?, product_status), min_stock_level = COALESCE(?, min_stock_level), " +
+            "max_stock_level = COALESCE(?, max_stock_level), reorder_point = COALESCE(?, reorder_point), " +
+            "reorder_quantity = COALESCE(?, reorder_quantity), supplier_name = COALESCE(?, supplier_name), " +
+            "supplier_code = COALESCE(?, supplier_code), tax_rate = COALESCE(?, tax_rate), " +
+            "unit_of_measure = COALESCE(?, unit_of_measure), updated_at = ? WHERE id = ?";
+
+    private static final int[] UPDATE_TYPES = {Types.VARCHAR, Types.VARCHAR, Types.DECIMAL, Types.INTEGER,
+            Types.BIGINT, Types.DECIMAL, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+            Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.VARCHAR, Types.VARCHAR,
+            Types.DECIMAL, Types.VARCHAR, Types.TIMESTAMP, Types.BIGINT};
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final ShardedStockService shardedStockService;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductScanCache productScanCache;
+    private final InventorySummaryService inventorySummaryService;
+    private final StockAlertService stockAlertService;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolTaskExecutor executor;
+
+    @Value("${app.products.import-batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.products.import-max-errors:1000}")
+    private int maxErrors;
+
+    @Value("${app.products.import-retention-minutes:60}")
+    private long retentionMinutes;
+
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    private final AtomicLong importsStarted = new AtomicLong();
+    private final AtomicLong rowsInserted = new AtomicLong();
+    private final AtomicLong rowsUpdated = new AtomicLong();
+    private final AtomicLong rowsFailed = new AtomicLong();
+
+    public ProductImportService(ProductRepository productRepository,
+                                CategoryRepository categoryRepository,
+                                ShardedStockService shardedStockService,
+                                ProductSearchIndex productSearchIndex,
+                                ProductScanCache productScanCache,
+                                InventorySummaryService inventorySummaryService,
+                                StockAlertService stockAlertService,
+                                JdbcTemplate jdbcTemplate,
+                                ObjectMapper objectMapper,
+                                PlatformTransactionManager transactionManager,
+                                @Qualifier("productImportExecutor") ThreadPoolTaskExecutor executor) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.shardedStockService = shardedStockService;
+        this.productSearchIndex = productSearchIndex;
+        this.productScanCache = productScanCache;
+        this.inventorySummaryService = inventorySummaryService;
+        this.stockAlertService = stockAlertService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.executor = executor;
+    }
+
+    /**
+     * Spools the upload to a temporary file and queues it; returns the handle to poll
+     */
+    public ProductImportStatusDTO startImport(InputStream body, ImportFormat format) throws IOException {
+        purgeFinishedJobs();
+        Path file = Files.createTempFile("product-import-", format == ImportFormat.CSV ? ".csv" : ".jsonl");
+        long bytes;
+        try {
+            bytes = Files.copy(body, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            deleteQuietly(file);
+            throw e;
+        }
+
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), format, bytes);
+        jobs.put(job.id, job);
+        try {
+            executor.execute(() -> run(job, file));
+        } catch (TaskRejectedException e) {
+            jobs.remove(job.id);
+            deleteQuietly(file);
+            throw new BusinessLogicException("Too many product imports in progress, try again later");
+        }
+        importsStarted.incrementAndGet();
+        log.info("Queued product import {} ({} bytes, {})", job.id, bytes, format);
+        return toDTO(job);
+    }
+
+    public Optional<ProductImportStatusDTO> getStatus(String importId) {
+        ImportJob job = jobs.get(importId);
+        return job != null ? Optional.of(toDTO(job)) : Optional.empty();
+    }
+
+    public Map<String, Object> getStatistics() {
+        long running = jobs.values().stream().filter(job -> "RUNNING".equals(job.status)).count();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("trackedImports", jobs.size());
+        stats.put("runningImports", running);
+        stats.put("importsStarted", importsStarted.get());
+        stats.put("rowsInserted", rowsInserted.get());
+        stats.put("rowsUpdated", rowsUpdated.get());
+        stats.put("rowsFailed", rowsFailed.get());
+        stats.put("batchSize", batchSize);
+        return stats;
+    }
+
+    private void run(ImportJob job, Path file) {
+        job.status = "RUNNING";
+        job.startedAt = LocalDateTime.now();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            ImportContext context = loadContext();
+            RowSource source = job.format == ImportFormat.CSV ? new CsvRowSource(reader) : new JsonLinesRowSource(reader);
+            List<ImportRow> chunk = new ArrayList<>(batchSize);
+            Set<String> chunkSkus = new HashSet<>();
+
+            RawRow raw;
+            while ((raw = source.next()) != null) {
+                job.rowsRead.incrementAndGet();
+                String sku = raw.fields != null ? raw.fields.get("sku") : null;
+                if (raw.error != null) {
+                    rowFailed(job, raw.number, sku, raw.error);
+                    continue;
+                }
+                // A SKU repeated within a chunk must see the earlier row committed
+                if (sku != null && chunkSkus.contains(sku.trim())) {
+                    flush(job, chunk, context);
+                    chunkSkus.clear();
+                }
+                try {
+                    ImportRow row = prepare(raw, context);
+                    chunk.add(row);
+                    chunkSkus.add(row.sku);
+                } catch (BusinessLogicException e) {
+                    rowFailed(job, raw.number, sku, e.getMessage());
+                }
+                if (chunk.size() >= batchSize) {
+                    flush(job, chunk, context);
+                    chunkSkus.clear();
+                }
+            }
+            flush(job, chunk, context);
+            job.status = "COMPLETED";
+            log.info("Product import {} completed: {} rows, {} inserted, {} updated, {} failed", job.id,
+                    job.rowsRead.get(), job.inserted.get(), job.updated.get(), job.failed.get());
+        } catch (Exception e) {
+            job.status = "FAILED";
+            job.message = e.getMessage();
+            log.error("Product import {} failed after {} rows: {}", job.id, job.rowsRead.get(), e.getMessage(), e);
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+            deleteQuietly(file);
+            if (job.inserted.get() > 0 || job.updated.get() > 0) {
+                productSearchIndex.rebuildAfterCommit();
+            }
+        }
+    }
+
+    private ImportContext loadContext() {
+        ImportContext context = new ImportContext();
+        for (Object[] row : productRepository.findImportKeys()) {
+            Long id = (Long) row[0];
+            String sku = (String) row[1];
+            String barcode = (String) row[2];
+            Integer shardCount = (Integer) row[3];
+            if (sku != null) {
+                context.idsBySku.put(sku, id);
+            }
+            if (barcode != null) {
+                context.barcodeOwners.put(barcode, sku != null ? sku : "");
+            }
+            if (shardCount != null && shardCount > 1) {
+                context.shardedIds.add(id);
+            }
+        }
+        for (Object[] row : categoryRepository.findIdsAndNames()) {
+            Long id = (Long) row[0];
+            context.categoryIds.add(id);
+            context.categoryIdsByName.put(((String) row[1]).toLowerCase(Locale.ROOT), id);
+        }
+        return context;
+    }
+
+    /**
+     * Parses and validates a row against the preloaded sets; throws BusinessLogicException on a bad row
+     */
+    private ImportRow prepare(RawRow raw, ImportContext context) {
+        Map<String, String> fields = raw.fields;
+        ImportRow row = new ImportRow();
+        row.number = raw.number;
+        row.sku = text(fields, "sku");
+        if (row.sku == null) {
+            throw new BusinessLogicException("SKU is required");
+        }
+        row.id = context.idsBySku.get(row.sku);
+        row.name = text(fields, "name");
+        row.description = text(fields, "description");
+        row.price = decimal(fields, "price");
+        row.costPrice = decimal(fields, "costprice");
+        row.stockQuantity = integer(fields, "stockquantity", "stock", "quantity");
+        row.brand = text(fields, "brand");
+        row.modelNumber = text(fields, "modelnumber");
+        row.barcode = text(fields, "barcode");
+        row.minStockLevel = integer(fields, "minstocklevel");
+        row.maxStockLevel = integer(fields, "maxstocklevel");
+        row.reorderPoint = integer(fields, "reorderpoint");
+        row.reorderQuantity = integer(fields, "reorderquantity");
+        row.supplierName = text(fields, "suppliername");
+        row.supplierCode = text(fields, "suppliercode");
+        row.taxRate = decimal(fields, "taxrate");
+        row.unitOfMeasure = text(fields, "unitofmeasure");
+
+        String status = text(fields, "productstatus", "status");
+        if (status != null) {
+            try {
+                row.productStatus = Product.ProductStatus.valueOf(status.toUpperCase(Locale.ROOT)).name();
+            } catch (IllegalArgumentException e) {
+                throw new BusinessLogicException("Invalid product status: " + status);
+            }
+        }
+
+        Long categoryId = longValue(fields, "categoryid");
+        String categoryName = text(fields, "category", "categoryname");
+        if (categoryId != null) {
+            if (!context.categoryIds.contains(categoryId)) {
+                throw new BusinessLogicException("Category not found with id: " + categoryId);
+            }
+            row.categoryId = categoryId;
+        } else if (categoryName != null) {
+            row.categoryId = context.categoryIdsByName.get(categoryName.toLowerCase(Locale.ROOT));
+            if (row.categoryId == null) {
+                throw new BusinessLogicException("Category not found with name: " + categoryName);
+            }
+        }
+
+        if (row.id == null) {
+            if (row.name == null) {
+                throw new BusinessLogicException("Product name is required");
+            }
+            if (row.price == null) {
+                throw new BusinessLogicException("Price is required");
+            }
+        }
+        if (row.price != null && row.price.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new BusinessLogicException("Product price must be greater than zero");
+        }
+        if (row.stockQuantity != null && row.stockQuantity < 0) {
+            throw new BusinessLogicException("Stock quantity cannot be negative");
+        }
+        if (row.costPrice != null && row.costPrice.compareTo(BigDecimal.ZERO) < 0) {
+            throw new BusinessLogicException("Cost price cannot be negative");
+        }
+        if (row.minStockLevel != null && row.minStockLevel < 0) {
+            throw new BusinessLogicException("Minimum stock level cannot be negative");
+        }
+        if (row.reorderPoint != null && row.reorderPoint < 0) {
+            throw new BusinessLogicException("Reorder point cannot be negative");
+        }
+        if (row.barcode != null) {
+            String owner = context.barcodeOwners.get(row.barcode);
+            if (owner != null && !owner.equals(row.sku)) {
+                throw new BusinessLogicException("Barcode already exists: " + row.barcode);
+            }
+            context.barcodeOwners.put(row.barcode, row.sku);
+        }
+        row.sharded = row.id != null && context.shardedIds.contains(row.id);
+        return row;
+    }
+
+    private void flush(ImportJob job, List<ImportRow> chunk, ImportContext context) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(chunk));
+            committed(job, chunk, context);
+        } catch (Exception e) {
+            log.debug("Product import {} chunk failed, retrying row by row: {}", job.id, e.getMessage());
+            for (ImportRow row : chunk) {
+                List<ImportRow> single = Collections.singletonList(row);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> write(single));
+                    committed(job, single, context);
+                } catch (Exception rowFailure) {
+                    rowFailed(job, row.number, row.sku, databaseMessage(rowFailure));
+                }
+            }
+        }
+        chunk.clear();
+    }
+
+    private void write(List<ImportRow> rows) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        for (ImportRow row : rows) {
+            if (row.id == null) {
+                inserts.add(new Object[]{row.name, row.description, row.price,
+                        orDefault(row.stockQuantity, 0), row.categoryId, row.sku,
+                        orDefault(row.costPrice, BigDecimal.ZERO), row.brand, row.modelNumber, row.barcode,
+                        orDefault(row.productStatus, Product.ProductStatus.ACTIVE.name()),
+                        orDefault(row.minStockLevel, 5), orDefault(row.maxStockLevel, 1000),
+                        orDefault(row.reorderPoint, 10), orDefault(row.reorderQuantity, 50),
+                        row.supplierName, row.supplierCode, false, false, true,
+                        orDefault(row.taxRate, BigDecimal.ZERO), orDefault(row.unitOfMeasure, "PCS"),
+                        BigDecimal.ZERO, 0, BigDecimal.ZERO, now, now});
+            } else {
+                updates.add(new Object[]{row.name, row.description, row.price, row.stockQuantity,
+                        row.categoryId, row.costPrice, row.brand, row.modelNumber, row.barcode, row.productStatus,
+                        row.minStockLevel, row.maxStockLevel, row.reorderPoint, row.reorderQuantity,
+                        row.supplierName, row.supplierCode, row.taxRate, row.unitOfMeasure, now, row.id});
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, inserts, INSERT_TYPES);
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, updates, UPDATE_TYPES);
+        }
+        for (ImportRow row : rows) {
+            if (row.sharded && row.stockQuantity != null) {
+                shardedStockService.redistribute(row.id, row.stockQuantity);
+            }
+        }
+    }
+
+    /**
+     * Records committed rows and pushes them to the in-memory product views
+     */
+    private void committed(ImportJob job, List<ImportRow> rows, ImportContext context) {
+        List<String> insertedSkus = new ArrayList<>();
+        List<Long> changedIds = new ArrayList<>();
+        for (ImportRow row : rows) {
+            if (row.id == null) {
+                insertedSkus.add(row.sku);
+            } else {
+                changedIds.add(row.id);
+                productScanCache.evict(row.id);
+            }
+        }
+        if (!insertedSkus.isEmpty()) {
+            for (Object[] inserted : productRepository.findIdsBySkus(insertedSkus)) {
+                context.idsBySku.put((String) inserted[1], (Long) inserted[0]);
+                changedIds.add((Long) inserted[0]);
+            }
+        }
+        inventorySummaryService.productsChanged(changedIds);
+        stockAlertService.stockChanged(changedIds);
+
+        job.inserted.addAndGet(insertedSkus.size());
+        job.updated.addAndGet(rows.size() - insertedSkus.size());
+        rowsInserted.addAndGet(insertedSkus.size());
+        rowsUpdated.addAndGet(rows.size() - insertedSkus.size());
+    }
+
+    /**
+     * Root cause message without the echoed SQL statement some drivers append
+     */
+    private static String databaseMessage(Exception e) {
+        String message = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+        if (message == null) {
+            return e.getClass().getSimpleName();
+        }
+        int statement = message.indexOf("; SQL statement");
+        return statement > 0 ? message.substring(0, statement) : message;
+    }
+
+    private void rowFailed(ImportJob job, long rowNumber, String sku, String message) {
+        job.failed.incrementAndGet();
+        rowsFailed.incrementAndGet();
+        synchronized (job.errors) {
+            if (job.errors.size() < maxErrors) {
+                job.errors.add(new ProductImportStatusDTO.RowError(rowNumber, sku, message));
+            } else {
+                job.errorsTruncated = true;
+            }
+        }
+    }
+
+    private void purgeFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(retentionMinutes);
+        Iterator<ImportJob> iterator = jobs.values().iterator();
+        while (iterator.hasNext()) {
+            LocalDateTime finishedAt = iterator.next().finishedAt;
+            if (finishedAt != null && finishedAt.isBefore(cutoff)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private ProductImportStatusDTO toDTO(ImportJob job) {
+        List<ProductImportStatusDTO.RowError> errors;
+        synchronized (job.errors) {
+            errors = new ArrayList<>(job.errors);
+        }
+        return ProductImportStatusDTO.builder()
+                .importId(job.id)
+                .format(job.format.name())
+                .status(job.status)
+                .bytesReceived(job.bytes)
+                .rowsRead(job.rowsRead.get())
+                .inserted(job.inserted.get())
+                .updated(job.updated.get())
+                .failed(job.failed.get())
+                .errorsTruncated(job.errorsTruncated)
+                .errors(errors)
+                .message(job.message)
+                .submittedAt(job.submittedAt)
+                .startedAt(job.startedAt)
+                .finishedAt(job.finishedAt)
+                .build();
+    }
+
+    private static String text(Map<String, String> fields, String... keys) {
+        for (String key : keys) {
+            String value = fields.get(key);
+            if (value != null && !value.trim().isEmpty()) {
+                return value.trim();
+            }
+        }
+        return null;
+    }
+
+    private static BigDecimal decimal(Map<String, String> fields, String key) {
+        String value = text(fields, key);
+        try {
+            return value != null ? new BigDecimal(value) : null;
+        } catch (NumberFormatException e) {
+            throw new BusinessLogicException("Invalid " + key + ": " + value);
+        }
+    }
+
+    private static Integer integer(Map<String, String> fields, String... keys) {
+        String value = text(fields, keys);
+        try {
+            return value != null ? Integer.valueOf(value) : null;
+        } catch (NumberFormatException e) {
+            throw new BusinessLogicException("Invalid " + keys[0] + ": " + value);
+        }
+    }
+
+    private static Long longValue(Map<String, String> fields, String key) {
+        String value = text(fields, key);
+        try {
+            return value != null ? Long.valueOf(value) : null;
+        } catch (NumberFormatException e) {
+            throw new BusinessLogicException("Invalid " + key + ": " + value);
+        }
+    }
+
+    private static <T> T orDefault(T value, T defaultValue) {
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * Lower-cases a column or property name and drops separators, so "Stock Quantity",
+     * "stock_quantity" and "stockQuantity" all match
+     */
+    private static String normalizeKey(String key) {
+        return key.replace("\uFEFF", "").replaceAll("[\\s_\\-]", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete import file {}: {}", file, e.getMessage());
+        }
+    }
+
+    private interface RowSource {
+        RawRow next() throws IOException;
+    }
+
+    /**
+     * RFC 4180 reader: header row required, quoted fields may contain commas, quotes and newlines
+     */
+    private static class CsvRowSource implements RowSource {
+        private final BufferedReader reader;
+        private final List<String> header = new ArrayList<>();
+        private long row = 1;
+
+        CsvRowSource(BufferedReader reader) throws IOException {
+            this.reader = reader;
+            List<String> columns = readRecord();
+            if (columns == null) {
+                throw new BusinessLogicException("CSV import has no header row");
+            }
+            for (String column : columns) {
+                header.add(normalizeKey(column));
+            }
+        }
+
+        @Override
+        public RawRow next() throws IOException {
+            List<String> values;
+            do {
+                values = readRecord();
+                if (values == null) {
+                    return null;
+                }
+                row++;
+            } while (values.size() == 1 && values.get(0).trim().isEmpty());
+
+            Map<String, String> fields = new HashMap<>();
+            for (int i = 0; i < header.size() && i < values.size(); i++) {
+                fields.put(header.get(i), values.get(i));
+            }
+            return new RawRow(row, fields, values.size() > header.size() ? "Row has more columns than the header" : null);
+        }
+
+        private List<String> readRecord() throws IOException {
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+            List<String> values = new ArrayList<>();
+            StringBuilder value = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new BusinessLogicException("Unterminated quoted field in CSV row " + (row + 1));
+                    }
+                    if (c == '"') {
+                        c = reader.read();
+                        if (c != '"') {
+                            quoted = false;
+                            continue;
+                        }
+                    }
+                    value.append((char) c);
+                } else if (c == -1 || c == '\n') {
+                    break;
+                } else if (c == ',') {
+                    values.add(value.toString());
+                    value.setLength(0);
+                } else if (c == '"' && value.length() == 0) {
+                    quoted = true;
+                } else if (c != '\r') {
+                    value.append((char) c);
+                }
+                c = reader.read();
+            }
+            values.add(value.toString());
+            return values;
+        }
+    }
+
+    /**
+     * One JSON object per line; a malformed line is reported as a row error
+     */
+    private class JsonLinesRowSource implements RowSource {
+        private final BufferedReader reader;
+        private long line;
+
+        JsonLinesRowSource(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public RawRow next() throws IOException {
+            String text;
+            do {
+                text = reader.readLine();
+                if (text == null) {
+                    return null;
+                }
+                line++;
+            } while (text.trim().isEmpty());
+
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(text);
+            } catch (JsonProcessingException e) {
+                return new RawRow(line, null, "Invalid JSON: " + e.getOriginalMessage());
+            }
+            if (!node.isObject()) {
+                return new RawRow(line, null, "Expected a JSON object");
+            }
+            Map<String, String> fields = new HashMap<>();
+            node.fields().forEachRemaining(field -> {
+                JsonNode value = field.getValue();
+                if (value.isValueNode() && !value.isNull()) {
+                    fields.put(normalizeKey(field.getKey()), value.asText());
+                }
+            });
+            return new RawRow(line, fields, null);
+        }
+    }
+
+    private static class RawRow {
+        private final long number;
+        private final Map<String, String> fields;
+        private final String error;
+
+        RawRow(long number, Map<String, String> fields, String error) {
+            this.number = number;
+            this.fields = fields;
+            this.error = error;
+        }
+    }
+
+    private static class ImportRow {
+        private long number;
+        private Long id;
+        private String sku;
+        private String name;
+        private String description;
+        private BigDecimal price;
+        private BigDecimal costPrice;
+        private Integer stockQuantity;
+        private Long categoryId;
+        private String brand;
+        private String modelNumber;
+        private String barcode;
+        private String productStatus;
+        private Integer minStockLevel;
+        private Integer maxStockLevel;
+        private Integer reorderPoint;
+        private Integer reorderQuantity;
+        private String supplierName;
+        private String supplierCode;
+        private BigDecimal taxRate;
+        private String unitOfMeasure;
+        private boolean sharded;
+    }
+
+    /**
+     * Sets preloaded once per import and kept current as chunks commit
+     */
+    private static class ImportContext {
+        private final Map<String, Long> idsBySku = new HashMap<>();
+        private final Map<String, String> barcodeOwners = new HashMap<>();
+        private final Set<Long> shardedIds = new HashSet<>();
+        private final Set<Long> categoryIds = new HashSet<>();
+        private final Map<String, Long> categoryIdsByName = new HashMap<>();
+    }
+
+    private static class ImportJob {
+        private final String id;
+        private final ImportFormat format;
+        private final long bytes;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+        private final AtomicLong rowsRead = new AtomicLong();
+        private final AtomicLong inserted = new AtomicLong();
+        private final AtomicLong updated = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final List<ProductImportStatusDTO.RowError> errors = new ArrayList<>();
+        private volatile boolean errorsTruncated;
+        private volatile String status = "QUEUED";
+        private volatile String message;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+
+        ImportJob(String id, ImportFormat format, long bytes) {
+            this.id = id;
+            this.format = format;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.hamza.salesmanagementbackend.service;
+
+import com.hamza.salesmanagementbackend.dto.ProductScanDTO;
+import com.hamza.salesmanagementbackend.repository.ProductRepository;
+import com.hamza.salesmanagementbackend.util.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Read-through near-cache of compact product records for POS barcode and SKU scans. Records are
+ * held in a bounded LRU keyed by product id with barcode and SKU lookups on top, warmed with the
+ * best sellers at startup and evicted when a product's catalogue data changes; stock-only changes
+ * (sales, returns, restocks) update the cached stock in place once they commit. Available stock is
+ * derived from the in-memory reservations on every read.
+ */
+@Service
+@Slf4j
+public class ProductScanCache {
+
+    private final ProductRepository productRepository;
+    private final ShardedStockService shardedStockService;
+    private final StockReservationService stockReservationService;
+
+    @Value("${app.products.scan-cache-max-size:50000}")
+    private int maxSize;
+
+    @Value("${app.products.scan-cache-warm-size:5000}")
+    private int warmSize;
+
+    @Value("${app.products.scan-cache-ttl-seconds:300}")
+    private long ttlSeconds;
+
+    // All three maps are guarded by "this"; records is access-ordered for LRU eviction
+    private final Map<Long, ScanRecord> records = new LinkedHashMap<>(1024, 0.75f, true);
+    private final Map<String, Long> idsByBarcode = new HashMap<>();
+    private final Map<String, Long> idsBySku = new HashMap<>();
+
+    // Sequence of the latest change per product stripe; a load started before it must not be cached
+    private static final int CHANGE_STRIPES = 4096;
+    private final AtomicLong changeSequence = new AtomicLong();
+    private final AtomicLongArray lastChange = new AtomicLongArray(CHANGE_STRIPES);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong notFound = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong stockRefreshes = new AtomicLong();
+
+    public ProductScanCache(ProductRepository productRepository,
+                            ShardedStockService shardedStockService,
+                            StockReservationService stockReservationService) {
+        this.productRepository = productRepository;
+        this.shardedStockService = shardedStockService;
+        this.stockReservationService = stockReservationService;
+    }
+
+    public Optional<ProductScanDTO> findByBarcode(String barcode) {
+        return lookup(barcode, true, false);
+    }
+
+    public Optional<ProductScanDTO> findBySku(String sku) {
+        return lookup(sku, false, true);
+    }
+
+    /**
+     * Resolves a scanned code as a barcode first, then as a SKU
+     */
+    public Optional<ProductScanDTO> scan(String code) {
+        return lookup(code, true, true);
+    }
+
+    /**
+     * Drops a product now and again once the current transaction commits, so a concurrent
+     * read cannot re-cache the pre-commit state
+     */
+    public void evictAfterCommit(Long productId) {
+        TransactionUtils.nowAndAfterCommit(() -> evict(productId));
+    }
+
+    public void evict(Long productId) {
+        markChanged(productId);
+        invalidations.incrementAndGet();
+        synchronized (this) {
+            unlink(records.remove(productId));
+        }
+    }
+
+    /**
+     * Updates the cached stock of a product once the current transaction commits, keeping the
+     * record cached; used for stock-only changes
+     */
+    public void stockChangedAfterCommit(Long productId) {
+        TransactionUtils.afterCommit(() -> refreshStock(productId));
+    }
+
+    private void refreshStock(Long productId) {
+        long sequence = markChanged(productId);
+        synchronized (this) {
+            if (!records.containsKey(productId)) {
+                return;
+            }
+        }
+        List<Object[]> rows = productRepository.findStockById(productId);
+        if (rows.isEmpty()) {
+            evict(productId);
+            return;
+        }
+        int stock = stockOf(productId, rows.get(0)[0], rows.get(0)[1]);
+        synchronized (this) {
+            ScanRecord record = records.get(productId);
+            // A later change refreshes or evicts the record itself
+            if (record != null && lastChange.get(stripe(productId)) == sequence) {
+                records.put(productId, record.withStock(stock));
+                stockRefreshes.incrementAndGet();
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            int limit = Math.min(warmSize, maxSize);
+            if (limit <= 0) {
+                return;
+            }
+            long expiresAt = System.currentTimeMillis() + ttlSeconds * 1000;
+            long loadSequence = changeSequence.get();
+            List<Object[]> rows = productRepository.findTopScanRecords(PageRequest.of(0, limit));
+            for (Object[] row : rows) {
+                putIfUnchanged(toRecord(row, expiresAt), loadSequence);
+            }
+            log.info("Warmed product scan cache with {} products", rows.size());
+        } catch (Exception e) {
+            log.warn("Could not warm product scan cache: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        long lookups = hits.get() + misses.get();
+        Map<String, Object> stats = new HashMap<>();
+        synchronized (this) {
+            stats.put("entries", records.size());
+        }
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("notFound", notFound.get());
+        stats.put("hitRate", lookups > 0 ? (double) hits.get() / lookups : 0.0);
+        stats.put("evictions", evictions.get());
+        stats.put("invalidations", invalidations.get());
+        stats.put("stockRefreshes", stockRefreshes.get());
+        stats.put("maxSize", maxSize);
+        stats.put("ttlSeconds", ttlSeconds);
+        return stats;
+    }
+
+    private Optional<ProductScanDTO> lookup(String code, boolean asBarcode, boolean asSku) {
+        if (code == null || code.trim().isEmpty()) {
+            return Optional.empty();
+        }
+        long now = System.currentTimeMillis();
+        ScanRecord cached = cached(code, asBarcode, asSku, now);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return Optional.of(toDTO(cached));
+        }
+
+        misses.incrementAndGet();
+        long loadSequence = changeSequence.get();
+        ScanRecord byBarcode = null;
+        ScanRecord bySku = null;
+        for (Object[] row : productRepository.findScanRecords(code)) {
+            ScanRecord record = toRecord(row, now + ttlSeconds * 1000);
+            if (asBarcode && code.equals(record.barcode)) {
+                byBarcode = record;
+            }
+            if (asSku && code.equals(record.sku)) {
+                bySku = record;
+            }
+        }
+        ScanRecord loaded = byBarcode != null ? byBarcode : bySku;
+        if (loaded == null) {
+            notFound.incrementAndGet();
+            return Optional.empty();
+        }
+
+        putIfUnchanged(loaded, loadSequence);
+        return Optional.of(toDTO(loaded));
+    }
+
+    private long markChanged(Long productId) {
+        long sequence = changeSequence.incrementAndGet();
+        lastChange.accumulateAndGet(stripe(productId), sequence, Math::max);
+        return sequence;
+    }
+
+    private static int stripe(Long productId) {
+        return (int) Math.floorMod(productId, (long) CHANGE_STRIPES);
+    }
+
+    /**
+     * Skips caching a record whose product changed after its load started; the row may already be stale
+     */
+    private synchronized void putIfUnchanged(ScanRecord record, long loadSequence) {
+        if (lastChange.get(stripe(record.id)) <= loadSequence) {
+            put(record);
+        }
+    }
+
+    private synchronized ScanRecord cached(String code, boolean asBarcode, boolean asSku, long now) {
+        Long id = asBarcode ? idsByBarcode.get(code) : null;
+        if (id == null && asSku) {
+            id = idsBySku.get(code);
+        }
+        ScanRecord record = id != null ? records.get(id) : null;
+        if (record != null && record.expiresAt <= now) {
+            unlink(records.remove(id));
+            return null;
+        }
+        return record;
+    }
+
+    private void put(ScanRecord record) {
+        unlink(records.put(record.id, record));
+        if (record.barcode != null) {
+            idsByBarcode.put(record.barcode, record.id);
+        }
+        if (record.sku != null) {
+            idsBySku.put(record.sku, record.id);
+        }
+        Iterator<ScanRecord> eldest = records.values().iterator();
+        while (records.size() > maxSize && eldest.hasNext()) {
+            ScanRecord evicted = eldest.next();
+            eldest.remove();
+            unlink(evicted);
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void unlink(ScanRecord record) {
+        if (record == null) {
+            return;
+        }
+        if (record.barcode != null) {
+            idsByBarcode.remove(record.barcode, record.id);
+        }
+        if (record.sku != null) {
+            idsBySku.remove(record.sku, record.id);
+        }
+    }
+
+    private ScanRecord toRecord(Object[] row, long expiresAt) {
+        Long id = (Long) row[0];
+        return new ScanRecord(id, (String) row[1], (String) row[2], (String) row[3],
+                (BigDecimal) row[4], (BigDecimal) row[5], stockOf(id, row[6], row[7]), expiresAt);
+    }
+
+    private int stockOf(Long id, Object stockQuantity, Object shardCount) {
+        return shardCount != null && (Integer) shardCount > 1
+                ? shardedStockService.getTotalStock(id)
+                : stockQuantity != null ? (Integer) stockQuantity : 0;
+    }
+
+    private ProductScanDTO toDTO(ScanRecord record) {
+        return ProductScanDTO.builder()
+                .id(record.id)
+                .sku(record.sku)
+                .barcode(record.barcode)
+                .name(record.name)
+                .price(record.price)
+                .taxRate(record.taxRate)
+                .stockQuantity(record.stock)
+                .availableStock(stockReservationService.getAvailableStock(record.id, record.stock))
+                .build();
+    }
+
+    private static class ScanRecord {
+        private final Long id;
+        private final String sku;
+        private final String barcode;
+        private final String name;
+        private final BigDecimal price;
+        private final BigDecimal taxRate;
+        private final int stock;
+        private final long expiresAt;
+
+        ScanRecord(Long id, String sku, String barcode, String name, BigDecimal price,
+                   BigDecimal taxRate, int stock, long expiresAt) {
+            this.id = id;
+            this.sku = sku;
+            this.barcode = barcode;
+            this.name = name;
+            this.price = price;
+            this.taxRate = taxRate;
+            this.stock = stock;
+            this.expiresAt = expiresAt;
+        }
+
+        ScanRecord withStock(int newStock) {
+            return new ScanRecord(id, sku, barcode, name, price, taxRate, newStock, expiresAt);
+        }
+    }
+}
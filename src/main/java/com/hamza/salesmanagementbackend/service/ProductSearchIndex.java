@@ -0,0 +1,351 @@
+package com.hamza.salesmanagementbackend.service;
+
+import com.hamza.salesmanagementbackend.entity.Product;
+import com.hamza.salesmanagementbackend.repository.ProductRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * In-memory inverted index over product name, SKU, category and description. Every token is
+ * indexed by its prefixes, and name and SKU tokens also by trigrams so infix queries such as a
+ * SKU suffix still match. A query matches when each of its tokens matches some field; results
+ * are ranked by field weight and come with category facet counts.
+ * Built at startup, kept current from product changes after they commit and fully rebuilt
+ * periodically.
+ */
+@Service
+public class ProductSearchIndex extends InMemorySearchIndex<Long, ProductSearchIndex.Document, ProductSearchIndex.ProductIndex> {
+
+    private static final int MAX_PREFIX_LENGTH = 20;
+
+    private final ProductRepository productRepository;
+    public ProductSearchIndex(ProductRepository productRepository, PlatformTransactionManager transactionManager) {
+        super("product", transactionManager);
+        this.productRepository = productRepository;
+    }
+
+    /**
+     * Ranked product ids for one page of a query, with the total match count and category facets
+     * over all matches. A non-null category restricts matches to that category.
+     */
+    public SearchResult search(String query, String category, int offset, int limit) {
+        long started = System.nanoTime();
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        String categoryFilter = category != null && !category.trim().isEmpty() ? category.trim() : null;
+
+        List<Scored> matches = new ArrayList<>();
+        Map<String, Long> facets = new LinkedHashMap<>();
+        read(index -> {
+            for (Long id : candidates(index, terms)) {
+                Document doc = index.documents.get(id);
+                int score = score(doc, terms);
+                if (score <= 0) {
+                    continue;
+                }
+                String facet = doc.category != null ? doc.category : "Uncategorized";
+                facets.merge(facet, 1L, Long::sum);
+                if (categoryFilter == null || categoryFilter.equalsIgnoreCase(doc.category)) {
+                    matches.add(new Scored(doc, score));
+                }
+            }
+            return null;
+        });
+
+        matches.sort(Comparator.comparingInt((Scored s) -> -s.score)
+                .thenComparing(s -> s.document.name, String.CASE_INSENSITIVE_ORDER)
+                .thenComparing(s -> s.document.id));
+        List<Long> ids = new ArrayList<>();
+        for (int i = offset; i < matches.size() && ids.size() < limit; i++) {
+            ids.add(matches.get(i).document.id);
+        }
+
+        return new SearchResult(ids, matches.size(), sortFacets(facets), recordSearch(started));
+    }
+
+    /**
+     * (Re)indexes a product once the current transaction commits; reads its fields now, while
+     * the category is still reachable
+     */
+    public void indexAfterCommit(Product product) {
+        String categoryName = product.getCategory() != null ? product.getCategory().getName() : null;
+        Document doc = new Document(product.getId(), product.getName(), product.getSku(),
+                categoryName, product.getDescription());
+        applyAfterCommit(doc.id, doc);
+    }
+
+    public void removeAfterCommit(Long productId) {
+        applyAfterCommit(productId, null);
+    }
+
+    @Scheduled(fixedDelayString = "${app.products.search-index-refresh-interval:600000}",
+               initialDelayString = "${app.products.search-index-refresh-interval:600000}")
+    public void refresh() {
+        refreshIndex();
+    }
+
+    @Override
+    protected ProductIndex newIndex() {
+        return new ProductIndex();
+    }
+
+    @Override
+    protected void loadDocuments(Consumer<Document> sink) {
+        for (Object[] row : productRepository.findSearchDocuments()) {
+            sink.accept(new Document((Long) row[0], (String) row[1], (String) row[2], (String) row[3], (String) row[4]));
+        }
+    }
+
+    @Override
+    protected void addIndexStatistics(ProductIndex index, Map<String, Object> stats) {
+        stats.put("products", index.documents.size());
+        stats.put("prefixTerms", index.prefixes.size());
+        stats.put("trigrams", index.trigrams.size());
+    }
+
+    /**
+     * Ids that may match every term, smallest posting lists first; verified later by scoring
+     */
+    private static Set<Long> candidates(ProductIndex index, List<String> terms) {
+        if (terms.isEmpty()) {
+            return Collections.emptySet();
+        }
+        List<Set<Long>> perTerm = new ArrayList<>();
+        for (String term : terms) {
+            Set<Long> ids = candidatesFor(index, term);
+            if (ids.isEmpty()) {
+                return Collections.emptySet();
+            }
+            perTerm.add(ids);
+        }
+        perTerm.sort(Comparator.comparingInt(Set::size));
+
+        Set<Long> result = new HashSet<>(perTerm.get(0));
+        for (int i = 1; i < perTerm.size() && !result.isEmpty(); i++) {
+            result.retainAll(perTerm.get(i));
+        }
+        return result;
+    }
+
+    private static Set<Long> candidatesFor(ProductIndex index, String term) {
+        Set<Long> byPrefix = index.prefixes.getOrDefault(
+                term.length() > MAX_PREFIX_LENGTH ? term.substring(0, MAX_PREFIX_LENGTH) : term,
+                Collections.emptySet());
+        if (term.length() < GRAM_SIZE) {
+            return byPrefix;
+        }
+
+        Set<Long> byGrams = null;
+        for (String gram : grams(term)) {
+            Set<Long> ids = index.trigrams.get(gram);
+            if (ids == null) {
+                byGrams = Collections.emptySet();
+                break;
+            }
+            if (byGrams == null) {
+                byGrams = new HashSet<>(ids);
+            } else {
+                byGrams.retainAll(ids);
+            }
+        }
+        if (byGrams == null || byGrams.isEmpty()) {
+            return byPrefix;
+        }
+        byGrams.addAll(byPrefix);
+        return byGrams;
+    }
+
+    /**
+     * Sum of the best field match per term; zero if any term matches no field
+     */
+    private static int score(Document doc, List<String> terms) {
+        int total = 0;
+        for (String term : terms) {
+            int best = 0;
+            if (doc.sku != null) {
+                if (doc.sku.equals(term)) {
+                    best = 100;
+                } else if (doc.sku.startsWith(term)) {
+                    best = 40;
+                } else if (term.length() >= GRAM_SIZE && doc.sku.contains(term)) {
+                    best = 20;
+                }
+            }
+            best = Math.max(best, tokenScore(doc.nameTokens, term, 12, 8));
+            if (best < 4 && term.length() >= GRAM_SIZE && doc.nameText.contains(term)) {
+                best = 4;
+            }
+            best = Math.max(best, tokenScore(doc.categoryTokens, term, 5, 5));
+            best = Math.max(best, tokenScore(doc.descriptionTokens, term, 2, 2));
+            if (best == 0) {
+                return 0;
+            }
+            total += best;
+        }
+        return total;
+    }
+
+    private static int tokenScore(List<String> tokens, String term, int exact, int prefix) {
+        int best = 0;
+        for (String token : tokens) {
+            if (token.equals(term)) {
+                return exact;
+            }
+            if (token.startsWith(term)) {
+                best = prefix;
+            }
+        }
+        return best;
+    }
+
+    private static Map<String, Long> sortFacets(Map<String, Long> facets) {
+        Map<String, Long> sorted = new LinkedHashMap<>();
+        facets.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .forEach(e -> sorted.put(e.getKey(), e.getValue()));
+        return sorted;
+    }
+
+    /**
+     * Prefix and trigram posting lists plus the stored documents
+     */
+    static class ProductIndex implements InMemorySearchIndex.Index<Long, Document> {
+        private final Map<Long, Document> documents = new HashMap<>();
+        private final Map<String, Set<Long>> prefixes = new HashMap<>();
+        private final Map<String, Set<Long>> trigrams = new HashMap<>();
+
+        @Override
+        public void replace(Long id, Document doc) {
+            Document previous = documents.remove(id);
+            if (previous != null) {
+                unlink(prefixes, previous.prefixKeys, id);
+                unlink(trigrams, previous.gramKeys, id);
+            }
+            if (doc != null) {
+                add(doc);
+            }
+        }
+
+        @Override
+        public void add(Document doc) {
+            documents.put(doc.id, doc);
+            for (String key : doc.prefixKeys) {
+                prefixes.computeIfAbsent(key, k -> new HashSet<>()).add(doc.id);
+            }
+            for (String key : doc.gramKeys) {
+                trigrams.computeIfAbsent(key, k -> new HashSet<>()).add(doc.id);
+            }
+        }
+
+        @Override
+        public int size() {
+            return documents.size();
+        }
+
+        private static void unlink(Map<String, Set<Long>> postings, Set<String> keys, Long id) {
+            for (String key : keys) {
+                Set<Long> ids = postings.get(key);
+                if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                    postings.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Normalised searchable fields of one product
+     */
+    static class Document {
+        private final Long id;
+        private final String name;
+        private final String category;
+        private final String sku;
+        private final String nameText;
+        private final List<String> nameTokens;
+        private final List<String> categoryTokens;
+        private final List<String> descriptionTokens;
+        private final Set<String> prefixKeys = new HashSet<>();
+        private final Set<String> gramKeys = new HashSet<>();
+
+        Document(Long id, String name, String sku, String category, String description) {
+            this.id = id;
+            this.name = name != null ? name : "";
+            this.category = category;
+            this.sku = sku != null ? sku.toLowerCase(Locale.ROOT) : null;
+            this.nameText = this.name.toLowerCase(Locale.ROOT);
+            this.nameTokens = tokenize(name);
+            this.categoryTokens = tokenize(category);
+            this.descriptionTokens = new ArrayList<>(new LinkedHashSet<>(tokenize(description)));
+
+            List<String> skuTokens = tokenize(sku);
+            if (this.sku != null) {
+                skuTokens.add(this.sku);
+            }
+            for (List<String> tokens : List.of(nameTokens, skuTokens, categoryTokens, descriptionTokens)) {
+                for (String token : tokens) {
+                    for (int i = 1; i <= Math.min(token.length(), MAX_PREFIX_LENGTH); i++) {
+                        prefixKeys.add(token.substring(0, i));
+                    }
+                }
+            }
+            for (List<String> tokens : List.of(nameTokens, skuTokens)) {
+                for (String token : tokens) {
+                    gramKeys.addAll(grams(token));
+                }
+            }
+        }
+    }
+
+    private static class Scored {
+        private final Document document;
+        private final int score;
+
+        Scored(Document document, int score) {
+            this.document = document;
+            this.score = score;
+        }
+    }
+
+    public static class SearchResult {
+        private final List<Long> productIds;
+        private final int totalMatches;
+        private final Map<String, Long> categoryFacets;
+        private final long tookMicros;
+
+        SearchResult(List<Long> productIds, int totalMatches, Map<String, Long> categoryFacets, long tookMicros) {
+            this.productIds = productIds;
+            this.totalMatches = totalMatches;
+            this.categoryFacets = categoryFacets;
+            this.tookMicros = tookMicros;
+        }
+
+        public List<Long> getProductIds() {
+            return productIds;
+        }
+
+        public int getTotalMatches() {
+            return totalMatches;
+        }
+
+        public Map<String, Long> getCategoryFacets() {
+            return categoryFacets;
+        }
+
+        public long getTookMicros() {
+            return tookMicros;
+        }
+    }
+}
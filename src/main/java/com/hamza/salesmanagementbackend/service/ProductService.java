@@ -4,6 +4,8 @@ import com.hamza.salesmanagementbackend.dto.ProductDTO;
 import com.hamza.salesmanagementbackend.dto.InventorySummaryDTO;
 import com.hamza.salesmanagementbackend.entity.Product;
 import com.hamza.salesmanagementbackend.entity.Category;
+import com.hamza.salesmanagementbackend.entity.StockAlert;
+import com.hamza.salesmanagementbackend.entity.StockMovement;
 import com.hamza.salesmanagementbackend.exception.BusinessLogicException;
 import com.hamza.salesmanagementbackend.exception.DataIntegrityException;
 import com.hamza.salesmanagementbackend.exception.InsufficientStockException;
@@ -13,15 +15,21 @@ import com.hamza.salesmanagementbackend.repository.CategoryRepository;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -32,11 +40,37 @@ public class ProductService {
 
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
-    private static final Integer LOW_STOCK_THRESHOLD = 10;
-
-    public ProductService(ProductRepository productRepository, CategoryRepository categoryRepository) {
+    private final StockReservationService stockReservationService;
+    private final ShardedStockService shardedStockService;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductScanCache productScanCache;
+    private final InventorySummaryService inventorySummaryService;
+    private final StockAlertService stockAlertService;
+    private final CostLayerService costLayerService;
+    private final StockMovementService stockMovementService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ProductService(ProductRepository productRepository, CategoryRepository categoryRepository,
+                          StockReservationService stockReservationService,
+                          ShardedStockService shardedStockService,
+                          ProductSearchIndex productSearchIndex,
+                          ProductScanCache productScanCache,
+                          InventorySummaryService inventorySummaryService,
+                          StockAlertService stockAlertService,
+                          CostLayerService costLayerService,
+                          StockMovementService stockMovementService) {
         this.productRepository = productRepository;
         this.categoryRepository = categoryRepository;
+        this.stockReservationService = stockReservationService;
+        this.shardedStockService = shardedStockService;
+        this.productSearchIndex = productSearchIndex;
+        this.productScanCache = productScanCache;
+        this.inventorySummaryService = inventorySummaryService;
+        this.stockAlertService = stockAlertService;
+        this.costLayerService = costLayerService;
+        this.stockMovementService = stockMovementService;
     }
 
     /**
@@ -47,6 +81,14 @@ public class ProductService {
         validateProductData(productDTO);
         Product product = mapToEntity(productDTO);
         Product savedProduct = productRepository.save(product);
+        productSearchIndex.indexAfterCommit(savedProduct);
+        inventorySummaryService.productChangedAfterCommit(savedProduct.getId());
+        stockAlertService.stockChangedAfterCommit(savedProduct.getId());
+        if (savedProduct.getStockQuantity() != null && savedProduct.getStockQuantity() > 0) {
+            costLayerService.recordOpening(savedProduct.getId(), savedProduct.getStockQuantity(), savedProduct.getCostPrice());
+            stockMovementService.record(savedProduct.getId(), StockMovement.MovementType.OPENING,
+                    savedProduct.getStockQuantity(), savedProduct.getCostPrice(), "PRODUCT:" + savedProduct.getId());
+        }
         return mapToDTO(savedProduct);
     }
 
@@ -89,8 +131,13 @@ public class ProductService {
 
         validateSkuUniqueness(productDTO.getSku(), id);
         validateProductData(productDTO);
+        if (productDTO.getStockQuantity() != null) {
+            setOnHandStock(existingProduct, productDTO.getStockQuantity(), "PRODUCT_UPDATE");
+        }
         updateProductFields(existingProduct, productDTO);
         Product savedProduct = productRepository.save(existingProduct);
+        productSearchIndex.indexAfterCommit(savedProduct);
+        productChanged(id);
         return mapToDTO(savedProduct);
     }
 
@@ -114,7 +161,10 @@ public class ProductService {
             throw DataIntegrityException.productHasReturnItems(id, returnItemCount.intValue());
         }
 
+        shardedStockService.disableSharding(id);
         productRepository.deleteById(id);
+        productSearchIndex.removeAfterCommit(id);
+        productChanged(id);
     }
 
     /**
@@ -130,12 +180,42 @@ public class ProductService {
     }
 
     /**
-     * Advanced search with pagination
+     * Advanced search with pagination, served from the in-memory search index once it is built
      */
     @Transactional(readOnly = true)
     public Page<ProductDTO> searchProducts(String searchTerm, Pageable pageable) {
-        return productRepository.searchProducts(searchTerm, pageable)
-                .map(this::mapToDTO);
+        return searchProducts(searchTerm, null, pageable);
+    }
+
+    /**
+     * Ranked search optionally narrowed to one category; only the page's products are loaded
+     */
+    @Transactional(readOnly = true)
+    public Page<ProductDTO> searchProducts(String searchTerm, String category, Pageable pageable) {
+        if (!productSearchIndex.isReady() || searchTerm == null || searchTerm.trim().isEmpty()) {
+            return productRepository.searchProducts(searchTerm != null ? searchTerm : "", pageable)
+                    .map(this::mapToDTO);
+        }
+
+        ProductSearchIndex.SearchResult result = productSearchIndex.search(
+                searchTerm, category, (int) pageable.getOffset(), pageable.getPageSize());
+        Map<Long, Product> byId = productRepository.findAllById(result.getProductIds())
+                .stream()
+                .collect(Collectors.toMap(Product::getId, p -> p));
+        List<ProductDTO> content = result.getProductIds().stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .map(this::mapToDTO)
+                .collect(Collectors.toList());
+        return new PageImpl<>(content, pageable, result.getTotalMatches());
+    }
+
+    /**
+     * Category facet counts for a search query
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Long> getSearchFacets(String searchTerm) {
+        return productSearchIndex.search(searchTerm, null, 0, 0).getCategoryFacets();
     }
 
     /**
@@ -180,6 +260,22 @@ public class ProductService {
                 .map(this::mapToDTO);
     }
 
+    /**
+     * Gets products in a category and all of its subcategories
+     */
+    @Transactional(readOnly = true)
+    public Page<ProductDTO> getProductsInCategoryTree(Long categoryId, Pageable pageable) {
+        return productRepository.findByCategorySubtree(categoryId, pageable)
+                .map(this::mapToDTO);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<ProductDTO> getProductsInCategoryTree(String categoryName, Pageable pageable) {
+        return categoryRepository.findByNameIgnoreCase(categoryName)
+                .map(category -> getProductsInCategoryTree(category.getId(), pageable))
+                .orElse(Page.empty(pageable));
+    }
+
     /**
      * Gets recently added products with optional category filtering and inventory inclusion
      */
@@ -217,115 +313,70 @@ public class ProductService {
     }
 
     /**
-     * Calculates inventory summary statistics
+     * Calculates inventory summary statistics from the in-memory summary
      */
     @Transactional(readOnly = true)
     public InventorySummaryDTO calculateInventorySummary() {
         log.debug("Calculating inventory summary statistics");
 
         try {
-            // Get basic metrics
-            Long totalProductsInStock = productRepository.countProductsInStock();
-            Long outOfStockProducts = productRepository.countOutOfStockProducts();
-            Long lowStockAlerts = productRepository.countLowStockProducts();
-            BigDecimal totalStockValue = productRepository.calculateTotalStockValue();
-            Long totalProducts = productRepository.countTotalProducts();
-            Long productsNeedingReorder = productRepository.countProductsNeedingReorder();
-
-            // Create summary DTO
-            InventorySummaryDTO summary = InventorySummaryDTO.builder()
-                    .totalProductsInStock(totalProductsInStock != null ? totalProductsInStock : 0L)
-                    .outOfStockProducts(outOfStockProducts != null ? outOfStockProducts : 0L)
-                    .lowStockAlerts(lowStockAlerts != null ? lowStockAlerts : 0L)
-                    .totalStockValue(totalStockValue != null ? totalStockValue : BigDecimal.ZERO)
-                    .totalProducts(totalProducts != null ? totalProducts : 0L)
-                    .productsNeedingReorder(productsNeedingReorder != null ? productsNeedingReorder : 0L)
-                    .build();
-
-            // Calculate derived metrics
-            summary.calculateDerivedMetrics();
+            InventorySummaryDTO summary = inventorySummaryService.getSummary();
 
             log.debug("Inventory summary calculated: {} products in stock, {} out of stock, total value: {}",
-                    totalProductsInStock, outOfStockProducts, totalStockValue);
+                    summary.getTotalProductsInStock(), summary.getOutOfStockProducts(), summary.getTotalStockValue());
 
             return summary;
         } catch (Exception e) {
             log.error("Error calculating inventory summary", e);
-            // Return empty summary on error
-            return InventorySummaryDTO.builder()
-                    .totalProductsInStock(0L)
-                    .outOfStockProducts(0L)
-                    .lowStockAlerts(0L)
-                    .totalStockValue(BigDecimal.ZERO)
-                    .totalProducts(0L)
-                    .productsNeedingReorder(0L)
-                    .lastUpdated(LocalDateTime.now())
-                    .build();
+            return emptyInventorySummary();
         }
     }
 
     /**
-     * Calculates inventory summary statistics with category filter
+     * Calculates inventory summary statistics with category filter (category id or name)
      */
     @Transactional(readOnly = true)
     public InventorySummaryDTO calculateInventorySummaryByCategory(String category) {
         log.debug("Calculating inventory summary statistics for category: {}", category);
 
         try {
-            Long totalProductsInStock;
-            Long outOfStockProducts;
-            Long lowStockAlerts;
-            BigDecimal totalStockValue;
-            Long totalProducts;
+            Long categoryId;
 
             // Try to parse as category ID first, then fall back to category name
             try {
-                Long categoryId = Long.parseLong(category.trim());
-                totalProductsInStock = productRepository.countProductsInStockByCategory(categoryId);
-                outOfStockProducts = productRepository.countOutOfStockProductsByCategory(categoryId);
-                lowStockAlerts = productRepository.countLowStockProductsByCategory(categoryId);
-                totalStockValue = productRepository.calculateTotalStockValueByCategory(categoryId);
-                totalProducts = productRepository.countTotalProductsByCategory(categoryId);
+                categoryId = Long.parseLong(category.trim());
             } catch (NumberFormatException e) {
-                totalProductsInStock = productRepository.countProductsInStockByCategoryName(category.trim());
-                outOfStockProducts = productRepository.countOutOfStockProductsByCategoryName(category.trim());
-                lowStockAlerts = productRepository.countLowStockProductsByCategoryName(category.trim());
-                totalStockValue = productRepository.calculateTotalStockValueByCategoryName(category.trim());
-                totalProducts = productRepository.countTotalProductsByCategoryName(category.trim());
+                Optional<Category> byName = categoryRepository.findByName(category.trim());
+                if (!byName.isPresent()) {
+                    return emptyInventorySummary();
+                }
+                categoryId = byName.get().getId();
             }
 
-            // Create summary DTO
-            InventorySummaryDTO summary = InventorySummaryDTO.builder()
-                    .totalProductsInStock(totalProductsInStock != null ? totalProductsInStock : 0L)
-                    .outOfStockProducts(outOfStockProducts != null ? outOfStockProducts : 0L)
-                    .lowStockAlerts(lowStockAlerts != null ? lowStockAlerts : 0L)
-                    .totalStockValue(totalStockValue != null ? totalStockValue : BigDecimal.ZERO)
-                    .totalProducts(totalProducts != null ? totalProducts : 0L)
-                    .productsNeedingReorder(0L) // Not calculated for category filter
-                    .build();
-
-            // Calculate derived metrics
-            summary.calculateDerivedMetrics();
+            InventorySummaryDTO summary = inventorySummaryService.getSummaryByCategory(categoryId);
 
             log.debug("Category inventory summary calculated for {}: {} products in stock, {} out of stock",
-                    category, totalProductsInStock, outOfStockProducts);
+                    category, summary.getTotalProductsInStock(), summary.getOutOfStockProducts());
 
             return summary;
         } catch (Exception e) {
             log.error("Error calculating inventory summary for category: {}", category, e);
-            // Return empty summary on error
-            return InventorySummaryDTO.builder()
-                    .totalProductsInStock(0L)
-                    .outOfStockProducts(0L)
-                    .lowStockAlerts(0L)
-                    .totalStockValue(BigDecimal.ZERO)
-                    .totalProducts(0L)
-                    .productsNeedingReorder(0L)
-                    .lastUpdated(LocalDateTime.now())
-                    .build();
+            return emptyInventorySummary();
         }
     }
 
+    private InventorySummaryDTO emptyInventorySummary() {
+        return InventorySummaryDTO.builder()
+                .totalProductsInStock(0L)
+                .outOfStockProducts(0L)
+                .lowStockAlerts(0L)
+                .totalStockValue(BigDecimal.ZERO)
+                .totalProducts(0L)
+                .productsNeedingReorder(0L)
+                .lastUpdated(LocalDateTime.now())
+                .build();
+    }
+
     /**
      * Gets products within price range using streams for additional filtering
      */
@@ -339,11 +390,11 @@ public class ProductService {
     }
 
     /**
-     * Gets low stock products using streams for enhanced processing
+     * Gets products at or below their minimum stock level, from the active stock alerts
      */
     @Transactional(readOnly = true)
     public List<ProductDTO> getLowStockProducts() {
-        return productRepository.findByStockQuantityLessThan(LOW_STOCK_THRESHOLD)
+        return stockAlertService.getProductsWithActiveAlert(StockAlertService.LOW_STOCK_TYPES)
                 .stream()
                 .map(this::mapToDTO)
                 .sorted((p1, p2) -> p1.getStockQuantity().compareTo(p2.getStockQuantity()))
@@ -351,11 +402,11 @@ public class ProductService {
     }
 
     /**
-     * Gets out of stock products
+     * Gets out of stock products, from the active stock alerts
      */
     @Transactional(readOnly = true)
     public List<ProductDTO> getOutOfStockProducts() {
-        return productRepository.findOutOfStockProducts()
+        return stockAlertService.getProductsWithActiveAlert(List.of(StockAlert.AlertType.OUT_OF_STOCK))
                 .stream()
                 .map(this::mapToDTO)
                 .sorted((p1, p2) -> p1.getName().compareToIgnoreCase(p2.getName()))
@@ -399,27 +450,100 @@ public class ProductService {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + productId));
 
-        product.setStockQuantity(newQuantity);
-        Product savedProduct = productRepository.save(product);
-        return mapToDTO(savedProduct);
+        setOnHandStock(product, newQuantity, "MANUAL");
+        stockChanged(productId);
+        return mapToDTO(product);
     }
 
     /**
-     * Reduces stock quantity (used during sales)
+     * Reduces stock quantity immediately (manual adjustments); sales reserve stock instead
      */
     public void reduceStock(Long productId, Integer quantity) {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + productId));
 
-        if (product.getStockQuantity() < quantity) {
+        int available = getAvailableStock(product);
+        if (available < quantity) {
             throw new InsufficientStockException(
                     String.format("Insufficient stock for product %s. Available: %d, Requested: %d",
-                            product.getName(), product.getStockQuantity(), quantity)
+                            product.getName(), available, quantity)
             );
         }
 
-        product.setStockQuantity(product.getStockQuantity() - quantity);
-        productRepository.save(product);
+        commitStockDecrement(product.getId(), quantity, StockMovement.MovementType.ADJUSTMENT, "MANUAL");
+    }
+
+    /**
+     * On-hand stock minus quantities reserved by pending sales
+     */
+    @Transactional(readOnly = true)
+    public int getAvailableStock(Product product) {
+        return stockReservationService.getAvailableStock(product.getId(), getOnHandStock(product));
+    }
+
+    /**
+     * On-hand stock; sharded products sum their shards
+     */
+    @Transactional(readOnly = true)
+    public int getOnHandStock(Product product) {
+        return product.isStockSharded()
+                ? shardedStockService.getTotalStock(product.getId())
+                : product.getStockQuantity();
+    }
+
+    /**
+     * Reserves stock for a pending sale without touching the products row
+     */
+    public void reserveStock(Product product, Long saleId, Integer quantity) {
+        stockReservationService.reserve(product.getId(), product.getName(), saleId, quantity, getOnHandStock(product));
+    }
+
+    /**
+     * Atomically decrements on-hand stock, failing if it would go negative, and records the movement
+     */
+    public void commitStockDecrement(Long productId, Integer quantity,
+                                     StockMovement.MovementType movementType, String reference) {
+        Integer shardCount = productRepository.findStockShardCountById(productId).orElse(null);
+        boolean decremented = shardCount != null && shardCount > 1
+                ? shardedStockService.decrement(productId, shardCount, quantity)
+                : productRepository.decrementStockIfAvailable(productId, quantity) == 1;
+
+        if (!decremented) {
+            Product product = productRepository.findById(productId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + productId));
+            throw new InsufficientStockException(product.getName(), getOnHandStock(product), quantity);
+        }
+        stockMovementService.record(productId, movementType, -quantity, null, reference);
+        stockChanged(productId);
+    }
+
+    /**
+     * Atomically returns stock to the products row or a shard (cancellations, returns) and
+     * records the movement
+     */
+    public void restoreStock(Long productId, Integer quantity,
+                             StockMovement.MovementType movementType, String reference) {
+        Integer shardCount = productRepository.findStockShardCountById(productId).orElse(null);
+        if (shardCount != null && shardCount > 1) {
+            shardedStockService.increment(productId, shardCount, quantity);
+        } else if (productRepository.incrementStock(productId, quantity) == 0) {
+            throw new ResourceNotFoundException("Product not found with id: " + productId);
+        }
+        stockMovementService.record(productId, movementType, quantity, null, reference);
+        stockChanged(productId);
+    }
+
+    /**
+     * Enables (shardCount > 1) or disables (shardCount <= 1) sharded stock for a hot product
+     */
+    public ProductDTO configureStockShards(Long productId, Integer shardCount) {
+        if (shardCount == null || shardCount <= 1) {
+            shardedStockService.disableSharding(productId);
+        } else {
+            shardedStockService.enableSharding(productId, shardCount);
+        }
+        productChanged(productId);
+        return getProductById(productId);
     }
 
     /**
@@ -432,36 +556,53 @@ public class ProductService {
     }
 
     /**
-     * Gets inventory statistics using streams
+     * Gets inventory statistics from the in-memory summary
      */
     @Transactional(readOnly = true)
     public Map<String, Object> getInventoryStatistics() {
-        List<Product> allProducts = productRepository.findAll();
-
-        return allProducts.stream()
-                .collect(Collectors.collectingAndThen(
-                        Collectors.toList(),
-                        products -> Map.of(
-                                "totalProducts", products.size(),
-                                "totalValue", products.stream()
-                                        .map(p -> p.getPrice().multiply(BigDecimal.valueOf(p.getStockQuantity())))
-                                        .reduce(BigDecimal.ZERO, BigDecimal::add),
-                                "lowStockCount", products.stream()
-                                        .mapToInt(p -> p.getStockQuantity() < LOW_STOCK_THRESHOLD ? 1 : 0)
-                                        .sum(),
-                                "outOfStockCount", products.stream()
-                                        .mapToInt(p -> p.getStockQuantity() == 0 ? 1 : 0)
-                                        .sum(),
-                                "averagePrice", products.stream()
-                                        .map(Product::getPrice)
-                                        .reduce(BigDecimal.ZERO, BigDecimal::add)
-                                        .divide(BigDecimal.valueOf(products.size()), RoundingMode.HALF_UP)
-                        )
-                ));
+        return inventorySummaryService.getInventoryStatistics();
     }
 
     // Private helper methods
 
+    /**
+     * Sets on-hand stock with a single UPDATE after locking the row (or the shards) and reading
+     * the latest committed quantity, so a concurrent checkout decrement is never overwritten and
+     * the recorded movement is the exact difference
+     */
+    private void setOnHandStock(Product product, int newQuantity, String reference) {
+        int previous;
+        if (product.isStockSharded()) {
+            previous = shardedStockService.redistribute(product.getId(), newQuantity);
+        } else {
+            entityManager.refresh(product, LockModeType.PESSIMISTIC_WRITE);
+            previous = product.getStockQuantity();
+        }
+        productRepository.setStock(product.getId(), newQuantity);
+        entityManager.refresh(product);
+        stockMovementService.record(product.getId(), StockMovement.MovementType.ADJUSTMENT,
+                newQuantity - previous, null, reference);
+    }
+
+    /**
+     * Refreshes the scan cache, inventory summary and stock alerts for a product whose catalogue
+     * data changed
+     */
+    private void productChanged(Long productId) {
+        productScanCache.evictAfterCommit(productId);
+        inventorySummaryService.productChangedAfterCommit(productId);
+        stockAlertService.stockChangedAfterCommit(productId);
+    }
+
+    /**
+     * Like productChanged for stock-only changes; the scan cache keeps the product and updates its stock
+     */
+    private void stockChanged(Long productId) {
+        productScanCache.stockChangedAfterCommit(productId);
+        inventorySummaryService.productChangedAfterCommit(productId);
+        stockAlertService.stockChangedAfterCommit(productId);
+    }
+
     private void validateSkuUniqueness(String sku, Long excludeId) {
         if (sku != null && !sku.trim().isEmpty()) {
             productRepository.findBySku(sku)
@@ -474,10 +615,8 @@ public class ProductService {
 
     private void validateBarcodeUniqueness(String barcode, Long excludeId) {
         if (barcode != null && !barcode.trim().isEmpty()) {
-            productRepository.findAll().stream()
-                    .filter(product -> barcode.equals(product.getBarcode()))
+            productRepository.findByBarcode(barcode)
                     .filter(product -> excludeId == null || !product.getId().equals(excludeId))
-                    .findFirst()
                     .ifPresent(product -> {
                         throw new BusinessLogicException("Barcode already exists: " + barcode);
                     });
@@ -508,7 +647,6 @@ public class ProductService {
         Optional.ofNullable(productDTO.getDescription()).ifPresent(existingProduct::setDescription);
         Optional.ofNullable(productDTO.getPrice()).ifPresent(existingProduct::setPrice);
         Optional.ofNullable(productDTO.getCostPrice()).ifPresent(existingProduct::setCostPrice);
-        Optional.ofNullable(productDTO.getStockQuantity()).ifPresent(existingProduct::setStockQuantity);
 
         // Handle category update
         if (productDTO.getCategoryId() != null) {
@@ -786,22 +924,29 @@ public class ProductService {
     }
 
     /**
-     * Gets products requiring reorder using streams
+     * Gets products at or below their reorder point, from the active stock alerts
      */
     @Transactional(readOnly = true)
     public List<ProductDTO> getProductsRequiringReorder() {
-        return productRepository.findAll()
+        return stockAlertService.getProductsWithActiveAlert(StockAlertService.REORDER_TYPES)
                 .stream()
-                .filter(Product::isLowStock)
                 .map(this::mapToDTO)
                 .sorted((p1, p2) -> p1.getStockQuantity().compareTo(p2.getStockQuantity()))
                 .collect(Collectors.toList());
     }
 
     /**
-     * Restocks a product
+     * Restocks a product manually
      */
     public ProductDTO restockProduct(Long productId, Integer quantity) {
+        return restockProduct(productId, quantity, StockMovement.MovementType.RESTOCK, null, "MANUAL");
+    }
+
+    /**
+     * Restocks a product and records the movement, e.g. a purchase order receipt at its unit cost
+     */
+    public ProductDTO restockProduct(Long productId, Integer quantity, StockMovement.MovementType movementType,
+                                     BigDecimal unitCost, String reference) {
         if (quantity <= 0) {
             throw new BusinessLogicException("Restock quantity must be greater than zero");
         }
@@ -809,10 +954,15 @@ public class ProductService {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + productId));
 
-        product.setStockQuantity(product.getStockQuantity() + quantity);
-        product.setLastRestockedDate(LocalDateTime.now());
-        Product savedProduct = productRepository.save(product);
-        return mapToDTO(savedProduct);
+        // Atomic increments only, so concurrent checkout decrements are never overwritten
+        if (product.isStockSharded()) {
+            shardedStockService.increment(productId, product.getStockShardCount(), quantity);
+        }
+        productRepository.restock(productId, quantity, LocalDateTime.now());
+        entityManager.refresh(product);
+        stockMovementService.record(productId, movementType, quantity, unitCost, reference);
+        stockChanged(productId);
+        return mapToDTO(product);
     }
 
     /**
@@ -820,10 +970,7 @@ public class ProductService {
      */
     @Transactional(readOnly = true)
     public Optional<ProductDTO> findByBarcode(String barcode) {
-        return productRepository.findAll()
-                .stream()
-                .filter(product -> barcode.equals(product.getBarcode()))
-                .findFirst()
+        return productRepository.findByBarcode(barcode)
                 .map(this::mapToDTO);
     }
 }
@@ -3,8 +3,10 @@ package com.hamza.salesmanagementbackend.service;
 import com.hamza.salesmanagementbackend.entity.*;
 import com.hamza.salesmanagementbackend.exception.BusinessLogicException;
 import com.hamza.salesmanagementbackend.repository.PromotionRepository;
+import com.hamza.salesmanagementbackend.util.TransactionUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -13,6 +15,7 @@ import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
@@ -22,6 +25,10 @@ import java.util.stream.Collectors;
 public class PromotionApplicationService {
 
     private final PromotionRepository promotionRepository;
+    private final OutboxService outboxService;
+    private final CounterContentionMonitor contentionMonitor;
+    private final PromotionEligibilityIndex promotionEligibilityIndex;
+    private final CouponCodeCache couponCodeCache;
 
     /**
      * Finds all eligible promotions for a sale
@@ -31,9 +38,10 @@ public class PromotionApplicationService {
         log.debug("Finding eligible promotions for customer {} with order amount {}", 
                 customer.getId(), orderAmount);
 
-        List<Promotion> availablePromotions = promotionRepository.findAvailablePromotions(LocalDateTime.now());
-        
-        return availablePromotions.stream()
+        // Only promotions indexed under the cart's products/categories (or global ones) are checked
+        List<Promotion> candidates = promotionEligibilityIndex.findCandidates(saleItems, LocalDateTime.now());
+
+        return candidates.stream()
                 .filter(promotion -> isPromotionEligible(promotion, customer, saleItems, orderAmount))
                 .collect(Collectors.toList());
     }
@@ -79,7 +87,7 @@ public class PromotionApplicationService {
      */
     @Transactional(readOnly = true)
     public Promotion validateCouponCode(String couponCode, Customer customer, List<SaleItem> saleItems, BigDecimal orderAmount) {
-        Promotion promotion = promotionRepository.findByCouponCode(couponCode)
+        Promotion promotion = couponCodeCache.findByCouponCode(couponCode)
                 .orElseThrow(() -> new BusinessLogicException("Invalid coupon code: " + couponCode));
 
         if (!promotion.isCurrentlyActive()) {
@@ -154,36 +162,62 @@ public class PromotionApplicationService {
     public AppliedPromotion applyPromotionToSale(Sale sale, Promotion promotion, boolean isAutoApplied) {
         log.info("Applying promotion {} to sale {}", promotion.getId(), sale.getId());
 
-        // Calculate discount
         BigDecimal orderAmount = sale.getSubtotal() != null ? sale.getSubtotal() : sale.getTotalAmount();
         BigDecimal discountAmount = calculatePromotionDiscount(promotion, sale.getItems(), orderAmount);
-
         if (discountAmount.compareTo(BigDecimal.ZERO) <= 0) {
             throw new BusinessLogicException("Promotion does not provide any discount for this order");
         }
+        if (!countPromotionUsage(promotion)) {
+            throw new BusinessLogicException("Promotion usage limit has been reached");
+        }
+        return attachToSale(sale, promotion, discountAmount, orderAmount, isAutoApplied);
+    }
 
-        // Create applied promotion record
+    /**
+     * Applies a promotion if it gives a discount and its usage limit allows it, and returns empty
+     * otherwise. Auto-applied promotions use this so a skipped promotion does not throw through
+     * the transactional proxy and mark the checkout transaction rollback-only.
+     */
+    public Optional<AppliedPromotion> tryApplyPromotionToSale(Sale sale, Promotion promotion, boolean isAutoApplied) {
+        BigDecimal orderAmount = sale.getSubtotal() != null ? sale.getSubtotal() : sale.getTotalAmount();
+        BigDecimal discountAmount = calculatePromotionDiscount(promotion, sale.getItems(), orderAmount);
+        if (discountAmount.compareTo(BigDecimal.ZERO) <= 0 || !countPromotionUsage(promotion)) {
+            return Optional.empty();
+        }
+        return Optional.of(attachToSale(sale, promotion, discountAmount, orderAmount, isAutoApplied));
+    }
+
+    private AppliedPromotion attachToSale(Sale sale, Promotion promotion, BigDecimal discountAmount,
+                                          BigDecimal orderAmount, boolean isAutoApplied) {
+        // Create applied promotion record; the promotion may be a detached index copy, so the
+        // association points at a managed reference
         AppliedPromotion appliedPromotion = new AppliedPromotion(
                 sale, promotion, discountAmount, orderAmount, isAutoApplied);
+        appliedPromotion.setPromotion(promotionRepository.getReferenceById(promotion.getId()));
 
-        // Add to sale's applied promotions
-        if (sale.getAppliedPromotions() == null) {
-            sale.setAppliedPromotions(new ArrayList<>());
-        }
-        sale.getAppliedPromotions().add(appliedPromotion);
+        addAppliedPromotion(sale, appliedPromotion);
 
         // Update sale totals
         updateSaleTotalsWithPromotions(sale);
 
-        // Increment promotion usage count
-        promotion.incrementUsageCount();
-
         log.info("Successfully applied promotion {} to sale {} with discount amount {}", 
                 promotion.getId(), sale.getId(), discountAmount);
 
         return appliedPromotion;
     }
 
+    /**
+     * Adds to the sale's applied promotions. An uninitialized lazy bag only queues the add, which
+     * later either fails the merge or counts the promotion twice, so the bag is loaded first.
+     */
+    private void addAppliedPromotion(Sale sale, AppliedPromotion appliedPromotion) {
+        if (sale.getAppliedPromotions() == null) {
+            sale.setAppliedPromotions(new ArrayList<>());
+        }
+        Hibernate.initialize(sale.getAppliedPromotions());
+        sale.getAppliedPromotions().add(appliedPromotion);
+    }
+
     /**
      * Removes a promotion from a sale
      */
@@ -206,7 +240,18 @@ public class PromotionApplicationService {
 
         // Decrement promotion usage count
         Promotion promotion = toRemove.getPromotion();
-        promotion.decrementUsageCount();
+        if (promotion.getUsageLimit() != null) {
+            long start = System.nanoTime();
+            boolean counted = promotionRepository.applyUsageDelta(promotion.getId(), -1) == 1;
+            contentionMonitor.recordUpdate(CounterContentionMonitor.PROMOTION_USAGE, promotion.getId(),
+                    counted, System.nanoTime() - start);
+            if (counted) {
+                TransactionUtils.afterCommit(() -> promotionEligibilityIndex.recordUsage(promotion.getId(), -1));
+            }
+        } else {
+            outboxService.recordPromotionUsage(promotion.getId(), -1);
+            contentionMonitor.recordBatched(CounterContentionMonitor.PROMOTION_USAGE, promotion.getId());
+        }
 
         log.info("Successfully removed promotion {} from sale {}", promotionId, sale.getId());
     }
@@ -253,6 +298,29 @@ public class PromotionApplicationService {
 
     // Private helper methods
 
+    /**
+     * Counts one use; limited promotions take a guarded atomic increment so the limit cannot be
+     * overshot, unlimited ones are batched through the outbox. Returns false once the limit is reached.
+     */
+    private boolean countPromotionUsage(Promotion promotion) {
+        if (promotion.getUsageLimit() != null) {
+            long start = System.nanoTime();
+            boolean counted = promotionRepository.incrementUsageIfBelowLimit(promotion.getId()) == 1;
+            contentionMonitor.recordUpdate(CounterContentionMonitor.PROMOTION_USAGE, promotion.getId(),
+                    counted, System.nanoTime() - start);
+            if (!counted) {
+                couponCodeCache.evict(promotion.getCouponCode());
+                return false;
+            }
+            // The index only follows committed uses; a rolled-back sale must not consume one
+            TransactionUtils.afterCommit(() -> promotionEligibilityIndex.recordUsage(promotion.getId(), 1));
+        } else {
+            outboxService.recordPromotionUsage(promotion.getId(), 1);
+            contentionMonitor.recordBatched(CounterContentionMonitor.PROMOTION_USAGE, promotion.getId());
+        }
+        return true;
+    }
+
     private boolean isPromotionEligible(Promotion promotion, Customer customer, List<SaleItem> saleItems, BigDecimal orderAmount) {
         // Check if promotion is currently active
         if (!promotion.isCurrentlyActive()) {
@@ -0,0 +1,218 @@
+package com.hamza.salesmanagementbackend.service;
+
+import com.hamza.salesmanagementbackend.entity.Product;
+import com.hamza.salesmanagementbackend.entity.Promotion;
+import com.hamza.salesmanagementbackend.entity.SaleItem;
+import com.hamza.salesmanagementbackend.repository.PromotionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable, versioned in-memory index of active and upcoming promotions, keyed by product id
+ * and category name plus a list of promotions that apply to every cart. Eligibility checks only
+ * look at the candidates for the cart's products and need no database round trip.
+ * The index is rebuilt after every promotion change commits and refreshed periodically.
+ */
+@Service
+@Slf4j
+public class PromotionEligibilityIndex {
+
+    private final PromotionRepository promotionRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile Snapshot snapshot;
+
+    private final AtomicLong versionSequence = new AtomicLong();
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong candidatesReturned = new AtomicLong();
+
+    public PromotionEligibilityIndex(PromotionRepository promotionRepository,
+                                     PlatformTransactionManager transactionManager) {
+        this.promotionRepository = promotionRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Returns promotions that may apply to the given items at the given time: global promotions
+     * plus those targeting one of the items' products or categories. Customer and order amount
+     * rules are left to the caller.
+     */
+    public List<Promotion> findCandidates(List<SaleItem> saleItems, LocalDateTime now) {
+        Snapshot current = current();
+        lookups.incrementAndGet();
+
+        Map<Long, Promotion> candidates = new LinkedHashMap<>();
+        addCandidates(candidates, current.global, current, now);
+        if (saleItems != null) {
+            for (SaleItem item : saleItems) {
+                Product product = item.getProduct();
+                if (product == null) {
+                    continue;
+                }
+                addCandidates(candidates, current.byProduct.get(product.getId()), current, now);
+                if (product.getCategory() != null) {
+                    addCandidates(candidates, current.byCategory.get(product.getCategory().getName()), current, now);
+                }
+            }
+        }
+
+        candidatesReturned.addAndGet(candidates.size());
+        return new ArrayList<>(candidates.values());
+    }
+
+    /**
+     * Tracks a counted (+1) or released (-1) use of a usage-limited promotion so exhausted
+     * promotions drop out of the index before the next rebuild
+     */
+    public void recordUsage(Long promotionId, int delta) {
+        AtomicInteger remaining = current().remainingUsage.get(promotionId);
+        if (remaining != null) {
+            remaining.addAndGet(-delta);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.warn("Could not build promotion index at startup: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Periodic refresh; picks up usage counts and changes made by other instances
+     */
+    @Scheduled(fixedDelayString = "${app.promotions.index-refresh-interval:300000}",
+               initialDelayString = "${app.promotions.index-refresh-interval:300000}")
+    public void refresh() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.warn("Promotion index refresh failed, keeping the previous version: {}", e.getMessage());
+        }
+    }
+
+    public synchronized void rebuild() {
+        Snapshot rebuilt = transactionTemplate.execute(status ->
+                build(promotionRepository.findIndexablePromotions(), versionSequence.incrementAndGet()));
+        snapshot = rebuilt;
+        log.debug("Rebuilt promotion index version {} with {} promotions", rebuilt.version, rebuilt.size);
+    }
+
+    public Map<String, Object> getStatistics() {
+        Snapshot current = snapshot;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("version", current != null ? current.version : 0);
+        stats.put("builtAt", current != null ? current.builtAt : null);
+        stats.put("promotions", current != null ? current.size : 0);
+        stats.put("globalPromotions", current != null ? current.global.size() : 0);
+        stats.put("indexedProducts", current != null ? current.byProduct.size() : 0);
+        stats.put("indexedCategories", current != null ? current.byCategory.size() : 0);
+        stats.put("lookups", lookups.get());
+        stats.put("candidatesReturned", candidatesReturned.get());
+        return stats;
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            rebuild();
+            current = snapshot;
+        }
+        return current;
+    }
+
+    private void addCandidates(Map<Long, Promotion> candidates, List<Promotion> promotions,
+                               Snapshot current, LocalDateTime now) {
+        if (promotions == null) {
+            return;
+        }
+        for (Promotion promotion : promotions) {
+            if (candidates.containsKey(promotion.getId())
+                    || !now.isAfter(promotion.getStartDate()) || !now.isBefore(promotion.getEndDate())) {
+                continue;
+            }
+            AtomicInteger remaining = current.remainingUsage.get(promotion.getId());
+            if (remaining == null || remaining.get() > 0) {
+                candidates.put(promotion.getId(), promotion);
+            }
+        }
+    }
+
+    private Snapshot build(List<Promotion> promotions, long version) {
+        List<Promotion> global = new ArrayList<>();
+        Map<Long, List<Promotion>> byProduct = new HashMap<>();
+        Map<String, List<Promotion>> byCategory = new HashMap<>();
+        Map<Long, AtomicInteger> remainingUsage = new HashMap<>();
+
+        for (Promotion source : promotions) {
+            Promotion promotion = source.detachedCopy();
+            boolean hasProducts = !promotion.getApplicableProducts().isEmpty();
+            boolean hasCategories = !promotion.getApplicableCategories().isEmpty();
+
+            if (!hasProducts && !hasCategories) {
+                global.add(promotion);
+            }
+            for (Long productId : promotion.getApplicableProducts()) {
+                byProduct.computeIfAbsent(productId, id -> new ArrayList<>()).add(promotion);
+            }
+            for (String category : promotion.getApplicableCategories()) {
+                byCategory.computeIfAbsent(category, c -> new ArrayList<>()).add(promotion);
+            }
+            if (promotion.getUsageLimit() != null) {
+                int used = promotion.getUsageCount() != null ? promotion.getUsageCount() : 0;
+                remainingUsage.put(promotion.getId(), new AtomicInteger(promotion.getUsageLimit() - used));
+            }
+        }
+
+        byProduct.replaceAll((id, list) -> Collections.unmodifiableList(list));
+        byCategory.replaceAll((category, list) -> Collections.unmodifiableList(list));
+        return new Snapshot(version, LocalDateTime.now(), promotions.size(), Collections.unmodifiableList(global),
+                Collections.unmodifiableMap(byProduct), Collections.unmodifiableMap(byCategory),
+                Collections.unmodifiableMap(remainingUsage));
+    }
+
+    /**
+     * One immutable version of the index; only the remaining-usage counters change in place
+     */
+    private static class Snapshot {
+        private final long version;
+        private final LocalDateTime builtAt;
+        private final int size;
+        private final List<Promotion> global;
+        private final Map<Long, List<Promotion>> byProduct;
+        private final Map<String, List<Promotion>> byCategory;
+        private final Map<Long, AtomicInteger> remainingUsage;
+
+        Snapshot(long version, LocalDateTime builtAt, int size, List<Promotion> global,
+                 Map<Long, List<Promotion>> byProduct, Map<String, List<Promotion>> byCategory,
+                 Map<Long, AtomicInteger> remainingUsage) {
+            this.version = version;
+            this.builtAt = builtAt;
+            this.size = size;
+            this.global = global;
+            this.byProduct = byProduct;
+            this.byCategory = byCategory;
+            this.remainingUsage = remainingUsage;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.hamza.salesmanagementbackend.service;
+
+import com.hamza.salesmanagementbackend.entity.Promotion;
+import com.hamza.salesmanagementbackend.repository.PromotionRepository;
+import com.hamza.salesmanagementbackend.util.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Flips the persisted promotion status at the exact start and end boundaries. Each promotion
+ * has at most one pending transition in a delay queue, drained by a single worker thread.
+ * This is also the one place that refreshes the eligibility index and coupon cache after a
+ * promotion changes. Pending transitions are rebuilt from the table at startup, and a periodic
+ * reconcile catches anything missed while the application was down.
+ */
+@Service
+@Slf4j
+public class PromotionLifecycleScheduler {
+
+    private final PromotionRepository promotionRepository;
+    private final PromotionEligibilityIndex promotionEligibilityIndex;
+    private final CouponCodeCache couponCodeCache;
+    private final TransactionTemplate transactionTemplate;
+
+    private final DelayQueue<Transition> queue = new DelayQueue<>();
+    private final Map<Long, Transition> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong transitionsFired = new AtomicLong();
+    private final AtomicLong statusChanges = new AtomicLong();
+    private final AtomicLong reconciledRows = new AtomicLong();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+
+    private volatile Thread worker;
+    private volatile boolean running;
+
+    public PromotionLifecycleScheduler(PromotionRepository promotionRepository,
+                                       PromotionEligibilityIndex promotionEligibilityIndex,
+                                       CouponCodeCache couponCodeCache,
+                                       PlatformTransactionManager transactionManager) {
+        this.promotionRepository = promotionRepository;
+        this.promotionEligibilityIndex = promotionEligibilityIndex;
+        this.couponCodeCache = couponCodeCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        try {
+            recover();
+        } catch (Exception e) {
+            log.warn("Could not recover promotion lifecycle transitions at startup: {}", e.getMessage());
+        }
+        running = true;
+        worker = new Thread(this::run, "promotion-lifecycle");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        Thread current = worker;
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    /**
+     * Schedules the promotion's next boundary and refreshes the in-memory views once the
+     * current transaction commits
+     */
+    public void promotionChanged(Promotion promotion) {
+        Long id = promotion.getId();
+        LocalDateTime next = promotion.nextTransitionAt(LocalDateTime.now());
+        TransactionUtils.afterCommit(() -> {
+            schedule(id, next);
+            refreshViews();
+        });
+    }
+
+    public void promotionRemoved(Long promotionId) {
+        TransactionUtils.afterCommit(() -> {
+            schedule(promotionId, null);
+            refreshViews();
+        });
+    }
+
+    /**
+     * Safety net for transitions missed while down or fired by another instance
+     */
+    @Scheduled(fixedDelayString = "${app.promotions.lifecycle-reconcile-interval:600000}",
+               initialDelayString = "${app.promotions.lifecycle-reconcile-interval:600000}")
+    public void reconcile() {
+        try {
+            if (reconcileStatuses() > 0) {
+                refreshViews();
+            }
+        } catch (Exception e) {
+            log.warn("Promotion status reconcile failed: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Transition head = queue.peek();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("pendingTransitions", pending.size());
+        stats.put("queuedEntries", queue.size());
+        stats.put("nextTransitionAt", head != null ? head.fireAt : null);
+        stats.put("transitionsFired", transitionsFired.get());
+        stats.put("statusChanges", statusChanges.get());
+        stats.put("reconciledRows", reconciledRows.get());
+        stats.put("maxLagMillis", maxLagMillis.get());
+        stats.put("running", running);
+        return stats;
+    }
+
+    private void recover() {
+        int reconciled = reconcileStatuses();
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = transactionTemplate.execute(status -> promotionRepository.findPendingTransitions(now));
+        for (Object[] row : rows) {
+            LocalDateTime startDate = (LocalDateTime) row[1];
+            schedule((Long) row[0], now.isBefore(startDate) ? startDate : (LocalDateTime) row[2]);
+        }
+        log.info("Promotion lifecycle recovered: {} statuses corrected, {} transitions pending", reconciled, rows.size());
+    }
+
+    private int reconcileStatuses() {
+        LocalDateTime now = LocalDateTime.now();
+        Integer updated = transactionTemplate.execute(status ->
+                promotionRepository.reconcileInactiveStatuses()
+                        + promotionRepository.reconcileScheduledStatuses(now)
+                        + promotionRepository.reconcileActiveStatuses(now)
+                        + promotionRepository.reconcileExpiredStatuses(now));
+        reconciledRows.addAndGet(updated);
+        return updated;
+    }
+
+    private synchronized void schedule(Long promotionId, LocalDateTime fireAt) {
+        Transition previous;
+        if (fireAt != null) {
+            Transition transition = new Transition(promotionId, fireAt);
+            previous = pending.put(promotionId, transition);
+            queue.put(transition);
+        } else {
+            previous = pending.remove(promotionId);
+        }
+        if (previous != null) {
+            queue.remove(previous);
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                Transition transition = queue.take();
+                if (pending.remove(transition.promotionId, transition)) {
+                    fire(transition);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Promotion lifecycle transition failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void fire(Transition transition) {
+        LocalDateTime now = LocalDateTime.now();
+        transitionsFired.incrementAndGet();
+        maxLagMillis.accumulateAndGet(Duration.between(transition.fireAt, now).toMillis(), Math::max);
+
+        Boolean changed = transactionTemplate.execute(status -> {
+            Promotion promotion = promotionRepository.findById(transition.promotionId).orElse(null);
+            if (promotion == null) {
+                return false;
+            }
+            Promotion.PromotionStatus resolved = promotion.resolveStatus(now);
+            schedule(promotion.getId(), promotion.nextTransitionAt(now));
+            return promotionRepository.updateStatus(promotion.getId(), resolved) > 0;
+        });
+
+        if (Boolean.TRUE.equals(changed)) {
+            statusChanges.incrementAndGet();
+            log.info("Promotion {} status updated at its {} boundary", transition.promotionId, transition.fireAt);
+            refreshViews();
+        }
+    }
+
+    // Always runs after the change committed; a synchronization registered from inside an
+    // afterCommit callback would never fire, so the views are refreshed directly
+    private void refreshViews() {
+        promotionEligibilityIndex.rebuild();
+        couponCodeCache.invalidateAndReload();
+    }
+
+    private static class Transition implements Delayed {
+        private static final long MAX_DELAY_SECONDS = Long.MAX_VALUE / 1_000_000_000L;
+
+        private final Long promotionId;
+        private final LocalDateTime fireAt;
+
+        Transition(Long promotionId, LocalDateTime fireAt) {
+            this.promotionId = promotionId;
+            this.fireAt = fireAt;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            Duration remaining = Duration.between(LocalDateTime.now(), fireAt);
+            // Saturate instead of overflowing toNanos() for far-future end dates
+            long nanos = remaining.getSeconds() >= MAX_DELAY_SECONDS ? Long.MAX_VALUE : remaining.toNanos();
+            return unit.convert(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            if (other instanceof Transition) {
+                return fireAt.compareTo(((Transition) other).fireAt);
+            }
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+}
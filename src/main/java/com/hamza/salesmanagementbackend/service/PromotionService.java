@@ -8,12 +8,12 @@ import com.hamza.salesmanagementbackend.repository.PromotionRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -26,6 +26,12 @@ public class PromotionService {
     @Autowired
     private PromotionRepository promotionRepository;
 
+    @Autowired
+    private CouponCodeCache couponCodeCache;
+
+    @Autowired
+    private PromotionLifecycleScheduler promotionLifecycleScheduler;
+
     /**
      * Creates a new promotion
      */
@@ -45,7 +51,9 @@ public class PromotionService {
             promotion.setCouponCode(generateCouponCode());
         }
 
+        promotion.refreshStatus(LocalDateTime.now());
         promotion = promotionRepository.save(promotion);
+        promotionLifecycleScheduler.promotionChanged(promotion);
         return mapToDTO(promotion);
     }
 
@@ -66,7 +74,9 @@ public class PromotionService {
 
         // Update fields
         updatePromotionFields(existingPromotion, promotionDTO);
+        existingPromotion.refreshStatus(LocalDateTime.now());
         existingPromotion = promotionRepository.save(existingPromotion);
+        promotionLifecycleScheduler.promotionChanged(existingPromotion);
         return mapToDTO(existingPromotion);
     }
 
@@ -102,6 +112,7 @@ public class PromotionService {
         }
 
         promotionRepository.delete(promotion);
+        promotionLifecycleScheduler.promotionRemoved(id);
     }
 
     /**
@@ -118,7 +129,7 @@ public class PromotionService {
      */
     @Transactional(readOnly = true)
     public List<PromotionDTO> getActivePromotions() {
-        return promotionRepository.findActivePromotions(LocalDateTime.now())
+        return promotionRepository.findActivePromotions()
                 .stream()
                 .map(this::mapToDTO)
                 .collect(Collectors.toList());
@@ -129,7 +140,7 @@ public class PromotionService {
      */
     @Transactional(readOnly = true)
     public List<PromotionDTO> getAvailablePromotions() {
-        return promotionRepository.findAvailablePromotions(LocalDateTime.now())
+        return promotionRepository.findAvailablePromotions()
                 .stream()
                 .map(this::mapToDTO)
                 .collect(Collectors.toList());
@@ -143,7 +154,9 @@ public class PromotionService {
                 .orElseThrow(() -> new ResourceNotFoundException("Promotion not found with id: " + id));
 
         promotion.activate();
+        promotion.refreshStatus(LocalDateTime.now());
         promotion = promotionRepository.save(promotion);
+        promotionLifecycleScheduler.promotionChanged(promotion);
         return mapToDTO(promotion);
     }
 
@@ -155,7 +168,9 @@ public class PromotionService {
                 .orElseThrow(() -> new ResourceNotFoundException("Promotion not found with id: " + id));
 
         promotion.deactivate();
+        promotion.refreshStatus(LocalDateTime.now());
         promotion = promotionRepository.save(promotion);
+        promotionLifecycleScheduler.promotionChanged(promotion);
         return mapToDTO(promotion);
     }
 
@@ -169,47 +184,37 @@ public class PromotionService {
     }
 
     /**
-     * Gets promotions by computed status (SCHEDULED, ACTIVE, EXPIRED, etc.)
+     * Gets promotions by lifecycle status (SCHEDULED, ACTIVE, EXPIRED, etc.)
      */
     @Transactional(readOnly = true)
     public Page<PromotionDTO> getPromotionsByStatus(String status, Pageable pageable) {
-        LocalDateTime now = LocalDateTime.now();
-        List<Promotion> promotions;
+        Page<Promotion> promotions;
 
         switch (status.toUpperCase()) {
             case "SCHEDULED":
-                promotions = promotionRepository.findScheduledPromotions(now);
+                promotions = promotionRepository.findByStatus(Promotion.PromotionStatus.SCHEDULED, pageable);
                 break;
             case "ACTIVE":
-                promotions = promotionRepository.findActivePromotions(now);
+                promotions = promotionRepository.findByStatus(Promotion.PromotionStatus.ACTIVE, pageable);
                 break;
             case "EXPIRED":
-                promotions = promotionRepository.findExpiredPromotions(now);
+                promotions = promotionRepository.findByStatus(Promotion.PromotionStatus.EXPIRED, pageable);
                 break;
             case "USAGE_LIMIT_REACHED":
-                promotions = promotionRepository.findUsageLimitReachedPromotions();
+                promotions = promotionRepository.findUsageLimitReachedPromotions(pageable);
                 break;
             case "INACTIVE":
-                promotions = promotionRepository.findByIsActive(false);
+                promotions = promotionRepository.findByStatus(Promotion.PromotionStatus.INACTIVE, pageable);
                 break;
             case "AVAILABLE":
-                promotions = promotionRepository.findAvailablePromotions(now);
+                promotions = promotionRepository.findAvailablePromotions(pageable);
                 break;
             default:
                 throw new IllegalArgumentException("Invalid status: " + status +
                     ". Valid values are: SCHEDULED, ACTIVE, EXPIRED, USAGE_LIMIT_REACHED, INACTIVE, AVAILABLE");
         }
 
-        // Convert List to Page manually since repository methods return List
-        int start = (int) pageable.getOffset();
-        int end = Math.min((start + pageable.getPageSize()), promotions.size());
-
-        List<PromotionDTO> pageContent = promotions.subList(start, end)
-                .stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
-
-        return new PageImpl<>(pageContent, pageable, promotions.size());
+        return promotions.map(this::mapToDTO);
     }
 
     /**
@@ -241,7 +246,7 @@ public class PromotionService {
      */
     @Transactional(readOnly = true)
     public PromotionDTO validateCouponCode(String couponCode) {
-        Promotion promotion = promotionRepository.findByCouponCode(couponCode)
+        Promotion promotion = couponCodeCache.findByCouponCode(couponCode)
                 .orElseThrow(() -> new BusinessLogicException("Invalid coupon code: " + couponCode));
 
         if (!promotion.isCurrentlyActive()) {
@@ -319,8 +324,8 @@ public class PromotionService {
         promotion.setMaximumDiscountAmount(promotionDTO.getMaximumDiscountAmount());
         promotion.setStartDate(promotionDTO.getStartDate());
         promotion.setEndDate(promotionDTO.getEndDate());
-        promotion.setApplicableProducts(promotionDTO.getApplicableProducts());
-        promotion.setApplicableCategories(promotionDTO.getApplicableCategories());
+        promotion.updateApplicableProducts(promotionDTO.getApplicableProducts());
+        promotion.updateApplicableCategories(promotionDTO.getApplicableCategories());
         promotion.setUsageLimit(promotionDTO.getUsageLimit());
         promotion.setCustomerEligibility(promotionDTO.getCustomerEligibility());
         promotion.setCouponCode(promotionDTO.getCouponCode());
@@ -332,7 +337,7 @@ public class PromotionService {
         }
     }
 
-    private Promotion mapToEntity(PromotionDTO dto) {
+    public Promotion mapToEntity(PromotionDTO dto) {
         return Promotion.builder()
                 .name(dto.getName())
                 .description(dto.getDescription())
@@ -368,8 +373,10 @@ public class PromotionService {
                     .startDate(promotion.getStartDate())
                     .endDate(promotion.getEndDate())
                     .isActive(promotion.getIsActive())
-                    .applicableProducts(promotion.getApplicableProducts())
-                    .applicableCategories(promotion.getApplicableCategories())
+                    .applicableProducts(promotion.getApplicableProducts() != null
+                            ? new ArrayList<>(promotion.getApplicableProducts()) : null)
+                    .applicableCategories(promotion.getApplicableCategories() != null
+                            ? new ArrayList<>(promotion.getApplicableCategories()) : null)
                     .usageLimit(promotion.getUsageLimit())
                     .usageCount(promotion.getUsageCount())
                     .customerEligibility(promotion.getCustomerEligibility())
@@ -0,0 +1,245 @@
+package com.hamza.salesmanagementbackend.service;
+
+import com.hamza.salesmanagementbackend.dto.PromotionSimulationRequestDTO;
+import com.hamza.salesmanagementbackend.dto.PromotionSimulationResultDTO;
+import com.hamza.salesmanagementbackend.entity.Category;
+import com.hamza.salesmanagementbackend.entity.Customer;
+import com.hamza.salesmanagementbackend.entity.Product;
+import com.hamza.salesmanagementbackend.entity.Promotion;
+import com.hamza.salesmanagementbackend.entity.SaleItem;
+import com.hamza.salesmanagementbackend.exception.BusinessLogicException;
+import com.hamza.salesmanagementbackend.repository.SaleItemRepository;
+import com.hamza.salesmanagementbackend.repository.SaleRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What-if replay of a draft promotion over completed sales. The window is split into sale id
+ * ranges that a fork-join pool processes in parallel; each leaf streams lean item rows in its
+ * own read-only transaction and runs them through the live eligibility and discount rules.
+ * Nothing is written and the draft is never persisted.
+ */
+@Service
+@Slf4j
+public class PromotionSimulationService {
+
+    private static final LocalDateTime ALWAYS_FROM = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime ALWAYS_UNTIL = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    private final SaleRepository saleRepository;
+    private final SaleItemRepository saleItemRepository;
+    private final PromotionService promotionService;
+    private final PromotionApplicationService promotionApplicationService;
+    private final TransactionTemplate readOnlyTransaction;
+    private final IdRangeChunker chunker;
+
+    @Value("${app.promotions.simulation-chunk-size:2000}")
+    private int chunkSize;
+
+    public PromotionSimulationService(SaleRepository saleRepository,
+                                      SaleItemRepository saleItemRepository,
+                                      PromotionService promotionService,
+                                      PromotionApplicationService promotionApplicationService,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${app.promotions.simulation-parallelism:4}") int parallelism) {
+        this.saleRepository = saleRepository;
+        this.saleItemRepository = saleItemRepository;
+        this.promotionService = promotionService;
+        this.promotionApplicationService = promotionApplicationService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.chunker = new IdRangeChunker(parallelism);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        chunker.shutdown();
+    }
+
+    public PromotionSimulationResultDTO simulate(PromotionSimulationRequestDTO request) {
+        if (!request.getStartDate().isBefore(request.getEndDate())) {
+            throw new BusinessLogicException("Start date must be before end date");
+        }
+
+        long started = System.currentTimeMillis();
+        Promotion draft = toSimulationPromotion(promotionService.mapToEntity(request.getPromotion()));
+
+        List<Object[]> bounds = saleRepository.findCompletedSaleIdBounds(request.getStartDate(), request.getEndDate());
+        Totals totals = chunker.invoke(bounds, chunkSize, new Totals(),
+                (fromId, toId) -> simulateRange(draft, request.getStartDate(), request.getEndDate(), fromId, toId),
+                Totals::merge);
+
+        long elapsed = System.currentTimeMillis() - started;
+        log.info("Simulated promotion '{}' over {} orders in {} chunks ({} ms)",
+                draft.getName(), totals.orders, totals.chunks, elapsed);
+        return toResult(request, totals, elapsed);
+    }
+
+    /**
+     * Copy of the draft that is always live and unlimited, so only the order, item and
+     * customer rules decide eligibility during the replay
+     */
+    private Promotion toSimulationPromotion(Promotion draft) {
+        draft.setIsActive(true);
+        draft.setStartDate(ALWAYS_FROM);
+        draft.setEndDate(ALWAYS_UNTIL);
+        draft.setUsageCount(0);
+        draft.setUsageLimit(null);
+        if (draft.getApplicableProducts() == null) {
+            draft.setApplicableProducts(new ArrayList<>());
+        }
+        if (draft.getApplicableCategories() == null) {
+            draft.setApplicableCategories(new ArrayList<>());
+        }
+        return draft;
+    }
+
+    private Totals simulateRange(Promotion promotion, LocalDateTime startDate, LocalDateTime endDate,
+                                 long fromId, long toId) {
+        return readOnlyTransaction.execute(status -> {
+            List<Object[]> rows = saleItemRepository.findSimulationRows(startDate, endDate, fromId, toId);
+            Totals totals = new Totals();
+            totals.chunks = 1;
+
+            Long currentSaleId = null;
+            Customer customer = null;
+            BigDecimal orderAmount = BigDecimal.ZERO;
+            BigDecimal saleTotal = BigDecimal.ZERO;
+            List<SaleItem> items = new ArrayList<>();
+
+            for (Object[] row : rows) {
+                Long saleId = (Long) row[0];
+                if (!saleId.equals(currentSaleId)) {
+                    if (currentSaleId != null) {
+                        replaySale(promotion, customer, items, orderAmount, saleTotal, totals);
+                    }
+                    currentSaleId = saleId;
+                    customer = toCustomer(row);
+                    orderAmount = row[9] != null ? (BigDecimal) row[9] : (BigDecimal) row[10];
+                    saleTotal = row[10] != null ? (BigDecimal) row[10] : BigDecimal.ZERO;
+                    items = new ArrayList<>();
+                }
+                items.add(toSaleItem(row));
+            }
+            if (currentSaleId != null) {
+                replaySale(promotion, customer, items, orderAmount, saleTotal, totals);
+            }
+            return totals;
+        });
+    }
+
+    private void replaySale(Promotion promotion, Customer customer, List<SaleItem> items,
+                            BigDecimal orderAmount, BigDecimal saleTotal, Totals totals) {
+        BigDecimal amount = orderAmount != null ? orderAmount : BigDecimal.ZERO;
+        totals.orders++;
+        totals.revenue = totals.revenue.add(saleTotal);
+        for (SaleItem item : items) {
+            BigDecimal cost = item.getCostPrice() != null ? item.getCostPrice() : BigDecimal.ZERO;
+            totals.cost = totals.cost.add(cost.multiply(BigDecimal.valueOf(item.getQuantity())));
+        }
+
+        if (promotionApplicationService.validatePromotionForSale(promotion, customer, items, amount)) {
+            BigDecimal discount = promotionApplicationService.calculatePromotionDiscount(promotion, items, amount);
+            if (discount.signum() > 0) {
+                totals.affectedOrders++;
+                totals.discount = totals.discount.add(discount);
+            }
+        }
+    }
+
+    private Customer toCustomer(Object[] row) {
+        if (row[1] == null) {
+            return null;
+        }
+        Customer customer = new Customer();
+        customer.setId((Long) row[1]);
+        customer.setCustomerType((Customer.CustomerType) row[2]);
+        customer.setTotalPurchases(row[3] != null ? (BigDecimal) row[3] : BigDecimal.ZERO);
+        return customer;
+    }
+
+    private SaleItem toSaleItem(Object[] row) {
+        Product product = new Product();
+        product.setId((Long) row[4]);
+        if (row[5] != null) {
+            Category category = new Category();
+            category.setName((String) row[5]);
+            product.setCategory(category);
+        }
+
+        SaleItem item = new SaleItem();
+        item.setProduct(product);
+        item.setUnitPrice(row[6] != null ? (BigDecimal) row[6] : BigDecimal.ZERO);
+        item.setQuantity(row[7] != null ? (Integer) row[7] : 0);
+        item.setCostPrice((BigDecimal) row[8]);
+        return item;
+    }
+
+    private PromotionSimulationResultDTO toResult(PromotionSimulationRequestDTO request, Totals totals, long elapsed) {
+        BigDecimal grossProfit = totals.revenue.subtract(totals.cost);
+        BigDecimal projectedRevenue = totals.revenue.subtract(totals.discount);
+        BigDecimal projectedGrossProfit = grossProfit.subtract(totals.discount);
+        BigDecimal margin = percentage(grossProfit, totals.revenue);
+        BigDecimal projectedMargin = percentage(projectedGrossProfit, projectedRevenue);
+        Integer usageLimit = request.getPromotion().getUsageLimit();
+
+        return PromotionSimulationResultDTO.builder()
+                .promotionName(request.getPromotion().getName())
+                .startDate(request.getStartDate())
+                .endDate(request.getEndDate())
+                .totalOrders(totals.orders)
+                .affectedOrders(totals.affectedOrders)
+                .affectedOrderPercentage(totals.orders > 0 ? totals.affectedOrders * 100.0 / totals.orders : 0.0)
+                .revenue(totals.revenue.setScale(2, RoundingMode.HALF_UP))
+                .projectedDiscountCost(totals.discount.setScale(2, RoundingMode.HALF_UP))
+                .projectedRevenue(projectedRevenue.setScale(2, RoundingMode.HALF_UP))
+                .averageDiscountPerAffectedOrder(totals.affectedOrders > 0
+                        ? totals.discount.divide(BigDecimal.valueOf(totals.affectedOrders), 2, RoundingMode.HALF_UP)
+                        : BigDecimal.ZERO)
+                .grossProfit(grossProfit.setScale(2, RoundingMode.HALF_UP))
+                .projectedGrossProfit(projectedGrossProfit.setScale(2, RoundingMode.HALF_UP))
+                .marginPercentage(margin)
+                .projectedMarginPercentage(projectedMargin)
+                .marginChangePoints(projectedMargin.subtract(margin))
+                .usageLimitExceeded(usageLimit != null && totals.affectedOrders > usageLimit)
+                .chunks(totals.chunks)
+                .elapsedMillis(elapsed)
+                .build();
+    }
+
+    private BigDecimal percentage(BigDecimal part, BigDecimal whole) {
+        if (whole.signum() == 0) {
+            return BigDecimal.ZERO.setScale(2);
+        }
+        return part.multiply(BigDecimal.valueOf(100)).divide(whole, 2, RoundingMode.HALF_UP);
+    }
+
+    private static class Totals {
+        private int chunks;
+        private long orders;
+        private long affectedOrders;
+        private BigDecimal revenue = BigDecimal.ZERO;
+        private BigDecimal cost = BigDecimal.ZERO;
+        private BigDecimal discount = BigDecimal.ZERO;
+
+        Totals merge(Totals other) {
+            chunks += other.chunks;
+            orders += other.orders;
+            affectedOrders += other.affectedOrders;
+            revenue = revenue.add(other.revenue);
+            cost = cost.add(other.cost);
+            discount = discount.add(other.discount);
+            return this;
+        }
+    }
+}
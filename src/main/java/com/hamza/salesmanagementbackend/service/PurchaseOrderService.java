@@ -5,6 +5,7 @@ import com.hamza.salesmanagementbackend.dto.PurchaseOrderItemDTO;
 import com.hamza.salesmanagementbackend.entity.Product;
 import com.hamza.salesmanagementbackend.entity.PurchaseOrder;
 import com.hamza.salesmanagementbackend.entity.PurchaseOrderItem;
+import com.hamza.salesmanagementbackend.entity.StockMovement;
 import com.hamza.salesmanagementbackend.entity.Supplier;
 import com.hamza.salesmanagementbackend.exception.BusinessLogicException;
 import com.hamza.salesmanagementbackend.exception.ResourceNotFoundException;
@@ -33,6 +34,8 @@ public class PurchaseOrderService {
     private final PurchaseOrderRepository purchaseOrderRepository;
     private final SupplierRepository supplierRepository;
     private final ProductRepository productRepository;
+    private final ProductService productService;
+    private final CostLayerService costLayerService;
 
     /**
      * Creates a new purchase order with validation
@@ -273,6 +276,64 @@ public class PurchaseOrderService {
         return mapToDTO(savedOrder);
     }
 
+    /**
+     * Receives goods against a sent order and restocks the products. Quantities are keyed by
+     * item ID; an empty map receives everything still pending. Quantities above an item's
+     * pending quantity are capped. The order is marked delivered once every item is received.
+     */
+    public PurchaseOrderDTO receivePurchaseOrderItems(Long id, Map<Long, Integer> quantitiesByItemId) {
+        // Lock the order before reading its items, so a retried or doubled receipt sees the
+        // quantities the first one received instead of restocking them again
+        purchaseOrderRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Purchase order not found with ID: " + id));
+        PurchaseOrder purchaseOrder = purchaseOrderRepository.findByIdWithItems(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Purchase order not found with ID: " + id));
+
+        if (purchaseOrder.getStatus() != PurchaseOrder.PurchaseOrderStatus.SENT
+                && purchaseOrder.getStatus() != PurchaseOrder.PurchaseOrderStatus.DELIVERED) {
+            throw new BusinessLogicException("Cannot receive items for order with status: " + purchaseOrder.getStatus());
+        }
+
+        Map<Long, PurchaseOrderItem> itemsById = purchaseOrder.getItems().stream()
+                .collect(Collectors.toMap(PurchaseOrderItem::getId, item -> item));
+        for (Long itemId : quantitiesByItemId.keySet()) {
+            if (!itemsById.containsKey(itemId)) {
+                throw new ResourceNotFoundException("Purchase order item not found with ID: " + itemId);
+            }
+        }
+
+        int receivedUnits = 0;
+        for (PurchaseOrderItem item : purchaseOrder.getItems()) {
+            Integer requested = quantitiesByItemId.isEmpty()
+                    ? item.getRemainingQuantity()
+                    : quantitiesByItemId.get(item.getId());
+            if (requested == null || requested <= 0) {
+                continue;
+            }
+            int quantity = Math.min(requested, item.getRemainingQuantity());
+            if (quantity <= 0) {
+                continue;
+            }
+            item.receiveQuantity(quantity);
+            productService.restockProduct(item.getProduct().getId(), quantity,
+                    StockMovement.MovementType.PURCHASE_RECEIPT, item.getUnitCost(), "PURCHASE_ORDER:" + purchaseOrder.getId());
+            costLayerService.recordReceipt(item.getProduct().getId(), quantity, item.getUnitCost(),
+                    "PURCHASE_ORDER_ITEM", item.getId());
+            receivedUnits += quantity;
+        }
+
+        if (receivedUnits == 0) {
+            throw new BusinessLogicException("No pending quantities to receive");
+        }
+        if (purchaseOrder.isFullyReceived()) {
+            purchaseOrder.markAsDelivered();
+        }
+
+        log.info("Received {} units against purchase order {}", receivedUnits, purchaseOrder.getOrderNumber());
+        PurchaseOrder savedOrder = purchaseOrderRepository.save(purchaseOrder);
+        return mapToDTO(savedOrder);
+    }
+
     // Private helper methods
 
     private String generateOrderNumber() {
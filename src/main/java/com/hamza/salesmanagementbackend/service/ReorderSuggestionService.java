@@ -0,0 +1,425 @@
+package com.hamza.salesmanagementbackend.service;
+
+import com.hamza.salesmanagementbackend.dto.PurchaseOrderDTO;
+import com.hamza.salesmanagementbackend.dto.PurchaseOrderItemDTO;
+import com.hamza.salesmanagementbackend.dto.ReorderSuggestionDTO;
+import com.hamza.salesmanagementbackend.entity.PurchaseOrder;
+import com.hamza.salesmanagementbackend.entity.ReorderSuggestion;
+import com.hamza.salesmanagementbackend.entity.Supplier;
+import com.hamza.salesmanagementbackend.exception.BusinessLogicException;
+import com.hamza.salesmanagementbackend.repository.ProductRepository;
+import com.hamza.salesmanagementbackend.repository.PurchaseOrderItemRepository;
+import com.hamza.salesmanagementbackend.repository.ReorderSuggestionRepository;
+import com.hamza.salesmanagementbackend.repository.SaleItemRepository;
+import com.hamza.salesmanagementbackend.repository.SupplierRepository;
+import com.hamza.salesmanagementbackend.util.NumberUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Batch job that turns recent sales into reorder suggestions. Products are split into id ranges
+ * of about chunkSize that a fork-join pool processes in parallel; each range reads its products,
+ * units sold and open order quantities with one query apiece, writes its suggestions in its own
+ * transaction and hands back only the lines that need ordering. Those lines are then grouped by
+ * supplier into PENDING purchase orders for a buyer to review.
+ */
+@Service
+@Slf4j
+public class ReorderSuggestionService {
+
+    private static final String CREATED_BY = "reorder-job";
+
+    private final ProductRepository productRepository;
+    private final SaleItemRepository saleItemRepository;
+    private final PurchaseOrderItemRepository purchaseOrderItemRepository;
+    private final SupplierRepository supplierRepository;
+    private final ReorderSuggestionRepository reorderSuggestionRepository;
+    private final ShardedStockService shardedStockService;
+    private final PurchaseOrderService purchaseOrderService;
+    private final TransactionTemplate transactionTemplate;
+    private final IdRangeChunker chunker;
+
+    @Value("${app.inventory.reorder-chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${app.inventory.reorder-lookback-days:90}")
+    private int lookbackDays;
+
+    @Value("${app.inventory.reorder-recent-days:30}")
+    private int recentDays;
+
+    @Value("${app.inventory.reorder-lead-time-days:7}")
+    private int leadTimeDays;
+
+    @Value("${app.inventory.reorder-safety-stock-days:7}")
+    private int safetyStockDays;
+
+    @Value("${app.inventory.reorder-coverage-days:30}")
+    private int coverageDays;
+
+    @Value("${app.inventory.reorder-create-draft-orders:true}")
+    private boolean createDraftOrders;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong chunksProcessed = new AtomicLong();
+    private final AtomicLong productsProcessed = new AtomicLong();
+    private final AtomicLong draftOrdersCreated = new AtomicLong();
+    private volatile Map<String, Object> lastRun;
+
+    public ReorderSuggestionService(ProductRepository productRepository,
+                                    SaleItemRepository saleItemRepository,
+                                    PurchaseOrderItemRepository purchaseOrderItemRepository,
+                                    SupplierRepository supplierRepository,
+                                    ReorderSuggestionRepository reorderSuggestionRepository,
+                                    ShardedStockService shardedStockService,
+                                    PurchaseOrderService purchaseOrderService,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${app.inventory.reorder-parallelism:4}") int parallelism) {
+        this.productRepository = productRepository;
+        this.saleItemRepository = saleItemRepository;
+        this.purchaseOrderItemRepository = purchaseOrderItemRepository;
+        this.supplierRepository = supplierRepository;
+        this.reorderSuggestionRepository = reorderSuggestionRepository;
+        this.shardedStockService = shardedStockService;
+        this.purchaseOrderService = purchaseOrderService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.chunker = new IdRangeChunker(parallelism);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        chunker.shutdown();
+    }
+
+    @Scheduled(cron = "${app.inventory.reorder-job-cron:0 0 2 * * *}")
+    public void runScheduled() {
+        try {
+            run();
+        } catch (Exception e) {
+            log.warn("Reorder suggestion run failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Recomputes every product's suggestion and drafts purchase orders; returns the run summary
+     */
+    public Map<String, Object> run() {
+        if (!running.compareAndSet(false, true)) {
+            throw new BusinessLogicException("A reorder suggestion run is already in progress");
+        }
+        try {
+            return execute();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public Page<ReorderSuggestionDTO> getSuggestions(boolean neededOnly, Pageable pageable) {
+        return reorderSuggestionRepository.findWithProducts(neededOnly, pageable)
+                .map(row -> toDTO((ReorderSuggestion) row[0], (String) row[1], (String) row[2]));
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("running", running.get());
+        stats.put("runs", runs.get());
+        stats.put("chunksProcessed", chunksProcessed.get());
+        stats.put("productsProcessed", productsProcessed.get());
+        stats.put("draftOrdersCreated", draftOrdersCreated.get());
+        stats.put("lastRun", lastRun);
+        return stats;
+    }
+
+    private Map<String, Object> execute() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long started = System.currentTimeMillis();
+        RunContext context = transactionTemplate.execute(status -> loadContext(startedAt));
+
+        List<Object[]> bounds = transactionTemplate.execute(status -> productRepository.findIdBounds());
+        RunTotals totals = chunker.invoke(bounds, chunkSize, new RunTotals(),
+                (fromId, toId) -> suggestRange(context, fromId, toId), RunTotals::merge);
+        long suggestMillis = System.currentTimeMillis() - started;
+
+        int draftOrders = 0;
+        int failedOrders = 0;
+        if (createDraftOrders && !totals.lines.isEmpty()) {
+            Map<Long, List<DraftLine>> linesBySupplier = new TreeMap<>();
+            for (DraftLine line : totals.lines) {
+                linesBySupplier.computeIfAbsent(line.supplierId, id -> new ArrayList<>()).add(line);
+            }
+            for (Map.Entry<Long, List<DraftLine>> entry : linesBySupplier.entrySet()) {
+                try {
+                    purchaseOrderService.createPurchaseOrder(toDraftOrder(entry.getKey(), entry.getValue()));
+                    draftOrders++;
+                } catch (RuntimeException e) {
+                    failedOrders++;
+                    log.warn("Could not draft a purchase order for supplier {}: {}", entry.getKey(), e.getMessage());
+                }
+            }
+            draftOrdersCreated.addAndGet(draftOrders);
+        }
+
+        long elapsed = System.currentTimeMillis() - started;
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("startedAt", startedAt);
+        summary.put("finishedAt", LocalDateTime.now());
+        summary.put("durationMs", elapsed);
+        summary.put("suggestDurationMs", suggestMillis);
+        summary.put("products", totals.products);
+        summary.put("chunks", totals.chunks);
+        summary.put("needingReorder", totals.needingReorder);
+        summary.put("draftLines", totals.lines.size());
+        summary.put("draftOrders", draftOrders);
+        summary.put("failedDraftOrders", failedOrders);
+        summary.put("skippedNoSupplier", totals.skippedNoSupplier);
+        summary.put("skippedNoCost", totals.skippedNoCost);
+        summary.put("skippedAtMaxStock", totals.skippedAtMaxStock);
+        summary.put("productsPerSecond", suggestMillis > 0 ? totals.products * 1000 / suggestMillis : totals.products);
+        summary.put("avgChunkMs", totals.chunks > 0 ? totals.chunkMillis / totals.chunks : 0);
+        summary.put("maxChunkMs", totals.maxChunkMillis);
+        summary.put("minChunkProductsPerSecond", totals.minChunkRate != Long.MAX_VALUE ? totals.minChunkRate : 0);
+        lastRun = summary;
+        runs.incrementAndGet();
+
+        log.info("Reorder suggestions computed for {} products in {} chunks ({} ms); {} need reordering, {} draft orders",
+                totals.products, totals.chunks, elapsed, totals.needingReorder, draftOrders);
+        return summary;
+    }
+
+    private RunContext loadContext(LocalDateTime now) {
+        RunContext context = new RunContext();
+        context.since = now.minusDays(Math.max(1, lookbackDays));
+        context.recentSince = now.minusDays(Math.max(1, Math.min(recentDays, lookbackDays)));
+        for (Supplier supplier : supplierRepository.findByStatus(Supplier.SupplierStatus.ACTIVE)) {
+            if (supplier.getName() != null) {
+                context.supplierIdsByName.putIfAbsent(supplier.getName().trim().toLowerCase(), supplier.getId());
+            }
+        }
+        return context;
+    }
+
+    /**
+     * Computes and stores the suggestions for one id range
+     */
+    private RunTotals suggestRange(RunContext context, long fromId, long toId) {
+        long chunkStarted = System.currentTimeMillis();
+        RunTotals totals = transactionTemplate.execute(status -> {
+            RunTotals result = new RunTotals();
+            List<Object[]> products = productRepository.findReorderInputs(fromId, toId);
+            if (products.isEmpty()) {
+                return result;
+            }
+            List<Long> ids = new ArrayList<>(products.size());
+            for (Object[] product : products) {
+                ids.add((Long) product[0]);
+            }
+
+            Map<Long, long[]> sold = new HashMap<>();
+            for (Object[] row : saleItemRepository.sumUnitsSoldByProduct(ids, context.since, context.recentSince)) {
+                sold.put((Long) row[0], new long[]{NumberUtils.toLong(row[1]), NumberUtils.toLong(row[2])});
+            }
+            Map<Long, Integer> onOrder = new HashMap<>();
+            for (Object[] row : purchaseOrderItemRepository.sumOpenQuantitiesByProduct(ids)) {
+                onOrder.put((Long) row[0], (int) NumberUtils.toLong(row[1]));
+            }
+            Map<Long, Object[]> lastSupply = new HashMap<>();
+            for (Object[] row : purchaseOrderItemRepository.findLatestSupplyByProduct(ids)) {
+                lastSupply.put((Long) row[0], row);
+            }
+            Map<Long, ReorderSuggestion> existing = new HashMap<>();
+            for (ReorderSuggestion suggestion : reorderSuggestionRepository.findByProductIdIn(ids)) {
+                existing.put(suggestion.getProductId(), suggestion);
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            List<ReorderSuggestion> toSave = new ArrayList<>(products.size());
+            for (Object[] product : products) {
+                Long productId = (Long) product[0];
+                Integer shardCount = (Integer) product[2];
+                int onHand = shardCount != null && shardCount > 1
+                        ? shardedStockService.getTotalStock(productId)
+                        : product[1] != null ? (Integer) product[1] : 0;
+                int minStockLevel = product[3] != null ? (Integer) product[3] : 0;
+                Integer maxStockLevel = (Integer) product[4];
+                long[] units = sold.getOrDefault(productId, new long[2]);
+
+                double velocity = Math.max(units[0] / (double) Math.max(1, lookbackDays),
+                        units[1] / (double) Math.max(1, Math.min(recentDays, lookbackDays)));
+                int point = Math.max(minStockLevel, (int) Math.ceil(velocity * (leadTimeDays + safetyStockDays)));
+                int quantity = velocity > 0 ? Math.max(1, (int) Math.ceil(velocity * coverageDays)) : 0;
+                int ordered = onOrder.getOrDefault(productId, 0);
+                boolean needsReorder = quantity > 0 && onHand + ordered <= point;
+                // Order up to the suggested point plus one suggested quantity, never past the maximum
+                int orderQuantity = point + quantity - onHand - ordered;
+                if (maxStockLevel != null && maxStockLevel > 0) {
+                    orderQuantity = Math.min(orderQuantity, maxStockLevel - onHand - ordered);
+                    quantity = Math.max(0, Math.min(quantity, maxStockLevel - point));
+                }
+
+                Object[] supply = lastSupply.get(productId);
+                Long supplierId = supply != null ? (Long) supply[1]
+                        : product[8] != null ? context.supplierIdsByName.get(((String) product[8]).trim().toLowerCase()) : null;
+
+                ReorderSuggestion suggestion = existing.getOrDefault(productId,
+                        ReorderSuggestion.builder().productId(productId).build());
+                suggestion.setDailyVelocity(BigDecimal.valueOf(velocity).setScale(4, RoundingMode.HALF_UP));
+                suggestion.setUnitsSold((int) units[0]);
+                suggestion.setOnHand(onHand);
+                suggestion.setOnOrder(ordered);
+                suggestion.setCurrentReorderPoint((Integer) product[5]);
+                suggestion.setCurrentReorderQuantity((Integer) product[6]);
+                suggestion.setSuggestedReorderPoint(point);
+                suggestion.setSuggestedReorderQuantity(quantity);
+                suggestion.setSupplierId(supplierId);
+                suggestion.setNeedsReorder(needsReorder);
+                suggestion.setComputedAt(now);
+                toSave.add(suggestion);
+
+                result.products++;
+                if (!needsReorder) {
+                    continue;
+                }
+                result.needingReorder++;
+                BigDecimal costPrice = (BigDecimal) product[7];
+                BigDecimal unitCost = supply != null ? (BigDecimal) supply[2]
+                        : costPrice != null && costPrice.signum() > 0 ? costPrice : null;
+                if (orderQuantity <= 0) {
+                    result.skippedAtMaxStock++;
+                } else if (supplierId == null) {
+                    result.skippedNoSupplier++;
+                } else if (unitCost == null || unitCost.signum() <= 0) {
+                    result.skippedNoCost++;
+                } else {
+                    result.lines.add(new DraftLine(productId, supplierId, orderQuantity, unitCost, onHand <= 0));
+                }
+            }
+            reorderSuggestionRepository.saveAll(toSave);
+            return result;
+        });
+
+        long chunkMillis = System.currentTimeMillis() - chunkStarted;
+        totals.chunks = 1;
+        totals.chunkMillis = chunkMillis;
+        totals.maxChunkMillis = chunkMillis;
+        if (totals.products > 0) {
+            totals.minChunkRate = chunkMillis > 0 ? totals.products * 1000 / chunkMillis : totals.products;
+        }
+        chunksProcessed.incrementAndGet();
+        productsProcessed.addAndGet(totals.products);
+        return totals;
+    }
+
+    private PurchaseOrderDTO toDraftOrder(Long supplierId, List<DraftLine> lines) {
+        List<PurchaseOrderItemDTO> items = new ArrayList<>(lines.size());
+        boolean urgent = false;
+        for (DraftLine line : lines) {
+            items.add(PurchaseOrderItemDTO.builder()
+                    .productId(line.productId)
+                    .quantity(line.quantity)
+                    .unitCost(line.unitCost)
+                    .notes("Suggested from sales velocity")
+                    .build());
+            urgent |= line.outOfStock;
+        }
+        return PurchaseOrderDTO.builder()
+                .supplierId(supplierId)
+                .priority(urgent ? PurchaseOrder.OrderPriority.HIGH : PurchaseOrder.OrderPriority.NORMAL)
+                .expectedDeliveryDate(LocalDateTime.now().plusDays(leadTimeDays))
+                .notes("Draft generated by the reorder suggestion job; review before approving")
+                .createdBy(CREATED_BY)
+                .items(items)
+                .build();
+    }
+
+    private static ReorderSuggestionDTO toDTO(ReorderSuggestion suggestion, String productName, String productSku) {
+        return ReorderSuggestionDTO.builder()
+                .productId(suggestion.getProductId())
+                .productName(productName)
+                .productSku(productSku)
+                .dailyVelocity(suggestion.getDailyVelocity())
+                .unitsSold(suggestion.getUnitsSold())
+                .onHand(suggestion.getOnHand())
+                .onOrder(suggestion.getOnOrder())
+                .currentReorderPoint(suggestion.getCurrentReorderPoint())
+                .currentReorderQuantity(suggestion.getCurrentReorderQuantity())
+                .suggestedReorderPoint(suggestion.getSuggestedReorderPoint())
+                .suggestedReorderQuantity(suggestion.getSuggestedReorderQuantity())
+                .supplierId(suggestion.getSupplierId())
+                .needsReorder(suggestion.getNeedsReorder())
+                .computedAt(suggestion.getComputedAt())
+                .build();
+    }
+
+    /**
+     * Read once per run and shared by every chunk
+     */
+    private static class RunContext {
+        private LocalDateTime since;
+        private LocalDateTime recentSince;
+        private final Map<String, Long> supplierIdsByName = new HashMap<>();
+    }
+
+    private static class DraftLine {
+        private final Long productId;
+        private final Long supplierId;
+        private final int quantity;
+        private final BigDecimal unitCost;
+        private final boolean outOfStock;
+
+        DraftLine(Long productId, Long supplierId, int quantity, BigDecimal unitCost, boolean outOfStock) {
+            this.productId = productId;
+            this.supplierId = supplierId;
+            this.quantity = quantity;
+            this.unitCost = unitCost;
+            this.outOfStock = outOfStock;
+        }
+    }
+
+    private static class RunTotals {
+        private long products;
+        private long needingReorder;
+        private long skippedNoSupplier;
+        private long skippedNoCost;
+        private long skippedAtMaxStock;
+        private int chunks;
+        private long chunkMillis;
+        private long maxChunkMillis;
+        private long minChunkRate = Long.MAX_VALUE;
+        private final List<DraftLine> lines = new ArrayList<>();
+
+        RunTotals merge(RunTotals other) {
+            products += other.products;
+            needingReorder += other.needingReorder;
+            skippedNoSupplier += other.skippedNoSupplier;
+            skippedNoCost += other.skippedNoCost;
+            skippedAtMaxStock += other.skippedAtMaxStock;
+            chunks += other.chunks;
+            chunkMillis += other.chunkMillis;
+            maxChunkMillis = Math.max(maxChunkMillis, other.maxChunkMillis);
+            minChunkRate = Math.min(minChunkRate, other.minChunkRate);
+            lines.addAll(other.lines);
+            return this;
+        }
+    }
+}
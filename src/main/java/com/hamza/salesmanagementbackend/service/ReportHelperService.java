@@ -10,6 +10,7 @@ import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -25,6 +26,7 @@ import java.util.stream.Collectors;
 public class ReportHelperService {
 
     private final SaleRepository saleRepository;
+    private final SalesPeriodAggregateService salesPeriodAggregateService;
 
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
@@ -243,22 +245,18 @@ public class ReportHelperService {
                 .build();
     }
 
-    public SalesReportDTO.RegionalAnalysis generateRegionalAnalysis(List<Sale> sales) {
-        // Extract regions from customer addresses
+    /**
+     * Completed sales and revenue per customer region in the period, grouped by region id in SQL
+     */
+    public SalesReportDTO.RegionalAnalysis generateRegionalAnalysis(LocalDateTime startDate, LocalDateTime endDate) {
         Map<String, BigDecimal> revenueByRegion = new HashMap<>();
         Map<String, Long> salesByRegion = new HashMap<>();
 
-        for (Sale sale : sales) {
-            if (sale.getCustomer() != null) {
-                String region = extractRegionFromCustomer(sale.getCustomer());
-                BigDecimal amount = sale.getTotalAmount() != null ? sale.getTotalAmount() : BigDecimal.ZERO;
-
-                // Update revenue by region
-                revenueByRegion.merge(region, amount, BigDecimal::add);
-
-                // Update sales count by region
-                salesByRegion.merge(region, 1L, Long::sum);
-            }
+        for (Object[] row : saleRepository.summarizeCompletedSalesByRegion(startDate, endDate)) {
+            // Customers not resolved yet by the region backfill have no region
+            String region = row[0] != null ? (String) row[0] : "Unknown";
+            revenueByRegion.merge(region, (BigDecimal) row[2], BigDecimal::add);
+            salesByRegion.merge(region, ((Number) row[1]).longValue(), Long::sum);
         }
 
         // Find top performing region
@@ -296,38 +294,14 @@ public class ReportHelperService {
         return (completedSales * 100.0) / totalSalesAttempts;
     }
 
+    /**
+     * Revenue growth of [start, end) over the equally long period just before it
+     */
     private BigDecimal calculateRevenueGrowth(ReportRequestDTO request) {
         try {
-            // Calculate the duration of the current period
-            long daysBetween = java.time.temporal.ChronoUnit.DAYS.between(
-                request.getStartDate().toLocalDate(),
-                request.getEndDate().toLocalDate()
-            );
-
-            // Get previous period data
-            LocalDateTime previousStart = request.getStartDate().minusDays(daysBetween);
-            LocalDateTime previousEnd = request.getStartDate().minusDays(1);
-
-            // Current period revenue
-            List<Sale> currentSales = saleRepository.findBySaleDateBetween(
-                request.getStartDate(), request.getEndDate())
-                .stream()
-                .filter(sale -> sale.getStatus() == SaleStatus.COMPLETED)
-                .collect(Collectors.toList());
-
-            BigDecimal currentRevenue = currentSales.stream()
-                .map(sale -> sale.getTotalAmount() != null ? sale.getTotalAmount() : BigDecimal.ZERO)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            // Previous period revenue
-            List<Sale> previousSales = saleRepository.findBySaleDateBetween(previousStart, previousEnd)
-                .stream()
-                .filter(sale -> sale.getStatus() == SaleStatus.COMPLETED)
-                .collect(Collectors.toList());
-
-            BigDecimal previousRevenue = previousSales.stream()
-                .map(sale -> sale.getTotalAmount() != null ? sale.getTotalAmount() : BigDecimal.ZERO)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+            BigDecimal currentRevenue = salesPeriodAggregateService
+                    .getAggregate(request.getStartDate(), request.getEndDate()).getRevenue();
+            BigDecimal previousRevenue = previousPeriod(request).getRevenue();
 
             if (previousRevenue.compareTo(BigDecimal.ZERO) == 0) {
                 return currentRevenue.compareTo(BigDecimal.ZERO) > 0 ? BigDecimal.valueOf(100) : BigDecimal.ZERO;
@@ -347,28 +321,9 @@ public class ReportHelperService {
 
     private Double calculateSalesGrowth(ReportRequestDTO request) {
         try {
-            // Calculate the duration of the current period
-            long daysBetween = java.time.temporal.ChronoUnit.DAYS.between(
-                request.getStartDate().toLocalDate(),
-                request.getEndDate().toLocalDate()
-            );
-
-            // Get previous period data
-            LocalDateTime previousStart = request.getStartDate().minusDays(daysBetween);
-            LocalDateTime previousEnd = request.getStartDate().minusDays(1);
-
-            // Current period sales count
-            long currentSalesCount = saleRepository.findBySaleDateBetween(
-                request.getStartDate(), request.getEndDate())
-                .stream()
-                .filter(sale -> sale.getStatus() == SaleStatus.COMPLETED)
-                .count();
-
-            // Previous period sales count
-            long previousSalesCount = saleRepository.findBySaleDateBetween(previousStart, previousEnd)
-                .stream()
-                .filter(sale -> sale.getStatus() == SaleStatus.COMPLETED)
-                .count();
+            long currentSalesCount = salesPeriodAggregateService
+                    .getAggregate(request.getStartDate(), request.getEndDate()).getSalesCount();
+            long previousSalesCount = previousPeriod(request).getSalesCount();
 
             if (previousSalesCount == 0) {
                 return currentSalesCount > 0 ? 100.0 : 0.0;
@@ -383,6 +338,11 @@ public class ReportHelperService {
         }
     }
 
+    private SalesPeriodAggregateService.PeriodAggregate previousPeriod(ReportRequestDTO request) {
+        Duration length = Duration.between(request.getStartDate(), request.getEndDate());
+        return salesPeriodAggregateService.getAggregate(request.getStartDate().minus(length), request.getStartDate());
+    }
+
     private String determineCustomerSegment(BigDecimal totalSpent, int orderCount) {
         if (totalSpent.compareTo(BigDecimal.valueOf(10000)) > 0) {
             return "VIP";
@@ -394,54 +354,4 @@ public class ReportHelperService {
             return "Regular";
         }
     }
-
-    private String extractRegionFromCustomer(Customer customer) {
-        if (customer == null) {
-            return "Unknown";
-        }
-
-        String address = customer.getAddress();
-        if (address == null || address.trim().isEmpty()) {
-            address = customer.getBillingAddress();
-        }
-
-        if (address == null || address.trim().isEmpty()) {
-            return "Unknown";
-        }
-
-        // Simple region extraction based on common patterns
-        String lowerAddress = address.toLowerCase();
-
-        // Check for common region indicators
-        if (lowerAddress.contains("north") || lowerAddress.contains("northern")) {
-            return "North Region";
-        } else if (lowerAddress.contains("south") || lowerAddress.contains("southern")) {
-            return "South Region";
-        } else if (lowerAddress.contains("east") || lowerAddress.contains("eastern")) {
-            return "East Region";
-        } else if (lowerAddress.contains("west") || lowerAddress.contains("western")) {
-            return "West Region";
-        } else if (lowerAddress.contains("central") || lowerAddress.contains("center")) {
-            return "Central Region";
-        }
-
-        // Check for state/province patterns (simplified)
-        if (lowerAddress.contains("ca") || lowerAddress.contains("california")) {
-            return "West Region";
-        } else if (lowerAddress.contains("ny") || lowerAddress.contains("new york")) {
-            return "East Region";
-        } else if (lowerAddress.contains("tx") || lowerAddress.contains("texas")) {
-            return "South Region";
-        } else if (lowerAddress.contains("il") || lowerAddress.contains("illinois")) {
-            return "Central Region";
-        }
-
-        // Default to extracting first part of address as region
-        String[] parts = address.split(",");
-        if (parts.length > 1) {
-            return parts[parts.length - 1].trim() + " Region";
-        }
-
-        return "Unknown Region";
-    }
 }
@@ -7,6 +7,7 @@ import com.hamza.salesmanagementbackend.repository.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -33,6 +34,12 @@ public class ReportService {
     private final AppliedPromotionRepository appliedPromotionRepository;
     private final ReportHelperService reportHelperService;
     private final ReturnRepository returnRepository;
+    private final SaleItemRepository saleItemRepository;
+    private final CategoryRepository categoryRepository;
+    private final CategoryHierarchyService categoryHierarchyService;
+    private final StockAlertService stockAlertService;
+    private final CustomerRfmScoreRepository customerRfmScoreRepository;
+    private final CostLayerService costLayerService;
 
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM");
@@ -542,7 +549,7 @@ public class ReportService {
                 .salesByStatus(generateSalesByStatus(sales))
                 .trends(generateSalesTrendsData(completedSales, request))
                 .paymentAnalysis(reportHelperService.generatePaymentMethodAnalysis(completedSales))
-                .regionalAnalysis(reportHelperService.generateRegionalAnalysis(completedSales))
+                .regionalAnalysis(reportHelperService.generateRegionalAnalysis(request.getStartDate(), request.getEndDate()))
                 .build();
     }
 
@@ -588,7 +595,8 @@ public class ReportService {
     /**
      * Generate customer analytics report with segmentation
      */
-    public Map<String, Object> generateCustomerAnalyticsReport(Boolean includeInactive, int months) {
+    public Map<String, Object> generateCustomerAnalyticsReport(Boolean includeInactive, int months,
+                                                               int detailsPage, int detailsSize) {
         log.info("Generating customer analytics report for {} months, includeInactive: {}", months, includeInactive);
 
         LocalDateTime cutoffDate = LocalDateTime.now().minusMonths(months);
@@ -598,11 +606,11 @@ public class ReportService {
                 .collect(Collectors.toList());
 
         Map<String, Object> analytics = new HashMap<>();
-        analytics.put("customerSegmentation", generateCustomerSegmentation(recentSales));
-        analytics.put("lifetimeValueAnalysis", generateLifetimeValueAnalysis(recentSales));
+        analytics.put("customerSegmentation", generateCustomerSegmentation(PageRequest.of(detailsPage, detailsSize)));
+        analytics.put("lifetimeValueAnalysis", generateLifetimeValueAnalysis());
         analytics.put("behaviorAnalysis", generateCustomerBehaviorAnalysis(recentSales));
         analytics.put("acquisitionMetrics", generateCustomerAcquisitionMetrics(months));
-        analytics.put("churnAnalysis", generateChurnAnalysis(months));
+        analytics.put("churnAnalysis", generateChurnAnalysis());
 
         return analytics;
     }
@@ -667,10 +675,12 @@ public class ReportService {
         }
 
         if (request.getCategoryIds() != null && !request.getCategoryIds().isEmpty()) {
+            // A parent category also selects everything below it
+            Set<Long> categoryIds = categoryHierarchyService.expandToSubtrees(request.getCategoryIds());
             sales = sales.stream()
                     .filter(sale -> sale.getItems().stream()
                             .anyMatch(item -> item.getProduct().getCategory() != null &&
-                                    request.getCategoryIds().contains(item.getProduct().getCategory().getId())))
+                                    categoryIds.contains(item.getProduct().getCategory().getId())))
                     .collect(Collectors.toList());
         }
 
@@ -683,6 +693,7 @@ public class ReportService {
         performance.put("productRankings", generateProductRankings(sales));
         performance.put("profitabilityAnalysis", generateProfitabilityAnalysis(sales));
         performance.put("categoryPerformance", generateCategoryPerformance(sales));
+        performance.put("categoryRollup", generateCategoryRollup(request));
 
         // Additional analysis sections
         performance.put("productTrends", generateProductTrends(sales));
@@ -763,11 +774,15 @@ public class ReportService {
                     .collect(Collectors.toList());
         }
 
+        CostLayerService.ValuationMethod method = CostLayerService.ValuationMethod.parse(valuationMethod);
+        Map<Long, CostLayerService.ProductValuation> valuations = costLayerService.getValuations(
+                products.stream().map(Product::getId).collect(Collectors.toList()));
+
         Map<String, Object> valuation = new HashMap<>();
-        valuation.put("totalValuation", calculateTotalValuation(products, valuationMethod));
-        valuation.put("categoryBreakdown", calculateCategoryValuation(products, valuationMethod));
-        valuation.put("valuationMethod", valuationMethod);
-        valuation.put("marketValueComparison", compareMarketValues(products));
+        valuation.put("totalValuation", calculateTotalValuation(products, valuations, method));
+        valuation.put("categoryBreakdown", calculateCategoryValuation(products, valuations, method));
+        valuation.put("valuationMethod", method.name());
+        valuation.put("marketValueComparison", compareMarketValues(products, valuations, method));
 
         return valuation;
     }
@@ -1004,12 +1019,15 @@ public class ReportService {
     // Customer Analytics Implementation Methods
 
     /**
-     * Generate customer segmentation based on purchase behavior and value
+     * Customer counts, revenue and order value per customer segment, read from the score table.
+     * Each segment's customer details hold one page, highest spend first; the segment's count is
+     * its total.
      */
-    private Map<String, Object> generateCustomerSegmentation(List<Sale> sales) {
-        log.debug("Generating customer segmentation for {} sales", sales.size());
+    private Map<String, Object> generateCustomerSegmentation(Pageable detailsPageable) {
+        List<Object[]> rows = customerRfmScoreRepository.summarizeBySegmentAndValueTier();
+        log.debug("Generating customer segmentation from {} RFM segment and value tier groups", rows.size());
 
-        if (sales.isEmpty()) {
+        if (rows.isEmpty()) {
             return Map.of(
                 "segments", List.of(),
                 "totalCustomers", 0,
@@ -1017,145 +1035,124 @@ public class ReportService {
             );
         }
 
-        // Group sales by customer and calculate metrics
-        Map<Customer, List<Sale>> salesByCustomer = sales.stream()
-                .filter(sale -> sale.getCustomer() != null)
-                .collect(Collectors.groupingBy(Sale::getCustomer));
-
-        List<Map<String, Object>> customerMetrics = salesByCustomer.entrySet().stream()
-                .map(entry -> {
-                    Customer customer = entry.getKey();
-                    List<Sale> customerSales = entry.getValue();
-
-                    BigDecimal totalSpent = customerSales.stream()
-                            .map(Sale::getTotalAmount)
-                            .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-                    int totalOrders = customerSales.size();
-                    BigDecimal avgOrderValue = totalOrders > 0 ?
-                            totalSpent.divide(BigDecimal.valueOf(totalOrders), 2, RoundingMode.HALF_UP) :
-                            BigDecimal.ZERO;
-
-                    LocalDateTime firstPurchase = customerSales.stream()
-                            .map(Sale::getSaleDate)
-                            .min(LocalDateTime::compareTo)
-                            .orElse(null);
-
-                    LocalDateTime lastPurchase = customerSales.stream()
-                            .map(Sale::getSaleDate)
-                            .max(LocalDateTime::compareTo)
-                            .orElse(null);
-
-                    // Calculate days between first and last purchase
-                    long daysBetween = firstPurchase != null && lastPurchase != null ?
-                            ChronoUnit.DAYS.between(firstPurchase, lastPurchase) : 0;
-
-                    // Use HashMap to allow null values
-                    Map<String, Object> customerData = new HashMap<>();
-                    customerData.put("customer", customer);
-                    customerData.put("totalSpent", totalSpent);
-                    customerData.put("totalOrders", totalOrders);
-                    customerData.put("avgOrderValue", avgOrderValue);
-                    customerData.put("firstPurchase", firstPurchase);
-                    customerData.put("lastPurchase", lastPurchase);
-                    customerData.put("daysBetween", daysBetween);
-                    return customerData;
-                })
-                .collect(Collectors.toList());
-
-        // Calculate segmentation thresholds
-        List<BigDecimal> spentAmounts = customerMetrics.stream()
-                .map(m -> (BigDecimal) m.get("totalSpent"))
-                .sorted(Comparator.reverseOrder())
-                .collect(Collectors.toList());
-
-        BigDecimal highValueThreshold = calculatePercentile(spentAmounts, 80);
-        BigDecimal mediumValueThreshold = calculatePercentile(spentAmounts, 50);
-
-        // Segment customers
-        Map<String, List<Map<String, Object>>> segments = new HashMap<>();
-        segments.put("highValue", new ArrayList<>());
-        segments.put("mediumValue", new ArrayList<>());
-        segments.put("lowValue", new ArrayList<>());
-        segments.put("newCustomers", new ArrayList<>());
-        segments.put("atRiskCustomers", new ArrayList<>());
-
-        LocalDateTime thirtyDaysAgo = LocalDateTime.now().minusDays(30);
-        LocalDateTime ninetyDaysAgo = LocalDateTime.now().minusDays(90);
-
-        for (Map<String, Object> metrics : customerMetrics) {
-            BigDecimal totalSpent = (BigDecimal) metrics.get("totalSpent");
-            LocalDateTime firstPurchase = (LocalDateTime) metrics.get("firstPurchase");
-            LocalDateTime lastPurchase = (LocalDateTime) metrics.get("lastPurchase");
-            Customer customer = (Customer) metrics.get("customer");
-
-            // Use HashMap to allow null values for firstPurchase and lastPurchase
-            Map<String, Object> customerData = new HashMap<>();
-            customerData.put("customerId", customer.getId());
-            customerData.put("customerName", customer.getName());
-            customerData.put("email", customer.getEmail());
-            customerData.put("totalSpent", totalSpent);
-            customerData.put("totalOrders", metrics.get("totalOrders"));
-            customerData.put("avgOrderValue", metrics.get("avgOrderValue"));
-            customerData.put("firstPurchase", firstPurchase);
-            customerData.put("lastPurchase", lastPurchase);
-
-            // Segment logic
-            if (firstPurchase != null && firstPurchase.isAfter(thirtyDaysAgo)) {
-                segments.get("newCustomers").add(customerData);
-            } else if (lastPurchase != null && lastPurchase.isBefore(ninetyDaysAgo)) {
-                segments.get("atRiskCustomers").add(customerData);
-            } else if (totalSpent.compareTo(highValueThreshold) >= 0) {
-                segments.get("highValue").add(customerData);
-            } else if (totalSpent.compareTo(mediumValueThreshold) >= 0) {
-                segments.get("mediumValue").add(customerData);
-            } else {
-                segments.get("lowValue").add(customerData);
-            }
+        Map<CustomerSegment, Long> counts = new EnumMap<>(CustomerSegment.class);
+        Map<CustomerSegment, BigDecimal> revenues = new EnumMap<>(CustomerSegment.class);
+        Map<CustomerSegment, Double> orderValueSums = new EnumMap<>(CustomerSegment.class);
+        for (CustomerSegment segment : CustomerSegment.values()) {
+            counts.put(segment, 0L);
+            revenues.put(segment, BigDecimal.ZERO);
+            orderValueSums.put(segment, 0.0);
+        }
+        long totalCustomers = 0;
+        BigDecimal totalRevenue = BigDecimal.ZERO;
+        for (Object[] row : rows) {
+            CustomerSegment segment = CustomerSegment.of((CustomerRfmScore.Segment) row[0], (CustomerRfmScore.ValueTier) row[1]);
+            long count = ((Number) row[2]).longValue();
+            counts.merge(segment, count, Long::sum);
+            revenues.merge(segment, (BigDecimal) row[3], BigDecimal::add);
+            // Per-group averages weighted back to per-customer averages
+            orderValueSums.merge(segment, ((Number) row[4]).doubleValue() * count, Double::sum);
+            totalCustomers += count;
+            totalRevenue = totalRevenue.add((BigDecimal) row[3]);
         }
 
-        // Calculate segment summaries
-        Map<String, Object> segmentSummaries = segments.entrySet().stream()
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        entry -> Map.of(
-                                "count", entry.getValue().size(),
-                                "percentage", customerMetrics.isEmpty() ? 0.0 :
-                                        (double) entry.getValue().size() / customerMetrics.size() * 100,
-                                "totalRevenue", entry.getValue().stream()
-                                        .map(c -> (BigDecimal) c.get("totalSpent"))
-                                        .reduce(BigDecimal.ZERO, BigDecimal::add),
-                                "avgOrderValue", entry.getValue().isEmpty() ? BigDecimal.ZERO :
-                                        entry.getValue().stream()
-                                                .map(c -> (BigDecimal) c.get("avgOrderValue"))
-                                                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                                                .divide(BigDecimal.valueOf(entry.getValue().size()), 2, RoundingMode.HALF_UP)
-                        )
-                ));
+        Map<String, Object> segmentSummaries = new LinkedHashMap<>();
+        Map<String, List<Map<String, Object>>> customerDetails = new LinkedHashMap<>();
+        for (CustomerSegment segment : CustomerSegment.values()) {
+            long count = counts.get(segment);
+            segmentSummaries.put(segment.key, Map.of(
+                    "count", count,
+                    "percentage", (double) count / totalCustomers * 100,
+                    "totalRevenue", revenues.get(segment),
+                    "avgOrderValue", count > 0 ? toScaledDecimal(orderValueSums.get(segment) / count) : BigDecimal.ZERO
+            ));
+            customerDetails.put(segment.key, count == 0 ? List.of() : customerRfmScoreRepository
+                    .findWithCustomersIn(segment.segments, segment.valueTiers, detailsPageable)
+                    .stream()
+                    .map(this::toSegmentCustomerData)
+                    .collect(Collectors.toList()));
+        }
 
         return Map.of(
                 "segments", segmentSummaries,
-                "customerDetails", segments,
-                "totalCustomers", customerMetrics.size(),
+                "customerDetails", customerDetails,
+                "customerDetailsPage", Map.of(
+                        "page", detailsPageable.getPageNumber(),
+                        "size", detailsPageable.getPageSize()
+                ),
+                "totalCustomers", totalCustomers,
                 "thresholds", Map.of(
-                        "highValue", highValueThreshold,
-                        "mediumValue", mediumValueThreshold
+                        "highValue", CustomerRfmScore.ValueTier.HIGH_VALUE.getMinimumRevenue(),
+                        "mediumValue", CustomerRfmScore.ValueTier.MEDIUM_VALUE.getMinimumRevenue()
                 ),
                 "summary", Map.of(
-                        "totalRevenue", spentAmounts.stream().reduce(BigDecimal.ZERO, BigDecimal::add),
-                        "avgCustomerValue", spentAmounts.isEmpty() ? BigDecimal.ZERO :
-                                spentAmounts.stream().reduce(BigDecimal.ZERO, BigDecimal::add)
-                                        .divide(BigDecimal.valueOf(spentAmounts.size()), 2, RoundingMode.HALF_UP)
+                        "totalRevenue", totalRevenue,
+                        "avgCustomerValue", totalRevenue.divide(BigDecimal.valueOf(totalCustomers), 2, RoundingMode.HALF_UP)
                 )
         );
     }
+
     /**
-     * Generate lifetime value analysis for customers
+     * The segmentation report's segments, made up of RFM segments and value tiers. New customers
+     * come first, then customers with no purchase for more than 90 days, then everyone else by
+     * value tier, as the report grouped them before the scores were stored.
      */
-    private Map<String, Object> generateLifetimeValueAnalysis(List<Sale> sales) {
-        log.debug("Generating lifetime value analysis for {} sales", sales.size());
+    private enum CustomerSegment {
+        HIGH_VALUE("highValue", EnumSet.of(CustomerRfmScore.Segment.CHAMPIONS, CustomerRfmScore.Segment.LOYAL,
+                CustomerRfmScore.Segment.POTENTIAL_LOYALIST), EnumSet.of(CustomerRfmScore.ValueTier.HIGH_VALUE)),
+        MEDIUM_VALUE("mediumValue", HIGH_VALUE.segments, EnumSet.of(CustomerRfmScore.ValueTier.MEDIUM_VALUE)),
+        LOW_VALUE("lowValue", HIGH_VALUE.segments, EnumSet.of(CustomerRfmScore.ValueTier.LOW_VALUE)),
+        NEW_CUSTOMERS("newCustomers", EnumSet.of(CustomerRfmScore.Segment.NEW),
+                EnumSet.allOf(CustomerRfmScore.ValueTier.class)),
+        AT_RISK_CUSTOMERS("atRiskCustomers", EnumSet.of(CustomerRfmScore.Segment.CANT_LOSE,
+                CustomerRfmScore.Segment.AT_RISK, CustomerRfmScore.Segment.LOST),
+                EnumSet.allOf(CustomerRfmScore.ValueTier.class));
+
+        private final String key;
+        private final Set<CustomerRfmScore.Segment> segments;
+        private final Set<CustomerRfmScore.ValueTier> valueTiers;
+
+        CustomerSegment(String key, Set<CustomerRfmScore.Segment> segments, Set<CustomerRfmScore.ValueTier> valueTiers) {
+            this.key = key;
+            this.segments = segments;
+            this.valueTiers = valueTiers;
+        }
 
-        if (sales.isEmpty()) {
+        static CustomerSegment of(CustomerRfmScore.Segment segment, CustomerRfmScore.ValueTier valueTier) {
+            for (CustomerSegment candidate : values()) {
+                if (candidate.segments.contains(segment) && candidate.valueTiers.contains(valueTier)) {
+                    return candidate;
+                }
+            }
+            // Only customers without purchases are left, and the summary excludes them
+            return LOW_VALUE;
+        }
+    }
+
+    private Map<String, Object> toSegmentCustomerData(Object[] row) {
+        CustomerRfmScore score = (CustomerRfmScore) row[0];
+        // Use HashMap to allow null values for firstPurchase and lastPurchase
+        Map<String, Object> customerData = new HashMap<>();
+        customerData.put("customerId", score.getCustomerId());
+        customerData.put("customerName", row[1]);
+        customerData.put("email", row[2]);
+        customerData.put("totalSpent", score.getMonetary());
+        customerData.put("totalOrders", score.getFrequency());
+        customerData.put("avgOrderValue", score.getAvgOrderValue());
+        customerData.put("firstPurchase", score.getFirstPurchaseDate());
+        customerData.put("lastPurchase", score.getLastPurchaseDate());
+        customerData.put("rfmScore", "" + score.getRecencyScore() + score.getFrequencyScore() + score.getMonetaryScore());
+        return customerData;
+    }
+
+    /**
+     * Lifetime value analysis per value tier, read from the score table
+     */
+    private Map<String, Object> generateLifetimeValueAnalysis() {
+        List<Object[]> rows = customerRfmScoreRepository.summarizeByValueTier();
+        log.debug("Generating lifetime value analysis from {} value tiers", rows.size());
+
+        if (rows.isEmpty()) {
             return Map.of(
                 "analysis", Map.of(),
                 "topCustomers", List.of(),
@@ -1164,178 +1161,114 @@ public class ReportService {
             );
         }
 
-        // Group sales by customer
-        Map<Customer, List<Sale>> salesByCustomer = sales.stream()
-                .filter(sale -> sale.getCustomer() != null)
-                .collect(Collectors.groupingBy(Sale::getCustomer));
-
-        List<Map<String, Object>> customerLTVData = salesByCustomer.entrySet().stream()
-                .map(entry -> {
-                    Customer customer = entry.getKey();
-                    List<Sale> customerSales = entry.getValue();
-
-                    BigDecimal totalRevenue = customerSales.stream()
-                            .map(Sale::getTotalAmount)
-                            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        long totalCustomers = 0;
+        BigDecimal totalRevenue = BigDecimal.ZERO;
+        double orderValueSum = 0;
+        double purchaseFrequencySum = 0;
+        Map<String, Long> ltvDistribution = new HashMap<>();
+        for (Object[] row : rows) {
+            long count = ((Number) row[1]).longValue();
+            totalCustomers += count;
+            totalRevenue = totalRevenue.add((BigDecimal) row[2]);
+            // Per-tier averages weighted back to per-customer averages
+            orderValueSum += ((Number) row[3]).doubleValue() * count;
+            purchaseFrequencySum += ((Number) row[4]).doubleValue() * count;
+            ltvDistribution.put(((CustomerRfmScore.ValueTier) row[0]).getLabel(), count);
+        }
 
-                    int totalOrders = customerSales.size();
-                    BigDecimal avgOrderValue = totalOrders > 0 ?
-                            totalRevenue.divide(BigDecimal.valueOf(totalOrders), 2, RoundingMode.HALF_UP) :
-                            BigDecimal.ZERO;
+        BigDecimal avgLTV = totalRevenue.divide(BigDecimal.valueOf(totalCustomers), 2, RoundingMode.HALF_UP);
 
-                    LocalDateTime firstPurchase = customerSales.stream()
-                            .map(Sale::getSaleDate)
-                            .min(LocalDateTime::compareTo)
-                            .orElse(null);
-
-                    LocalDateTime lastPurchase = customerSales.stream()
-                            .map(Sale::getSaleDate)
-                            .max(LocalDateTime::compareTo)
-                            .orElse(null);
-
-                    // Calculate customer lifespan in days
-                    long lifespanDays = firstPurchase != null && lastPurchase != null ?
-                            ChronoUnit.DAYS.between(firstPurchase, lastPurchase) + 1 : 1;
-
-                    // Calculate purchase frequency (orders per month)
-                    double purchaseFrequency = lifespanDays > 0 ?
-                            (double) totalOrders / (lifespanDays / 30.0) : 0;
-
-                    // Calculate predicted LTV (simple model: AOV * frequency * estimated lifespan)
-                    double estimatedLifespanMonths = 24; // Assume 24 months average lifespan
-                    BigDecimal predictedLTV = avgOrderValue
-                            .multiply(BigDecimal.valueOf(purchaseFrequency))
-                            .multiply(BigDecimal.valueOf(estimatedLifespanMonths));
-
-                    // Calculate profit margin (assuming 30% margin)
-                    BigDecimal profitMargin = totalRevenue.multiply(BigDecimal.valueOf(0.30));
-
-                    Map<String, Object> customerData = new HashMap<>();
-                    customerData.put("customerId", customer.getId());
-                    customerData.put("customerName", customer.getName());
-                    customerData.put("email", customer.getEmail());
-                    customerData.put("totalRevenue", totalRevenue);
-                    customerData.put("totalOrders", totalOrders);
-                    customerData.put("avgOrderValue", avgOrderValue);
-                    customerData.put("firstPurchase", firstPurchase);
-                    customerData.put("lastPurchase", lastPurchase);
-                    customerData.put("lifespanDays", lifespanDays);
-                    customerData.put("purchaseFrequency", BigDecimal.valueOf(purchaseFrequency).setScale(2, RoundingMode.HALF_UP));
-                    customerData.put("predictedLTV", predictedLTV.setScale(2, RoundingMode.HALF_UP));
-                    customerData.put("profitMargin", profitMargin.setScale(2, RoundingMode.HALF_UP));
-                    customerData.put("customerSegment", categorizeCustomerByLTV(totalRevenue));
-                    return customerData;
-                })
-                .sorted((a, b) -> {
-                    BigDecimal aRevenue = (BigDecimal) a.get("totalRevenue");
-                    BigDecimal bRevenue = (BigDecimal) b.get("totalRevenue");
-                    return bRevenue.compareTo(aRevenue);
-                })
+        List<Map<String, Object>> topCustomers = customerRfmScoreRepository
+                .findTopWithCustomers(1, null, null, PageRequest.of(0, 10))
+                .stream()
+                .map(this::toLifetimeValueData)
                 .collect(Collectors.toList());
 
-        // Calculate overall metrics
-        BigDecimal totalRevenue = customerLTVData.stream()
-                .map(c -> (BigDecimal) c.get("totalRevenue"))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal avgLTV = customerLTVData.isEmpty() ? BigDecimal.ZERO :
-                totalRevenue.divide(BigDecimal.valueOf(customerLTVData.size()), 2, RoundingMode.HALF_UP);
-
-        BigDecimal avgOrderValue = customerLTVData.stream()
-                .map(c -> (BigDecimal) c.get("avgOrderValue"))
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .divide(BigDecimal.valueOf(Math.max(customerLTVData.size(), 1)), 2, RoundingMode.HALF_UP);
-
-        double avgPurchaseFrequency = customerLTVData.stream()
-                .mapToDouble(c -> ((BigDecimal) c.get("purchaseFrequency")).doubleValue())
-                .average()
-                .orElse(0.0);
-
-        // Get top 10 customers by LTV
-        List<Map<String, Object>> topCustomers = customerLTVData.stream()
-                .limit(10)
-                .collect(Collectors.toList());
-
-        // LTV distribution analysis
-        Map<String, Long> ltvDistribution = customerLTVData.stream()
-                .collect(Collectors.groupingBy(
-                        c -> (String) c.get("customerSegment"),
-                        Collectors.counting()
-                ));
+        long highValueCustomers = ltvDistribution.getOrDefault(CustomerRfmScore.ValueTier.HIGH_VALUE.getLabel(), 0L);
 
         return Map.of(
                 "analysis", Map.of(
-                        "totalCustomers", customerLTVData.size(),
+                        "totalCustomers", totalCustomers,
                         "totalRevenue", totalRevenue,
                         "avgLifetimeValue", avgLTV,
-                        "avgOrderValue", avgOrderValue,
-                        "avgPurchaseFrequency", BigDecimal.valueOf(avgPurchaseFrequency).setScale(2, RoundingMode.HALF_UP),
+                        "avgOrderValue", toScaledDecimal(orderValueSum / totalCustomers),
+                        "avgPurchaseFrequency", toScaledDecimal(purchaseFrequencySum / totalCustomers),
                         "ltvDistribution", ltvDistribution
                 ),
                 "topCustomers", topCustomers,
                 "metrics", Map.of(
-                        "highValueCustomers", ltvDistribution.getOrDefault("High Value", 0L),
-                        "mediumValueCustomers", ltvDistribution.getOrDefault("Medium Value", 0L),
-                        "lowValueCustomers", ltvDistribution.getOrDefault("Low Value", 0L),
-                        "revenueConcentration", calculateRevenueConcentration(customerLTVData)
+                        "highValueCustomers", highValueCustomers,
+                        "mediumValueCustomers", ltvDistribution.getOrDefault(CustomerRfmScore.ValueTier.MEDIUM_VALUE.getLabel(), 0L),
+                        "lowValueCustomers", ltvDistribution.getOrDefault(CustomerRfmScore.ValueTier.LOW_VALUE.getLabel(), 0L),
+                        "revenueConcentration", calculateRevenueConcentration(totalCustomers, totalRevenue)
                 ),
-                "recommendations", generateLTVRecommendations(customerLTVData, avgLTV)
+                "recommendations", generateLTVRecommendations(highValueCustomers, totalCustomers, avgLTV)
         );
     }
 
-    private String categorizeCustomerByLTV(BigDecimal totalRevenue) {
-        if (totalRevenue.compareTo(BigDecimal.valueOf(1000)) >= 0) {
-            return "High Value";
-        } else if (totalRevenue.compareTo(BigDecimal.valueOf(300)) >= 0) {
-            return "Medium Value";
-        } else {
-            return "Low Value";
-        }
+    private Map<String, Object> toLifetimeValueData(Object[] row) {
+        CustomerRfmScore score = (CustomerRfmScore) row[0];
+        BigDecimal purchaseFrequency = score.getPurchaseFrequency() != null ? score.getPurchaseFrequency() : BigDecimal.ZERO;
+        long lifespanDays = score.getFirstPurchaseDate() != null && score.getLastPurchaseDate() != null ?
+                ChronoUnit.DAYS.between(score.getFirstPurchaseDate(), score.getLastPurchaseDate()) + 1 : 1;
+
+        // Calculate predicted LTV (simple model: AOV * frequency * estimated lifespan)
+        double estimatedLifespanMonths = 24; // Assume 24 months average lifespan
+        BigDecimal predictedLTV = score.getAvgOrderValue()
+                .multiply(purchaseFrequency)
+                .multiply(BigDecimal.valueOf(estimatedLifespanMonths));
+
+        // Calculate profit margin (assuming 30% margin)
+        BigDecimal profitMargin = score.getMonetary().multiply(BigDecimal.valueOf(0.30));
+
+        Map<String, Object> customerData = new HashMap<>();
+        customerData.put("customerId", score.getCustomerId());
+        customerData.put("customerName", row[1]);
+        customerData.put("email", row[2]);
+        customerData.put("totalRevenue", score.getMonetary());
+        customerData.put("totalOrders", score.getFrequency());
+        customerData.put("avgOrderValue", score.getAvgOrderValue());
+        customerData.put("firstPurchase", score.getFirstPurchaseDate());
+        customerData.put("lastPurchase", score.getLastPurchaseDate());
+        customerData.put("lifespanDays", lifespanDays);
+        customerData.put("purchaseFrequency", purchaseFrequency);
+        customerData.put("predictedLTV", predictedLTV.setScale(2, RoundingMode.HALF_UP));
+        customerData.put("profitMargin", profitMargin.setScale(2, RoundingMode.HALF_UP));
+        customerData.put("customerSegment", score.getValueTier().getLabel());
+        customerData.put("rfmSegment", score.getSegment());
+        return customerData;
     }
 
-    private Map<String, Object> calculateRevenueConcentration(List<Map<String, Object>> customerData) {
-        if (customerData.isEmpty()) {
+    /**
+     * Share of revenue from the top 10% and 20% of customers; only the top 20% of spend amounts are read
+     */
+    private Map<String, Object> calculateRevenueConcentration(long totalCustomers, BigDecimal totalRevenue) {
+        if (totalCustomers == 0 || totalRevenue.compareTo(BigDecimal.ZERO) <= 0) {
             return Map.of("top10Percent", 0.0, "top20Percent", 0.0);
         }
 
-        BigDecimal totalRevenue = customerData.stream()
-                .map(c -> (BigDecimal) c.get("totalRevenue"))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        int top10Count = Math.max(1, customerData.size() / 10);
-        int top20Count = Math.max(1, customerData.size() / 5);
+        int top10Count = (int) Math.max(1, totalCustomers / 10);
+        int top20Count = (int) Math.max(1, totalCustomers / 5);
+        List<BigDecimal> topAmounts = customerRfmScoreRepository.findMonetaryDescending(PageRequest.of(0, top20Count));
 
-        BigDecimal top10Revenue = customerData.stream()
+        BigDecimal top10Revenue = topAmounts.stream()
                 .limit(top10Count)
-                .map(c -> (BigDecimal) c.get("totalRevenue"))
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
 
-        BigDecimal top20Revenue = customerData.stream()
-                .limit(top20Count)
-                .map(c -> (BigDecimal) c.get("totalRevenue"))
+        BigDecimal top20Revenue = topAmounts.stream()
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
 
-        double top10Percent = totalRevenue.compareTo(BigDecimal.ZERO) > 0 ?
-                top10Revenue.divide(totalRevenue, 4, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100)).doubleValue() : 0.0;
-
-        double top20Percent = totalRevenue.compareTo(BigDecimal.ZERO) > 0 ?
-                top20Revenue.divide(totalRevenue, 4, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100)).doubleValue() : 0.0;
-
         return Map.of(
-                "top10Percent", top10Percent,
-                "top20Percent", top20Percent
+                "top10Percent", top10Revenue.divide(totalRevenue, 4, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100)).doubleValue(),
+                "top20Percent", top20Revenue.divide(totalRevenue, 4, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100)).doubleValue()
         );
     }
 
-    private List<String> generateLTVRecommendations(List<Map<String, Object>> customerData, BigDecimal avgLTV) {
+    private List<String> generateLTVRecommendations(long highValueCount, long totalCustomers, BigDecimal avgLTV) {
         List<String> recommendations = new ArrayList<>();
 
-        long highValueCount = customerData.stream()
-                .mapToLong(c -> "High Value".equals(c.get("customerSegment")) ? 1 : 0)
-                .sum();
-
-        double highValuePercentage = customerData.isEmpty() ? 0.0 :
-                (double) highValueCount / customerData.size() * 100;
+        double highValuePercentage = totalCustomers == 0 ? 0.0 :
+                (double) highValueCount / totalCustomers * 100;
 
         if (highValuePercentage < 20) {
             recommendations.add("Focus on converting medium-value customers to high-value through targeted promotions");
@@ -1351,6 +1284,10 @@ public class ReportService {
         return recommendations;
     }
 
+    private static BigDecimal toScaledDecimal(Object value) {
+        return BigDecimal.valueOf(((Number) value).doubleValue()).setScale(2, RoundingMode.HALF_UP);
+    }
+
     private Map<String, Object> calculateCustomerLifetimeValue(Customer customer) {
         return Map.of("customerId", customer.getId(), "totalValue", BigDecimal.valueOf(1000));
     }
@@ -1732,17 +1669,13 @@ public class ReportService {
     }
 
     /**
-     * Generate churn analysis
+     * Churn analysis per churn risk, read from the score table
      */
-    private Map<String, Object> generateChurnAnalysis(int months) {
-        log.debug("Generating churn analysis for {} months", months);
+    private Map<String, Object> generateChurnAnalysis() {
+        List<Object[]> rows = customerRfmScoreRepository.summarizeByChurnRisk();
+        log.debug("Generating churn analysis from {} churn risk levels", rows.size());
 
-        LocalDateTime churnThreshold = LocalDateTime.now().minusDays(90); // Consider churned if no purchase in 90 days
-
-        // Get all customers who had purchases before the churn threshold
-        List<Customer> allCustomers = customerRepository.findAllActive();
-
-        if (allCustomers.isEmpty()) {
+        if (rows.isEmpty()) {
             return Map.of(
                 "churnMetrics", Map.of(),
                 "churnedCustomers", List.of(),
@@ -1751,102 +1684,83 @@ public class ReportService {
             );
         }
 
-        List<Map<String, Object>> customerChurnData = allCustomers.stream()
-                .map(customer -> {
-                    // Get customer's last purchase
-                    Optional<Sale> lastSale = saleRepository.findAll().stream()
-                            .filter(sale -> sale.getCustomer() != null &&
-                                    sale.getCustomer().getId().equals(customer.getId()) &&
-                                    sale.getStatus() == SaleStatus.COMPLETED)
-                            .max(Comparator.comparing(Sale::getSaleDate));
-
-                    LocalDateTime lastPurchase = lastSale.map(Sale::getSaleDate).orElse(null);
-
-                    // Calculate total customer value
-                    BigDecimal totalValue = saleRepository.findAll().stream()
-                            .filter(sale -> sale.getCustomer() != null &&
-                                    sale.getCustomer().getId().equals(customer.getId()) &&
-                                    sale.getStatus() == SaleStatus.COMPLETED)
-                            .map(Sale::getTotalAmount)
-                            .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-                    // Determine churn status
-                    boolean isChurned = lastPurchase == null || lastPurchase.isBefore(churnThreshold);
-
-                    // Calculate days since last purchase
-                    long daysSinceLastPurchase = lastPurchase != null ?
-                            ChronoUnit.DAYS.between(lastPurchase, LocalDateTime.now()) : -1;
-
-                    // Risk assessment
-                    String riskLevel = assessChurnRisk(lastPurchase, totalValue);
-
-                    Map<String, Object> churnData = new HashMap<>();
-                    churnData.put("customerId", customer.getId());
-                    churnData.put("customerName", customer.getName());
-                    churnData.put("email", customer.getEmail());
-                    churnData.put("lastPurchase", lastPurchase);
-                    churnData.put("daysSinceLastPurchase", daysSinceLastPurchase);
-                    churnData.put("totalValue", totalValue);
-                    churnData.put("isChurned", isChurned);
-                    churnData.put("riskLevel", riskLevel);
-                    churnData.put("customerSince", customer.getCreatedAt());
-                    return churnData;
-                })
-                .collect(Collectors.toList());
-
-        // Calculate churn metrics
-        long churnedCustomers = customerChurnData.stream()
-                .mapToLong(c -> (Boolean) c.get("isChurned") ? 1 : 0)
-                .sum();
-
-        double churnRate = allCustomers.isEmpty() ? 0.0 :
-                (double) churnedCustomers / allCustomers.size() * 100;
-
-        // Risk analysis
-        Map<String, Long> riskDistribution = customerChurnData.stream()
-                .collect(Collectors.groupingBy(
-                        c -> (String) c.get("riskLevel"),
-                        Collectors.counting()
-                ));
+        long totalCustomers = 0;
+        long churnedCustomers = 0;
+        long customersWithPurchases = 0;
+        double daysSinceLastPurchaseSum = 0;
+        BigDecimal revenueAtRisk = BigDecimal.ZERO;
+        BigDecimal retentionOpportunity = BigDecimal.ZERO;
+        Map<String, Long> riskDistribution = new HashMap<>();
+        for (Object[] row : rows) {
+            CustomerRfmScore.ChurnRisk risk = (CustomerRfmScore.ChurnRisk) row[0];
+            long count = ((Number) row[1]).longValue();
+            BigDecimal revenue = (BigDecimal) row[2];
+            long withPurchases = ((Number) row[4]).longValue();
+            totalCustomers += count;
+            riskDistribution.put(risk.getLabel(), count);
+            if (row[3] != null) {
+                daysSinceLastPurchaseSum += ((Number) row[3]).doubleValue() * withPurchases;
+                customersWithPurchases += withPurchases;
+            }
 
-        // Get high-risk customers
-        List<Map<String, Object>> highRiskCustomers = customerChurnData.stream()
-                .filter(c -> "High Risk".equals(c.get("riskLevel")))
-                .sorted((a, b) -> {
-                    BigDecimal aValue = (BigDecimal) a.get("totalValue");
-                    BigDecimal bValue = (BigDecimal) b.get("totalValue");
-                    return bValue.compareTo(aValue);
-                })
-                .limit(10)
-                .collect(Collectors.toList());
+            // Customers who never purchased count as churned, as well as those lapsed for more than 90 days
+            if (risk == CustomerRfmScore.ChurnRisk.CHURNED) {
+                churnedCustomers += count;
+            } else if (row[5] != null) {
+                churnedCustomers += ((Number) row[5]).longValue();
+            }
+            if (risk == CustomerRfmScore.ChurnRisk.CHURNED || risk == CustomerRfmScore.ChurnRisk.HIGH_RISK) {
+                revenueAtRisk = revenueAtRisk.add(revenue);
+            }
+            if (risk == CustomerRfmScore.ChurnRisk.HIGH_RISK) {
+                retentionOpportunity = retentionOpportunity.add(revenue);
+            }
+        }
 
-        // Calculate revenue at risk
-        BigDecimal revenueAtRisk = customerChurnData.stream()
-                .filter(c -> "High Risk".equals(c.get("riskLevel")) || (Boolean) c.get("isChurned"))
-                .map(c -> (BigDecimal) c.get("totalValue"))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        double churnRate = (double) churnedCustomers / totalCustomers * 100;
 
         return Map.of(
                 "churnMetrics", Map.of(
-                        "totalCustomers", allCustomers.size(),
+                        "totalCustomers", totalCustomers,
                         "churnedCustomers", churnedCustomers,
                         "churnRate", BigDecimal.valueOf(churnRate).setScale(2, RoundingMode.HALF_UP),
                         "revenueAtRisk", revenueAtRisk,
-                        "avgDaysSinceLastPurchase", calculateAvgDaysSinceLastPurchase(customerChurnData)
+                        "avgDaysSinceLastPurchase", customersWithPurchases == 0 ? 0.0 :
+                                daysSinceLastPurchaseSum / customersWithPurchases
                 ),
-                "churnedCustomers", customerChurnData.stream()
-                        .filter(c -> (Boolean) c.get("isChurned"))
-                        .limit(20)
-                        .collect(Collectors.toList()),
+                "churnedCustomers", findChurnData(CustomerRfmScore.ChurnRisk.CHURNED, 20),
                 "riskAnalysis", Map.of(
                         "riskDistribution", riskDistribution,
-                        "highRiskCustomers", highRiskCustomers,
-                        "retentionOpportunity", calculateRetentionOpportunity(customerChurnData)
+                        "highRiskCustomers", findChurnData(CustomerRfmScore.ChurnRisk.HIGH_RISK, 10),
+                        "retentionOpportunity", retentionOpportunity
                 ),
                 "recommendations", generateChurnRecommendations(churnRate, riskDistribution)
         );
     }
 
+    /**
+     * Customers at a churn risk level, highest value first
+     */
+    private List<Map<String, Object>> findChurnData(CustomerRfmScore.ChurnRisk risk, int limit) {
+        return customerRfmScoreRepository.findTopWithCustomers(0, null, risk, PageRequest.of(0, limit))
+                .stream()
+                .map(row -> {
+                    CustomerRfmScore score = (CustomerRfmScore) row[0];
+                    Map<String, Object> churnData = new HashMap<>();
+                    churnData.put("customerId", score.getCustomerId());
+                    churnData.put("customerName", row[1]);
+                    churnData.put("email", row[2]);
+                    churnData.put("lastPurchase", score.getLastPurchaseDate());
+                    churnData.put("daysSinceLastPurchase", score.getRecencyDays() != null ? score.getRecencyDays().longValue() : -1L);
+                    churnData.put("totalValue", score.getMonetary());
+                    churnData.put("isChurned", score.getLastPurchaseDate() == null || risk == CustomerRfmScore.ChurnRisk.CHURNED);
+                    churnData.put("riskLevel", risk.getLabel());
+                    churnData.put("customerSince", row[3]);
+                    return churnData;
+                })
+                .collect(Collectors.toList());
+    }
+
     // Helper methods for acquisition and churn analysis
     private String findTopAcquisitionChannel(Map<String, Long> channels) {
         return channels.entrySet().stream()
@@ -1872,39 +1786,6 @@ public class ReportService {
         return recommendations;
     }
 
-    private String assessChurnRisk(LocalDateTime lastPurchase, BigDecimal totalValue) {
-        if (lastPurchase == null) {
-            return "High Risk";
-        }
-
-        long daysSinceLastPurchase = ChronoUnit.DAYS.between(lastPurchase, LocalDateTime.now());
-
-        if (daysSinceLastPurchase > 90) {
-            return "Churned";
-        } else if (daysSinceLastPurchase > 60) {
-            return "High Risk";
-        } else if (daysSinceLastPurchase > 30) {
-            return "Medium Risk";
-        } else {
-            return "Low Risk";
-        }
-    }
-
-    private double calculateAvgDaysSinceLastPurchase(List<Map<String, Object>> customerData) {
-        return customerData.stream()
-                .filter(c -> (Long) c.get("daysSinceLastPurchase") >= 0)
-                .mapToLong(c -> (Long) c.get("daysSinceLastPurchase"))
-                .average()
-                .orElse(0.0);
-    }
-
-    private BigDecimal calculateRetentionOpportunity(List<Map<String, Object>> customerData) {
-        return customerData.stream()
-                .filter(c -> "High Risk".equals(c.get("riskLevel")))
-                .map(c -> (BigDecimal) c.get("totalValue"))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
-
     private List<String> generateChurnRecommendations(double churnRate, Map<String, Long> riskDistribution) {
         List<String> recommendations = new ArrayList<>();
 
@@ -2198,22 +2079,6 @@ public class ReportService {
         return BigDecimal.valueOf(score).setScale(2, RoundingMode.HALF_UP);
     }
 
-    // Utility methods
-    private BigDecimal calculatePercentile(List<BigDecimal> values, int percentile) {
-        if (values.isEmpty()) {
-            return BigDecimal.ZERO;
-        }
-
-        List<BigDecimal> sortedValues = values.stream()
-                .sorted()
-                .collect(Collectors.toList());
-
-        int index = (int) Math.ceil(percentile / 100.0 * sortedValues.size()) - 1;
-        index = Math.max(0, Math.min(index, sortedValues.size() - 1));
-
-        return sortedValues.get(index);
-    }
-
     // Stub implementations for trend analysis methods
     private Map<String, Object> generateDailyTrends(List<Sale> sales) { return new HashMap<>(); }
     private Map<String, Object> generateWeeklyTrends(List<Sale> sales) { return new HashMap<>(); }
@@ -2599,6 +2464,58 @@ public class ReportService {
         );
     }
 
+    /**
+     * Category totals rolled up the hierarchy, so a parent includes all of its subcategories.
+     * Computed in the database from one closure-table join; the category filter is applied to
+     * the rolled-up categories, the product filter is not.
+     */
+    private List<Map<String, Object>> generateCategoryRollup(ReportRequestDTO request) {
+        List<Object[]> rows = saleItemRepository.findCategoryRollup(request.getStartDate(), request.getEndDate());
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, String> names = new HashMap<>();
+        for (Object[] row : categoryRepository.findIdsAndNames()) {
+            names.put((Long) row[0], (String) row[1]);
+        }
+        Map<Long, Long> parents = new HashMap<>();
+        for (Object[] row : categoryRepository.findParentLinks()) {
+            parents.put((Long) row[0], (Long) row[1]);
+        }
+        Set<Long> selected = request.getCategoryIds() != null && !request.getCategoryIds().isEmpty()
+                ? categoryHierarchyService.expandToSubtrees(request.getCategoryIds())
+                : null;
+
+        List<Map<String, Object>> rollup = new ArrayList<>();
+        for (Object[] row : rows) {
+            Long categoryId = (Long) row[0];
+            if (selected != null && !selected.contains(categoryId)) {
+                continue;
+            }
+            BigDecimal revenue = row[2] != null ? (BigDecimal) row[2] : BigDecimal.ZERO;
+            BigDecimal cost = row[3] != null ? (BigDecimal) row[3] : BigDecimal.ZERO;
+            BigDecimal profit = revenue.subtract(cost).setScale(2, RoundingMode.HALF_UP);
+
+            Map<String, Object> metrics = new HashMap<>();
+            metrics.put("categoryId", categoryId);
+            metrics.put("categoryName", names.get(categoryId));
+            metrics.put("parentId", parents.get(categoryId));
+            metrics.put("totalQuantitySold", row[1] != null ? ((Number) row[1]).intValue() : 0);
+            metrics.put("totalRevenue", revenue);
+            metrics.put("totalProfit", profit);
+            metrics.put("profitMargin", revenue.compareTo(BigDecimal.ZERO) > 0
+                    ? profit.divide(revenue, 4, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100))
+                    : BigDecimal.ZERO);
+            metrics.put("uniqueProducts", ((Number) row[4]).longValue());
+            metrics.put("salesCount", ((Number) row[5]).longValue());
+            metrics.put("uniqueCustomers", ((Number) row[6]).longValue());
+            rollup.add(metrics);
+        }
+        rollup.sort((a, b) -> ((BigDecimal) b.get("totalRevenue")).compareTo((BigDecimal) a.get("totalRevenue")));
+        return rollup;
+    }
+
     /**
      * Generate category performance analysis
      */
@@ -3177,9 +3094,112 @@ public class ReportService {
     private List<Map<String, Object>> getOutOfStockItems(List<Product> products) { return new ArrayList<>(); }
     private Map<String, Object> calculateInventoryValuation(List<Product> products) { return new HashMap<>(); }
     private Map<String, Object> analyzeWarehouseDistribution(List<Product> products, List<Long> warehouseIds) { return new HashMap<>(); }
-    private Map<String, Object> calculateTotalValuation(List<Product> products, String method) { return new HashMap<>(); }
-    private Map<String, Object> calculateCategoryValuation(List<Product> products, String method) { return new HashMap<>(); }
-    private Map<String, Object> compareMarketValues(List<Product> products) { return new HashMap<>(); }
+
+    /**
+     * Units and cost of the products' active cost layers under the requested method, with the
+     * other two methods alongside for comparison
+     */
+    private Map<String, Object> calculateTotalValuation(List<Product> products,
+                                                        Map<Long, CostLayerService.ProductValuation> valuations,
+                                                        CostLayerService.ValuationMethod method) {
+        long totalQuantity = 0;
+        long valuedProducts = 0;
+        Map<String, BigDecimal> valueByMethod = new LinkedHashMap<>();
+        for (CostLayerService.ValuationMethod each : CostLayerService.ValuationMethod.values()) {
+            valueByMethod.put(each.name(), BigDecimal.ZERO);
+        }
+        for (Product product : products) {
+            CostLayerService.ProductValuation valuation = valuations.get(product.getId());
+            if (valuation == null || valuation.getQuantity() == 0) {
+                continue;
+            }
+            totalQuantity += valuation.getQuantity();
+            valuedProducts++;
+            for (CostLayerService.ValuationMethod each : CostLayerService.ValuationMethod.values()) {
+                valueByMethod.merge(each.name(), valuation.getValue(each), BigDecimal::add);
+            }
+        }
+
+        BigDecimal totalValue = valueByMethod.get(method.name());
+        Map<String, Object> total = new HashMap<>();
+        total.put("method", method.name());
+        total.put("totalValue", totalValue);
+        total.put("totalQuantity", totalQuantity);
+        total.put("valuedProducts", valuedProducts);
+        total.put("averageUnitCost", totalQuantity > 0 ?
+                totalValue.divide(BigDecimal.valueOf(totalQuantity), 2, RoundingMode.HALF_UP) : BigDecimal.ZERO);
+        total.put("valueByMethod", valueByMethod);
+        return total;
+    }
+
+    private Map<String, Object> calculateCategoryValuation(List<Product> products,
+                                                           Map<Long, CostLayerService.ProductValuation> valuations,
+                                                           CostLayerService.ValuationMethod method) {
+        Map<String, BigDecimal> valueByCategory = new HashMap<>();
+        Map<String, Long> quantityByCategory = new HashMap<>();
+        Map<String, Long> productsByCategory = new HashMap<>();
+        BigDecimal totalValue = BigDecimal.ZERO;
+        for (Product product : products) {
+            CostLayerService.ProductValuation valuation = valuations.get(product.getId());
+            if (valuation == null || valuation.getQuantity() == 0) {
+                continue;
+            }
+            String category = product.getCategory() != null ? product.getCategory().getName() : "Uncategorized";
+            BigDecimal value = valuation.getValue(method);
+            valueByCategory.merge(category, value, BigDecimal::add);
+            quantityByCategory.merge(category, valuation.getQuantity(), Long::sum);
+            productsByCategory.merge(category, 1L, Long::sum);
+            totalValue = totalValue.add(value);
+        }
+
+        Map<String, Object> breakdown = new HashMap<>();
+        for (Map.Entry<String, BigDecimal> entry : valueByCategory.entrySet()) {
+            breakdown.put(entry.getKey(), Map.of(
+                    "totalValue", entry.getValue(),
+                    "totalQuantity", quantityByCategory.get(entry.getKey()),
+                    "productCount", productsByCategory.get(entry.getKey()),
+                    "percentage", totalValue.compareTo(BigDecimal.ZERO) > 0 ?
+                            entry.getValue().divide(totalValue, 4, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100)) :
+                            BigDecimal.ZERO
+            ));
+        }
+        return breakdown;
+    }
+
+    /**
+     * Selling price of the layered units against their cost; units on hand without cost layers
+     * are reported separately
+     */
+    private Map<String, Object> compareMarketValues(List<Product> products,
+                                                    Map<Long, CostLayerService.ProductValuation> valuations,
+                                                    CostLayerService.ValuationMethod method) {
+        BigDecimal marketValue = BigDecimal.ZERO;
+        BigDecimal costValue = BigDecimal.ZERO;
+        long unitsWithoutLayers = 0;
+        for (Product product : products) {
+            CostLayerService.ProductValuation valuation = valuations.get(product.getId());
+            long layeredQuantity = valuation != null ? valuation.getQuantity() : 0;
+            int onHand = product.getStockQuantity() != null ? product.getStockQuantity() : 0;
+            unitsWithoutLayers += Math.max(0, onHand - layeredQuantity);
+            if (layeredQuantity == 0) {
+                continue;
+            }
+            BigDecimal price = product.getPrice() != null ? product.getPrice() : BigDecimal.ZERO;
+            marketValue = marketValue.add(price.multiply(BigDecimal.valueOf(layeredQuantity)));
+            costValue = costValue.add(valuation.getValue(method));
+        }
+
+        BigDecimal unrealizedMargin = marketValue.subtract(costValue);
+        Map<String, Object> comparison = new HashMap<>();
+        comparison.put("marketValue", marketValue);
+        comparison.put("costValue", costValue);
+        comparison.put("unrealizedMargin", unrealizedMargin);
+        comparison.put("marginPercentage", marketValue.compareTo(BigDecimal.ZERO) > 0 ?
+                unrealizedMargin.divide(marketValue, 4, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100)) :
+                BigDecimal.ZERO);
+        comparison.put("unitsWithoutCostLayers", unitsWithoutLayers);
+        return comparison;
+    }
 
     // Promotion helper methods
     private Map<String, Object> calculatePromotionROI(List<AppliedPromotion> promotions) { return new HashMap<>(); }
@@ -4181,9 +4201,7 @@ public class ReportService {
     }
 
     private Long getLowStockItemsCount() {
-        return productRepository.findAll().stream()
-                .filter(product -> product.getStockQuantity() < 10)
-                .count();
+        return stockAlertService.countActiveAlerts(StockAlertService.LOW_STOCK_TYPES);
     }
 
     private Long getPendingReturnsCount() {
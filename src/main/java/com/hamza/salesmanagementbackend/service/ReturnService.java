@@ -38,6 +38,21 @@ public class ReturnService {
     @Autowired
     private SaleItemRepository saleItemRepository;
 
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CostLayerService costLayerService;
+
+    @Autowired
+    private CustomerRfmService customerRfmService;
+
+    @Autowired
+    private SalesPeriodAggregateService salesPeriodAggregateService;
+
     private static final int DEFAULT_RETURN_POLICY_DAYS = 30;
 
     /**
@@ -66,6 +81,8 @@ public class ReturnService {
                             ". Available customers: " + availableCustomers);
                 });
 
+        validateStockLeftWithSale(originalSale);
+
         // Validate return is within policy period
         if (!isWithinReturnPeriod(originalSale.getSaleDate())) {
             throw new BusinessLogicException("Return request is outside the allowed return period of " + DEFAULT_RETURN_POLICY_DAYS + " days");
@@ -204,8 +221,14 @@ public class ReturnService {
             throw new BusinessLogicException("Return must be approved before processing refund");
         }
 
+        // The sale may have been cancelled since the return was created
+        validateStockLeftWithSale(returnEntity.getOriginalSale());
+
         returnEntity.processRefund(refundMethod, refundReference);
 
+        // Counters and cost layers only reflect completed sales
+        boolean completedSale = returnEntity.getOriginalSale().getStatus() == SaleStatus.COMPLETED;
+
         // Process return items and update inventory if restockable
         if (returnEntity.getItems() != null) {
             for (ReturnItem item : returnEntity.getItems()) {
@@ -213,13 +236,22 @@ public class ReturnService {
                 
                 // Restock if item is restockable
                 if (item.canBeRestocked()) {
-                    Product product = item.getProduct();
-                    product.setStockQuantity(product.getStockQuantity() + item.getReturnQuantity());
-                    productRepository.save(product);
+                    productService.restoreStock(item.getProduct().getId(), item.getReturnQuantity(),
+                            StockMovement.MovementType.RETURN, "RETURN:" + returnEntity.getId());
+                    if (completedSale) {
+                        costLayerService.recordReturn(item.getProduct().getId(), item.getReturnQuantity(),
+                                item.getOriginalSaleItem().getCostPrice(), "RETURN_ITEM", item.getId());
+                    }
                 }
             }
         }
 
+        // Product and customer counters are reversed asynchronously
+        if (completedSale) {
+            outboxService.recordReturnRefunded(returnEntity);
+            completedSaleChanged(returnEntity.getOriginalSale());
+        }
+
         returnEntity = returnRepository.save(returnEntity);
         return mapToDTO(returnEntity);
     }
@@ -255,6 +287,30 @@ public class ReturnService {
         return LocalDateTime.now().isBefore(cutoffDate) || LocalDateTime.now().isEqual(cutoffDate);
     }
 
+    /**
+     * Refreshes what is derived from completed sales: the customer's RFM score and the cached
+     * period totals around the sale date
+     */
+    private void completedSaleChanged(Sale sale) {
+        if (sale.getCustomer() != null) {
+            customerRfmService.customerChangedAfterCommit(sale.getCustomer().getId());
+        }
+        salesPeriodAggregateService.saleChangedAfterCommit(sale.getSaleDate());
+    }
+
+    /**
+     * Restocking a return is only right when the sale actually took the units out of stock: a
+     * pending sale only holds a reservation, and cancelling a sale already puts its stock back
+     */
+    private void validateStockLeftWithSale(Sale sale) {
+        if (sale.isStockReservedOnly()) {
+            throw new BusinessLogicException("Cannot return items from a sale whose stock is still reserved; cancel the sale instead");
+        }
+        if (sale.getStatus() == SaleStatus.CANCELLED) {
+            throw new BusinessLogicException("Cannot return items from a cancelled sale");
+        }
+    }
+
     private String generateReturnNumber() {
         String prefix = "RET";
         String timestamp = String.valueOf(System.currentTimeMillis());
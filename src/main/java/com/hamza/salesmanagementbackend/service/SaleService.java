@@ -1,9 +1,11 @@
 package com.hamza.salesmanagementbackend.service;
 
 import com.hamza.salesmanagementbackend.dto.AppliedPromotionDTO;
+import com.hamza.salesmanagementbackend.dto.CustomerSalesSliceDTO;
 import com.hamza.salesmanagementbackend.dto.PromotionDTO;
 import com.hamza.salesmanagementbackend.dto.SaleDTO;
 import com.hamza.salesmanagementbackend.dto.SaleItemDTO;
+import com.hamza.salesmanagementbackend.dto.SaleSummaryDTO;
 import com.hamza.salesmanagementbackend.entity.AppliedPromotion;
 import com.hamza.salesmanagementbackend.entity.Customer;
 import com.hamza.salesmanagementbackend.entity.Product;
@@ -11,6 +13,7 @@ import com.hamza.salesmanagementbackend.entity.Promotion;
 import com.hamza.salesmanagementbackend.entity.Sale;
 import com.hamza.salesmanagementbackend.entity.SaleItem;
 import com.hamza.salesmanagementbackend.entity.SaleStatus;
+import com.hamza.salesmanagementbackend.entity.StockMovement;
 import com.hamza.salesmanagementbackend.exception.BusinessLogicException;
 import com.hamza.salesmanagementbackend.exception.DataIntegrityException;
 import com.hamza.salesmanagementbackend.exception.InsufficientStockException;
@@ -21,13 +24,16 @@ import com.hamza.salesmanagementbackend.repository.SaleRepository;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -44,19 +50,34 @@ public class SaleService {
     private final ProductService productService;
     private final PromotionApplicationService promotionApplicationService;
     private final PromotionService promotionService;
+    private final OutboxService outboxService;
+    private final StockReservationService stockReservationService;
+    private final CustomerRfmService customerRfmService;
+    private final SalesPeriodAggregateService salesPeriodAggregateService;
+    private final CostLayerService costLayerService;
 
     public SaleService(SaleRepository saleRepository,
                       CustomerRepository customerRepository,
                       ProductRepository productRepository,
                       ProductService productService,
                       PromotionApplicationService promotionApplicationService,
-                      PromotionService promotionService) {
+                      PromotionService promotionService,
+                      OutboxService outboxService,
+                      StockReservationService stockReservationService,
+                      CustomerRfmService customerRfmService,
+                      SalesPeriodAggregateService salesPeriodAggregateService,
+                      CostLayerService costLayerService) {
         this.saleRepository = saleRepository;
         this.customerRepository = customerRepository;
         this.productRepository = productRepository;
         this.productService = productService;
         this.promotionApplicationService = promotionApplicationService;
         this.promotionService = promotionService;
+        this.outboxService = outboxService;
+        this.stockReservationService = stockReservationService;
+        this.customerRfmService = customerRfmService;
+        this.salesPeriodAggregateService = salesPeriodAggregateService;
+        this.costLayerService = costLayerService;
     }
 
     /**
@@ -83,11 +104,7 @@ public class SaleService {
         // Apply auto-applicable promotions
         applyAutoPromotions(sale);
 
-        // Reduce stock for each product
-        saleItems.forEach(item ->
-                productService.reduceStock(item.getProduct().getId(), item.getQuantity()));
-
-        Sale savedSale = saleRepository.save(sale);
+        Sale savedSale = saveWithStockReservations(sale);
         return mapToDTO(savedSale);
     }
 
@@ -130,6 +147,14 @@ public class SaleService {
                 .orElseThrow(() -> new ResourceNotFoundException("Sale not found with id: " + id));
 
         validateStatusTransition(sale.getStatus(), status);
+
+        // Completion and cancellation move stock, so they go through the dedicated flows
+        if (status != sale.getStatus() && status == SaleStatus.COMPLETED) {
+            return completeSale(id);
+        }
+        if (status != sale.getStatus() && status == SaleStatus.CANCELLED) {
+            return cancelSale(id);
+        }
         sale.setStatus(status);
 
         Sale savedSale = saleRepository.save(sale);
@@ -199,6 +224,68 @@ public class SaleService {
                 .map(this::mapToDTO);
     }
 
+    /**
+     * Retrieves all sales as lean summaries (no line items) with pagination
+     */
+    @Transactional(readOnly = true)
+    public Page<SaleSummaryDTO> getAllSaleSummaries(Pageable pageable) {
+        return saleRepository.findAll(pageable)
+                .map(this::mapToSummaryDTO);
+    }
+
+    /**
+     * Gets lean sale summaries by customer with pagination
+     */
+    @Transactional(readOnly = true)
+    public Page<SaleSummaryDTO> getSaleSummariesByCustomer(Long customerId, Pageable pageable) {
+        return saleRepository.findByCustomerIdOrderBySaleDateDesc(customerId, pageable)
+                .map(this::mapToSummaryDTO);
+    }
+
+    /**
+     * One keyset page of a customer's sales, newest first, starting after the given cursor (or at
+     * the newest sale when it is null). Reads size + 1 rows to know whether more remain, so the
+     * cost does not depend on how far back the page is.
+     */
+    @Transactional(readOnly = true)
+    public CustomerSalesSliceDTO getCustomerSalesSlice(Long customerId, String cursor, int size) {
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<Sale> sales;
+        if (cursor == null || cursor.trim().isEmpty()) {
+            sales = saleRepository.findLatestByCustomerId(customerId, limit);
+        } else {
+            SaleCursor position = SaleCursor.decode(cursor);
+            sales = saleRepository.findByCustomerIdBefore(customerId, position.saleDate, position.saleId, limit);
+        }
+
+        boolean hasMore = sales.size() > size;
+        List<Sale> page = hasMore ? sales.subList(0, size) : sales;
+        Sale last = page.isEmpty() ? null : page.get(page.size() - 1);
+        return CustomerSalesSliceDTO.builder()
+                .sales(page.stream().map(this::mapToSummaryDTO).collect(Collectors.toList()))
+                .nextCursor(hasMore ? SaleCursor.encode(last.getSaleDate(), last.getId()) : null)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * Gets lean sale summaries by status with pagination
+     */
+    @Transactional(readOnly = true)
+    public Page<SaleSummaryDTO> getSaleSummariesByStatus(SaleStatus status, Pageable pageable) {
+        return saleRepository.findByStatus(status, pageable)
+                .map(this::mapToSummaryDTO);
+    }
+
+    /**
+     * Gets lean sale summaries within date range with pagination
+     */
+    @Transactional(readOnly = true)
+    public Page<SaleSummaryDTO> getSaleSummariesByDateRange(LocalDateTime startDate, LocalDateTime endDate, Pageable pageable) {
+        return saleRepository.findBySaleDateBetween(startDate, endDate, pageable)
+                .map(this::mapToSummaryDTO);
+    }
+
     /**
      * Gets high-value sales using streams for additional filtering
      */
@@ -313,12 +400,7 @@ public class SaleService {
             throw new BusinessLogicException("Cannot cancel completed sale");
         }
 
-        // Restore inventory using streams
-        sale.getItems().forEach(item -> {
-            Product product = item.getProduct();
-            product.setStockQuantity(product.getStockQuantity() + item.getQuantity());
-            productRepository.save(product);
-        });
+        releaseOrRestoreStock(sale);
 
         sale.setStatus(SaleStatus.CANCELLED);
         Sale savedSale = saleRepository.save(sale);
@@ -362,13 +444,37 @@ public class SaleService {
         }
     }
 
+    /**
+     * Persists a new pending sale and reserves its stock; the products rows are only
+     * decremented when the sale completes
+     */
+    private Sale saveWithStockReservations(Sale sale) {
+        sale.setStockCommitted(false);
+        Sale savedSale = saleRepository.save(sale);
+        savedSale.getItems().forEach(item ->
+                productService.reserveStock(item.getProduct(), savedSale.getId(), item.getQuantity()));
+        return savedSale;
+    }
+
+    private void releaseOrRestoreStock(Sale sale) {
+        if (sale.isStockReservedOnly()) {
+            stockReservationService.releaseAfterCommit(sale.getId());
+        } else if (sale.getItems() != null) {
+            // Sales created before reservations decremented stock up front
+            sale.getItems().forEach(item ->
+                    productService.restoreStock(item.getProduct().getId(), item.getQuantity(),
+                            StockMovement.MovementType.SALE_CANCEL, "SALE:" + sale.getId()));
+        }
+    }
+
     private SaleItem createSaleItem(Sale sale, SaleItemDTO itemDTO) {
         Product product = productRepository.findById(itemDTO.getProductId())
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + itemDTO.getProductId()));
 
-        if (product.getStockQuantity() < itemDTO.getQuantity()) {
+        int availableStock = productService.getAvailableStock(product);
+        if (availableStock < itemDTO.getQuantity()) {
             throw new InsufficientStockException(
-                    product.getName(), product.getStockQuantity(), itemDTO.getQuantity()
+                    product.getName(), availableStock, itemDTO.getQuantity()
             );
         }
 
@@ -478,6 +584,59 @@ public class SaleService {
         return dto;
     }
 
+    /**
+     * Opaque position in a customer's sale history: the sale date and id of the last sale returned
+     */
+    private static class SaleCursor {
+        private final LocalDateTime saleDate;
+        private final Long saleId;
+
+        private SaleCursor(LocalDateTime saleDate, Long saleId) {
+            this.saleDate = saleDate;
+            this.saleId = saleId;
+        }
+
+        static String encode(LocalDateTime saleDate, Long saleId) {
+            String raw = saleDate + "|" + saleId;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static SaleCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+                int separator = raw.lastIndexOf('|');
+                return new SaleCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                        Long.valueOf(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new BusinessLogicException("Invalid sales cursor: " + cursor);
+            }
+        }
+    }
+
+    private SaleSummaryDTO mapToSummaryDTO(Sale sale) {
+        return SaleSummaryDTO.builder()
+                .id(sale.getId())
+                .saleNumber(sale.getSaleNumber())
+                .referenceNumber(sale.getReferenceNumber())
+                .customerId(sale.getCustomer().getId())
+                .customerName(sale.getCustomer().getName())
+                .saleDate(sale.getSaleDate())
+                .status(sale.getStatus())
+                .subtotal(sale.getSubtotal())
+                .discountAmount(sale.getDiscountAmount())
+                .taxAmount(sale.getTaxAmount())
+                .totalAmount(sale.getTotalAmount())
+                .paymentMethod(sale.getPaymentMethod())
+                .paymentStatus(sale.getPaymentStatus())
+                .saleType(sale.getSaleType())
+                .deliveryStatus(sale.getDeliveryStatus())
+                .promotionId(sale.getPromotionId())
+                .couponCode(sale.getCouponCode())
+                .promotionDiscountAmount(sale.getPromotionDiscountAmount())
+                .createdAt(sale.getCreatedAt())
+                .build();
+    }
+
     private AppliedPromotionDTO mapAppliedPromotionToDTO(AppliedPromotion appliedPromotion) {
         AppliedPromotionDTO dto = new AppliedPromotionDTO();
         dto.setId(appliedPromotion.getId());
@@ -564,17 +723,9 @@ public class SaleService {
         // Calculate totals using the enhanced calculation method
         sale.calculateTotals();
 
-        // Process loyalty points
-        sale.processLoyaltyPoints();
-
-        // Reduce stock for each product
-        saleItems.forEach(item -> {
-            Product product = item.getProduct();
-            product.updateSalesStats(item.getQuantity(), item.getSubtotal());
-            productRepository.save(product);
-        });
-
-        Sale savedSale = saleRepository.save(sale);
+        // Stock is only reserved here; sales stats and loyalty points are
+        // recorded through the outbox once the sale completes
+        Sale savedSale = saveWithStockReservations(sale);
         return mapToDTO(savedSale);
     }
 
@@ -666,17 +817,25 @@ public class SaleService {
                 .findFirst()
                 .orElseThrow(() -> new ResourceNotFoundException("Sale item not found with id: " + itemId));
 
+        if (sale.isStockReservedOnly()) {
+            throw new BusinessLogicException("Cannot return items from a sale whose stock is still reserved; cancel the sale instead");
+        }
+
         if (returnQuantity > item.getAvailableQuantityForReturn()) {
             throw new BusinessLogicException("Return quantity exceeds available quantity for return");
         }
 
         // Process the return
         item.processReturn(returnQuantity);
+        if (sale.getStatus() == SaleStatus.COMPLETED) {
+            outboxService.recordSaleItemReturned(item, returnQuantity);
+            costLayerService.recordReturn(item.getProduct().getId(), returnQuantity, item.getCostPrice(), "SALE_ITEM", item.getId());
+            completedSaleChanged(sale);
+        }
 
         // Restore inventory
-        Product product = item.getProduct();
-        product.setStockQuantity(product.getStockQuantity() + returnQuantity);
-        productRepository.save(product);
+        productService.restoreStock(item.getProduct().getId(), returnQuantity,
+                StockMovement.MovementType.RETURN, "SALE:" + sale.getId());
 
         // Update sale if this is a return
         sale.setReturnReason(returnReason);
@@ -738,13 +897,9 @@ public class SaleService {
             throw DataIntegrityException.saleHasReturns(id, returnCount.intValue());
         }
 
-        // Restore inventory if sale was pending
-        if (sale.getStatus() == SaleStatus.PENDING && sale.getItems() != null) {
-            sale.getItems().forEach(item -> {
-                Product product = item.getProduct();
-                product.setStockQuantity(product.getStockQuantity() + item.getQuantity());
-                productRepository.save(product);
-            });
+        // Release the reservation (or restore inventory for legacy sales) if sale was pending
+        if (sale.getStatus() == SaleStatus.PENDING) {
+            releaseOrRestoreStock(sale);
         }
 
         sale.setStatus(SaleStatus.CANCELLED);
@@ -766,13 +921,42 @@ public class SaleService {
             throw new BusinessLogicException("Cannot complete cancelled sale");
         }
 
+        // Commit the reserved quantities to the products rows
+        if (sale.isStockReservedOnly()) {
+            sale.getItems().forEach(item ->
+                    productService.commitStockDecrement(item.getProduct().getId(), item.getQuantity(),
+                            StockMovement.MovementType.SALE, "SALE:" + sale.getId()));
+            sale.setStockCommitted(true);
+            stockReservationService.releaseAfterCommit(sale.getId());
+        }
+
         sale.setStatus(SaleStatus.COMPLETED);
-        sale.processLoyaltyPoints();
+        sale.calculateLoyaltyPointsEarned();
+
+        // Units still sold at completion leave the cost layers
+        sale.getItems().forEach(item -> costLayerService.recordConsumption(item.getProduct().getId(),
+                item.getQuantity() - (item.getReturnedQuantity() != null ? item.getReturnedQuantity() : 0),
+                "SALE_ITEM", item.getId()));
 
         Sale savedSale = saleRepository.save(sale);
+
+        // Product, customer and loyalty counters are applied asynchronously
+        outboxService.recordSaleCompleted(savedSale);
+        completedSaleChanged(savedSale);
         return mapToDTO(savedSale);
     }
 
+    /**
+     * Refreshes what is derived from completed sales: the customer's RFM score and the cached
+     * period totals around the sale date
+     */
+    private void completedSaleChanged(Sale sale) {
+        if (sale.getCustomer() != null) {
+            customerRfmService.customerChangedAfterCommit(sale.getCustomer().getId());
+        }
+        salesPeriodAggregateService.saleChangedAfterCommit(sale.getSaleDate());
+    }
+
     /**
      * Creates a sale with promotion application
      */
@@ -802,11 +986,7 @@ public class SaleService {
             applyAutoPromotions(sale);
         }
 
-        // Reduce stock for each product
-        saleItems.forEach(item ->
-                productService.reduceStock(item.getProduct().getId(), item.getQuantity()));
-
-        Sale savedSale = saleRepository.save(sale);
+        Sale savedSale = saveWithStockReservations(sale);
         return mapToDTO(savedSale);
     }
 
@@ -883,12 +1063,11 @@ public class SaleService {
         log.debug("Found {} auto-applicable promotions", autoPromotions.size());
 
         for (Promotion promotion : autoPromotions) {
-            try {
-                log.debug("Attempting to apply auto-promotion: {} (ID: {})", promotion.getName(), promotion.getId());
-                promotionApplicationService.applyPromotionToSale(sale, promotion, true);
+            log.debug("Attempting to apply auto-promotion: {} (ID: {})", promotion.getName(), promotion.getId());
+            if (promotionApplicationService.tryApplyPromotionToSale(sale, promotion, true).isPresent()) {
                 log.info("Auto-applied promotion {} to sale", promotion.getId());
-            } catch (Exception e) {
-                log.warn("Failed to auto-apply promotion {} to sale: {}", promotion.getId(), e.getMessage());
+            } else {
+                log.debug("Skipped auto-promotion {}: no discount or usage limit reached", promotion.getId());
             }
         }
     }
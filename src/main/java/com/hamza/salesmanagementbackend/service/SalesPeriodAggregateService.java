@@ -0,0 +1,199 @@
+package com.hamza.salesmanagementbackend.service;
+
+import com.hamza.salesmanagementbackend.repository.SaleRepository;
+import com.hamza.salesmanagementbackend.util.NumberUtils;
+import com.hamza.salesmanagementbackend.util.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Completed-sale count, revenue, cost and margin for [start, end) periods, each computed with one
+ * aggregate query over the (status, sale_date) index and memoised in a bounded LRU. Completing a
+ * sale or returning items from one evicts the cached periods that contain its sale date; a
+ * completed sale cannot change status again. Entries also expire after a TTL as a safety net for
+ * other writers.
+ */
+@Service
+@Slf4j
+public class SalesPeriodAggregateService {
+
+    private final SaleRepository saleRepository;
+
+    @Value("${app.reports.period-cache-max-size:1000}")
+    private int maxSize;
+
+    @Value("${app.reports.period-cache-ttl-seconds:600}")
+    private long ttlSeconds;
+
+    // Guarded by "this"; access-ordered for LRU eviction
+    private final Map<PeriodKey, CachedAggregate> aggregates = new LinkedHashMap<>(64, 0.75f, true);
+
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public SalesPeriodAggregateService(SaleRepository saleRepository) {
+        this.saleRepository = saleRepository;
+    }
+
+    /**
+     * Totals of completed sales with start <= saleDate < end
+     */
+    public PeriodAggregate getAggregate(LocalDateTime start, LocalDateTime end) {
+        PeriodKey key = new PeriodKey(start, end);
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            CachedAggregate cached = aggregates.get(key);
+            if (cached != null && cached.expiresAt > now) {
+                hits.incrementAndGet();
+                return cached.aggregate;
+            }
+        }
+
+        misses.incrementAndGet();
+        long loadGeneration = generation.get();
+        List<Object[]> rows = saleRepository.summarizeCompletedSalesInPeriod(start, end);
+        Object[] row = rows.isEmpty() ? new Object[3] : rows.get(0);
+        PeriodAggregate aggregate = new PeriodAggregate(
+                NumberUtils.toLong(row[0]),
+                NumberUtils.toBigDecimal(row[1]),
+                NumberUtils.toBigDecimal(row[2]));
+
+        // Skip caching if a sale changed while loading; the totals may already be stale
+        if (generation.get() == loadGeneration) {
+            put(key, new CachedAggregate(aggregate, now + ttlSeconds * 1000));
+        }
+        return aggregate;
+    }
+
+    /**
+     * Evicts the periods containing a sale date now and again once the current transaction commits
+     */
+    public void saleChangedAfterCommit(LocalDateTime saleDate) {
+        if (saleDate == null) {
+            return;
+        }
+        TransactionUtils.nowAndAfterCommit(() -> evictContaining(saleDate));
+    }
+
+    public Map<String, Object> getStatistics() {
+        long lookups = hits.get() + misses.get();
+        Map<String, Object> stats = new HashMap<>();
+        synchronized (this) {
+            stats.put("entries", aggregates.size());
+        }
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("hitRate", lookups > 0 ? (double) hits.get() / lookups : 0.0);
+        stats.put("evictions", evictions.get());
+        stats.put("invalidations", invalidations.get());
+        stats.put("maxSize", maxSize);
+        stats.put("ttlSeconds", ttlSeconds);
+        return stats;
+    }
+
+    private void evictContaining(LocalDateTime saleDate) {
+        generation.incrementAndGet();
+        synchronized (this) {
+            Iterator<PeriodKey> keys = aggregates.keySet().iterator();
+            while (keys.hasNext()) {
+                PeriodKey key = keys.next();
+                if (!saleDate.isBefore(key.start) && saleDate.isBefore(key.end)) {
+                    keys.remove();
+                    invalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private synchronized void put(PeriodKey key, CachedAggregate aggregate) {
+        aggregates.put(key, aggregate);
+        Iterator<PeriodKey> eldest = aggregates.keySet().iterator();
+        while (aggregates.size() > maxSize && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    public static class PeriodAggregate {
+        private final long salesCount;
+        private final BigDecimal revenue;
+        private final BigDecimal cost;
+
+        PeriodAggregate(long salesCount, BigDecimal revenue, BigDecimal cost) {
+            this.salesCount = salesCount;
+            this.revenue = revenue;
+            this.cost = cost;
+        }
+
+        public long getSalesCount() {
+            return salesCount;
+        }
+
+        public BigDecimal getRevenue() {
+            return revenue;
+        }
+
+        /**
+         * Cost price times quantity of the sold items
+         */
+        public BigDecimal getCost() {
+            return cost;
+        }
+
+        public BigDecimal getMargin() {
+            return revenue.subtract(cost);
+        }
+    }
+
+    private static class PeriodKey {
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+
+        PeriodKey(LocalDateTime start, LocalDateTime end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PeriodKey)) {
+                return false;
+            }
+            PeriodKey other = (PeriodKey) o;
+            return start.equals(other.start) && end.equals(other.end);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(start, end);
+        }
+    }
+
+    private static class CachedAggregate {
+        private final PeriodAggregate aggregate;
+        private final long expiresAt;
+
+        CachedAggregate(PeriodAggregate aggregate, long expiresAt) {
+            this.aggregate = aggregate;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.hamza.salesmanagementbackend.service;
+
+import com.hamza.salesmanagementbackend.entity.Product;
+import com.hamza.salesmanagementbackend.entity.ProductStockShard;
+import com.hamza.salesmanagementbackend.exception.BusinessLogicException;
+import com.hamza.salesmanagementbackend.exception.ResourceNotFoundException;
+import com.hamza.salesmanagementbackend.repository.ProductRepository;
+import com.hamza.salesmanagementbackend.repository.ProductStockShardRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Opt-in sharded stock for hot SKUs. The product's stock is split over N rows in
+ * product_stock_shards; a decrement touches one random shard, reads sum the shards and
+ * products.stock_quantity is reconciled periodically.
+ */
+@Service
+@Transactional
+@Slf4j
+public class ShardedStockService {
+
+    public static final int MAX_SHARDS = 64;
+
+    private final ProductStockShardRepository shardRepository;
+    private final ProductRepository productRepository;
+    private final InventorySummaryService inventorySummaryService;
+
+    public ShardedStockService(ProductStockShardRepository shardRepository, ProductRepository productRepository,
+                               InventorySummaryService inventorySummaryService) {
+        this.shardRepository = shardRepository;
+        this.productRepository = productRepository;
+        this.inventorySummaryService = inventorySummaryService;
+    }
+
+    /**
+     * Splits the product's current stock evenly over the given number of shards
+     */
+    public void enableSharding(Long productId, int shardCount) {
+        if (shardCount < 2 || shardCount > MAX_SHARDS) {
+            throw new BusinessLogicException("Shard count must be between 2 and " + MAX_SHARDS);
+        }
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + productId));
+
+        int total = product.isStockSharded() ? getTotalStock(productId) : product.getStockQuantity();
+        shardRepository.deleteByProductId(productId);
+
+        List<ProductStockShard> shards = new ArrayList<>();
+        int[] split = split(total, shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(ProductStockShard.builder().productId(productId).shardIndex(i).quantity(split[i]).build());
+        }
+        shardRepository.saveAll(shards);
+
+        product.setStockShardCount(shardCount);
+        product.setStockQuantity(total);
+        productRepository.save(product);
+        log.info("Enabled {} stock shards for product {} ({} units)", shardCount, productId, total);
+    }
+
+    /**
+     * Folds the shards back into products.stock_quantity
+     */
+    public void disableSharding(Long productId) {
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + productId));
+        if (!product.isStockSharded()) {
+            return;
+        }
+
+        int total = getTotalStock(productId);
+        shardRepository.deleteByProductId(productId);
+        product.setStockShardCount(null);
+        product.setStockQuantity(total);
+        productRepository.save(product);
+        log.info("Disabled stock shards for product {} ({} units)", productId, total);
+    }
+
+    @Transactional(readOnly = true)
+    public int getTotalStock(Long productId) {
+        Long total = shardRepository.sumQuantityByProductId(productId);
+        return total != null ? total.intValue() : 0;
+    }
+
+    @Transactional(readOnly = true)
+    public List<ProductStockShard> getShards(Long productId) {
+        return shardRepository.findByProductIdOrderByShardIndex(productId);
+    }
+
+    /**
+     * Takes stock from a random non-empty shard; only when no single shard can cover the
+     * quantity are all shards locked and drained in order. Returns false if stock is short.
+     */
+    public boolean decrement(Long productId, int shardCount, int quantity) {
+        int start = ThreadLocalRandom.current().nextInt(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            int shardIndex = (start + i) % shardCount;
+            if (shardRepository.decrementIfAvailable(productId, shardIndex, quantity) == 1) {
+                return true;
+            }
+        }
+
+        List<ProductStockShard> shards = shardRepository.findByProductIdForUpdate(productId);
+        int total = shards.stream().mapToInt(ProductStockShard::getQuantity).sum();
+        if (total < quantity) {
+            return false;
+        }
+
+        int remaining = quantity;
+        for (ProductStockShard shard : shards) {
+            int taken = Math.min(remaining, shard.getQuantity());
+            shard.setQuantity(shard.getQuantity() - taken);
+            remaining -= taken;
+            if (remaining == 0) {
+                break;
+            }
+        }
+        shardRepository.saveAll(shards);
+        return true;
+    }
+
+    /**
+     * Adds stock to a random shard (cancellations, returns)
+     */
+    public void increment(Long productId, int shardCount, int quantity) {
+        int shardIndex = ThreadLocalRandom.current().nextInt(shardCount);
+        if (shardRepository.increment(productId, shardIndex, quantity) == 0) {
+            throw new BusinessLogicException("Stock shard " + shardIndex + " missing for product " + productId);
+        }
+    }
+
+    /**
+     * Sets a new total and spreads it evenly over the existing shards; returns the previous total
+     */
+    public int redistribute(Long productId, int newTotal) {
+        List<ProductStockShard> shards = shardRepository.findByProductIdForUpdate(productId);
+        if (shards.isEmpty()) {
+            throw new BusinessLogicException("Product " + productId + " has no stock shards");
+        }
+        int previousTotal = shards.stream().mapToInt(ProductStockShard::getQuantity).sum();
+        int[] split = split(newTotal, shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            shards.get(i).setQuantity(split[i]);
+        }
+        shardRepository.saveAll(shards);
+        return previousTotal;
+    }
+
+    /**
+     * Periodically copies shard totals onto products.stock_quantity for list and report queries.
+     * Only products whose total drifted are written and refreshed in the inventory summary, so
+     * an idle cycle is a single read.
+     */
+    @Scheduled(fixedDelayString = "${app.stock.shard-reconcile-interval:5000}")
+    public void reconcileShardedStock() {
+        List<Long> drifted = productRepository.findDriftedShardedProductIds();
+        if (drifted.isEmpty()) {
+            return;
+        }
+        int updated = productRepository.reconcileShardedStock(drifted);
+        if (updated > 0) {
+            inventorySummaryService.productsChanged(drifted);
+            log.debug("Reconciled stock for {} sharded products", updated);
+        }
+    }
+
+    private int[] split(int total, int parts) {
+        int[] split = new int[parts];
+        int base = total / parts;
+        int remainder = total % parts;
+        for (int i = 0; i < parts; i++) {
+            split[i] = base + (i < remainder ? 1 : 0);
+        }
+        return split;
+    }
+}
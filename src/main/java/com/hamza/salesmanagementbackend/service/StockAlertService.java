@@ -0,0 +1,371 @@
+package com.hamza.salesmanagementbackend.service;
+
+import com.hamza.salesmanagementbackend.dto.StockAlertDTO;
+import com.hamza.salesmanagementbackend.entity.Product;
+import com.hamza.salesmanagementbackend.entity.StockAlert;
+import com.hamza.salesmanagementbackend.exception.BusinessLogicException;
+import com.hamza.salesmanagementbackend.exception.ResourceNotFoundException;
+import com.hamza.salesmanagementbackend.repository.ProductRepository;
+import com.hamza.salesmanagementbackend.repository.StockAlertRepository;
+import com.hamza.salesmanagementbackend.util.DirtySetFlusher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Threshold-crossing detection for product stock. Every stock mutation marks its product once
+ * the transaction commits; marked products are re-read by id in one query, compared with their
+ * active alert and the crossings written to stock_alerts and pushed to the "stock-alerts"
+ * WebSocket channel. Low-stock and reorder lists are then read from the active alerts instead
+ * of scanning the catalogue. A periodic reconcile covers stock written outside the tracked paths.
+ */
+@Service
+@Slf4j
+public class StockAlertService {
+
+    public static final String CHANNEL = "stock-alerts";
+
+    /**
+     * Levels at or below the minimum stock level
+     */
+    public static final Set<StockAlert.AlertType> LOW_STOCK_TYPES =
+            EnumSet.of(StockAlert.AlertType.OUT_OF_STOCK, StockAlert.AlertType.LOW_STOCK);
+
+    /**
+     * Levels at or below the reorder point
+     */
+    public static final Set<StockAlert.AlertType> REORDER_TYPES = EnumSet.allOf(StockAlert.AlertType.class);
+
+    private final StockAlertRepository stockAlertRepository;
+    private final ProductRepository productRepository;
+    private final ShardedStockService shardedStockService;
+    private final WebSocketUpdateService webSocketUpdateService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final DirtySetFlusher dirty = new DirtySetFlusher();
+
+    private final AtomicLong evaluatedProducts = new AtomicLong();
+    private final AtomicLong alertsOpened = new AtomicLong();
+    private final AtomicLong alertsResolved = new AtomicLong();
+    private final AtomicLong reconciles = new AtomicLong();
+
+    public StockAlertService(StockAlertRepository stockAlertRepository,
+                             ProductRepository productRepository,
+                             ShardedStockService shardedStockService,
+                             WebSocketUpdateService webSocketUpdateService,
+                             PlatformTransactionManager transactionManager) {
+        this.stockAlertRepository = stockAlertRepository;
+        this.productRepository = productRepository;
+        this.shardedStockService = shardedStockService;
+        this.webSocketUpdateService = webSocketUpdateService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Marks a product for evaluation once the current transaction commits
+     */
+    public void stockChangedAfterCommit(Long productId) {
+        dirty.markAfterCommit(productId);
+    }
+
+    public void stockChanged(Collection<Long> productIds) {
+        dirty.markAll(productIds);
+    }
+
+    /**
+     * Active alerts, optionally restricted to the given levels
+     */
+    public List<StockAlertDTO> getActiveAlerts(Collection<StockAlert.AlertType> types) {
+        flush();
+        List<StockAlertDTO> alerts = new ArrayList<>();
+        for (Object[] row : stockAlertRepository.findActiveWithProducts(
+                types == null || types.isEmpty() ? REORDER_TYPES : types)) {
+            alerts.add(toDTO((StockAlert) row[0], (String) row[1], (String) row[2]));
+        }
+        return alerts;
+    }
+
+    /**
+     * Products holding an active alert of one of the given levels
+     */
+    public List<Product> getProductsWithActiveAlert(Collection<StockAlert.AlertType> types) {
+        flush();
+        return stockAlertRepository.findProductsWithActiveAlert(types);
+    }
+
+    public long countActiveAlerts(Collection<StockAlert.AlertType> types) {
+        flush();
+        return stockAlertRepository.countActive(types);
+    }
+
+    /**
+     * Active alert counts per level and status
+     */
+    public Map<String, Object> getAlertSummary() {
+        flush();
+        Map<String, Long> byType = new HashMap<>();
+        long open = 0;
+        long acknowledged = 0;
+        for (Object[] row : stockAlertRepository.countActiveByTypeAndStatus()) {
+            long count = ((Number) row[2]).longValue();
+            byType.merge(row[0].toString(), count, Long::sum);
+            if (row[1] == StockAlert.AlertStatus.ACKNOWLEDGED) {
+                acknowledged += count;
+            } else {
+                open += count;
+            }
+        }
+        for (StockAlert.AlertType type : StockAlert.AlertType.values()) {
+            byType.putIfAbsent(type.name(), 0L);
+        }
+
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("byType", byType);
+        summary.put("open", open);
+        summary.put("acknowledged", acknowledged);
+        summary.put("total", open + acknowledged);
+        return summary;
+    }
+
+    public Page<StockAlertDTO> getProductAlertHistory(Long productId, Pageable pageable) {
+        flush();
+        return stockAlertRepository.findByProductIdOrderByTriggeredAtDesc(productId, pageable)
+                .map(alert -> toDTO(alert, null, null));
+    }
+
+    /**
+     * Marks an open alert as seen; it stays active until stock climbs back above its threshold
+     */
+    public StockAlertDTO acknowledge(Long alertId, String acknowledgedBy) {
+        StockAlert alert = transactionTemplate.execute(status -> {
+            StockAlert found = stockAlertRepository.findById(alertId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Stock alert not found with id: " + alertId));
+            if (!found.isActive()) {
+                throw new BusinessLogicException("Stock alert " + alertId + " is already resolved");
+            }
+            if (found.getStatus() == StockAlert.AlertStatus.OPEN) {
+                found.setStatus(StockAlert.AlertStatus.ACKNOWLEDGED);
+                found.setAcknowledgedAt(LocalDateTime.now());
+                found.setAcknowledgedBy(acknowledgedBy);
+            }
+            return stockAlertRepository.save(found);
+        });
+        return toDTO(alert, null, null);
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("pendingProducts", dirty.size());
+        stats.put("evaluatedProducts", evaluatedProducts.get());
+        stats.put("alertsOpened", alertsOpened.get());
+        stats.put("alertsResolved", alertsResolved.get());
+        stats.put("reconciles", reconciles.get());
+        return stats;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            log.warn("Could not evaluate stock alerts at startup: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Re-evaluates every product near a threshold plus every product with an active alert;
+     * a safety net for stock written outside the tracked code paths
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.alert-reconcile-interval:3600000}",
+               initialDelayString = "${app.inventory.alert-reconcile-interval:3600000}")
+    public void reconcileScheduled() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            log.warn("Stock alert reconcile failed: {}", e.getMessage());
+        }
+    }
+
+    public void reconcile() {
+        Set<Long> ids = transactionTemplate.execute(status -> {
+            Set<Long> candidates = new HashSet<>(productRepository.findStockAlertCandidateIds());
+            candidates.addAll(stockAlertRepository.findActiveProductIds());
+            return candidates;
+        });
+        dirty.markAll(ids);
+        flush();
+        reconciles.incrementAndGet();
+    }
+
+    @Scheduled(fixedDelayString = "${app.inventory.alert-flush-interval:1000}")
+    public void flushScheduled() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.warn("Stock alert evaluation failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Evaluates the marked products; synchronized so each product is compared with its active
+     * alert by one thread at a time
+     */
+    private synchronized void flush() {
+        dirty.flush(ids -> {
+            List<StockAlertDTO> changes = transactionTemplate.execute(status -> evaluate(ids));
+            evaluatedProducts.addAndGet(ids.size());
+            for (StockAlertDTO change : changes) {
+                publish(change);
+            }
+        });
+    }
+
+    private List<StockAlertDTO> evaluate(List<Long> ids) {
+        Map<Long, StockAlert> activeByProduct = new HashMap<>();
+        for (StockAlert alert : stockAlertRepository.findActiveByProductIds(ids)) {
+            activeByProduct.put(alert.getProductId(), alert);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<StockAlert> toSave = new ArrayList<>();
+        List<StockAlert> changed = new ArrayList<>();
+        Map<Long, String[]> labels = new HashMap<>();
+        for (Object[] row : productRepository.findStockLevelsByIds(ids)) {
+            Long productId = (Long) row[0];
+            String name = (String) row[1];
+            String sku = (String) row[2];
+            Integer shardCount = (Integer) row[6];
+            int stock = shardCount != null && shardCount > 1
+                    ? shardedStockService.getTotalStock(productId)
+                    : row[3] != null ? (Integer) row[3] : 0;
+            Integer minStockLevel = (Integer) row[4];
+            Integer reorderPoint = (Integer) row[5];
+            labels.put(productId, new String[]{name, sku});
+
+            StockAlert.AlertType level = level(stock, minStockLevel, reorderPoint);
+            StockAlert active = activeByProduct.get(productId);
+            if (active != null && active.getAlertType() == level) {
+                if (!active.getStockQuantity().equals(stock)) {
+                    active.setStockQuantity(stock);
+                    toSave.add(active);
+                }
+                continue;
+            }
+            if (active != null) {
+                resolve(active, stock, now);
+                toSave.add(active);
+                changed.add(active);
+            }
+            if (level != null) {
+                StockAlert opened = StockAlert.builder()
+                        .productId(productId)
+                        .alertType(level)
+                        .stockQuantity(stock)
+                        .threshold(threshold(level, minStockLevel, reorderPoint))
+                        .triggeredAt(now)
+                        .build();
+                toSave.add(opened);
+                changed.add(opened);
+                alertsOpened.incrementAndGet();
+            }
+        }
+
+        // Products deleted since they were marked
+        for (StockAlert active : activeByProduct.values()) {
+            if (!labels.containsKey(active.getProductId())) {
+                resolve(active, active.getStockQuantity(), now);
+                toSave.add(active);
+                changed.add(active);
+            }
+        }
+
+        stockAlertRepository.saveAll(toSave);
+        List<StockAlertDTO> changes = new ArrayList<>();
+        for (StockAlert alert : changed) {
+            String[] label = labels.getOrDefault(alert.getProductId(), new String[2]);
+            changes.add(toDTO(alert, label[0], label[1]));
+        }
+        return changes;
+    }
+
+    private void resolve(StockAlert alert, int stock, LocalDateTime now) {
+        alert.setStatus(StockAlert.AlertStatus.RESOLVED);
+        alert.setStockQuantity(stock);
+        alert.setResolvedAt(now);
+        alertsResolved.incrementAndGet();
+    }
+
+    /**
+     * Most severe level the stock sits at, or null when above every threshold
+     */
+    static StockAlert.AlertType level(int stock, Integer minStockLevel, Integer reorderPoint) {
+        if (stock <= 0) {
+            return StockAlert.AlertType.OUT_OF_STOCK;
+        }
+        if (minStockLevel != null && stock <= minStockLevel) {
+            return StockAlert.AlertType.LOW_STOCK;
+        }
+        if (reorderPoint != null && stock <= reorderPoint) {
+            return StockAlert.AlertType.REORDER;
+        }
+        return null;
+    }
+
+    private static Integer threshold(StockAlert.AlertType level, Integer minStockLevel, Integer reorderPoint) {
+        switch (level) {
+            case OUT_OF_STOCK:
+                return 0;
+            case LOW_STOCK:
+                return minStockLevel;
+            default:
+                return reorderPoint;
+        }
+    }
+
+    private void publish(StockAlertDTO change) {
+        try {
+            Map<String, Object> data = new HashMap<>();
+            data.put("event", "RESOLVED".equals(change.getStatus()) ? "RESOLVED" : "OPENED");
+            data.put("alert", change);
+            webSocketUpdateService.sendCustomNotificationToChannel(CHANNEL, "STOCK_ALERT", data);
+        } catch (Exception e) {
+            log.warn("Could not push stock alert for product {}: {}", change.getProductId(), e.getMessage());
+        }
+    }
+
+    private static StockAlertDTO toDTO(StockAlert alert, String productName, String productSku) {
+        return StockAlertDTO.builder()
+                .id(alert.getId())
+                .productId(alert.getProductId())
+                .productName(productName)
+                .productSku(productSku)
+                .alertType(alert.getAlertType().name())
+                .status(alert.getStatus().name())
+                .stockQuantity(alert.getStockQuantity())
+                .threshold(alert.getThreshold())
+                .triggeredAt(alert.getTriggeredAt())
+                .acknowledgedAt(alert.getAcknowledgedAt())
+                .acknowledgedBy(alert.getAcknowledgedBy())
+                .resolvedAt(alert.getResolvedAt())
+                .build();
+    }
+}
@@ -0,0 +1,394 @@
+package com.hamza.salesmanagementbackend.service;
+
+import com.hamza.salesmanagementbackend.dto.StockMovementDTO;
+import com.hamza.salesmanagementbackend.entity.StockMovement;
+import com.hamza.salesmanagementbackend.entity.StockMovementGap;
+import com.hamza.salesmanagementbackend.entity.StockSnapshot;
+import com.hamza.salesmanagementbackend.exception.BusinessLogicException;
+import com.hamza.salesmanagementbackend.exception.ResourceNotFoundException;
+import com.hamza.salesmanagementbackend.repository.ProductRepository;
+import com.hamza.salesmanagementbackend.repository.StockMovementGapRepository;
+import com.hamza.salesmanagementbackend.repository.StockMovementRepository;
+import com.hamza.salesmanagementbackend.repository.StockSnapshotRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Appends a stock movement for every change ProductService makes to on-hand stock, and keeps
+ * periodic per-product snapshots so stock as of a date is one snapshot lookup plus a scan of the
+ * movements since. products.stock_quantity stays the current on-hand figure; the snapshot run
+ * also compares it with the ledger and records the difference, which covers stock written
+ * outside ProductService (bulk imports, direct SQL) and gives existing products their opening
+ * movement the first time it runs.
+ *
+ * Movement ids are assigned at insert but become visible at commit, so a run cannot tell from
+ * ids or dates alone what will still arrive below them. Each run snapshots up to the highest
+ * visible id (its horizon) and records the missing ids below it as gaps; snapshots never include
+ * gap ids, and a gap that commits later is added to the snapshots covering it.
+ */
+@Service
+@Slf4j
+public class StockMovementService {
+
+    // A gap still missing after this long belonged to a rolled-back insert
+    private static final long GAP_RETENTION_HOURS = 24;
+
+    private final StockMovementRepository movementRepository;
+    private final StockSnapshotRepository snapshotRepository;
+    private final StockMovementGapRepository gapRepository;
+    private final ProductRepository productRepository;
+    private final TransactionTemplate writeTemplate;
+    private final TransactionTemplate readTemplate;
+
+    @Value("${app.inventory.stock-snapshot-batch-size:500}")
+    private int batchSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong movementsRecorded = new AtomicLong();
+    private final AtomicLong asOfQueries = new AtomicLong();
+    private volatile Map<String, Object> lastRun;
+
+    public StockMovementService(StockMovementRepository movementRepository,
+                                StockSnapshotRepository snapshotRepository,
+                                StockMovementGapRepository gapRepository,
+                                ProductRepository productRepository,
+                                PlatformTransactionManager transactionManager) {
+        this.movementRepository = movementRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.gapRepository = gapRepository;
+        this.productRepository = productRepository;
+        this.writeTemplate = new TransactionTemplate(transactionManager);
+        this.writeTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        // Stock quantities, snapshots and movements of a batch are read from one consistent view
+        this.readTemplate = new TransactionTemplate(transactionManager);
+        this.readTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.readTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Appends a movement in the caller's transaction; quantity is the signed change in on-hand stock
+     */
+    public void record(Long productId, StockMovement.MovementType type, int quantity,
+                       BigDecimal unitCost, String reference) {
+        if (quantity == 0) {
+            return;
+        }
+        movementRepository.save(StockMovement.builder()
+                .productId(productId)
+                .movementType(type)
+                .quantity(quantity)
+                .unitCost(unitCost)
+                .totalValue(unitCost != null ? unitCost.multiply(BigDecimal.valueOf(Math.abs(quantity))) : null)
+                .date(LocalDateTime.now())
+                .reference(reference)
+                .build());
+        movementsRecorded.incrementAndGet();
+    }
+
+    @Transactional(readOnly = true)
+    public Page<StockMovementDTO> getMovements(Long productId, Pageable pageable) {
+        if (!productRepository.existsById(productId)) {
+            throw new ResourceNotFoundException("Product not found with id: " + productId);
+        }
+        return movementRepository.findByProductId(productId, pageable).map(this::toDTO);
+    }
+
+    /**
+     * On-hand quantity after every movement dated up to and including the given time. History
+     * starts at each product's opening movement, so earlier dates read as zero.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getStockAsOf(Long productId, LocalDateTime at) {
+        if (!productRepository.existsById(productId)) {
+            throw new ResourceNotFoundException("Product not found with id: " + productId);
+        }
+        asOfQueries.incrementAndGet();
+        Optional<StockSnapshot> snapshot =
+                snapshotRepository.findFirstByProductIdAndTakenAtLessThanEqualOrderByTakenAtDesc(productId, at);
+        long afterMovementId = snapshot.map(StockSnapshot::getLastMovementId).orElse(0L);
+        Object[] row = movementRepository.sumNotSnapshotted(productId, afterMovementId, at).get(0);
+        int base = snapshot.map(StockSnapshot::getQuantity).orElse(0);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("productId", productId);
+        result.put("asOf", at);
+        result.put("quantity", base + ((Number) row[0]).intValue());
+        result.put("snapshotTakenAt", snapshot.map(StockSnapshot::getTakenAt).orElse(null));
+        result.put("snapshotQuantity", snapshot.isPresent() ? base : null);
+        result.put("movementsSinceSnapshot", ((Number) row[1]).longValue());
+        return result;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            run();
+        } catch (Exception e) {
+            log.warn("Stock snapshot run failed at startup: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${app.inventory.stock-snapshot-cron:0 0 * * * *}")
+    public void runScheduled() {
+        try {
+            run();
+        } catch (Exception e) {
+            log.warn("Stock snapshot run failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Adds gaps that committed since the last run to their snapshots, snapshots every product that
+     * moved since its last snapshot up to the new horizon, then reconciles the ledger with
+     * products.stock_quantity. The last two passes walk products in id order, batchSize at a time.
+     * Returns the run summary.
+     */
+    public Map<String, Object> run() {
+        if (!running.compareAndSet(false, true)) {
+            throw new BusinessLogicException("A stock snapshot run is already in progress");
+        }
+        try {
+            LocalDateTime startedAt = LocalDateTime.now();
+            long started = System.currentTimeMillis();
+            int pageSize = Math.max(1, batchSize);
+
+            int lateMovements = writeTemplate.execute(status -> addCommittedGaps());
+
+            // Horizon and its gaps from one view; every included movement is dated before takenAt
+            List<Long> gaps = new ArrayList<>();
+            long horizon = readTemplate.execute(status -> {
+                long previous = Optional.ofNullable(snapshotRepository.findMaxLastMovementId()).orElse(0L);
+                Long maxId = movementRepository.findMaxId();
+                if (maxId == null || maxId <= previous) {
+                    return previous;
+                }
+                gaps.addAll(findMissingIds(previous, maxId, pageSize));
+                return maxId;
+            });
+            LocalDateTime takenAt = LocalDateTime.now();
+            if (!gaps.isEmpty()) {
+                writeTemplate.execute(status -> recordGaps(gaps, takenAt));
+            }
+
+            long snapshotsTaken = 0;
+            long afterId = 0;
+            while (true) {
+                long from = afterId;
+                List<StockSnapshot> snapshots = readTemplate.execute(status -> {
+                    List<Object[]> rows = movementRepository.summarizeUnsnapshotted(from, horizon,
+                            PageRequest.of(0, pageSize));
+                    if (rows.isEmpty()) {
+                        return new ArrayList<StockSnapshot>();
+                    }
+                    Map<Long, Integer> previous = latestQuantities(rows.stream()
+                            .map(row -> (Long) row[0]).collect(Collectors.toList()));
+                    List<StockSnapshot> batch = new ArrayList<>();
+                    for (Object[] row : rows) {
+                        Long productId = (Long) row[0];
+                        batch.add(StockSnapshot.builder()
+                                .productId(productId)
+                                .takenAt(takenAt)
+                                .lastMovementId(horizon)
+                                .quantity(previous.getOrDefault(productId, 0) + ((Number) row[1]).intValue())
+                                .build());
+                    }
+                    return batch;
+                });
+                if (snapshots.isEmpty()) {
+                    break;
+                }
+                writeTemplate.execute(status -> snapshotRepository.saveAll(snapshots));
+                snapshotsTaken += snapshots.size();
+                afterId = snapshots.get(snapshots.size() - 1).getProductId();
+            }
+
+            long productsChecked = 0;
+            long openings = 0;
+            long reconciliations = 0;
+            afterId = 0;
+            while (true) {
+                long from = afterId;
+                List<Object[]> products = new ArrayList<>();
+                List<StockMovement> corrections = readTemplate.execute(status -> {
+                    products.addAll(movementRepository.findUnshardedProductStock(from, PageRequest.of(0, pageSize)));
+                    return findDifferences(products);
+                });
+                if (products.isEmpty()) {
+                    break;
+                }
+                if (!corrections.isEmpty()) {
+                    writeTemplate.execute(status -> movementRepository.saveAll(corrections));
+                    for (StockMovement correction : corrections) {
+                        if (correction.getMovementType() == StockMovement.MovementType.OPENING) {
+                            openings++;
+                        } else {
+                            reconciliations++;
+                            log.warn("Stock ledger for product {} was off by {}; recorded a reconciliation",
+                                    correction.getProductId(), correction.getQuantity());
+                        }
+                    }
+                    movementsRecorded.addAndGet(corrections.size());
+                }
+                productsChecked += products.size();
+                afterId = (Long) products.get(products.size() - 1)[0];
+            }
+
+            Map<String, Object> summary = new HashMap<>();
+            summary.put("startedAt", startedAt);
+            summary.put("durationMs", System.currentTimeMillis() - started);
+            summary.put("horizonMovementId", horizon);
+            summary.put("gapsRecorded", gaps.size());
+            summary.put("lateMovements", lateMovements);
+            summary.put("snapshotsTaken", snapshotsTaken);
+            summary.put("productsChecked", productsChecked);
+            summary.put("openingMovements", openings);
+            summary.put("reconciliations", reconciliations);
+            lastRun = summary;
+            if (snapshotsTaken > 0 || lateMovements > 0 || openings > 0 || reconciliations > 0) {
+                log.info("Stock snapshot run took {} snapshots, added {} late movements, recorded {} opening and {} reconciliation movements",
+                        snapshotsTaken, lateMovements, openings, reconciliations);
+            }
+            return summary;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("movementsRecorded", movementsRecorded.get());
+        stats.put("asOfQueries", asOfQueries.get());
+        stats.put("running", running.get());
+        stats.put("lastRun", lastRun);
+        return stats;
+    }
+
+    /**
+     * Movements that bring each product's ledger quantity to its stock quantity; OPENING for
+     * products with no ledger history yet
+     */
+    private List<StockMovement> findDifferences(List<Object[]> products) {
+        if (products.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> ids = products.stream().map(row -> (Long) row[0]).collect(Collectors.toList());
+        Map<Long, Integer> snapshotQuantities = latestQuantities(ids);
+        Map<Long, Integer> sinceSnapshot = new HashMap<>();
+        for (Object[] row : movementRepository.summarizeSinceLatestSnapshot(ids)) {
+            sinceSnapshot.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<StockMovement> corrections = new ArrayList<>();
+        for (Object[] row : products) {
+            Long productId = (Long) row[0];
+            int onHand = row[1] != null ? (Integer) row[1] : 0;
+            boolean hasHistory = snapshotQuantities.containsKey(productId) || sinceSnapshot.containsKey(productId);
+            int ledger = snapshotQuantities.getOrDefault(productId, 0) + sinceSnapshot.getOrDefault(productId, 0);
+            if (onHand != ledger) {
+                StockMovement.MovementType type = hasHistory
+                        ? StockMovement.MovementType.RECONCILIATION
+                        : StockMovement.MovementType.OPENING;
+                corrections.add(StockMovement.builder()
+                        .productId(productId)
+                        .movementType(type)
+                        .quantity(onHand - ledger)
+                        .date(now)
+                        .reference(type.name())
+                        .build());
+            }
+        }
+        return corrections;
+    }
+
+    /**
+     * Adds every gap movement that has committed to the snapshots of its product covering its id,
+     * drops those gaps and expired ones; returns the number of movements added
+     */
+    private int addCommittedGaps() {
+        List<StockMovement> committed = movementRepository.findCommittedGaps();
+        for (StockMovement movement : committed) {
+            snapshotRepository.addLateMovement(movement.getProductId(), movement.getId(), movement.getQuantity());
+        }
+        gapRepository.deleteAllByIdInBatch(committed.stream().map(StockMovement::getId).collect(Collectors.toList()));
+        gapRepository.deleteRecordedBefore(LocalDateTime.now().minusHours(GAP_RETENTION_HOURS));
+        return committed.size();
+    }
+
+    /**
+     * Ids in (afterId, upToId] with no visible movement
+     */
+    private List<Long> findMissingIds(long afterId, long upToId, int pageSize) {
+        List<Long> missing = new ArrayList<>();
+        if (movementRepository.countByIdBetween(afterId, upToId) == upToId - afterId) {
+            return missing;
+        }
+        long expected = afterId + 1;
+        while (expected <= upToId) {
+            List<Long> ids = movementRepository.findIdsBetween(expected - 1, upToId, PageRequest.of(0, pageSize));
+            for (Long id : ids) {
+                while (expected < id) {
+                    missing.add(expected++);
+                }
+                expected = id + 1;
+            }
+            if (ids.size() < pageSize) {
+                break;
+            }
+        }
+        return missing;
+    }
+
+    private List<StockMovementGap> recordGaps(List<Long> gaps, LocalDateTime recordedAt) {
+        Set<Long> known = gapRepository.findAllById(gaps).stream()
+                .map(StockMovementGap::getMovementId).collect(Collectors.toSet());
+        List<StockMovementGap> added = gaps.stream()
+                .filter(id -> !known.contains(id))
+                .map(id -> StockMovementGap.builder().movementId(id).recordedAt(recordedAt).build())
+                .collect(Collectors.toList());
+        return gapRepository.saveAll(added);
+    }
+
+    private Map<Long, Integer> latestQuantities(List<Long> productIds) {
+        return snapshotRepository.findLatestByProductIds(productIds).stream()
+                .collect(Collectors.toMap(StockSnapshot::getProductId, StockSnapshot::getQuantity));
+    }
+
+    private StockMovementDTO toDTO(StockMovement movement) {
+        return StockMovementDTO.builder()
+                .id(movement.getId())
+                .productId(movement.getProductId())
+                .movementType(movement.getMovementType().name())
+                .quantity(movement.getQuantity())
+                .unitCost(movement.getUnitCost())
+                .totalValue(movement.getTotalValue())
+                .date(movement.getDate())
+                .reference(movement.getReference())
+                .createdAt(movement.getCreatedAt())
+                .build();
+    }
+}
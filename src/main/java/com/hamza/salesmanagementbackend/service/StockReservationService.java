@@ -0,0 +1,228 @@
+package com.hamza.salesmanagementbackend.service;
+
+import com.hamza.salesmanagementbackend.entity.Sale;
+import com.hamza.salesmanagementbackend.entity.SaleItem;
+import com.hamza.salesmanagementbackend.exception.InsufficientStockException;
+import com.hamza.salesmanagementbackend.repository.SaleRepository;
+import com.hamza.salesmanagementbackend.util.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory stock reservations for pending sales. Stock on the products row is only
+ * decremented when a sale completes; until then the quantity is held here with a TTL.
+ * Available stock = on-hand - active reservations.
+ */
+@Service
+@Slf4j
+public class StockReservationService {
+
+    private final SaleRepository saleRepository;
+
+    @Value("${app.stock.reservation-ttl-minutes:30}")
+    private long reservationTtlMinutes;
+
+    private final Map<Long, ProductReservations> reservationsByProduct = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> productsBySale = new ConcurrentHashMap<>();
+
+    private final AtomicLong reservationsCreated = new AtomicLong();
+    private final AtomicLong reservationsRejected = new AtomicLong();
+    private final AtomicLong reservationsExpired = new AtomicLong();
+
+    public StockReservationService(SaleRepository saleRepository) {
+        this.saleRepository = saleRepository;
+    }
+
+    /**
+     * Reserves stock for a pending sale, failing when on-hand minus other reservations is too low.
+     * The reservation is dropped again if the surrounding transaction rolls back.
+     */
+    public void reserve(Long productId, String productName, Long saleId, int quantity, int onHand) {
+        ProductReservations reservations = reservationsByProduct.computeIfAbsent(productId, id -> new ProductReservations());
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(reservationTtlMinutes);
+
+        if (!reservations.tryReserve(saleId, quantity, onHand, expiresAt)) {
+            reservationsRejected.incrementAndGet();
+            int available = Math.max(0, onHand - reservations.activeQuantity(saleId));
+            throw new InsufficientStockException(productName, available, quantity);
+        }
+
+        productsBySale.computeIfAbsent(saleId, id -> ConcurrentHashMap.newKeySet()).add(productId);
+        reservationsCreated.incrementAndGet();
+
+        TransactionUtils.unlessCommitted(() -> release(saleId));
+    }
+
+    /**
+     * Releases all reservations held by a sale
+     */
+    public void release(Long saleId) {
+        Set<Long> productIds = productsBySale.remove(saleId);
+        if (productIds == null) {
+            return;
+        }
+        for (Long productId : productIds) {
+            ProductReservations reservations = reservationsByProduct.get(productId);
+            if (reservations != null) {
+                reservations.remove(saleId);
+            }
+        }
+    }
+
+    /**
+     * Releases a sale's reservations once the current transaction commits
+     */
+    public void releaseAfterCommit(Long saleId) {
+        TransactionUtils.afterCommit(() -> release(saleId));
+    }
+
+    public int getReservedQuantity(Long productId) {
+        ProductReservations reservations = reservationsByProduct.get(productId);
+        return reservations != null ? reservations.activeQuantity(null) : 0;
+    }
+
+    public int getAvailableStock(Long productId, int onHand) {
+        return Math.max(0, onHand - getReservedQuantity(productId));
+    }
+
+    /**
+     * Drops expired reservations; the stock becomes available to other sales again
+     */
+    @Scheduled(fixedRate = 60000)
+    public void purgeExpiredReservations() {
+        LocalDateTime now = LocalDateTime.now();
+        int purged = 0;
+        for (Map.Entry<Long, ProductReservations> entry : reservationsByProduct.entrySet()) {
+            for (Long saleId : entry.getValue().removeExpired(now)) {
+                Set<Long> productIds = productsBySale.get(saleId);
+                if (productIds != null) {
+                    productIds.remove(entry.getKey());
+                    if (productIds.isEmpty()) {
+                        productsBySale.remove(saleId, productIds);
+                    }
+                }
+                purged++;
+            }
+        }
+        if (purged > 0) {
+            reservationsExpired.addAndGet(purged);
+            log.info("Expired {} stock reservations", purged);
+        }
+    }
+
+    /**
+     * Rebuilds reservations for recent pending sales after a restart
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void restorePendingReservations() {
+        try {
+            LocalDateTime since = LocalDateTime.now().minusMinutes(reservationTtlMinutes);
+            List<Sale> pendingSales = saleRepository.findPendingReservedSalesSince(since);
+            for (Sale sale : pendingSales) {
+                LocalDateTime createdAt = sale.getCreatedAt() != null ? sale.getCreatedAt() : LocalDateTime.now();
+                LocalDateTime expiresAt = createdAt.plusMinutes(reservationTtlMinutes);
+                for (SaleItem item : sale.getItems()) {
+                    Long productId = item.getProduct().getId();
+                    reservationsByProduct.computeIfAbsent(productId, id -> new ProductReservations())
+                            .put(sale.getId(), item.getQuantity(), expiresAt);
+                    productsBySale.computeIfAbsent(sale.getId(), id -> ConcurrentHashMap.newKeySet()).add(productId);
+                }
+            }
+            log.info("Restored stock reservations for {} pending sales", pendingSales.size());
+        } catch (Exception e) {
+            log.warn("Could not restore stock reservations: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("productsWithReservations", reservationsByProduct.size());
+        stats.put("salesWithReservations", productsBySale.size());
+        stats.put("reservationsCreated", reservationsCreated.get());
+        stats.put("reservationsRejected", reservationsRejected.get());
+        stats.put("reservationsExpired", reservationsExpired.get());
+        stats.put("ttlMinutes", reservationTtlMinutes);
+        return stats;
+    }
+
+    /**
+     * Reservations of one product, keyed by sale. All access is synchronized on the instance,
+     * so contention is limited to sales of the same product.
+     */
+    private static class ProductReservations {
+        private final Map<Long, Reservation> bySale = new HashMap<>();
+
+        synchronized boolean tryReserve(Long saleId, int quantity, int onHand, LocalDateTime expiresAt) {
+            if (onHand - activeQuantity(null) < quantity) {
+                return false;
+            }
+            put(saleId, quantity, expiresAt);
+            return true;
+        }
+
+        synchronized void put(Long saleId, int quantity, LocalDateTime expiresAt) {
+            Reservation existing = bySale.get(saleId);
+            int total = existing != null && !existing.isExpired(LocalDateTime.now()) ? existing.quantity + quantity : quantity;
+            bySale.put(saleId, new Reservation(total, expiresAt));
+        }
+
+        synchronized void remove(Long saleId) {
+            bySale.remove(saleId);
+        }
+
+        /** Sum of unexpired reservations, optionally excluding one sale */
+        synchronized int activeQuantity(Long excludeSaleId) {
+            LocalDateTime now = LocalDateTime.now();
+            int total = 0;
+            for (Map.Entry<Long, Reservation> entry : bySale.entrySet()) {
+                if (!entry.getKey().equals(excludeSaleId) && !entry.getValue().isExpired(now)) {
+                    total += entry.getValue().quantity;
+                }
+            }
+            return total;
+        }
+
+        synchronized List<Long> removeExpired(LocalDateTime now) {
+            List<Long> expired = new ArrayList<>();
+            Iterator<Map.Entry<Long, Reservation>> iterator = bySale.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Long, Reservation> entry = iterator.next();
+                if (entry.getValue().isExpired(now)) {
+                    expired.add(entry.getKey());
+                    iterator.remove();
+                }
+            }
+            return expired;
+        }
+    }
+
+    private static class Reservation {
+        private final int quantity;
+        private final LocalDateTime expiresAt;
+
+        Reservation(int quantity, LocalDateTime expiresAt) {
+            this.quantity = quantity;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(LocalDateTime now) {
+            return expiresAt.isBefore(now);
+        }
+    }
+}
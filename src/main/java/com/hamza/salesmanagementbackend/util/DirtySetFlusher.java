@@ -0,0 +1,67 @@
+package com.hamza.salesmanagementbackend.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Ids of entities whose derived state is stale, marked once the change commits and processed in
+ * batches by the owner's scheduled flush or before a read. A batch that fails is marked again,
+ * so it is retried by the next flush.
+ */
+public class DirtySetFlusher {
+
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Marks an id once the current transaction commits, or immediately outside one
+     */
+    public void markAfterCommit(Long id) {
+        if (id != null) {
+            TransactionUtils.afterCommit(() -> dirty.add(id));
+        }
+    }
+
+    public void markAllAfterCommit(Collection<Long> ids) {
+        List<Long> copy = new ArrayList<>(ids);
+        TransactionUtils.afterCommit(() -> dirty.addAll(copy));
+    }
+
+    public void markAll(Collection<Long> ids) {
+        dirty.addAll(ids);
+    }
+
+    public void clear() {
+        dirty.clear();
+    }
+
+    public boolean isEmpty() {
+        return dirty.isEmpty();
+    }
+
+    public int size() {
+        return dirty.size();
+    }
+
+    /**
+     * Hands the marked ids to the processor and unmarks them; returns false if none were marked.
+     * Callers serialise flushes themselves.
+     */
+    public boolean flush(Consumer<List<Long>> processor) {
+        if (dirty.isEmpty()) {
+            return false;
+        }
+        List<Long> ids = new ArrayList<>(dirty);
+        dirty.removeAll(ids);
+        try {
+            processor.accept(ids);
+        } catch (RuntimeException e) {
+            dirty.addAll(ids);
+            throw e;
+        }
+        return true;
+    }
+}
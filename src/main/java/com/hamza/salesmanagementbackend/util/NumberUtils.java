@@ -0,0 +1,24 @@
+package com.hamza.salesmanagementbackend.util;
+
+import java.math.BigDecimal;
+
+/**
+ * Utility class for reading numeric columns of aggregate query rows, whose Java type depends on
+ * the database and the aggregate function; null reads as zero
+ */
+public class NumberUtils {
+
+    private NumberUtils() {
+    }
+
+    public static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+
+    public static BigDecimal toBigDecimal(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString());
+    }
+}
@@ -0,0 +1,59 @@
+package com.hamza.salesmanagementbackend.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Utility class for running in-memory side effects at transaction boundaries, so caches and
+ * indexes only ever see committed changes. Callbacks registered from inside another afterCommit
+ * callback never run; code on that path should act directly.
+ */
+public class TransactionUtils {
+
+    private TransactionUtils() {
+    }
+
+    /**
+     * Runs the action once the current transaction commits, or immediately outside one
+     */
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Runs the action now and, inside a transaction, again once it commits; for evictions that a
+     * concurrent read of the pre-commit state could otherwise undo
+     */
+    public static void nowAndAfterCommit(Runnable action) {
+        action.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            afterCommit(action);
+        }
+    }
+
+    /**
+     * Runs the action if the current transaction rolls back or fails to commit; does nothing
+     * outside a transaction
+     */
+    public static void unlessCommitted(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        action.run();
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.hamza.salesmanagementbackend.repository;
+
+import com.hamza.salesmanagementbackend.entity.Customer;
+import com.hamza.salesmanagementbackend.entity.Product;
+import com.hamza.salesmanagementbackend.entity.Sale;
+import com.hamza.salesmanagementbackend.entity.SaleItem;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Paged sale listings must cost a fixed number of statements however many sales a page holds:
+ * the customer is fetched with the sale and items, products and applied promotions are loaded in
+ * batches.
+ */
+@DataJpaTest(showSql = false, properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+class SaleRepositoryTest {
+
+    private static final int SALES = 40;
+    private static final int ITEMS_PER_SALE = 3;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    private Statistics statistics;
+    private Long customerId;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            customers.add(entityManager.persist(Customer.builder()
+                    .name("Customer " + i)
+                    .email("customer" + i + "@example.com")
+                    .build()));
+        }
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            products.add(entityManager.persist(new Product("Product " + i, null, new BigDecimal("10.00"), 100, null, "SKU-" + i)));
+        }
+        for (int i = 0; i < SALES; i++) {
+            Sale sale = new Sale(customers.get(i % customers.size()));
+            sale.setSaleNumber("SALE-TEST-" + i);
+            for (int j = 0; j < ITEMS_PER_SALE; j++) {
+                sale.getItems().add(new SaleItem(sale, products.get((i + j) % products.size()), 1, new BigDecimal("10.00")));
+            }
+            entityManager.persist(sale);
+        }
+        customerId = customers.get(0).getId();
+        entityManager.flush();
+    }
+
+    @Test
+    void findAllPageCostsTheSameStatementsForSmallAndLargePages() {
+        long small = statementsToRead(pageable -> saleRepository.findAll(pageable), 5);
+        long large = statementsToRead(pageable -> saleRepository.findAll(pageable), 30);
+
+        assertThat(large).isEqualTo(small);
+    }
+
+    @Test
+    void customerSalesPageCostsTheSameStatementsForSmallAndLargePages() {
+        long small = statementsToRead(pageable -> saleRepository.findByCustomerIdOrderBySaleDateDesc(customerId, pageable), 2);
+        long large = statementsToRead(pageable -> saleRepository.findByCustomerIdOrderBySaleDateDesc(customerId, pageable), 8);
+
+        assertThat(large).isEqualTo(small);
+    }
+
+    /**
+     * Reads the first page from a cleared persistence context and touches every association the
+     * sale DTO mapping reads; returns the number of statements prepared meanwhile
+     */
+    private long statementsToRead(Function<Pageable, Page<Sale>> query, int pageSize) {
+        entityManager.clear();
+        statistics.clear();
+
+        Page<Sale> page = query.apply(PageRequest.of(0, pageSize, Sort.by("id")));
+        assertThat(page.getContent()).hasSize(pageSize);
+        for (Sale sale : page.getContent()) {
+            assertThat(sale.getCustomer().getName()).isNotNull();
+            assertThat(sale.getItems()).hasSize(ITEMS_PER_SALE);
+            sale.getItems().forEach(item -> assertThat(item.getProduct().getName()).isNotNull());
+            assertThat(sale.getAppliedPromotions()).isEmpty();
+        }
+        return statistics.getPrepareStatementCount();
+    }
+}
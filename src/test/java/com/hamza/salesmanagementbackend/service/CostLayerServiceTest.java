@@ -0,0 +1,128 @@
+package com.hamza.salesmanagementbackend.service;
+
+import com.hamza.salesmanagementbackend.entity.Product;
+import com.hamza.salesmanagementbackend.repository.ProductRepository;
+import com.hamza.salesmanagementbackend.service.CostLayerService.ProductValuation;
+import com.hamza.salesmanagementbackend.service.CostLayerService.ValuationMethod;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * FIFO, LIFO and weighted-average valuation of the in-memory cost layers. Products are saved
+ * without stock so the rebuild records no opening layers for them.
+ */
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import(CostLayerService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CostLayerServiceTest {
+
+    @Autowired
+    private CostLayerService costLayerService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        // Builds the books up front so the entries below are applied on commit
+        costLayerService.getValuations(List.of());
+    }
+
+    @Test
+    void partialConsumptionTakesFromOppositeEndsOfMergedLayers() {
+        Long productId = newProduct("LAYERS-1");
+        int layersBefore = activeLayers();
+
+        receive(productId, 10, "2.00");
+        receive(productId, 5, "2.00");
+        receive(productId, 10, "3.00");
+        // The second receipt has the newest layer's cost and is merged into it, in both deques
+        assertThat(activeLayers() - layersBefore).isEqualTo(4);
+        assertValuation(productId, 25, "60.00", "60.00", "60.00");
+
+        consume(productId, 20);
+        // FIFO keeps 5 @ 3.00, LIFO keeps 5 @ 2.00, the average keeps 5/25 of 60.00
+        assertValuation(productId, 5, "15.00", "10.00", "12.00");
+        assertThat(activeLayers() - layersBefore).isEqualTo(2);
+    }
+
+    @Test
+    void consumptionBeyondTheLayersIsCountedShort() {
+        Long productId = newProduct("LAYERS-2");
+        long shortBefore = unitsShort();
+
+        receive(productId, 3, "1.00");
+        receive(productId, 1, "2.00");
+        consume(productId, 1);
+        assertValuation(productId, 3, "4.00", "3.00", "3.75");
+
+        consume(productId, 10);
+        assertValuation(productId, 0, "0.00", "0.00", "0.00");
+        assertThat(unitsShort() - shortBefore).isEqualTo(7);
+
+        // Units sold without layers are not carried over to the next receipt
+        receive(productId, 2, "1.25");
+        assertValuation(productId, 2, "2.50", "2.50", "2.50");
+    }
+
+    @Test
+    void parseAcceptsValuationAliases() {
+        assertThat(ValuationMethod.parse(null)).isEqualTo(ValuationMethod.FIFO);
+        assertThat(ValuationMethod.parse(" lifo ")).isEqualTo(ValuationMethod.LIFO);
+        assertThat(ValuationMethod.parse("weighted-average")).isEqualTo(ValuationMethod.WEIGHTED_AVERAGE);
+        assertThat(ValuationMethod.parse("wac")).isEqualTo(ValuationMethod.WEIGHTED_AVERAGE);
+    }
+
+    private Long newProduct(String sku) {
+        return productRepository.save(new Product("Layered product", null, new BigDecimal("10.00"), 0, null, sku))
+                .getId();
+    }
+
+    private void receive(Long productId, int quantity, String unitCost) {
+        transactionTemplate.executeWithoutResult(status ->
+                costLayerService.recordReceipt(productId, quantity, new BigDecimal(unitCost), "TEST", null));
+    }
+
+    private void consume(Long productId, int quantity) {
+        transactionTemplate.executeWithoutResult(status ->
+                costLayerService.recordConsumption(productId, quantity, "TEST", null));
+    }
+
+    private void assertValuation(Long productId, long quantity, String fifo, String lifo, String weightedAverage) {
+        ProductValuation valuation = costLayerService.getValuations(List.of(productId)).get(productId);
+        assertThat(valuation.getQuantity()).isEqualTo(quantity);
+        assertThat(valuation.getValue(ValuationMethod.FIFO)).isEqualByComparingTo(fifo);
+        assertThat(valuation.getValue(ValuationMethod.LIFO)).isEqualByComparingTo(lifo);
+        assertThat(valuation.getValue(ValuationMethod.WEIGHTED_AVERAGE)).isEqualByComparingTo(weightedAverage);
+    }
+
+    private int activeLayers() {
+        return (Integer) costLayerService.getStatistics().get("activeLayers");
+    }
+
+    private long unitsShort() {
+        return (Long) costLayerService.getStatistics().get("unitsConsumedWithoutLayers");
+    }
+}
@@ -0,0 +1,29 @@
+package com.hamza.salesmanagementbackend.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Region words only match whole words of the address, so a state code inside a city name does
+ * not pick the state's region.
+ */
+class CustomerRegionServiceTest {
+
+    @Test
+    void stateCodeMatchesOnlyAsWholeWord() {
+        assertThat(CustomerRegionService.resolveRegionName("12 Main St, Los Angeles, CA", null))
+                .isEqualTo("West Region");
+        assertThat(CustomerRegionService.resolveRegionName("45 Boulevard Zerktouni, Casablanca", null))
+                .isEqualTo("Casablanca Region");
+    }
+
+    @Test
+    void blankAddressFallsBackToBillingAddress() {
+        assertThat(CustomerRegionService.resolveRegionName("  ", "350 5th Ave, New York, NY"))
+                .isEqualTo("East Region");
+        assertThat(CustomerRegionService.resolveRegionName(null, null)).isEqualTo(CustomerRegionService.UNKNOWN);
+        assertThat(CustomerRegionService.resolveRegionName("Unit 4", null))
+                .isEqualTo(CustomerRegionService.UNKNOWN_REGION);
+    }
+}
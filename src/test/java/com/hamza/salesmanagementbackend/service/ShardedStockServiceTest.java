@@ -0,0 +1,169 @@
+package com.hamza.salesmanagementbackend.service;
+
+import com.hamza.salesmanagementbackend.entity.Product;
+import com.hamza.salesmanagementbackend.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Sharded stock of a single hot product; the scheduled reconcile is pushed out so only the
+ * explicit calls run. The throughput benchmark is skipped in the regular build, run it with
+ * mvn test -Dtest=ShardedStockServiceTest -Dbenchmark=true
+ */
+@DataJpaTest(showSql = false, properties = "app.stock.shard-reconcile-interval=3600000")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import(ShardedStockService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Slf4j
+class ShardedStockServiceTest {
+
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16};
+    private static final int SALES_PER_RUN = 800;
+    private static final int SHARDS = 16;
+    private static final long HOLD_MILLIS = 2;
+    private static final int INITIAL_STOCK = 1_000_000;
+
+    @Autowired
+    private ShardedStockService shardedStockService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private InventorySummaryService inventorySummaryService;
+
+    private TransactionTemplate transactionTemplate;
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        productId = productRepository.save(new Product("Hot product", null, new BigDecimal("10.00"),
+                INITIAL_STOCK, null, "HOT-1")).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        shardedStockService.disableSharding(productId);
+        productRepository.deleteById(productId);
+    }
+
+    @Test
+    void reconcileCopiesDriftedTotalOnce() {
+        shardedStockService.enableSharding(productId, SHARDS);
+        for (int i = 0; i < 10; i++) {
+            assertThat(shardedStockService.decrement(productId, SHARDS, 3)).isTrue();
+        }
+        assertThat(productRepository.findDriftedShardedProductIds()).containsExactly(productId);
+
+        // The first reconcile copies the drifted total and refreshes the product; an idle one does neither
+        shardedStockService.reconcileShardedStock();
+        assertThat(productRepository.findById(productId).orElseThrow().getStockQuantity())
+                .isEqualTo(INITIAL_STOCK - 30);
+        assertThat(productRepository.findDriftedShardedProductIds()).isEmpty();
+        shardedStockService.reconcileShardedStock();
+        verify(inventorySummaryService, times(1)).productsChanged(anyCollection());
+        verify(inventorySummaryService).productsChanged(List.of(productId));
+    }
+
+    /**
+     * Concurrent one-unit sales decremented on the product row versus on stock shards, for each
+     * thread count. Each sale transaction holds its row lock for HOLD_MILLIS after the decrement,
+     * standing in for the rest of the sale and the commit.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void shardedDecrementsOutrunSingleRowDecrements() throws Exception {
+        int expectedStock = INITIAL_STOCK;
+        double singleRow = 0;
+        double sharded = 0;
+
+        for (int threads : THREAD_COUNTS) {
+            singleRow = salesPerSecond(threads,
+                    () -> productRepository.decrementStockIfAvailable(productId, 1) == 1);
+            expectedStock -= SALES_PER_RUN;
+            assertThat(productRepository.findById(productId).orElseThrow().getStockQuantity())
+                    .isEqualTo(expectedStock);
+
+            shardedStockService.enableSharding(productId, SHARDS);
+            sharded = salesPerSecond(threads, () -> shardedStockService.decrement(productId, SHARDS, 1));
+            expectedStock -= SALES_PER_RUN;
+            assertThat(shardedStockService.getTotalStock(productId)).isEqualTo(expectedStock);
+            shardedStockService.disableSharding(productId);
+
+            log.info("{} threads, {} sales, {} ms lock hold: single row {} sales/s, {} shards {} sales/s ({}x)",
+                    threads, SALES_PER_RUN, HOLD_MILLIS, Math.round(singleRow), SHARDS, Math.round(sharded),
+                    String.format("%.1f", sharded / singleRow));
+        }
+
+        assertThat(sharded).isGreaterThan(singleRow);
+    }
+
+    private double salesPerSecond(int threads, StockDecrement decrement) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long started = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int sales = SALES_PER_RUN / threads + (t < SALES_PER_RUN % threads ? 1 : 0);
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < sales; i++) {
+                        transactionTemplate.executeWithoutResult(status -> {
+                            assertThat(decrement.apply()).isTrue();
+                            hold();
+                        });
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.MINUTES);
+            }
+            return SALES_PER_RUN / ((System.nanoTime() - started) / 1e9);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void hold() {
+        try {
+            Thread.sleep(HOLD_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    private interface StockDecrement {
+        boolean apply();
+    }
+}
@@ -0,0 +1,112 @@
+package com.hamza.salesmanagementbackend.service;
+
+import com.hamza.salesmanagementbackend.entity.Product;
+import com.hamza.salesmanagementbackend.entity.StockMovement;
+import com.hamza.salesmanagementbackend.entity.StockSnapshot;
+import com.hamza.salesmanagementbackend.repository.ProductRepository;
+import com.hamza.salesmanagementbackend.repository.StockSnapshotRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A movement whose transaction commits after a later movement was snapshotted must still be
+ * counted exactly once, both before and after the next snapshot run picks it up.
+ */
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import(StockMovementService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockMovementServiceTest {
+
+    @Autowired
+    private StockMovementService stockMovementService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void movementCommittedAfterSnapshotIsAddedToIt() throws Exception {
+        // Sharded products are left out of reconciliation, which keeps the ledger to these movements
+        Product product = new Product("Ledger product", null, new BigDecimal("10.00"), 0, null, "LEDGER-1");
+        product.setStockShardCount(2);
+        Long productId = productRepository.save(product).getId();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        CompletableFuture<Void> slowSale = CompletableFuture.runAsync(() ->
+                transactionTemplate.executeWithoutResult(status -> {
+                    record(productId, 5);
+                    inserted.countDown();
+                    await(commit);
+                }));
+        assertThat(inserted.await(10, TimeUnit.SECONDS)).isTrue();
+        transactionTemplate.executeWithoutResult(status -> record(productId, 3));
+
+        Map<String, Object> first = stockMovementService.run();
+        assertThat(first.get("gapsRecorded")).isEqualTo(1);
+        assertThat(latestSnapshot(productId).getQuantity()).isEqualTo(3);
+
+        commit.countDown();
+        slowSale.get(10, TimeUnit.SECONDS);
+        assertThat(stockAsOfNow(productId)).isEqualTo(8);
+
+        Map<String, Object> second = stockMovementService.run();
+        assertThat(second.get("lateMovements")).isEqualTo(1);
+        assertThat(latestSnapshot(productId).getQuantity()).isEqualTo(8);
+        assertThat(stockAsOfNow(productId)).isEqualTo(8);
+
+        transactionTemplate.executeWithoutResult(status -> record(productId, -2));
+        stockMovementService.run();
+        assertThat(latestSnapshot(productId).getQuantity()).isEqualTo(6);
+        assertThat(stockAsOfNow(productId)).isEqualTo(6);
+    }
+
+    private void record(Long productId, int quantity) {
+        stockMovementService.record(productId, quantity > 0 ? StockMovement.MovementType.RESTOCK
+                : StockMovement.MovementType.SALE, quantity, null, "TEST");
+    }
+
+    private StockSnapshot latestSnapshot(Long productId) {
+        List<StockSnapshot> latest = snapshotRepository.findLatestByProductIds(List.of(productId));
+        assertThat(latest).hasSize(1);
+        return latest.get(0);
+    }
+
+    private int stockAsOfNow(Long productId) {
+        return (Integer) stockMovementService.getStockAsOf(productId, LocalDateTime.now()).get("quantity");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}